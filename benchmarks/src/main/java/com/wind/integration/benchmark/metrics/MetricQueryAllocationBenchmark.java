@@ -0,0 +1,103 @@
+package com.wind.integration.benchmark.metrics;
+
+import com.wind.integration.metrics.enums.MetricExecutionMode;
+import com.wind.integration.metrics.enums.MetricValueShape;
+import com.wind.integration.metrics.enums.MetricValueType;
+import com.wind.integration.metrics.query.ImmutableMetricMap;
+import com.wind.integration.metrics.query.MetricFieldValue;
+import com.wind.integration.metrics.query.MetricQuery;
+import com.wind.integration.metrics.query.MetricResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 查询契约的构造与访问开销：普通映射走防御性复制，{@link ImmutableMetricMap} 走受信构造路径。
+ *
+ * <p>每次调用构造一个查询、读取两次维度条件并据此构造一个派生查询，再构造一个多字段结果。
+ * 使用 {@code -prof gc} 运行，对比 {@code gc.alloc.rate.norm}（每次调用分配的字节数）。</p>
+ *
+ * @author wuxp
+ * @date 2026-08-10 09:30
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricQueryAllocationBenchmark {
+
+    private static final LocalDateTime START_TIME = LocalDateTime.of(2026, 6, 1, 0, 0);
+
+    private static final LocalDateTime END_TIME = LocalDateTime.of(2026, 7, 1, 0, 0);
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    private Map<String, Object> plainDimensions;
+
+    private Map<String, MetricFieldValue> plainFields;
+
+    private ImmutableMetricMap<Object> trustedDimensions;
+
+    private ImmutableMetricMap<MetricFieldValue> trustedFields;
+
+    @Setup
+    public void setup() {
+        plainDimensions = new LinkedHashMap<>();
+        plainDimensions.put("currency", "USD");
+        plainDimensions.put("channel", 3L);
+        plainDimensions.put("merchantCategory", "5411");
+        trustedDimensions = ImmutableMetricMap.builder(plainDimensions.size())
+                .put("currency", (Object) "USD")
+                .put("channel", 3L)
+                .put("merchantCategory", "5411")
+                .build();
+        plainFields = new LinkedHashMap<>();
+        plainFields.put("count", new MetricFieldValue(MetricValueType.LONG, 12L));
+        plainFields.put("amount", new MetricFieldValue(MetricValueType.DECIMAL, new BigDecimal("120.50")));
+        ImmutableMetricMap.Builder<MetricFieldValue> fields = ImmutableMetricMap.builder(plainFields.size());
+        plainFields.forEach(fields::put);
+        trustedFields = fields.build();
+    }
+
+    @Benchmark
+    public void defensiveCopy(Blackhole blackhole) {
+        run(plainDimensions, plainFields, blackhole);
+    }
+
+    @Benchmark
+    public void trustedConstruction(Blackhole blackhole) {
+        run(trustedDimensions, trustedFields, blackhole);
+    }
+
+    private static void run(Map<String, Object> dimensions,
+                            Map<String, MetricFieldValue> fields,
+                            Blackhole blackhole) {
+        MetricQuery query = new MetricQuery(
+                "VCC_AMOUNT_SUMMARY", "cust_001", START_TIME, END_TIME, dimensions, Map.of());
+        blackhole.consume(query.dimensionValues().get("currency"));
+        MetricQuery leafQuery = new MetricQuery(
+                "VCC_AMOUNT_COUNT", query.subjectId(), START_TIME, END_TIME, query.dimensionValues(), Map.of());
+        blackhole.consume(leafQuery);
+        blackhole.consume(new MetricResult("VCC_AMOUNT_SUMMARY", 1, MetricExecutionMode.REALTIME, null, null,
+                MetricValueShape.FIELD_SET, null, null, fields, "cust_001", START_TIME, END_TIME, END_TIME, ZONE,
+                null, null, null, null, List.of()));
+    }
+}
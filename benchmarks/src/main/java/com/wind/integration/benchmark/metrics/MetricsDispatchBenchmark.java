@@ -0,0 +1,129 @@
+package com.wind.integration.benchmark.metrics;
+
+import com.wind.integration.metrics.CompositeMetricsStatisticsExecutor;
+import com.wind.integration.metrics.CompositeMetricsValueResolver;
+import com.wind.integration.metrics.WindMetricsStatisticsExecutor;
+import com.wind.integration.metrics.WindMetricsValueResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 组合执行器和组合解析器的分派开销：逐个调用 {@code supports} 的线性扫描与按类型缓存的分派对比。
+ *
+ * <p>每个委托只支持一个标记名，目标类型由最后一个委托支持，对应线性扫描的最坏情况。</p>
+ *
+ * @author wuxp
+ * @date 2026-08-03 09:20
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsDispatchBenchmark {
+
+    @Param({"8", "64"})
+    private int delegateCount;
+
+    private final Order order = new Order();
+
+    private List<WindMetricsStatisticsExecutor<?>> executors;
+
+    private List<WindMetricsValueResolver<?>> resolvers;
+
+    private CompositeMetricsStatisticsExecutor indexedExecutor;
+
+    private CompositeMetricsValueResolver indexedResolver;
+
+    @Setup
+    public void setup() {
+        executors = new ArrayList<>(delegateCount);
+        resolvers = new ArrayList<>(delegateCount);
+        for (int i = 0; i < delegateCount - 1; i++) {
+            executors.add(new NamedExecutor(Order.class.getName() + "$" + i));
+            resolvers.add(new NamedResolver(Long.class.getName() + "$" + i));
+        }
+        executors.add(new NamedExecutor(Order.class.getName()));
+        resolvers.add(new NamedResolver(Long.class.getName()));
+        indexedExecutor = new CompositeMetricsStatisticsExecutor(executors);
+        indexedResolver = new CompositeMetricsValueResolver(resolvers);
+    }
+
+    @Benchmark
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void linearScanExecute() {
+        for (WindMetricsStatisticsExecutor delegate : executors) {
+            if (delegate.supports(order.getClass())) {
+                delegate.execute(order, Map.of());
+            }
+        }
+    }
+
+    @Benchmark
+    public void indexedExecute() {
+        indexedExecutor.execute(order, Map.of());
+    }
+
+    @Benchmark
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void linearScanResolve(Blackhole blackhole) {
+        for (WindMetricsValueResolver delegate : resolvers) {
+            if (delegate.supports(Long.class)) {
+                blackhole.consume(delegate.resolve(1L, Long.class));
+                return;
+            }
+        }
+    }
+
+    @Benchmark
+    public void indexedResolve(Blackhole blackhole) {
+        blackhole.consume(indexedResolver.resolve(1L, Long.class));
+    }
+
+    static final class Order {
+    }
+
+    private record NamedExecutor(String typeName) implements WindMetricsStatisticsExecutor<Object> {
+
+        @Override
+        public void execute(Object businessObject, Map<String, Object> variables) {
+            // 只测量分派开销
+        }
+
+        @Override
+        public boolean supports(Class<?> businessObjectType) {
+            return typeName.equals(businessObjectType.getName());
+        }
+    }
+
+    private record NamedResolver(String typeName) implements WindMetricsValueResolver<Object> {
+
+        @Override
+        public Object resolve(Collection<? extends Serializable> dimensionsIds, Class<?> metricsValueType) {
+            return typeName;
+        }
+
+        @Override
+        public boolean supports(Class<Object> metricsValueType) {
+            return typeName.equals(metricsValueType.getName());
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.wind.mybatis.flex.tag;
+
+/**
+ * 标签 upsert 语句引用插入值的语法
+ * 两种语法都先按旧优先级更新其他列，最后更新优先级；新优先级 >= 当前优先级时覆盖，
+ * 赋值按顺序计算（MySQL）或全部读取旧值（H2）时结果一致
+ *
+ * @author wuxp
+ * @date 2026-08-15 10:10
+ **/
+public enum EntityTagUpsertSyntax {
+
+    /**
+     * 插入行别名（MySQL 8.0.19+），new 是插入行的别名，未限定的列名是表中已有的值
+     */
+    ROW_ALIAS(" AS new ON DUPLICATE KEY UPDATE "
+            + "tag_value = IF(new.source_priority >= source_priority, new.tag_value, tag_value), "
+            + "tag_source = IF(new.source_priority >= source_priority, new.tag_source, tag_source), "
+            + "source_id = IF(new.source_priority >= source_priority, new.source_id, source_id), "
+            + "source_priority = GREATEST(source_priority, new.source_priority)"),
+
+    /**
+     * VALUES(col) 函数（MySQL 8.0.19 之前的版本、H2 的 MySQL 兼容模式），MySQL 8.0.20 起已废弃
+     */
+    VALUES_FUNCTION(" ON DUPLICATE KEY UPDATE "
+            + "tag_value = CASE WHEN VALUES(source_priority) >= source_priority "
+            + "THEN VALUES(tag_value) ELSE tag_value END, "
+            + "tag_source = CASE WHEN VALUES(source_priority) >= source_priority "
+            + "THEN VALUES(tag_source) ELSE tag_source END, "
+            + "source_id = CASE WHEN VALUES(source_priority) >= source_priority "
+            + "THEN VALUES(source_id) ELSE source_id END, "
+            + "source_priority = GREATEST(source_priority, VALUES(source_priority))");
+
+    private final String updateClause;
+
+    EntityTagUpsertSyntax(String updateClause) {
+        this.updateClause = updateClause;
+    }
+
+    /**
+     * @return 追加在 INSERT ... VALUES 之后的更新子句
+     */
+    String getUpdateClause() {
+        return updateClause;
+    }
+}
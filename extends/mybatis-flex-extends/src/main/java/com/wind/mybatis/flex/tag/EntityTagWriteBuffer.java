@@ -0,0 +1,225 @@
+package com.wind.mybatis.flex.tag;
+
+import com.wind.common.exception.AssertUtils;
+import com.wind.integration.tag.EntityTag;
+import com.wind.integration.tag.TagSource;
+import com.wind.integration.tag.TaggingResult;
+import org.jspecify.annotations.Nullable;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 标签写缓冲，按 (对象标识, 标签名称) 合并待写入的标签
+ * 合并规则与 {@link com.wind.integration.tag.EntityTagRepository#saveTags} 一致：新标签来源优先级 >= 待写入标签时覆盖，
+ * 因此同一个标签在一个刷写周期内被重复写入时只写一次数据库
+ * 缓冲中的标签与正在写入的标签合计不超过容量，超出时拒绝写入，写入失败放回的标签不会让缓冲无限增长
+ * 正在写入的标签在写入成功或放回之前仍然可以读取，读取方不会在刷写期间看不到刚写入的标签
+ *
+ * @param <I> 业务对象标识类型
+ * @author wuxp
+ * @date 2026-08-15 09:40
+ **/
+final class EntityTagWriteBuffer<I extends Serializable> {
+
+    private final Map<I, Map<String, EntityTag>> pending = new LinkedHashMap<>();
+
+    private final int capacity;
+
+    private int size;
+
+    /**
+     * 已取出正在写入的标签
+     */
+    private final Map<I, Map<String, EntityTag>> flushingTags = new HashMap<>();
+
+    /**
+     * 已取出正在写入的标签数量
+     */
+    private int flushing;
+
+    EntityTagWriteBuffer() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param capacity 缓冲容量（包括正在写入的标签）
+     */
+    EntityTagWriteBuffer(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * 合并待写入的标签
+     *
+     * @param objectId 对象标识
+     * @param tags     标签
+     * @return 合并后待写入的标签数量
+     */
+    synchronized int add(I objectId, Collection<EntityTag> tags) {
+        checkCapacity(tags.size());
+        return merge(objectId, tags);
+    }
+
+    /**
+     * 合并待写入的打标结果，容量不足时整批拒绝
+     *
+     * @param results 打标结果
+     * @return 合并后待写入的标签数量
+     */
+    @SuppressWarnings("unchecked")
+    synchronized int add(Collection<TaggingResult> results) {
+        checkCapacity(results.stream().mapToLong(result -> result.tags().size()).sum());
+        results.forEach(result -> merge((I) result.data().getId(), result.tags()));
+        return size;
+    }
+
+    /**
+     * @param count 待放入的标签数量
+     * @return 缓冲是否还能放入这些标签
+     */
+    synchronized boolean hasCapacity(int count) {
+        return (long) size + flushing + count <= capacity;
+    }
+
+    private void checkCapacity(long count) {
+        AssertUtils.state((long) size + flushing + count <= capacity,
+                () -> "entity tag write buffer is full, capacity = " + capacity + ", pending = " + (size + flushing));
+    }
+
+    private int merge(I objectId, Collection<EntityTag> tags) {
+        Map<String, EntityTag> current = pending.computeIfAbsent(objectId, key -> new HashMap<>());
+        for (EntityTag tag : tags) {
+            EntityTag previous = current.get(tag.name());
+            if (previous == null) {
+                current.put(tag.name(), tag);
+                size++;
+            } else if (overrides(tag, previous)) {
+                current.put(tag.name(), tag);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 取出全部待写入的标签并清空缓冲，取出的标签在 {@link #flushed()} 或 {@link #restore} 之前仍然占用容量
+     *
+     * @return 待写入的标签
+     */
+    synchronized List<PendingTag<I>> drain() {
+        List<PendingTag<I>> result = new ArrayList<>(size);
+        pending.forEach((objectId, tags) -> tags.values().forEach(tag -> result.add(new PendingTag<>(objectId, tag))));
+        flushingTags.putAll(pending);
+        pending.clear();
+        flushing += size;
+        size = 0;
+        return result;
+    }
+
+    /**
+     * 取出的标签写入成功，释放占用的容量
+     */
+    synchronized void flushed() {
+        flushingTags.clear();
+        flushing = 0;
+    }
+
+    /**
+     * 写入失败时放回取出的标签，已有更新的同名标签时保留更新的标签（除非放回的标签优先级更高）
+     * 放回的标签已经计入容量，合并后缓冲不会超过容量
+     *
+     * @param tags 取出的标签
+     */
+    synchronized void restore(List<PendingTag<I>> tags) {
+        flushingTags.clear();
+        flushing = 0;
+        for (PendingTag<I> item : tags) {
+            Map<String, EntityTag> current = pending.computeIfAbsent(item.objectId(), key -> new HashMap<>());
+            EntityTag newer = current.get(item.tag().name());
+            if (newer == null) {
+                current.put(item.tag().name(), item.tag());
+                size++;
+            } else if (item.tag().source().getPriority() > newer.source().getPriority()) {
+                current.put(item.tag().name(), item.tag());
+            }
+        }
+    }
+
+    /**
+     * @param objectId 对象标识
+     * @param tagName  标签名称
+     * @return 待写入或正在写入的标签
+     */
+    @Nullable
+    synchronized EntityTag get(I objectId, String tagName) {
+        EntityTag newer = pending.getOrDefault(objectId, Collections.emptyMap()).get(tagName);
+        EntityTag writing = flushingTags.getOrDefault(objectId, Collections.emptyMap()).get(tagName);
+        return newer != null && overrides(newer, writing) ? newer : writing;
+    }
+
+    /**
+     * @param objectId 对象标识
+     * @return 对象待写入或正在写入的标签，标签名称 -> 标签
+     */
+    synchronized Map<String, EntityTag> get(I objectId) {
+        Map<String, EntityTag> result = new HashMap<>(flushingTags.getOrDefault(objectId, Collections.emptyMap()));
+        pending.getOrDefault(objectId, Collections.emptyMap()).forEach((name, tag) -> {
+            if (overrides(tag, result.get(name))) {
+                result.put(name, tag);
+            }
+        });
+        return result;
+    }
+
+    synchronized void remove(I objectId, String tagName) {
+        Map<String, EntityTag> tags = pending.get(objectId);
+        if (tags != null && tags.remove(tagName) != null) {
+            size--;
+        }
+    }
+
+    synchronized void remove(I objectId) {
+        Map<String, EntityTag> tags = pending.remove(objectId);
+        if (tags != null) {
+            size -= tags.size();
+        }
+    }
+
+    synchronized void remove(I objectId, TagSource source) {
+        Map<String, EntityTag> tags = pending.get(objectId);
+        if (tags != null) {
+            int before = tags.size();
+            tags.values().removeIf(tag -> tag.source() == source);
+            size -= before - tags.size();
+        }
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @param tag     新标签
+     * @param current 当前标签
+     * @return 新标签是否覆盖当前标签
+     */
+    static boolean overrides(EntityTag tag, @Nullable EntityTag current) {
+        return current == null || tag.source().getPriority() >= current.source().getPriority();
+    }
+
+    /**
+     * 待写入的标签
+     *
+     * @param objectId 对象标识
+     * @param tag      标签
+     */
+    record PendingTag<I extends Serializable>(I objectId, EntityTag tag) {
+
+    }
+}
@@ -0,0 +1,405 @@
+package com.wind.mybatis.flex.tag;
+
+import com.mybatisflex.core.row.Db;
+import com.mybatisflex.core.row.Row;
+import com.wind.common.exception.AssertUtils;
+import com.wind.integration.core.model.IdObject;
+import com.wind.integration.tag.EntityTag;
+import com.wind.integration.tag.EntityTagRepository;
+import com.wind.integration.tag.TagSource;
+import com.wind.integration.tag.TaggingResult;
+import jakarta.validation.constraints.NotNull;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * 基于 mybatis flex {@link Db} 的标签服务（MySQL）
+ * 一批标签使用一条条件 upsert 写入，来源优先级在数据库内比较（新优先级 >= 当前优先级时覆盖），不再逐个标签读取比较
+ * 开启写缓冲后，标签先按 (对象标识, 标签名称) 在内存中合并，每隔 flushInterval 或累计 maxBufferSize 个标签时批量写入，
+ * 规则打标反复写入的相同标签在一个刷写周期内只写一次；读取时先读缓冲再读数据库，合并尚未写入和正在写入的标签，
+ * 删除时同时丢弃尚未写入的标签
+ * 写入失败的标签放回缓冲在下一次刷写时重试，写入时触发的刷写失败不影响本次写入；
+ * 缓冲中的标签（包括正在写入的标签）最多 maxPendingTags 个，缓冲已满时写入线程先同步刷写，仍然放不下时拒绝写入；
+ * {@link #close()} 停止定时任务并执行最终刷写，关闭后拒绝写入
+ * 每条 upsert 语句中的行按 (object_id, tag_name) 排序，并发批量写入时按相同的顺序加锁；
+ * upsert 默认使用行别名引用新值（MySQL 8.0.19+），旧版本 MySQL 和 H2 使用 {@link EntityTagUpsertSyntax#VALUES_FUNCTION}
+ * 表结构：
+ * <pre>{@code
+ * CREATE TABLE t_entity_tag (
+ *     id              BIGINT AUTO_INCREMENT PRIMARY KEY,
+ *     object_id       VARCHAR(64)  NOT NULL,
+ *     tag_name        VARCHAR(64)  NOT NULL,
+ *     tag_value       VARCHAR(512) NOT NULL,
+ *     tag_source      VARCHAR(32)  NOT NULL,
+ *     source_priority INT          NOT NULL,
+ *     source_id       VARCHAR(64)  NOT NULL,
+ *     UNIQUE KEY uk_object_tag (object_id, tag_name)
+ * );
+ * }</pre>
+ *
+ * @param <I> 业务对象标识类型
+ * @author wuxp
+ * @date 2026-08-15 10:20
+ **/
+@Slf4j
+public class MybatisFlexEntityTagRepository<I extends Serializable> implements EntityTagRepository<I>, AutoCloseable {
+
+    /**
+     * 单条 upsert 语句的最大行数
+     */
+    private static final int MAX_UPSERT_ROWS = 500;
+
+    private static final Pattern TABLE_NAME_PATTERN = Pattern.compile("[A-Za-z0-9_.]+");
+
+    private static final String COLUMNS = "tag_name, tag_value, tag_source, source_id";
+
+    private static final String UPSERT_ROW = "(?, ?, ?, ?, ?, ?)";
+
+    /**
+     * upsert 行顺序，与唯一索引 (object_id, tag_name) 一致
+     */
+    private static final Comparator<EntityTagWriteBuffer.PendingTag<?>> UPSERT_ORDER =
+            Comparator.<EntityTagWriteBuffer.PendingTag<?>, String>comparing(row -> String.valueOf(row.objectId()))
+                    .thenComparing(row -> row.tag().name());
+
+    private final String tableName;
+
+    private final EntityTagUpsertSyntax upsertSyntax;
+
+    @Nullable
+    private final EntityTagWriteBuffer<I> buffer;
+
+    private final int maxBufferSize;
+
+    @Nullable
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * 刷写与删除互斥，避免刷写中的标签在删除之后写回
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * 写入缓冲时持有读锁，关闭时持有写锁，保证关闭之前放入缓冲的标签都能被最终刷写
+     */
+    private final ReadWriteLock stateLock = new ReentrantReadWriteLock();
+
+    private volatile boolean closed;
+
+    /**
+     * 创建直接写入的标签服务
+     *
+     * @param tableName 标签表名称
+     */
+    public MybatisFlexEntityTagRepository(@NonNull String tableName) {
+        this(tableName, EntityTagUpsertSyntax.ROW_ALIAS);
+    }
+
+    /**
+     * 创建直接写入的标签服务
+     *
+     * @param tableName    标签表名称
+     * @param upsertSyntax upsert 语法
+     */
+    public MybatisFlexEntityTagRepository(@NonNull String tableName, @NonNull EntityTagUpsertSyntax upsertSyntax) {
+        AssertUtils.notNull(upsertSyntax, "argument upsertSyntax must not null");
+        this.tableName = checkTableName(tableName);
+        this.upsertSyntax = upsertSyntax;
+        this.buffer = null;
+        this.maxBufferSize = 0;
+        this.scheduler = null;
+    }
+
+    /**
+     * 创建带写缓冲的标签服务，缓冲最多保存 maxBufferSize * 10 个待写入标签
+     *
+     * @param tableName     标签表名称
+     * @param flushInterval 刷写间隔
+     * @param maxBufferSize 待写入标签达到该数量时立即刷写
+     */
+    public MybatisFlexEntityTagRepository(@NonNull String tableName,
+                                          @NonNull Duration flushInterval,
+                                          int maxBufferSize) {
+        this(tableName, flushInterval, maxBufferSize, (int) Math.min(Integer.MAX_VALUE, maxBufferSize * 10L));
+    }
+
+    /**
+     * 创建带写缓冲的标签服务
+     *
+     * @param tableName      标签表名称
+     * @param flushInterval  刷写间隔
+     * @param maxBufferSize  待写入标签达到该数量时立即刷写
+     * @param maxPendingTags 缓冲最多保存的待写入标签数量（包括正在写入的标签），数据库持续写入失败时超出的写入被拒绝
+     */
+    public MybatisFlexEntityTagRepository(@NonNull String tableName,
+                                          @NonNull Duration flushInterval,
+                                          int maxBufferSize,
+                                          int maxPendingTags) {
+        this(tableName, EntityTagUpsertSyntax.ROW_ALIAS, flushInterval, maxBufferSize, maxPendingTags);
+    }
+
+    /**
+     * 创建带写缓冲的标签服务
+     *
+     * @param tableName      标签表名称
+     * @param upsertSyntax   upsert 语法
+     * @param flushInterval  刷写间隔
+     * @param maxBufferSize  待写入标签达到该数量时立即刷写
+     * @param maxPendingTags 缓冲最多保存的待写入标签数量（包括正在写入的标签），数据库持续写入失败时超出的写入被拒绝
+     */
+    public MybatisFlexEntityTagRepository(@NonNull String tableName,
+                                          @NonNull EntityTagUpsertSyntax upsertSyntax,
+                                          @NonNull Duration flushInterval,
+                                          int maxBufferSize,
+                                          int maxPendingTags) {
+        AssertUtils.notNull(upsertSyntax, "argument upsertSyntax must not null");
+        AssertUtils.isTrue(flushInterval.toMillis() > 0, "argument flushInterval must be positive");
+        AssertUtils.isTrue(maxBufferSize > 0, "argument maxBufferSize must be positive");
+        AssertUtils.isTrue(maxPendingTags >= maxBufferSize, "argument maxPendingTags must >= maxBufferSize");
+        this.tableName = checkTableName(tableName);
+        this.upsertSyntax = upsertSyntax;
+        this.buffer = new EntityTagWriteBuffer<>(maxPendingTags);
+        this.maxBufferSize = maxBufferSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "wind-entity-tag-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = flushInterval.toMillis();
+        this.scheduler.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void saveTags(@NonNull IdObject<I> target, @NonNull Collection<EntityTag> tags) {
+        AssertUtils.notNull(target, "argument target must not null");
+        AssertUtils.notNull(tags, "argument tags must not null");
+        if (tags.isEmpty()) {
+            return;
+        }
+        if (buffer == null) {
+            EntityTagWriteBuffer<I> merged = new EntityTagWriteBuffer<>();
+            merged.add(target.getId(), tags);
+            upsert(merged.drain());
+        } else {
+            write(buffer, tags.size(), () -> buffer.add(target.getId(), tags));
+        }
+    }
+
+    @Override
+    public void saveTags(@NonNull Collection<TaggingResult> results) {
+        AssertUtils.notNull(results, "argument results must not null");
+        if (buffer == null) {
+            EntityTagWriteBuffer<I> merged = new EntityTagWriteBuffer<>();
+            merged.add(results);
+            upsert(merged.drain());
+        } else {
+            int count = results.stream().mapToInt(result -> result.tags().size()).sum();
+            write(buffer, count, () -> buffer.add(results));
+        }
+    }
+
+    @Override
+    @Nullable
+    public EntityTag getTag(@NotNull I objectId, @NonNull String tagName) {
+        // 先读缓冲：读取缓冲之后才写入成功的标签一定能从数据库读到
+        EntityTag pending = buffer == null ? null : buffer.get(objectId, tagName);
+        List<Row> rows = Db.selectListBySql("SELECT " + COLUMNS + " FROM " + tableName
+                + " WHERE object_id = ? AND tag_name = ?", objectId, tagName);
+        EntityTag result = rows.isEmpty() ? null : toTag(rows.get(0));
+        return pending != null && EntityTagWriteBuffer.overrides(pending, result) ? pending : result;
+    }
+
+    @Override
+    @NonNull
+    public List<EntityTag> getTags(@NonNull I objectId) {
+        Map<String, EntityTag> pending = buffer == null ? Collections.emptyMap() : buffer.get(objectId);
+        List<Row> rows = Db.selectListBySql("SELECT " + COLUMNS + " FROM " + tableName + " WHERE object_id = ?",
+                objectId);
+        Map<String, EntityTag> result = new LinkedHashMap<>();
+        rows.forEach(row -> {
+            EntityTag tag = toTag(row);
+            result.put(tag.name(), tag);
+        });
+        pending.forEach((name, tag) -> {
+            if (EntityTagWriteBuffer.overrides(tag, result.get(name))) {
+                result.put(name, tag);
+            }
+        });
+        return Collections.unmodifiableList(new ArrayList<>(result.values()));
+    }
+
+    @Override
+    @NonNull
+    public List<EntityTag> getTags(@NonNull I objectId, @NonNull TagSource source) {
+        return getTags(objectId).stream().filter(tag -> tag.source() == source).toList();
+    }
+
+    @Override
+    public void deleteTag(@NonNull I objectId, @NonNull String tagName) {
+        writeLock.lock();
+        try {
+            if (buffer != null) {
+                buffer.remove(objectId, tagName);
+            }
+            Db.deleteBySql("DELETE FROM " + tableName + " WHERE object_id = ? AND tag_name = ?", objectId, tagName);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteTags(@NonNull I objectId) {
+        writeLock.lock();
+        try {
+            if (buffer != null) {
+                buffer.remove(objectId);
+            }
+            Db.deleteBySql("DELETE FROM " + tableName + " WHERE object_id = ?", objectId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteTags(@NonNull I objectId, @NonNull TagSource source) {
+        writeLock.lock();
+        try {
+            if (buffer != null) {
+                buffer.remove(objectId, source);
+            }
+            Db.deleteBySql("DELETE FROM " + tableName + " WHERE object_id = ? AND tag_source = ?", objectId,
+                    source.name());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 立即写入缓冲中的全部标签
+     */
+    public void flush() {
+        if (buffer == null) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            List<EntityTagWriteBuffer.PendingTag<I>> pending = buffer.drain();
+            try {
+                upsert(pending);
+                buffer.flushed();
+            } catch (RuntimeException exception) {
+                buffer.restore(pending);
+                throw exception;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 停止定时刷写并执行最终刷写，关闭后拒绝写入，最终刷写失败时缓冲中的标签仍然可以通过 {@link #flush()} 重试
+     */
+    @Override
+    public void close() {
+        if (scheduler == null) {
+            return;
+        }
+        stateLock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.warn("wait entity tag flush task termination timeout");
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private void write(EntityTagWriteBuffer<I> target, int count, IntSupplier writer) {
+        if (!target.hasCapacity(count)) {
+            // 回压：缓冲已满（通常是数据库持续写入失败）时由写入线程同步刷写，仍然放不下时由缓冲拒绝写入
+            flushQuietly();
+        }
+        int size;
+        stateLock.readLock().lock();
+        try {
+            AssertUtils.state(!closed, "entity tag repository is closed");
+            size = writer.getAsInt();
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        if (size >= maxBufferSize) {
+            // 标签已经进入缓冲，刷写失败时留在缓冲中重试，不让调用方误以为写入失败
+            flushQuietly();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException exception) {
+            log.error("flush entity tags failed, retry on next flush", exception);
+        }
+    }
+
+    private void upsert(List<EntityTagWriteBuffer.PendingTag<I>> pending) {
+        List<EntityTagWriteBuffer.PendingTag<I>> tags = new ArrayList<>(pending);
+        tags.sort(UPSERT_ORDER);
+        for (int from = 0; from < tags.size(); from += MAX_UPSERT_ROWS) {
+            int to = Math.min(tags.size(), from + MAX_UPSERT_ROWS);
+            List<EntityTagWriteBuffer.PendingTag<I>> rows = tags.subList(from, to);
+            StringBuilder sql = new StringBuilder("INSERT INTO ").append(tableName)
+                    .append(" (object_id, tag_name, tag_value, tag_source, source_priority, source_id) VALUES ");
+            Object[] args = new Object[rows.size() * 6];
+            for (int i = 0; i < rows.size(); i++) {
+                EntityTagWriteBuffer.PendingTag<I> row = rows.get(i);
+                EntityTag tag = row.tag();
+                sql.append(i == 0 ? UPSERT_ROW : ", " + UPSERT_ROW);
+                args[i * 6] = row.objectId();
+                args[i * 6 + 1] = tag.name();
+                args[i * 6 + 2] = tag.value();
+                args[i * 6 + 3] = tag.source().name();
+                args[i * 6 + 4] = tag.source().getPriority();
+                args[i * 6 + 5] = String.valueOf(tag.sourceId());
+            }
+            Db.insertBySql(sql.append(upsertSyntax.getUpdateClause()).toString(), args);
+        }
+    }
+
+    private static EntityTag toTag(Row row) {
+        return EntityTag.of(row.getString("tag_name"), row.getString("tag_value"),
+                TagSource.valueOf(row.getString("tag_source")), row.getString("source_id"));
+    }
+
+    private static String checkTableName(String tableName) {
+        AssertUtils.hasText(tableName, "argument tableName must not empty");
+        AssertUtils.isTrue(TABLE_NAME_PATTERN.matcher(tableName).matches(),
+                () -> "invalid tag table name: " + tableName);
+        return tableName;
+    }
+}
@@ -0,0 +1,112 @@
+package com.wind.mybatis.flex.tag;
+
+import com.wind.integration.tag.EntityTag;
+import com.wind.integration.tag.TagSource;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * @author wuxp
+ * @date 2026-08-15 11:00
+ **/
+class EntityTagWriteBufferTests {
+
+    private final EntityTagWriteBuffer<Long> buffer = new EntityTagWriteBuffer<>();
+
+    @Test
+    void testCollapseRepeatedWrites() {
+        for (int i = 0; i < 100; i++) {
+            buffer.add(1L, List.of(EntityTag.of("信用评级", "B" + i, TagSource.RULE_BASED, "rule")));
+        }
+        buffer.add(2L, EntityTag.tags(TagSource.RULE_BASED, "rule", "信用评级", "A", "地区", "EU"));
+
+        Assertions.assertEquals(3, buffer.size());
+        List<EntityTagWriteBuffer.PendingTag<Long>> pending = buffer.drain();
+        Assertions.assertEquals(3, pending.size());
+        Assertions.assertEquals("B99", pending.get(0).tag().value());
+        Assertions.assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void testLowerPriorityWriteIgnored() {
+        buffer.add(1L, List.of(EntityTag.of("信用评级", "A", TagSource.MANUAL, "admin")));
+        buffer.add(1L, List.of(EntityTag.of("信用评级", "C", TagSource.RISK_RULE, "risk")));
+
+        Assertions.assertEquals("A", buffer.get(1L, "信用评级").value());
+        Assertions.assertEquals(1, buffer.size());
+    }
+
+    @Test
+    void testRestoreKeepsNewerWrites() {
+        buffer.add(1L, EntityTag.tags(TagSource.RULE_BASED, "rule", "信用评级", "B", "地区", "EU"));
+        List<EntityTagWriteBuffer.PendingTag<Long>> failed = buffer.drain();
+        buffer.add(1L, List.of(EntityTag.of("信用评级", "A", TagSource.RULE_BASED, "rule")));
+
+        buffer.restore(failed);
+
+        Assertions.assertEquals(2, buffer.size());
+        Assertions.assertEquals("A", buffer.get(1L, "信用评级").value());
+        Assertions.assertEquals("EU", buffer.get(1L, "地区").value());
+    }
+
+    @Test
+    void testRemovePendingTags() {
+        buffer.add(1L, List.of(EntityTag.of("信用评级", "A", TagSource.MANUAL, "admin"),
+                EntityTag.of("地区", "EU", TagSource.RULE_BASED, "rule")));
+        buffer.add(2L, List.of(EntityTag.of("地区", "US", TagSource.RULE_BASED, "rule")));
+
+        buffer.remove(1L, TagSource.RULE_BASED);
+        Assertions.assertEquals(2, buffer.size());
+        buffer.remove(2L, "地区");
+        Assertions.assertEquals(1, buffer.size());
+        buffer.remove(1L);
+        Assertions.assertEquals(0, buffer.size());
+        Assertions.assertTrue(buffer.drain().isEmpty());
+    }
+
+    @Test
+    void testRejectWhenFull() {
+        EntityTagWriteBuffer<Long> limited = new EntityTagWriteBuffer<>(2);
+        limited.add(1L, EntityTag.tags(TagSource.RULE_BASED, "rule", "信用评级", "B", "地区", "EU"));
+
+        Assertions.assertFalse(limited.hasCapacity(1));
+        Assertions.assertThrows(RuntimeException.class,
+                () -> limited.add(2L, List.of(EntityTag.of("地区", "US", TagSource.RULE_BASED, "rule"))));
+        Assertions.assertNull(limited.get(2L, "地区"));
+    }
+
+    @Test
+    void testFlushingTagsHoldCapacity() {
+        EntityTagWriteBuffer<Long> limited = new EntityTagWriteBuffer<>(2);
+        limited.add(1L, EntityTag.tags(TagSource.RULE_BASED, "rule", "信用评级", "B"));
+        List<EntityTagWriteBuffer.PendingTag<Long>> failed = limited.drain();
+        limited.add(2L, List.of(EntityTag.of("地区", "US", TagSource.RULE_BASED, "rule")));
+
+        Assertions.assertFalse(limited.hasCapacity(1));
+        limited.restore(failed);
+        Assertions.assertEquals(2, limited.size());
+        Assertions.assertFalse(limited.hasCapacity(1));
+
+        limited.drain();
+        limited.flushed();
+        Assertions.assertTrue(limited.hasCapacity(2));
+    }
+
+    @Test
+    void testFlushingTagsRemainVisible() {
+        buffer.add(1L, EntityTag.tags(TagSource.RISK_RULE, "risk", "信用评级", "C", "地区", "EU"));
+        List<EntityTagWriteBuffer.PendingTag<Long>> flushing = buffer.drain();
+        buffer.add(1L, List.of(EntityTag.of("信用评级", "B", TagSource.RULE_BASED, "rule"),
+                EntityTag.of("地区", "US", TagSource.MANUAL, "admin")));
+
+        Assertions.assertEquals("C", buffer.get(1L, "信用评级").value());
+        Assertions.assertEquals("US", buffer.get(1L).get("地区").value());
+        Assertions.assertEquals("C", buffer.get(1L).get("信用评级").value());
+
+        buffer.flushed();
+        Assertions.assertEquals("B", buffer.get(1L, "信用评级").value());
+        Assertions.assertEquals(2, flushing.size());
+    }
+}
@@ -0,0 +1,114 @@
+package com.wind.integration.dal;
+
+import com.wind.integration.AbstractServiceTest;
+import com.wind.integration.core.model.IdObject;
+import com.wind.integration.tag.EntityTag;
+import com.wind.integration.tag.TagSource;
+import com.wind.integration.tag.TaggingResult;
+import com.wind.mybatis.flex.tag.EntityTagUpsertSyntax;
+import com.wind.mybatis.flex.tag.MybatisFlexEntityTagRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author wuxp
+ * @date 2026-08-15 11:20
+ **/
+class MybatisFlexEntityTagRepositoryTests extends AbstractServiceTest {
+
+    private static final String TABLE_NAME = "t_entity_tag";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * H2 的 MySQL 兼容模式不支持插入行别名
+     */
+    private final MybatisFlexEntityTagRepository<Long> repository = new MybatisFlexEntityTagRepository<>(TABLE_NAME,
+            EntityTagUpsertSyntax.VALUES_FUNCTION);
+
+    @Test
+    void testLowerPriorityUpdateIgnored() {
+        repository.saveTags(new Customer(1L), List.of(EntityTag.of("信用评级", "A", TagSource.MANUAL, "admin")));
+        repository.saveTags(new Customer(1L), List.of(EntityTag.of("信用评级", "C", TagSource.RULE_BASED, "rule")));
+
+        Map<String, Object> row = getRow(1L, "信用评级");
+        Assertions.assertEquals("A", row.get("tag_value"));
+        Assertions.assertEquals(TagSource.MANUAL.name(), row.get("tag_source"));
+        Assertions.assertEquals("admin", row.get("source_id"));
+        Assertions.assertEquals(TagSource.MANUAL.getPriority(), ((Number) row.get("source_priority")).intValue());
+    }
+
+    @Test
+    void testHigherPriorityUpdateOverwritesAllColumns() {
+        repository.saveTags(new Customer(1L), List.of(EntityTag.of("信用评级", "B", TagSource.RULE_BASED, "rule")));
+        repository.saveTags(new Customer(1L), List.of(EntityTag.of("信用评级", "C", TagSource.RISK_RULE, "risk")));
+
+        // 优先级最后更新，其他列按旧优先级比较后全部覆盖
+        Map<String, Object> row = getRow(1L, "信用评级");
+        Assertions.assertEquals("C", row.get("tag_value"));
+        Assertions.assertEquals(TagSource.RISK_RULE.name(), row.get("tag_source"));
+        Assertions.assertEquals("risk", row.get("source_id"));
+        Assertions.assertEquals(TagSource.RISK_RULE.getPriority(), ((Number) row.get("source_priority")).intValue());
+
+        repository.saveTags(new Customer(1L), List.of(EntityTag.of("信用评级", "D", TagSource.RISK_RULE, "risk2")));
+        row = getRow(1L, "信用评级");
+        Assertions.assertEquals("D", row.get("tag_value"));
+        Assertions.assertEquals("risk2", row.get("source_id"));
+    }
+
+    @Test
+    void testSaveTaggingResults() {
+        repository.saveTags(List.of(
+                new TaggingResult(new Customer(2L), EntityTag.tags(TagSource.RULE_BASED, "rule", "地区", "EU")),
+                new TaggingResult(new Customer(1L),
+                        EntityTag.tags(TagSource.RULE_BASED, "rule", "信用评级", "B", "地区", "US"))
+        ));
+
+        Assertions.assertEquals(2, repository.getTags(1L).size());
+        Assertions.assertEquals("EU", repository.getTag(2L, "地区").value());
+    }
+
+    @Test
+    void testRejectWritesAfterClose() {
+        MybatisFlexEntityTagRepository<Long> buffered = new MybatisFlexEntityTagRepository<>(TABLE_NAME,
+                EntityTagUpsertSyntax.VALUES_FUNCTION, Duration.ofMinutes(1), 100, 1000);
+        buffered.saveTags(new Customer(1L), List.of(EntityTag.of("信用评级", "A", TagSource.MANUAL, "admin")));
+        buffered.close();
+
+        Assertions.assertEquals("A", getRow(1L, "信用评级").get("tag_value"));
+        Assertions.assertThrows(RuntimeException.class, () -> buffered.saveTags(new Customer(1L),
+                List.of(EntityTag.of("信用评级", "B", TagSource.MANUAL, "admin"))));
+    }
+
+    @Test
+    void testRejectWritesWhenBufferFull() {
+        MybatisFlexEntityTagRepository<Long> buffered = new MybatisFlexEntityTagRepository<>("t_missing_entity_tag",
+                EntityTagUpsertSyntax.VALUES_FUNCTION, Duration.ofMinutes(1), 1, 1);
+        // 标签已经进入缓冲，触发的刷写失败不影响本次写入；缓冲已满后同步刷写仍然失败，拒绝后续写入
+        Assertions.assertDoesNotThrow(() -> buffered.saveTags(new Customer(1L),
+                List.of(EntityTag.of("信用评级", "A", TagSource.MANUAL, "admin"))));
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> buffered.saveTags(
+                new Customer(2L), List.of(EntityTag.of("地区", "EU", TagSource.MANUAL, "admin"))));
+        Assertions.assertTrue(exception.getMessage().contains("entity tag write buffer is full"));
+    }
+
+    private Map<String, Object> getRow(Long objectId, String tagName) {
+        return jdbcTemplate.queryForMap("SELECT tag_value, tag_source, source_id, source_priority FROM " + TABLE_NAME
+                + " WHERE object_id = ? AND tag_name = ?", String.valueOf(objectId), tagName);
+    }
+
+    private record Customer(Long id) implements IdObject<Long> {
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+    }
+}
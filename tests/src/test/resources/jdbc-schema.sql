@@ -39,4 +39,21 @@ CREATE TABLE `t_dictionary_metadata`
     PRIMARY KEY (id),
     UNIQUE KEY `uk_name_locale_tenant` (`name`, `locale`, `tenant_id`)
 ) ENGINE = InnoDB
-  DEFAULT CHARSET = utf8mb4 COMMENT = '字典表';
\ No newline at end of file
+  DEFAULT CHARSET = utf8mb4 COMMENT = '字典表';
+-- ----------------------------
+-- 业务对象标签表
+-- ----------------------------
+DROP TABLE IF EXISTS `t_entity_tag`;
+CREATE TABLE `t_entity_tag`
+(
+    `id`              bigint(20) unsigned NOT NULL AUTO_INCREMENT COMMENT 'ID',
+    `object_id`       varchar(64)         NOT NULL COMMENT '业务对象标识',
+    `tag_name`        varchar(64)         NOT NULL COMMENT '标签名称',
+    `tag_value`       varchar(512)        NOT NULL COMMENT '标签值',
+    `tag_source`      varchar(32)         NOT NULL COMMENT '标签来源',
+    `source_priority` int(11)             NOT NULL COMMENT '标签来源优先级',
+    `source_id`       varchar(64)         NOT NULL COMMENT '标签来源标识',
+    PRIMARY KEY (id),
+    UNIQUE KEY `uk_object_tag` (`object_id`, `tag_name`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4 COMMENT = '业务对象标签表';
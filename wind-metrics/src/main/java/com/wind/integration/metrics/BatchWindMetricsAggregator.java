@@ -0,0 +1,249 @@
+package com.wind.integration.metrics;
+
+import com.wind.common.exception.AssertUtils;
+import com.wind.common.exception.BaseException;
+import com.wind.common.exception.DefaultExceptionCode;
+import com.wind.integration.metrics.fields.MultipleValueMetricsField;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 基于 {@link WindMetricsBatchValueLoader} 的指标对象聚合器
+ * 批量聚合时按 batchSize 把维度标识分批，每批只调用一次加载器，再逐个构建对象交给调用方
+ * 对象的构造器和字段赋值在首次聚合时解析为 {@link MethodHandle} 并缓存，字段值按字段类型预先确定转换方式，
+ * 构建对象时不再逐字段反射查找；{@link #named} 修改映射后重新解析
+ * 指定了多值指标名称时，加载器返回的该指标值（{@link Map} 或 {@link MultipleValueMetricsField}）
+ * 按子指标名称映射到字段，未通过 {@link #named} 指定的字段按同名子指标映射
+ * 实例不是线程安全的，配置完成后可以在单个线程中重复聚合
+ *
+ * @author wuxp
+ * @date 2026-08-06 10:20
+ **/
+public class BatchWindMetricsAggregator<T> implements WindMetricsAggregator<T> {
+
+    private final Class<T> objectType;
+
+    private final String multipleMetricsName;
+
+    private final WindMetricsBatchValueLoader loader;
+
+    private final int batchSize;
+
+    /**
+     * 字段名称 -> 指标名称（多值指标时为子指标名称）
+     */
+    private final Map<String, String> fieldMappings = new LinkedHashMap<>();
+
+    private ObjectBinder<T> binder;
+
+    public BatchWindMetricsAggregator(Class<T> objectType,
+                                      String multipleMetricsName,
+                                      WindMetricsBatchValueLoader loader,
+                                      int batchSize) {
+        AssertUtils.notNull(objectType, "argument objectType must not null");
+        AssertUtils.notNull(loader, "argument loader must not null");
+        AssertUtils.isTrue(batchSize > 0, "argument batchSize must be positive");
+        this.objectType = objectType;
+        this.multipleMetricsName = multipleMetricsName;
+        this.loader = loader;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public WindMetricsAggregator<T> named(String filedName, String metricsName) {
+        AssertUtils.hasText(filedName, "argument filedName must not empty");
+        AssertUtils.hasText(metricsName, "argument metricsName must not empty");
+        fieldMappings.put(filedName, metricsName);
+        binder = null;
+        return this;
+    }
+
+    @Override
+    public T aggregate(WindMetricsAggregationQuery query) {
+        List<T> result = new ArrayList<>(1);
+        aggregate(query, Collections.singletonList(query.getDimensionsId()),
+                (dimensionsId, value) -> result.add(value));
+        return result.get(0);
+    }
+
+    @Override
+    public void aggregate(WindMetricsAggregationQuery query, Collection<?> dimensionsIds,
+                          BiConsumer<Object, ? super T> consumer) {
+        AssertUtils.notNull(query, "argument query must not null");
+        ObjectBinder<T> current = getBinder();
+        List<String> metricsNames = multipleMetricsName == null
+                ? current.metricsNames()
+                : List.of(multipleMetricsName);
+        List<Object> batch = new ArrayList<>(Math.min(batchSize, dimensionsIds.size()));
+        for (Object dimensionsId : dimensionsIds) {
+            batch.add(dimensionsId);
+            if (batch.size() == batchSize) {
+                aggregateBatch(query, batch, metricsNames, current, consumer);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            aggregateBatch(query, batch, metricsNames, current, consumer);
+        }
+    }
+
+    private void aggregateBatch(WindMetricsAggregationQuery query,
+                                List<Object> batch,
+                                List<String> metricsNames,
+                                ObjectBinder<T> current,
+                                BiConsumer<Object, ? super T> consumer) {
+        Map<Object, Map<String, Object>> values = loader.load(query, batch, metricsNames);
+        for (Object dimensionsId : batch) {
+            Map<String, Object> metrics = values.getOrDefault(dimensionsId, Collections.emptyMap());
+            Map<String, Object> fieldValues = multipleMetricsName == null ? metrics : subMetrics(metrics);
+            consumer.accept(dimensionsId, current.create(fieldValues));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> subMetrics(Map<String, Object> metrics) {
+        Object value = metrics.get(multipleMetricsName);
+        if (value instanceof MultipleValueMetricsField<?> field) {
+            return field.asValues();
+        }
+        return value instanceof Map ? (Map<String, Object>) value : Collections.emptyMap();
+    }
+
+    private ObjectBinder<T> getBinder() {
+        if (binder == null) {
+            binder = ObjectBinder.of(objectType, resolveMappings());
+        }
+        return binder;
+    }
+
+    private Map<String, String> resolveMappings() {
+        if (multipleMetricsName == null) {
+            AssertUtils.state(!fieldMappings.isEmpty(),
+                    () -> "metrics object " + objectType.getName() + " has no field mapping");
+            return fieldMappings;
+        }
+        Map<String, String> result = new LinkedHashMap<>();
+        for (Field field : ObjectBinder.instanceFields(objectType)) {
+            result.put(field.getName(), field.getName());
+        }
+        result.putAll(fieldMappings);
+        return result;
+    }
+
+    /**
+     * 预先解析的对象构造和字段赋值
+     */
+    private record ObjectBinder<T>(MethodHandle constructor, List<FieldBinder> fields, List<String> metricsNames) {
+
+        private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+        private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+        static <T> ObjectBinder<T> of(Class<T> objectType, Map<String, String> mappings) {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(objectType, MethodHandles.lookup());
+                MethodHandle constructor = lookup.findConstructor(objectType, MethodType.methodType(void.class))
+                        .asType(CONSTRUCTOR_TYPE);
+                Map<String, Field> declared = new LinkedHashMap<>();
+                instanceFields(objectType).forEach(field -> declared.putIfAbsent(field.getName(), field));
+                List<FieldBinder> fields = new ArrayList<>(mappings.size());
+                List<String> metricsNames = new ArrayList<>(mappings.size());
+                for (Map.Entry<String, String> entry : mappings.entrySet()) {
+                    Field field = declared.get(entry.getKey());
+                    AssertUtils.notNull(field,
+                            () -> "not found field = " + entry.getKey() + " in " + objectType.getName());
+                    AssertUtils.state(!Modifier.isFinal(field.getModifiers()),
+                            () -> "metrics field = " + field.getName() + " must not be final");
+                    fields.add(new FieldBinder(entry.getValue(), lookup.unreflectSetter(field).asType(SETTER_TYPE),
+                            converter(field.getType())));
+                    metricsNames.add(entry.getValue());
+                }
+                return new ObjectBinder<>(constructor, List.copyOf(fields), List.copyOf(metricsNames));
+            } catch (NoSuchMethodException | IllegalAccessException exception) {
+                throw new BaseException(DefaultExceptionCode.COMMON_ERROR, "metrics object " + objectType.getName()
+                        + " requires an accessible no-args constructor", exception);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        T create(Map<String, Object> metrics) {
+            try {
+                Object result = constructor.invokeExact();
+                for (FieldBinder field : fields) {
+                    Object value = metrics.get(field.metricsName());
+                    if (value instanceof WindMetricsValue<?> metricsValue) {
+                        value = metricsValue.getValue();
+                    }
+                    if (value != null) {
+                        field.setter().invokeExact(result, field.converter().apply(value));
+                    }
+                }
+                return (T) result;
+            } catch (RuntimeException | Error exception) {
+                throw exception;
+            } catch (Throwable throwable) {
+                throw new BaseException(DefaultExceptionCode.COMMON_ERROR, "create metrics object failed", throwable);
+            }
+        }
+
+        static List<Field> instanceFields(Class<?> objectType) {
+            List<Field> result = new ArrayList<>();
+            for (Class<?> type = objectType; type != null && type != Object.class; type = type.getSuperclass()) {
+                for (Field field : type.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                        result.add(field);
+                    }
+                }
+            }
+            return result;
+        }
+
+        private static Function<Object, Object> converter(Class<?> fieldType) {
+            if (fieldType == int.class || fieldType == Integer.class) {
+                return value -> ((Number) value).intValue();
+            }
+            if (fieldType == long.class || fieldType == Long.class) {
+                return value -> ((Number) value).longValue();
+            }
+            if (fieldType == double.class || fieldType == Double.class) {
+                return value -> ((Number) value).doubleValue();
+            }
+            if (fieldType == float.class || fieldType == Float.class) {
+                return value -> ((Number) value).floatValue();
+            }
+            if (fieldType == short.class || fieldType == Short.class) {
+                return value -> ((Number) value).shortValue();
+            }
+            if (fieldType == byte.class || fieldType == Byte.class) {
+                return value -> ((Number) value).byteValue();
+            }
+            if (fieldType == BigDecimal.class) {
+                return value -> value instanceof BigDecimal ? value : new BigDecimal(value.toString());
+            }
+            if (fieldType == BigInteger.class) {
+                return value -> value instanceof BigInteger ? value : new BigDecimal(value.toString()).toBigInteger();
+            }
+            if (fieldType == String.class) {
+                return String::valueOf;
+            }
+            return Function.identity();
+        }
+    }
+
+    private record FieldBinder(String metricsName, MethodHandle setter, Function<Object, Object> converter) {
+    }
+}
@@ -1,28 +1,44 @@
 package com.wind.integration.metrics;
 
 import com.wind.common.exception.AssertUtils;
-import lombok.AllArgsConstructor;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 /**
+ * 组合指标统计执行器
+ * 按业务对象类型缓存支持该类型的执行器列表（{@link ClassValue}），每个类型只在首次出现时遍历一次委托，
+ * 因此委托的 {@link WindMetricsStatisticsExecutor#supports(Class)} 对同一类型必须返回稳定的结果
+ *
  * @author wuxp
  * @date 2025-06-25 09:57
  **/
-@AllArgsConstructor
 public class CompositeMetricsStatisticsExecutor implements WindMetricsStatisticsExecutor<Object> {
 
-    private final Collection<WindMetricsStatisticsExecutor<?>> delegates;
+    private final List<WindMetricsStatisticsExecutor<?>> delegates;
+
+    private final ClassValue<WindMetricsStatisticsExecutor<?>[]> dispatcher = new ClassValue<>() {
+
+        @Override
+        protected WindMetricsStatisticsExecutor<?>[] computeValue(Class<?> businessObjectType) {
+            return delegates.stream()
+                    .filter(delegate -> delegate.supports(businessObjectType))
+                    .toArray(WindMetricsStatisticsExecutor<?>[]::new);
+        }
+    };
+
+    public CompositeMetricsStatisticsExecutor(Collection<WindMetricsStatisticsExecutor<?>> delegates) {
+        AssertUtils.notNull(delegates, "argument delegates must not null");
+        this.delegates = List.copyOf(delegates);
+    }
 
     @Override
     @SuppressWarnings({"unchecked", "rawtypes"})
     public void execute(Object businessObject, Map<String, Object> variables) {
         AssertUtils.notNull(businessObject, "argument businessObject must not null");
-        for (WindMetricsStatisticsExecutor delegate : delegates) {
-            if (delegate.supports(businessObject.getClass())) {
-                delegate.execute(businessObject, variables);
-            }
+        for (WindMetricsStatisticsExecutor delegate : dispatcher.get(businessObject.getClass())) {
+            delegate.execute(businessObject, variables);
         }
     }
 
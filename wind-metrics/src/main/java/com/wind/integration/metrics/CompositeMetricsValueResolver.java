@@ -2,21 +2,42 @@ package com.wind.integration.metrics;
 
 import com.wind.common.exception.AssertUtils;
 import com.wind.common.exception.BaseException;
-import lombok.AllArgsConstructor;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * 组合历史指标解析器
+ * 按指标值类型缓存第一个支持该类型的解析器（{@link ClassValue}），未找到的结果同样缓存，
+ * 因此委托的 {@link WindMetricsValueResolver#supports(Class)} 对同一类型必须返回稳定的结果
  *
  * @author wuxp
  * @date 2025-06-25 09:39
  **/
-@AllArgsConstructor
 public class CompositeMetricsValueResolver implements WindMetricsValueResolver<Object> {
 
-    private final Collection<WindMetricsValueResolver<?>> delegates;
+    private final List<WindMetricsValueResolver<?>> delegates;
+
+    private final ClassValue<Optional<WindMetricsValueResolver<?>>> dispatcher = new ClassValue<>() {
+
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        protected Optional<WindMetricsValueResolver<?>> computeValue(Class<?> metricsValueType) {
+            for (WindMetricsValueResolver delegate : delegates) {
+                if (delegate.supports(metricsValueType)) {
+                    return Optional.of(delegate);
+                }
+            }
+            return Optional.empty();
+        }
+    };
+
+    public CompositeMetricsValueResolver(Collection<WindMetricsValueResolver<?>> delegates) {
+        AssertUtils.notNull(delegates, "argument delegates must not null");
+        this.delegates = List.copyOf(delegates);
+    }
 
     @Override
     @SuppressWarnings({"unchecked"})
@@ -35,14 +56,11 @@ public class CompositeMetricsValueResolver implements WindMetricsValueResolver<O
         return true;
     }
 
-    @SuppressWarnings({"unchecked", "rawtypes"})
+    @SuppressWarnings({"rawtypes"})
     private WindMetricsValueResolver getDelegate(Class<?> metricsValueType) {
         AssertUtils.notNull(metricsValueType, "argument metricsValueType must not null");
-        for (WindMetricsValueResolver delegate : delegates) {
-            if (delegate.supports(metricsValueType)) {
-                return delegate;
-            }
-        }
-        throw BaseException.common("not found metricsValueType = " + metricsValueType.getName() + " WindHistoricalMetricsResolver");
+        return dispatcher.get(metricsValueType)
+                .orElseThrow(() -> BaseException.common("not found metricsValueType = " + metricsValueType.getName()
+                        + " WindHistoricalMetricsResolver"));
     }
 }
@@ -0,0 +1,43 @@
+package com.wind.integration.metrics;
+
+import com.wind.common.exception.AssertUtils;
+
+/**
+ * 基于 {@link WindMetricsBatchValueLoader} 的指标对象工厂，创建 {@link BatchWindMetricsAggregator}
+ *
+ * @author wuxp
+ * @date 2026-08-06 10:20
+ **/
+public class DefaultWindMetricsAggregatorFactory implements WindMetricsAggregatorFactory {
+
+    /**
+     * 默认每批加载的维度标识数量
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final WindMetricsBatchValueLoader loader;
+
+    private final int batchSize;
+
+    public DefaultWindMetricsAggregatorFactory(WindMetricsBatchValueLoader loader, int batchSize) {
+        AssertUtils.notNull(loader, "argument loader must not null");
+        AssertUtils.isTrue(batchSize > 0, "argument batchSize must be positive");
+        this.loader = loader;
+        this.batchSize = batchSize;
+    }
+
+    public DefaultWindMetricsAggregatorFactory(WindMetricsBatchValueLoader loader) {
+        this(loader, DEFAULT_BATCH_SIZE);
+    }
+
+    @Override
+    public <T> WindMetricsAggregator<T> factory(Class<T> objectType) {
+        return new BatchWindMetricsAggregator<>(objectType, null, loader, batchSize);
+    }
+
+    @Override
+    public <T> WindMetricsAggregator<T> factory(String metricsName, Class<T> objectType) {
+        AssertUtils.hasText(metricsName, "argument metricsName must not empty");
+        return new BatchWindMetricsAggregator<>(objectType, metricsName, loader, batchSize);
+    }
+}
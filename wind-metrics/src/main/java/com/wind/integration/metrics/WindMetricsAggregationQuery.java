@@ -59,6 +59,18 @@ public final class WindMetricsAggregationQuery {
      */
     private final LocalDateTime maxGmtCreate;
 
+    /**
+     * 复制查询条件并替换聚合维度的标识，用于批量聚合时按维度标识展开同一个查询模板
+     *
+     * @param dimensionsId 聚合维度的标识
+     * @return 新的查询条件
+     */
+    public WindMetricsAggregationQuery withDimensionsId(@NotNull Object dimensionsId) {
+        AssertUtils.notNull(dimensionsId, "argument dimensionsId must not null");
+        return new WindMetricsAggregationQuery(dimensions, dimensionsId, searchTags, queryVariables, minGmtCreate,
+                maxGmtCreate);
+    }
+
     public static MetricsAggregationQueryBuilder newBuilder(@NotNull String dimensions, @NotNull Object dimensionsId) {
         return new MetricsAggregationQueryBuilder(dimensions, dimensionsId);
     }
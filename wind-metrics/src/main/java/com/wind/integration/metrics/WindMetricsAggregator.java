@@ -2,12 +2,15 @@ package com.wind.integration.metrics;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import java.util.Collection;
+import java.util.function.BiConsumer;
 
 /**
  * 聚合指标构建器，用于将一个或多个指标名称映射到目标对象字段，最终构建一个指标对象实例。
  *
  * <p>使用 {@link #named(String, String)} 维护指标名称与对象字段之间的映射关系，
- * 使用 {@link #get()} 执行聚合并构建最终对象。</p>
+ * 使用 {@link #aggregate(WindMetricsAggregationQuery)} 执行聚合并构建最终对象，
+ * 使用 {@link #aggregate(WindMetricsAggregationQuery, Collection, BiConsumer)} 为多个维度标识批量构建。</p>
  *
  * @author wuxp
  * @date 2025-06-24 09:28
@@ -29,4 +32,19 @@ public interface WindMetricsAggregator<T> {
      */
     @NotNull
     T aggregate(WindMetricsAggregationQuery query);
+
+    /**
+     * 按同一个查询模板为多个聚合维度标识构建指标对象，结果逐个交给调用方，不在内存中保留整批对象
+     * 默认实现逐个调用 {@link #aggregate(WindMetricsAggregationQuery)}，实现类可以覆盖为批量加载
+     *
+     * @param query         查询模板，其中的 dimensionsId 会被替换
+     * @param dimensionsIds 聚合维度的标识
+     * @param consumer      接收 (dimensionsId, 指标对象)
+     */
+    default void aggregate(WindMetricsAggregationQuery query, Collection<?> dimensionsIds,
+                           BiConsumer<Object, ? super T> consumer) {
+        for (Object dimensionsId : dimensionsIds) {
+            consumer.accept(dimensionsId, aggregate(query.withDimensionsId(dimensionsId)));
+        }
+    }
 }
@@ -0,0 +1,27 @@
+package com.wind.integration.metrics;
+
+import jakarta.validation.constraints.NotNull;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 批量加载多个聚合维度标识的多个指标值，用于批量构建指标对象（例如报表导出）
+ *
+ * @author wuxp
+ * @date 2026-08-06 10:20
+ **/
+@FunctionalInterface
+public interface WindMetricsBatchValueLoader {
+
+    /**
+     * 一次加载一批聚合维度标识的全部指标值
+     *
+     * @param query         查询模板，其中的 dimensionsId 不参与查询
+     * @param dimensionsIds 本批次的聚合维度标识
+     * @param metricsNames  指标名称
+     * @return 聚合维度标识 -> (指标名称 -> 指标值)，缺失的维度标识或指标视为没有值
+     */
+    @NotNull
+    Map<Object, Map<String, Object>> load(WindMetricsAggregationQuery query, Collection<?> dimensionsIds,
+                                          Collection<String> metricsNames);
+}
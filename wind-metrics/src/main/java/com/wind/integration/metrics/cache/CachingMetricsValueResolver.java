@@ -0,0 +1,287 @@
+package com.wind.integration.metrics.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wind.integration.metrics.WindMetricsStatisticsExecutor;
+import com.wind.integration.metrics.WindMetricsValueResolver;
+import com.wind.integration.metrics.pipeline.WindMetricsIncrement;
+import com.wind.integration.metrics.pipeline.WindMetricsIncrementWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.Nullable;
+
+import java.io.Serializable;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * 带分层缓存的指标值解析器。
+ *
+ * <p>按 {@code (metricsValueType, dimensionsId)} 缓存单个业务维度的指标值：先查进程内近端缓存（Caffeine），
+ * 未命中再查可选的共享缓存层，仍未命中才调用被装饰的解析器，并回填两层缓存。同一个键并发未命中时只加载一次。
+ * 只缓存配置中声明的值类型，其他值类型和多个业务维度的聚合查询不缓存，直接委托。</p>
+ *
+ * <p>配置 {@code staleAfter} 后启用 stale-while-revalidate：条目超过该时长仍在 {@code nearTtl} 内时直接返回旧值，
+ * 并在 {@code refreshExecutor} 上从被装饰的解析器重新加载并刷新两层缓存，每个键同时只有一个刷新任务。</p>
+ *
+ * <p>统计写入后调用 {@link #invalidate(Serializable)} 淘汰该业务维度在全部声明值类型下的条目，
+ * {@link #invalidating} 系列方法把淘汰挂到统计执行器或增量写入之后。值类型来自配置而不是本进程解析过的类型，
+ * 只写不读的服务也能淘汰共享缓存。淘汰先递增键的代数，再删近端缓存（等待进行中的加载完成）和共享缓存；
+ * 从被装饰的解析器加载的值写入共享缓存后重新检查代数，加载期间发生过淘汰时删除刚写入的值，
+ * 避免与淘汰并发的加载或后台刷新把旧值写回共享缓存。其他进程的近端缓存最长在 {@code nearTtl} 后过期。</p>
+ *
+ * @author wuxp
+ * @date 2026-08-04 10:15
+ */
+@Slf4j
+public final class CachingMetricsValueResolver implements WindMetricsValueResolver<Object> {
+
+    /**
+     * 淘汰代数的分段数，不同的键可能共享同一分段，只会多删一次共享缓存
+     */
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final WindMetricsValueResolver<?> delegate;
+
+    private final @Nullable WindMetricsValueSharedCache sharedCache;
+
+    private final Settings settings;
+
+    private final Executor refreshExecutor;
+
+    private final Clock clock;
+
+    private final Cache<MetricsValueKey, CachedValue> nearCache;
+
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    private final Set<MetricsValueKey> refreshing = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param delegate 被装饰的解析器
+     * @param sharedCache 共享缓存层，为 {@code null} 时只使用近端缓存
+     * @param settings 缓存配置
+     * @param refreshExecutor stale-while-revalidate 的后台刷新执行器
+     * @param clock 用于判断条目是否陈旧
+     */
+    public CachingMetricsValueResolver(WindMetricsValueResolver<?> delegate,
+                                       @Nullable WindMetricsValueSharedCache sharedCache,
+                                       Settings settings,
+                                       Executor refreshExecutor,
+                                       Clock clock) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+        this.sharedCache = sharedCache;
+        this.settings = Objects.requireNonNull(settings, "settings must not be null");
+        this.refreshExecutor = Objects.requireNonNull(refreshExecutor, "refreshExecutor must not be null");
+        this.clock = Objects.requireNonNull(clock, "clock must not be null");
+        this.nearCache = Caffeine.newBuilder()
+                .maximumSize(settings.maximumSize())
+                .expireAfterWrite(settings.nearTtl())
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Object resolve(Collection<? extends Serializable> dimensionsIds, Class<?> metricsValueType) {
+        if (dimensionsIds.size() == 1) {
+            return resolve(dimensionsIds.iterator().next(), metricsValueType);
+        }
+        return loadFromDelegate(dimensionsIds, metricsValueType);
+    }
+
+    @Override
+    public Object resolve(Serializable dimensionsId, Class<?> metricsValueType) {
+        if (!settings.valueTypes().contains(metricsValueType)) {
+            return loadFromDelegate(dimensionsId, metricsValueType);
+        }
+        MetricsValueKey key = new MetricsValueKey(metricsValueType, dimensionsId);
+        CachedValue cached = nearCache.get(key, this::load);
+        if (settings.staleAfter() != null && isStale(cached) && refreshing.add(key)) {
+            submitRefresh(key, cached);
+        }
+        return cached.value();
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public boolean supports(Class<Object> metricsValueType) {
+        return ((WindMetricsValueResolver) delegate).supports(metricsValueType);
+    }
+
+    /**
+     * 淘汰业务维度在全部声明值类型下的缓存条目。
+     *
+     * @param dimensionsId 业务维度标识
+     */
+    public void invalidate(Serializable dimensionsId) {
+        for (Class<?> valueType : settings.valueTypes()) {
+            invalidate(new MetricsValueKey(valueType, dimensionsId));
+        }
+    }
+
+    /**
+     * 在统计执行之后淘汰业务对象所属业务维度的缓存条目。
+     *
+     * @param executor 统计执行器
+     * @param dimensionsId 从业务对象获取业务维度标识
+     * @return 装饰后的统计执行器
+     */
+    public <E> WindMetricsStatisticsExecutor<E> invalidating(WindMetricsStatisticsExecutor<E> executor,
+                                                             Function<? super E, ? extends Serializable> dimensionsId) {
+        return new WindMetricsStatisticsExecutor<>() {
+
+            @Override
+            public void execute(E businessObject, Map<String, Object> variables) {
+                executor.execute(businessObject, variables);
+                invalidate(dimensionsId.apply(businessObject));
+            }
+
+            @Override
+            public boolean supports(Class<?> businessObjectType) {
+                return executor.supports(businessObjectType);
+            }
+        };
+    }
+
+    /**
+     * 在增量写入成功之后淘汰涉及的业务维度的缓存条目。
+     *
+     * @param writer 增量写入
+     * @return 装饰后的增量写入
+     */
+    public WindMetricsIncrementWriter invalidating(WindMetricsIncrementWriter writer) {
+        return increments -> {
+            writer.write(increments);
+            Set<Serializable> dimensionsIds = new LinkedHashSet<>();
+            for (WindMetricsIncrement increment : increments) {
+                dimensionsIds.add(increment.dimensionsId());
+            }
+            dimensionsIds.forEach(this::invalidate);
+        };
+    }
+
+    private void invalidate(MetricsValueKey key) {
+        generations.incrementAndGet(stripe(key));
+        nearCache.invalidate(key);
+        if (sharedCache != null) {
+            sharedCache.evict(key.sharedKey(settings.sharedKeyPrefix()));
+        }
+    }
+
+    private CachedValue load(MetricsValueKey key) {
+        if (sharedCache != null) {
+            Object shared = sharedCache.get(key.sharedKey(settings.sharedKeyPrefix()));
+            if (shared != null) {
+                return new CachedValue(shared, clock.millis());
+            }
+        }
+        return loadFromOrigin(key);
+    }
+
+    private CachedValue loadFromOrigin(MetricsValueKey key) {
+        int stripe = stripe(key);
+        long generation = generations.get(stripe);
+        Object value = loadFromDelegate(key.dimensionsId(), key.metricsValueType());
+        if (sharedCache != null && generations.get(stripe) == generation) {
+            String sharedKey = key.sharedKey(settings.sharedKeyPrefix());
+            sharedCache.put(sharedKey, value, settings.sharedTtl());
+            if (generations.get(stripe) != generation) {
+                // 写入前后发生了淘汰，淘汰可能先于写入删除共享缓存
+                sharedCache.evict(sharedKey);
+            }
+        }
+        return new CachedValue(value, clock.millis());
+    }
+
+    private static int stripe(MetricsValueKey key) {
+        return Math.floorMod(key.hashCode(), GENERATION_STRIPES);
+    }
+
+    private void submitRefresh(MetricsValueKey key, CachedValue stale) {
+        try {
+            refreshExecutor.execute(() -> refresh(key, stale));
+        } catch (RejectedExecutionException exception) {
+            // 未提交的刷新不会执行到 finally，释放刷新标记，后续解析可以重新提交
+            refreshing.remove(key);
+            log.warn("refresh metrics value rejected, metricsValueType = {}, dimensionsId = {}",
+                    key.metricsValueType().getName(), key.dimensionsId(), exception);
+        }
+    }
+
+    private void refresh(MetricsValueKey key, CachedValue stale) {
+        try {
+            CachedValue fresh = loadFromOrigin(key);
+            nearCache.asMap().replace(key, stale, fresh);
+        } catch (RuntimeException exception) {
+            log.warn("refresh metrics value failed, metricsValueType = {}, dimensionsId = {}",
+                    key.metricsValueType().getName(), key.dimensionsId(), exception);
+        } finally {
+            refreshing.remove(key);
+        }
+    }
+
+    private boolean isStale(CachedValue cached) {
+        return clock.millis() - cached.loadedAt() >= Objects.requireNonNull(settings.staleAfter()).toMillis();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object loadFromDelegate(Serializable dimensionsId, Class<?> metricsValueType) {
+        return Objects.requireNonNull(((WindMetricsValueResolver) delegate).resolve(dimensionsId, metricsValueType),
+                "resolved metrics value must not be null");
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object loadFromDelegate(Collection<? extends Serializable> dimensionsIds, Class<?> metricsValueType) {
+        return ((WindMetricsValueResolver) delegate).resolve(dimensionsIds, metricsValueType);
+    }
+
+    /**
+     * 缓存配置。
+     *
+     * @param maximumSize 近端缓存最大条目数
+     * @param valueTypes 缓存的指标值类型，淘汰业务维度时删除这些值类型下的条目
+     * @param nearTtl 近端缓存写入后的过期时间，也是跨进程淘汰的最长延迟
+     * @param sharedTtl 共享缓存写入后的过期时间
+     * @param staleAfter 条目超过该时长后在返回旧值的同时后台刷新，为 {@code null} 时不启用
+     * @param sharedKeyPrefix 共享缓存键前缀
+     */
+    public record Settings(long maximumSize, Set<Class<?>> valueTypes, Duration nearTtl, Duration sharedTtl,
+                           @Nullable Duration staleAfter, String sharedKeyPrefix) {
+
+        public Settings {
+            if (maximumSize <= 0) {
+                throw new IllegalArgumentException("maximumSize must be positive");
+            }
+            valueTypes = Set.copyOf(valueTypes);
+            if (valueTypes.isEmpty()) {
+                throw new IllegalArgumentException("valueTypes must not be empty");
+            }
+            if (nearTtl.isNegative() || nearTtl.isZero() || sharedTtl.isNegative() || sharedTtl.isZero()) {
+                throw new IllegalArgumentException("nearTtl and sharedTtl must be positive");
+            }
+            if (staleAfter != null && (staleAfter.isNegative() || staleAfter.compareTo(nearTtl) >= 0)) {
+                throw new IllegalArgumentException("staleAfter must be non-negative and shorter than nearTtl");
+            }
+            Objects.requireNonNull(sharedKeyPrefix, "sharedKeyPrefix must not be null");
+        }
+    }
+
+    private record MetricsValueKey(Class<?> metricsValueType, Serializable dimensionsId) {
+
+        String sharedKey(String prefix) {
+            return prefix + metricsValueType.getName() + ':' + dimensionsId;
+        }
+    }
+
+    private record CachedValue(Object value, long loadedAt) {
+    }
+}
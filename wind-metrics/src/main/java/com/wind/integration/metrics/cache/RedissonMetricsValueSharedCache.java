@@ -0,0 +1,31 @@
+package com.wind.integration.metrics.cache;
+
+import org.jspecify.annotations.Nullable;
+import org.redisson.api.RedissonClient;
+
+import java.time.Duration;
+
+/**
+ * 基于 Redisson bucket 的共享缓存层，值使用客户端配置的 codec 序列化。
+ *
+ * @param redissonClient redisson 客户端
+ * @author wuxp
+ * @date 2026-08-04 10:15
+ */
+public record RedissonMetricsValueSharedCache(RedissonClient redissonClient) implements WindMetricsValueSharedCache {
+
+    @Override
+    public @Nullable Object get(String key) {
+        return redissonClient.getBucket(key).get();
+    }
+
+    @Override
+    public void put(String key, Object value, Duration ttl) {
+        redissonClient.getBucket(key).set(value, ttl);
+    }
+
+    @Override
+    public void evict(String key) {
+        redissonClient.getBucket(key).delete();
+    }
+}
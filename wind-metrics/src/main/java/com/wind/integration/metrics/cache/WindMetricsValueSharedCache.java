@@ -0,0 +1,39 @@
+package com.wind.integration.metrics.cache;
+
+import org.jspecify.annotations.Nullable;
+
+import java.time.Duration;
+
+/**
+ * 跨进程共享的指标值缓存层，例如 Redis。
+ *
+ * @author wuxp
+ * @date 2026-08-04 10:15
+ */
+public interface WindMetricsValueSharedCache {
+
+    /**
+     * 读取缓存值。
+     *
+     * @param key 缓存键
+     * @return 缓存值，不存在时返回 {@code null}
+     */
+    @Nullable
+    Object get(String key);
+
+    /**
+     * 写入缓存值。
+     *
+     * @param key 缓存键
+     * @param value 缓存值
+     * @param ttl 过期时间
+     */
+    void put(String key, Object value, Duration ttl);
+
+    /**
+     * 删除缓存值。
+     *
+     * @param key 缓存键
+     */
+    void evict(String key);
+}
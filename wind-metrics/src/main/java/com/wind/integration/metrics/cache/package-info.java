@@ -0,0 +1,7 @@
+/**
+ * 指标值解析的分层缓存：进程内近端缓存和可选的共享缓存。
+ */
+@NullMarked
+package com.wind.integration.metrics.cache;
+
+import org.jspecify.annotations.NullMarked;
@@ -13,6 +13,8 @@ import tools.jackson.databind.json.JsonMapper;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -27,6 +29,16 @@ import java.util.Set;
  */
 final class MetricDslJsonSupport {
 
+    /** 查询时间格式，接受 ISO 本地时间和以空格分隔日期与时间的写法。 */
+    static final DateTimeFormatter QUERY_DATE_TIME_FORMATTER = new DateTimeFormatterBuilder()
+            .appendOptional(DateTimeFormatter.ISO_LOCAL_DATE_TIME)
+            .appendOptional(new DateTimeFormatterBuilder()
+                    .append(DateTimeFormatter.ISO_LOCAL_DATE)
+                    .appendLiteral(' ')
+                    .append(DateTimeFormatter.ISO_LOCAL_TIME)
+                    .toFormatter())
+            .toFormatter();
+
     private static final JsonFactory STRICT_JSON_FACTORY = new JsonFactory();
 
     private static final JsonMapper JSON_MAPPER = WindJson.getJsonMapper()
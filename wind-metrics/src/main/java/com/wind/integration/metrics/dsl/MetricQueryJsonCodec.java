@@ -12,8 +12,6 @@ import tools.jackson.databind.module.SimpleModule;
 
 import java.math.BigInteger;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeFormatterBuilder;
 import java.util.Map;
 import java.util.Set;
 
@@ -120,17 +118,9 @@ public final class MetricQueryJsonCodec {
     }
 
     private static JsonMapper createQueryJsonMapper() {
-        DateTimeFormatter spaceSeparatedDateTime = new DateTimeFormatterBuilder()
-                .append(DateTimeFormatter.ISO_LOCAL_DATE)
-                .appendLiteral(' ')
-                .append(DateTimeFormatter.ISO_LOCAL_TIME)
-                .toFormatter();
-        DateTimeFormatter queryDateTime = new DateTimeFormatterBuilder()
-                .appendOptional(DateTimeFormatter.ISO_LOCAL_DATE_TIME)
-                .appendOptional(spaceSeparatedDateTime)
-                .toFormatter();
         SimpleModule module = new SimpleModule("MetricQueryJavaTimeModule");
-        module.addDeserializer(LocalDateTime.class, new LocalDateTimeDeserializer(queryDateTime));
+        module.addDeserializer(LocalDateTime.class,
+                new LocalDateTimeDeserializer(MetricDslJsonSupport.QUERY_DATE_TIME_FORMATTER));
         return WindJson.getJsonMapper().rebuild().addModule(module).build();
     }
 }
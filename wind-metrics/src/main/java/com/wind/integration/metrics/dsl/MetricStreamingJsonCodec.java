@@ -0,0 +1,399 @@
+package com.wind.integration.metrics.dsl;
+
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import com.wind.integration.metrics.query.ImmutableMetricMap;
+import com.wind.integration.metrics.query.MetricBatchQuery;
+import com.wind.integration.metrics.query.MetricFieldValue;
+import com.wind.integration.metrics.query.MetricQuery;
+import com.wind.integration.metrics.query.MetricResult;
+import com.wind.integration.metrics.query.MetricSegmentResult;
+import org.jspecify.annotations.Nullable;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.core.StreamWriteFeature;
+import tools.jackson.core.json.JsonFactory;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 指标查询与结果的流式 JSON 编解码。
+ *
+ * <p>结果直接通过 {@link JsonGenerator} 逐个写出，包括多字段值和分段摘要，{@link BigDecimal} 按普通数字写出，
+ * 时间按 ISO 本地时间写出。查询通过 {@link JsonParser} 逐个读取并直接构造查询模型，
+ * 不经过中间的 {@code Map<String, Object>} 树，维度和参数使用 {@link ImmutableMetricMap}，构造查询时不再复制。
+ * 共享同一个 {@link JsonFactory}，由其复用读写缓冲区。</p>
+ *
+ * <p>查询字段约束与 {@link MetricQueryJsonCodec} 一致：拒绝未知和重复字段，参数值必须是整数，
+ * 维度值接受字符串、布尔值、整数和非科学计数法的小数（读取为 {@link BigDecimal}）。
+ * 数组中第 N 个查询的错误路径以 {@code /N} 开头。</p>
+ *
+ * @author wuxp
+ * @date 2026-08-11 10:20
+ */
+public final class MetricStreamingJsonCodec {
+
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .enable(StreamWriteFeature.WRITE_BIGDECIMAL_AS_PLAIN)
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+
+    private static final DateTimeFormatter RESULT_DATE_TIME_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    /**
+     * 把查询结果写为 JSON 数组，不关闭输出流。
+     *
+     * @param results 查询结果
+     * @param output UTF-8 输出流
+     */
+    public void writeResults(List<MetricResult> results, OutputStream output) {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(output)) {
+            writeResults(results, generator);
+        }
+    }
+
+    /**
+     * 把查询结果写为 JSON 数组，不关闭输出。
+     *
+     * @param results 查询结果
+     * @param output 字符输出
+     */
+    public void writeResults(List<MetricResult> results, Writer output) {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(output)) {
+            writeResults(results, generator);
+        }
+    }
+
+    /**
+     * 逐个读取单指标查询 JSON 数组。
+     *
+     * @param json UTF-8 输入流，调用方负责关闭
+     * @param consumer 查询消费者，每读取一个查询调用一次
+     * @throws MetricValidationException JSON 或查询字段不符合公开合同时抛出，之前的查询已交给消费者
+     */
+    public void readQueries(InputStream json, Consumer<? super MetricQuery> consumer) {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            expect(parser, parser.nextToken(), JsonToken.START_ARRAY, "");
+            int index = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                String path = "/" + index++;
+                expect(parser, parser.currentToken(), JsonToken.START_OBJECT, path);
+                consumer.accept(readQuery(parser, path));
+            }
+            requireEnd(parser);
+        } catch (JacksonException exception) {
+            throw new MetricValidationException(MetricErrorCode.QUERY_INVALID, "", "Invalid query JSON", exception);
+        }
+    }
+
+    /**
+     * 读取批量指标查询。
+     *
+     * @param json UTF-8 输入流，调用方负责关闭
+     * @return 批量指标查询条件
+     * @throws MetricValidationException JSON 或查询字段不符合公开合同时抛出
+     */
+    public MetricBatchQuery readBatchQuery(InputStream json) {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT, "");
+            MetricBatchQuery result = readBatchQuery(parser);
+            requireEnd(parser);
+            return result;
+        } catch (JacksonException exception) {
+            throw new MetricValidationException(MetricErrorCode.QUERY_INVALID, "", "Invalid query JSON", exception);
+        }
+    }
+
+    private static void writeResults(List<MetricResult> results, JsonGenerator generator) {
+        generator.writeStartArray();
+        for (MetricResult result : results) {
+            writeResult(result, generator);
+        }
+        generator.writeEndArray();
+    }
+
+    private static void writeResult(MetricResult result, JsonGenerator generator) {
+        generator.writeStartObject();
+        generator.writeStringProperty("metricCode", result.metricCode());
+        generator.writeNumberProperty("definitionRevision", result.definitionRevision());
+        generator.writeStringProperty("executionMode", result.executionMode().name());
+        writeString(generator, "routeMetricCode", result.routeMetricCode());
+        writeNumber(generator, "routeDefinitionRevision", result.routeDefinitionRevision());
+        generator.writeStringProperty("valueShape", result.valueShape().name());
+        writeString(generator, "valueType", result.valueType() == null ? null : result.valueType().name());
+        writeNumber(generator, "value", result.value());
+        generator.writeObjectPropertyStart("fields");
+        for (Map.Entry<String, MetricFieldValue> entry : result.fields().entrySet()) {
+            generator.writeObjectPropertyStart(entry.getKey());
+            generator.writeStringProperty("valueType", entry.getValue().valueType().name());
+            writeNumber(generator, "value", entry.getValue().value());
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+        writeString(generator, "subjectId", result.subjectId());
+        writeTime(generator, "startTime", result.startTime());
+        writeTime(generator, "endTime", result.endTime());
+        writeTime(generator, "calculatedTime", result.calculatedTime());
+        generator.writeStringProperty("timeZone", result.timeZone().getId());
+        writeString(generator, "snapshotGranularity",
+                result.snapshotGranularity() == null ? null : result.snapshotGranularity().name());
+        writeTime(generator, "queryableStartTime", result.queryableStartTime());
+        writeTime(generator, "watermarkTime", result.watermarkTime());
+        writeString(generator, "planCode", result.planCode());
+        generator.writeArrayPropertyStart("segments");
+        for (MetricSegmentResult segment : result.segments()) {
+            generator.writeStartObject();
+            generator.writeStringProperty("segmentCode", segment.segmentCode());
+            generator.writeStringProperty("sourceType", segment.sourceType().name());
+            writeTime(generator, "startTime", segment.startTime());
+            writeTime(generator, "endTime", segment.endTime());
+            writeString(generator, "snapshotGranularity",
+                    segment.snapshotGranularity() == null ? null : segment.snapshotGranularity().name());
+            writeTime(generator, "queryableStartTime", segment.queryableStartTime());
+            writeTime(generator, "watermarkTime", segment.watermarkTime());
+            writeTime(generator, "calculatedTime", segment.calculatedTime());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    private static void writeString(JsonGenerator generator, String name, @Nullable String value) {
+        if (value == null) {
+            generator.writeNullProperty(name);
+        } else {
+            generator.writeStringProperty(name, value);
+        }
+    }
+
+    private static void writeTime(JsonGenerator generator, String name, @Nullable LocalDateTime value) {
+        writeString(generator, name, value == null ? null : RESULT_DATE_TIME_FORMATTER.format(value));
+    }
+
+    private static void writeNumber(JsonGenerator generator, String name, @Nullable Number value) {
+        if (value == null) {
+            generator.writeNullProperty(name);
+        } else if (value instanceof Integer integer) {
+            generator.writeNumberProperty(name, integer.intValue());
+        } else if (value instanceof Long longValue) {
+            generator.writeNumberProperty(name, longValue.longValue());
+        } else if (value instanceof BigDecimal decimal) {
+            generator.writeNumberProperty(name, decimal);
+        } else {
+            generator.writeNumberProperty(name, new BigDecimal(value.toString()));
+        }
+    }
+
+    private static MetricQuery readQuery(JsonParser parser, String path) {
+        QueryFields fields = new QueryFields();
+        while (parser.nextToken() != JsonToken.END_OBJECT) {
+            String field = fieldName(parser, path, fields);
+            switch (field) {
+                case "metricCode" -> fields.metricCode = readString(parser, MetricDslJsonSupport.child(path, field));
+                case "subjectId" -> fields.subjectId = readString(parser, MetricDslJsonSupport.child(path, field));
+                case "startTime" -> fields.startTime = readTime(parser, MetricDslJsonSupport.child(path, field));
+                case "endTime" -> fields.endTime = readTime(parser, MetricDslJsonSupport.child(path, field));
+                case "dimensionValues" -> fields.dimensionValues =
+                        readDimensions(parser, MetricDslJsonSupport.child(path, field));
+                case "parameterValues" -> fields.parameterValues =
+                        readParameters(parser, MetricDslJsonSupport.child(path, field));
+                default -> throw unknownField(path, field);
+            }
+        }
+        try {
+            return new MetricQuery(fields.metricCode, fields.subjectId, fields.startTime, fields.endTime,
+                    fields.dimensionValues, fields.parameterValues);
+        } catch (MetricValidationException exception) {
+            throw relocate(exception, path);
+        }
+    }
+
+    private static MetricBatchQuery readBatchQuery(JsonParser parser) {
+        QueryFields fields = new QueryFields();
+        List<String> metricCodes = null;
+        while (parser.nextToken() != JsonToken.END_OBJECT) {
+            String field = fieldName(parser, "", fields);
+            String path = MetricDslJsonSupport.child("", field);
+            switch (field) {
+                case "metricCodes" -> metricCodes = readStrings(parser, path);
+                case "subjectId" -> fields.subjectId = readString(parser, path);
+                case "startTime" -> fields.startTime = readTime(parser, path);
+                case "endTime" -> fields.endTime = readTime(parser, path);
+                case "dimensionValues" -> fields.dimensionValues = readDimensions(parser, path);
+                default -> throw unknownField("", field);
+            }
+        }
+        return new MetricBatchQuery(metricCodes, fields.subjectId, fields.startTime, fields.endTime,
+                fields.dimensionValues);
+    }
+
+    private static String fieldName(JsonParser parser, String path, QueryFields fields) {
+        String field = parser.currentName();
+        if (!fields.seen.add(field)) {
+            throw new MetricValidationException(
+                    MetricErrorCode.DSL_FIELD_DUPLICATED, MetricDslJsonSupport.child(path, field), "Duplicate field");
+        }
+        parser.nextToken();
+        return field;
+    }
+
+    private static @Nullable String readString(JsonParser parser, String path) {
+        return switch (parser.currentToken()) {
+            case VALUE_NULL -> null;
+            case VALUE_STRING -> parser.getText();
+            default -> throw invalid(path, "Expected string");
+        };
+    }
+
+    private static List<String> readStrings(JsonParser parser, String path) {
+        expect(parser, parser.currentToken(), JsonToken.START_ARRAY, path);
+        List<String> result = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            String value = readString(parser, MetricDslJsonSupport.child(path, Integer.toString(result.size())));
+            result.add(value);
+        }
+        return result;
+    }
+
+    private static @Nullable LocalDateTime readTime(JsonParser parser, String path) {
+        String text = readString(parser, path);
+        if (text == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(text, MetricDslJsonSupport.QUERY_DATE_TIME_FORMATTER);
+        } catch (DateTimeParseException exception) {
+            throw invalid(path, "Invalid date time");
+        }
+    }
+
+    private static Map<String, Object> readDimensions(JsonParser parser, String path) {
+        expect(parser, parser.currentToken(), JsonToken.START_OBJECT, path);
+        ImmutableMetricMap.Builder<Object> result = ImmutableMetricMap.builder(4);
+        Set<String> names = new HashSet<>();
+        while (parser.nextToken() != JsonToken.END_OBJECT) {
+            String name = parser.currentName();
+            String valuePath = MetricDslJsonSupport.child(path, name);
+            if (!names.add(name)) {
+                throw new MetricValidationException(MetricErrorCode.DSL_FIELD_DUPLICATED, valuePath, "Duplicate field");
+            }
+            parser.nextToken();
+            Object value = switch (parser.currentToken()) {
+                case VALUE_STRING -> parser.getText();
+                case VALUE_TRUE -> Boolean.TRUE;
+                case VALUE_FALSE -> Boolean.FALSE;
+                case VALUE_NUMBER_INT -> integerValue(parser.getBigIntegerValue(), valuePath);
+                case VALUE_NUMBER_FLOAT -> decimalValue(parser, valuePath);
+                default -> throw invalid(valuePath, "Unsupported dimension value");
+            };
+            result.put(name, value);
+        }
+        return result.build();
+    }
+
+    private static Map<String, Object> readParameters(JsonParser parser, String path) {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw invalidParameter(path);
+        }
+        ImmutableMetricMap.Builder<Object> result = ImmutableMetricMap.builder(2);
+        while (parser.nextToken() != JsonToken.END_OBJECT) {
+            String name = parser.currentName();
+            String valuePath = name.isBlank() ? path : MetricDslJsonSupport.child(path, name);
+            if (parser.nextToken() != JsonToken.VALUE_NUMBER_INT || name.isBlank()) {
+                throw invalidParameter(valuePath);
+            }
+            BigInteger value = parser.getBigIntegerValue();
+            if (value.bitLength() >= Integer.SIZE) {
+                throw invalidParameter(valuePath);
+            }
+            result.put(name, value.intValue());
+        }
+        return result.build();
+    }
+
+    private static Object integerValue(BigInteger value, String path) {
+        if (value.bitLength() < Integer.SIZE) {
+            return value.intValue();
+        }
+        if (value.bitLength() < Long.SIZE) {
+            return value.longValue();
+        }
+        throw invalid(path, "Unsupported dimension value");
+    }
+
+    private static BigDecimal decimalValue(JsonParser parser, String path) {
+        String literal = parser.getText();
+        if (literal.indexOf('e') >= 0 || literal.indexOf('E') >= 0) {
+            throw invalid(path, "Unsupported numeric literal");
+        }
+        return parser.getDecimalValue();
+    }
+
+    private static void expect(JsonParser parser, @Nullable JsonToken actual, JsonToken expected, String path) {
+        if (actual != expected) {
+            throw invalid(path, "Expected " + (expected == JsonToken.START_ARRAY ? "array" : "object"));
+        }
+    }
+
+    private static void requireEnd(JsonParser parser) {
+        if (parser.nextToken() != null) {
+            throw invalid("", "Unexpected trailing JSON content");
+        }
+    }
+
+    private static MetricValidationException relocate(MetricValidationException exception, String path) {
+        return new MetricValidationException(
+                exception.errorCode(), path + exception.fieldPath(), exception.getMessage(), exception);
+    }
+
+    private static MetricValidationException unknownField(String path, String field) {
+        return new MetricValidationException(
+                MetricErrorCode.QUERY_INVALID, MetricDslJsonSupport.child(path, field), "Unknown query field");
+    }
+
+    private static MetricValidationException invalidParameter(String path) {
+        return new MetricValidationException(
+                MetricErrorCode.METRIC_PARAMETER_TYPE_MISMATCH,
+                path,
+                "Query parameter must use a non-blank name and integer value");
+    }
+
+    private static MetricValidationException invalid(String path, String message) {
+        return new MetricValidationException(MetricErrorCode.QUERY_INVALID, path, message);
+    }
+
+    /**
+     * 读取中的查询字段。
+     */
+    private static final class QueryFields {
+
+        private final Set<String> seen = new HashSet<>();
+
+        private @Nullable String metricCode;
+
+        private @Nullable String subjectId;
+
+        private @Nullable LocalDateTime startTime;
+
+        private @Nullable LocalDateTime endTime;
+
+        private Map<String, Object> dimensionValues = ImmutableMetricMap.of();
+
+        private Map<String, Object> parameterValues = ImmutableMetricMap.of();
+    }
+}
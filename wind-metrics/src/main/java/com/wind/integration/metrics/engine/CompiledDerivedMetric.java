@@ -0,0 +1,178 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.dsl.definition.MetricDefinitionDsl;
+import com.wind.integration.metrics.dsl.definition.MetricDefinitionSpec;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import com.wind.integration.metrics.enums.MetricExecutionMode;
+import com.wind.integration.metrics.enums.MetricValueShape;
+import com.wind.integration.metrics.enums.MetricValueType;
+import com.wind.integration.metrics.query.ImmutableMetricMap;
+import com.wind.integration.metrics.query.MetricFieldValue;
+import com.wind.integration.metrics.query.MetricQuery;
+import com.wind.integration.metrics.query.MetricResult;
+import org.jspecify.annotations.Nullable;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 编译后的派生指标。
+ *
+ * <p>表达式在编译期转换为求值树，并展开为依赖图：{@link #leaves()} 是去重后的全部事实聚合指标，
+ * {@link #derived()} 是按拓扑顺序排列的中间派生指标（不含自身）。执行时每个叶子指标只查询一次，
+ * 中间派生指标按顺序求值一次。通过 {@link MetricDefinitionCompiler#compileDerived} 创建，
+ * 实例不可变且可在线程间共享。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-31 09:30
+ */
+public final class CompiledDerivedMetric implements CompiledMetric {
+
+    private final MetricDefinitionDsl definition;
+
+    private final int revision;
+
+    private final boolean global;
+
+    private final Set<String> dimensions;
+
+    private final CompiledMetricExpressions expressions;
+
+    private final List<CompiledMetricDefinition> leaves;
+
+    private final List<CompiledDerivedMetric> derived;
+
+    CompiledDerivedMetric(MetricDefinitionDsl definition,
+                          int revision,
+                          CompiledMetricExpressions expressions,
+                          List<CompiledMetricDefinition> leaves,
+                          List<CompiledDerivedMetric> derived) {
+        MetricDefinitionSpec metric = definition.metric();
+        this.definition = definition;
+        this.revision = revision;
+        this.global = "GLOBAL".equals(metric.subject().type());
+        this.dimensions = Set.copyOf(metric.dimensions());
+        this.expressions = expressions;
+        this.leaves = List.copyOf(leaves);
+        this.derived = List.copyOf(derived);
+    }
+
+    @Override
+    public String code() {
+        return definition.metric().code();
+    }
+
+    @Override
+    public int revision() {
+        return revision;
+    }
+
+    @Override
+    public MetricDefinitionDsl definition() {
+        return definition;
+    }
+
+    /**
+     * 获取去重后的全部事实聚合依赖。
+     *
+     * @return 叶子指标
+     */
+    public List<CompiledMetricDefinition> leaves() {
+        return leaves;
+    }
+
+    /**
+     * 获取按拓扑顺序排列的中间派生依赖，不含自身。
+     *
+     * @return 中间派生指标
+     */
+    public List<CompiledDerivedMetric> derived() {
+        return derived;
+    }
+
+    /**
+     * 按定义校验派生指标查询，派生指标不声明查询参数。
+     *
+     * @param query 单指标查询
+     * @throws MetricValidationException 查询与定义不匹配时抛出
+     */
+    void validate(MetricQuery query) {
+        if (!code().equals(query.metricCode())) {
+            throw new MetricValidationException(
+                    MetricErrorCode.QUERY_INVALID, "/metricCode", "Query metricCode does not match definition");
+        }
+        if (global && query.subjectId() != null) {
+            throw new MetricValidationException(
+                    MetricErrorCode.QUERY_INVALID, "/subjectId", "GLOBAL metric forbids subjectId");
+        }
+        if (!global && query.subjectId() == null) {
+            throw new MetricValidationException(MetricErrorCode.QUERY_INVALID, "/subjectId", "subjectId is required");
+        }
+        for (String dimension : query.dimensionValues().keySet()) {
+            if (!dimensions.contains(dimension)) {
+                throw new MetricValidationException(
+                        MetricErrorCode.QUERY_INVALID,
+                        "/dimensionValues/" + MetricFilterCompiler.escape(dimension),
+                        "Dimension is not declared by metric");
+            }
+        }
+        if (!query.parameterValues().isEmpty()) {
+            String name = query.parameterValues().keySet().iterator().next();
+            throw new MetricValidationException(
+                    MetricErrorCode.METRIC_PARAMETER_UNEXPECTED,
+                    "/parameterValues/" + MetricFilterCompiler.escape(name),
+                    "Query parameter is not declared by metric");
+        }
+    }
+
+    /**
+     * 使用依赖指标的结果求值并构造查询结果。
+     *
+     * @param results 依赖指标编码到查询结果，须包含全部直接引用
+     * @param query 派生指标查询
+     * @param calculatedTime 计算完成时间
+     * @param zone 时间解释时区
+     * @return {@code REALTIME} 查询结果
+     */
+    MetricResult result(Map<String, MetricResult> results,
+                        MetricQuery query,
+                        LocalDateTime calculatedTime,
+                        ZoneId zone) {
+        @Nullable Number[] values = expressions.newValues();
+        for (CompiledMetricExpressions.MetricReference reference : expressions.references()) {
+            MetricResult result = Objects.requireNonNull(results.get(reference.metricCode()), "dependency result");
+            values[reference.slot()] = valueOf(result, reference.field());
+        }
+        expressions.evaluate(values);
+        MetricDefinitionSpec metric = definition.metric();
+        MetricValueType valueType = null;
+        Number value = null;
+        List<String> names = expressions.names();
+        ImmutableMetricMap.Builder<MetricFieldValue> fieldValues = ImmutableMetricMap.builder(names.size());
+        if (metric.valueShape() == MetricValueShape.SCALAR) {
+            valueType = Objects.requireNonNull(metric.value()).valueType();
+            value = values[0];
+        } else {
+            for (int i = 0; i < names.size(); i++) {
+                fieldValues.put(names.get(i),
+                        new MetricFieldValue(metric.fields().get(names.get(i)).valueType(), values[i]));
+            }
+        }
+        return new MetricResult(code(), revision, MetricExecutionMode.REALTIME, null, null,
+                metric.valueShape(), valueType, value, fieldValues.build(),
+                query.subjectId(), query.startTime(), query.endTime(), calculatedTime, zone,
+                null, null, null, null, List.of());
+    }
+
+    private static @Nullable Number valueOf(MetricResult result, String field) {
+        if (result.valueShape() == MetricValueShape.SCALAR) {
+            return result.value();
+        }
+        return Objects.requireNonNull(result.fields().get(field), "dependency field").value();
+    }
+}
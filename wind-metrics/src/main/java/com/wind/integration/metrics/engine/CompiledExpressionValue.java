@@ -0,0 +1,73 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.dsl.definition.MetricValueDsl;
+import com.wind.integration.metrics.enums.MetricValueType;
+import org.jspecify.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 编译后的表达式值字段。
+ *
+ * <p>持有求值树、结果槽位和类型化规则。表达式结果缺失时应用 orElse；整数类型的十进制中间结果
+ * 先按声明的舍入方式取整，十进制类型按声明的 {@code scale} 和 {@code roundingMode} 定标。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-31 09:30
+ */
+final class CompiledExpressionValue {
+
+    private final String name;
+
+    private final String path;
+
+    private final int slot;
+
+    private final MetricValueType valueType;
+
+    private final int scale;
+
+    private final RoundingMode roundingMode;
+
+    private final @Nullable Number orElse;
+
+    private final MetricExpression expression;
+
+    CompiledExpressionValue(String name, String path, int slot, MetricValueDsl value, MetricExpression expression) {
+        this.name = name;
+        this.path = path;
+        this.slot = slot;
+        this.valueType = value.valueType();
+        this.scale = value.scale() == null ? 0 : value.scale();
+        this.roundingMode = value.roundingMode() == null ? RoundingMode.HALF_UP : value.roundingMode();
+        this.orElse = CompiledMetricValue.orElseValue(value.orElse());
+        this.expression = expression;
+    }
+
+    String name() {
+        return name;
+    }
+
+    int slot() {
+        return slot;
+    }
+
+    /**
+     * 求值并转换为声明的结果类型。
+     *
+     * @param operands 已写入依赖槽位的操作数
+     * @return 最终字段值
+     */
+    @Nullable
+    Number evaluate(MetricOperands operands) {
+        Number value = expression.value(operands);
+        if (value == null) {
+            value = orElse;
+        }
+        if (value instanceof BigDecimal decimal && valueType != MetricValueType.DECIMAL) {
+            value = decimal.setScale(0, roundingMode);
+        }
+        return CompiledMetricValue.typed(value, valueType, scale, roundingMode, path);
+    }
+}
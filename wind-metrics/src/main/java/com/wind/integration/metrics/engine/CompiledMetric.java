@@ -0,0 +1,33 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.dsl.definition.MetricDefinitionDsl;
+
+/**
+ * 编译后的指标，事实聚合指标为 {@link CompiledMetricDefinition}，派生指标为 {@link CompiledDerivedMetric}。
+ *
+ * @author wuxp
+ * @date 2026-07-31 09:30
+ */
+public sealed interface CompiledMetric permits CompiledMetricDefinition, CompiledDerivedMetric {
+
+    /**
+     * 获取指标编码。
+     *
+     * @return 指标编码
+     */
+    String code();
+
+    /**
+     * 获取指标定义版本号。
+     *
+     * @return 正整数版本号
+     */
+    int revision();
+
+    /**
+     * 获取编译来源的指标定义。
+     *
+     * @return 指标定义
+     */
+    MetricDefinitionDsl definition();
+}
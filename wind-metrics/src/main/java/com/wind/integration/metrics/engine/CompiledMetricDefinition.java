@@ -0,0 +1,463 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.dsl.definition.MetricDefinitionDsl;
+import com.wind.integration.metrics.dsl.definition.MetricDefinitionSpec;
+import com.wind.integration.metrics.dsl.definition.MetricJoinDsl;
+import com.wind.integration.metrics.dsl.definition.MetricQueryParameterDefinitionDsl;
+import com.wind.integration.metrics.dsl.definition.MetricValueDsl;
+import com.wind.integration.metrics.enums.MetricAggregation;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import com.wind.integration.metrics.enums.MetricExecutionMode;
+import com.wind.integration.metrics.enums.MetricValueShape;
+import com.wind.integration.metrics.enums.MetricValueType;
+import com.wind.integration.metrics.query.ImmutableMetricMap;
+import com.wind.integration.metrics.query.MetricColumnResult;
+import com.wind.integration.metrics.query.MetricFieldValue;
+import com.wind.integration.metrics.query.MetricQuery;
+import com.wind.integration.metrics.query.MetricResult;
+import com.wind.integration.metrics.query.MetricSubjectsQuery;
+import com.wind.integration.metrics.query.MetricValueColumn;
+import org.jspecify.annotations.Nullable;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * 编译后的事实指标定义。
+ *
+ * <p>过滤条件、字面量、值字段和行选择在编译时一次准备完成，实例不可变且可在线程间共享，
+ * 每次执行只创建轻量的聚合状态。通过 {@link MetricDefinitionCompiler} 创建。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-25 10:12
+ */
+public final class CompiledMetricDefinition implements CompiledMetric {
+
+    private final MetricDefinitionDsl definition;
+
+    private final int revision;
+
+    private final String fact;
+
+    private final @Nullable String subjectField;
+
+    private final String timeField;
+
+    private final List<MetricJoinDsl> joins;
+
+    private final List<CompiledMetricJoin> compiledJoins;
+
+    private final Set<String> dimensions;
+
+    private final Map<String, MetricQueryParameterDefinitionDsl> parameters;
+
+    private final @Nullable CompiledMetricRowSelection rowSelection;
+
+    private final List<CompiledMetricValue> values;
+
+    private final @Nullable CompiledMetricExpressions expressions;
+
+    private final List<String> outputNames;
+
+    private final List<MetricValueType> outputTypes;
+
+    private final Set<String> fields;
+
+    private final Set<String> primaryFields;
+
+    CompiledMetricDefinition(MetricDefinitionDsl definition,
+                             int revision,
+                             @Nullable CompiledMetricRowSelection rowSelection,
+                             List<CompiledMetricValue> values,
+                             @Nullable CompiledMetricExpressions expressions,
+                             Set<String> fields) {
+        MetricDefinitionSpec metric = definition.metric();
+        this.definition = definition;
+        this.revision = revision;
+        this.fact = Objects.requireNonNull(metric.fact(), "fact must not be null");
+        this.subjectField = metric.subject().field();
+        this.timeField = Objects.requireNonNull(metric.time(), "time must not be null").field();
+        this.joins = metric.joins();
+        this.dimensions = Set.copyOf(metric.dimensions());
+        this.parameters = metric.parameters();
+        this.rowSelection = rowSelection;
+        this.values = List.copyOf(values);
+        this.expressions = expressions;
+        this.outputNames = expressions == null
+                ? values.stream().map(CompiledMetricValue::name).toList()
+                : expressions.names();
+        this.outputTypes = expressions == null
+                ? values.stream().map(CompiledMetricValue::valueType).toList()
+                : outputNames.stream().map(name -> valueType(metric, name)).toList();
+        this.fields = Set.copyOf(fields);
+        this.compiledJoins = CompiledMetricJoin.compile(joins, this.fields);
+        Set<String> primary = new LinkedHashSet<>();
+        for (String field : fields) {
+            if (!isJoinField(field)) {
+                primary.add(field);
+            }
+        }
+        compiledJoins.forEach(join -> primary.addAll(join.primaryFields()));
+        this.primaryFields = Set.copyOf(primary);
+    }
+
+    @Override
+    public String code() {
+        return definition.metric().code();
+    }
+
+    @Override
+    public int revision() {
+        return revision;
+    }
+
+    @Override
+    public MetricDefinitionDsl definition() {
+        return definition;
+    }
+
+    /**
+     * 获取主事实源编码。
+     *
+     * @return 事实源编码
+     */
+    public String fact() {
+        return fact;
+    }
+
+    /**
+     * 按定义校验单指标查询并绑定执行条件。
+     *
+     * @param query 单指标查询
+     * @return 绑定后的查询
+     * @throws MetricValidationException 查询与定义不匹配时抛出
+     */
+    MetricQueryBinding bind(MetricQuery query) {
+        if (!code().equals(query.metricCode())) {
+            throw new MetricValidationException(
+                    MetricErrorCode.QUERY_INVALID, "/metricCode", "Query metricCode does not match definition");
+        }
+        return bind(query.subjectId(), query.startTime(), query.endTime(), query.dimensionValues(),
+                query.parameterValues());
+    }
+
+    MetricQueryBinding bind(@Nullable String subjectId,
+                            LocalDateTime startTime,
+                            LocalDateTime endTime,
+                            Map<String, Object> dimensionValues,
+                            Map<String, Object> parameterValues) {
+        if (subjectField == null && subjectId != null) {
+            throw new MetricValidationException(
+                    MetricErrorCode.QUERY_INVALID, "/subjectId", "GLOBAL metric forbids subjectId");
+        }
+        if (subjectField != null && subjectId == null) {
+            throw new MetricValidationException(MetricErrorCode.QUERY_INVALID, "/subjectId", "subjectId is required");
+        }
+        for (String dimension : dimensionValues.keySet()) {
+            if (!dimensions.contains(dimension)) {
+                throw new MetricValidationException(
+                        MetricErrorCode.QUERY_INVALID,
+                        "/dimensionValues/" + MetricFilterCompiler.escape(dimension),
+                        "Dimension is not declared by metric");
+            }
+        }
+        validateParameters(parameterValues);
+        int rowLimit = rowSelection == null ? 0 : rowSelection.resolveLimit(parameterValues);
+        return new MetricQueryBinding(subjectId, startTime, endTime, dimensionValues, rowLimit, List.of());
+    }
+
+    /**
+     * 按定义校验多主体查询并绑定执行条件。
+     *
+     * <p>多主体查询按主体分组聚合，行选择在每个主体内分别截取；不支持全局指标、查询参数和参数化的行数上限。</p>
+     *
+     * @param query 多主体查询
+     * @return 绑定后的查询，{@code subjectId} 为空，{@code subjectIds} 为查询主体
+     * @throws MetricValidationException 查询与定义不匹配时抛出
+     */
+    MetricQueryBinding bind(MetricSubjectsQuery query) {
+        if (!code().equals(query.metricCode())) {
+            throw new MetricValidationException(
+                    MetricErrorCode.QUERY_INVALID, "/metricCode", "Query metricCode does not match definition");
+        }
+        if (subjectField == null) {
+            throw new MetricValidationException(
+                    MetricErrorCode.QUERY_INVALID, "/subjectIds", "GLOBAL metric forbids subjectIds");
+        }
+        if (rowSelection != null && rowSelection.limitParameter() != null) {
+            throw new MetricValidationException(MetricErrorCode.METRIC_EXECUTION_MODE_UNSUPPORTED,
+                    "/metric/rowSelection/limit",
+                    "Parameterized row selection limit is not supported by multi-subject query");
+        }
+        MetricQueryBinding binding = bind(query.subjectIds().getFirst(), query.startTime(), query.endTime(),
+                query.dimensionValues(), Map.of());
+        return new MetricQueryBinding(null, binding.startTime(), binding.endTime(), binding.dimensionValues(),
+                binding.rowLimit(), query.subjectIds());
+    }
+
+    /**
+     * 获取共享扫描分组键，事实源、时间字段、主体字段和关联相同的指标可以共用一次扫描。
+     */
+    MetricScanGroup scanGroup() {
+        return new MetricScanGroup(fact, timeField, subjectField, joins);
+    }
+
+    Set<String> fields() {
+        return fields;
+    }
+
+    /**
+     * 主事实扫描需要读取的字段：不含关联字段，包含关联键字段。
+     */
+    Set<String> primaryFields() {
+        return primaryFields;
+    }
+
+    String timeField() {
+        return timeField;
+    }
+
+    @Nullable
+    String subjectField() {
+        return subjectField;
+    }
+
+    List<MetricJoinDsl> joins() {
+        return joins;
+    }
+
+    List<CompiledMetricJoin> compiledJoins() {
+        return compiledJoins;
+    }
+
+    /**
+     * 关联事实违反声明基数时能否按 SQL 语义展开主事实行：只有 {@code MIN}/{@code MAX} 不受重复行影响，
+     * 行选择会把重复行计入前 N 行。
+     */
+    boolean joinFanOutSafe() {
+        return rowSelection == null && values.stream().allMatch(value ->
+                value.aggregation() == MetricAggregation.MIN || value.aggregation() == MetricAggregation.MAX);
+    }
+
+    List<String> dimensionFields() {
+        return definition.metric().dimensions();
+    }
+
+    List<CompiledMetricValue> values() {
+        return values;
+    }
+
+    boolean hasRowSelection() {
+        return rowSelection != null;
+    }
+
+    /**
+     * 创建本次查询的事实扫描提示，关联事实的定义无法由进程内扫描执行。
+     */
+    MetricFactScan scan(MetricQueryBinding binding) {
+        requireSingleFact();
+        return primaryScan(binding);
+    }
+
+    /**
+     * 创建本次查询的主事实扫描提示，只包含主事实字段和关联键字段，关联字段上的维度条件不下推。
+     */
+    MetricFactScan primaryScan(MetricQueryBinding binding) {
+        Map<String, Object> dimensionValues = binding.dimensionValues();
+        if (!joins.isEmpty()) {
+            Map<String, Object> primaryDimensions = new LinkedHashMap<>();
+            dimensionValues.forEach((name, value) -> {
+                if (!isJoinField(name)) {
+                    primaryDimensions.put(name, value);
+                }
+            });
+            dimensionValues = primaryDimensions;
+        }
+        return new MetricFactScan(
+                fact,
+                subjectField,
+                binding.subjectId(),
+                timeField,
+                binding.startTime(),
+                binding.endTime(),
+                dimensionValues,
+                primaryFields,
+                Set.copyOf(binding.subjectIds()));
+    }
+
+    /**
+     * 创建本次查询的时间、主体和维度过滤。
+     */
+    Predicate<MetricFactRow> rowFilter(MetricQueryBinding binding, ZoneId zone) {
+        return new MetricQueryRowFilter(timeField, subjectField, binding, zone);
+    }
+
+    /**
+     * 创建只校验时间和维度的过滤，多主体查询由执行器按主体分组。
+     */
+    Predicate<MetricFactRow> windowFilter(MetricQueryBinding binding, ZoneId zone) {
+        return new MetricQueryRowFilter(timeField, null, binding, zone);
+    }
+
+    MetricAggregationState newState(MetricQueryBinding binding) {
+        return new MetricAggregationState(
+                values, rowSelection == null ? null : rowSelection.newSelector(binding.rowLimit()));
+    }
+
+    /**
+     * 创建不经过行选择的聚合状态，用于快照物化。
+     */
+    MetricAggregationState newPartialState() {
+        return new MetricAggregationState(values, null);
+    }
+
+    /**
+     * 使用最终值构造查询结果。
+     *
+     * @param binding 绑定后的查询
+     * @param result 与 measure 值字段顺序一致的最终值，表达式值字段在此基础上求值
+     * @param calculatedTime 计算完成时间
+     * @param zone 时间解释时区
+     * @param route 本次实际数据来源
+     * @return 查询结果
+     */
+    MetricResult result(MetricQueryBinding binding,
+                        @Nullable Number[] result,
+                        LocalDateTime calculatedTime,
+                        ZoneId zone,
+                        MetricResultRoute route) {
+        MetricValueType valueType = null;
+        Number value = null;
+        ImmutableMetricMap.Builder<MetricFieldValue> fieldValues = ImmutableMetricMap.builder(outputNames.size());
+        if (definition.metric().valueShape() == MetricValueShape.SCALAR) {
+            valueType = values.getFirst().valueType();
+            value = result[0];
+        } else {
+            @Nullable Number[] outputs = outputs(result);
+            for (int i = 0; i < outputNames.size(); i++) {
+                fieldValues.put(outputNames.get(i), new MetricFieldValue(outputTypes.get(i), outputs[i]));
+            }
+        }
+        return new MetricResult(code(), revision, route.executionMode(), null, null,
+                definition.metric().valueShape(), valueType, value, fieldValues.build(),
+                binding.subjectId(), binding.startTime(), binding.endTime(), calculatedTime, zone,
+                route.snapshotGranularity(), route.queryableStartTime(), route.watermarkTime(), route.planCode(),
+                route.segments());
+    }
+
+    /**
+     * 使用各主体的最终值构造多主体列式结果。
+     *
+     * @param binding 绑定后的多主体查询
+     * @param results 与 {@code binding.subjectIds()} 顺序一致、每项与 measure 值字段顺序一致的最终值
+     * @param calculatedTime 计算完成时间
+     * @param zone 时间解释时区
+     * @return {@code REALTIME} 列式结果
+     */
+    MetricColumnResult columnResult(MetricQueryBinding binding,
+                                    @Nullable Number[][] results,
+                                    LocalDateTime calculatedTime,
+                                    ZoneId zone) {
+        @Nullable Number[][] columns = new Number[outputNames.size()][results.length];
+        for (int row = 0; row < results.length; row++) {
+            @Nullable Number[] outputs = outputs(results[row]);
+            for (int column = 0; column < outputs.length; column++) {
+                columns[column][row] = outputs[column];
+            }
+        }
+        Map<String, MetricValueColumn> valueColumns = new LinkedHashMap<>();
+        for (int i = 0; i < outputNames.size(); i++) {
+            valueColumns.put(outputNames.get(i), MetricValueColumn.of(outputTypes.get(i), columns[i]));
+        }
+        return new MetricColumnResult(code(), revision, MetricExecutionMode.REALTIME,
+                definition.metric().valueShape(), binding.subjectIds(), valueColumns,
+                binding.startTime(), binding.endTime(), calculatedTime, zone);
+    }
+
+    /**
+     * 没有任何事实行时的最终值，与 SQL 空聚合一致。
+     */
+    @Nullable
+    Number[] emptyResult() {
+        @Nullable Number[] result = new Number[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i).complete(values.get(i).emptyResult());
+        }
+        return result;
+    }
+
+    /**
+     * 将 measure 结果写入槽位，按拓扑顺序计算表达式值字段，返回按声明顺序排列的全部字段值。
+     */
+    @Nullable
+    private Number[] outputs(@Nullable Number[] result) {
+        if (expressions == null) {
+            return result;
+        }
+        @Nullable Number[] slots = expressions.newValues();
+        for (int i = 0, j = 0; i < outputNames.size() && j < values.size(); i++) {
+            if (outputNames.get(i).equals(values.get(j).name())) {
+                slots[i] = result[j++];
+            }
+        }
+        return Arrays.copyOf(expressions.evaluate(slots), outputNames.size());
+    }
+
+    private static MetricValueType valueType(MetricDefinitionSpec metric, String name) {
+        MetricValueDsl value = metric.valueShape() == MetricValueShape.SCALAR
+                ? metric.value()
+                : metric.fields().get(name);
+        return Objects.requireNonNull(value, "value must not be null").valueType();
+    }
+
+    private boolean isJoinField(String field) {
+        for (MetricJoinDsl join : joins) {
+            if (field.startsWith(join.alias()) && field.length() > join.alias().length()
+                    && field.charAt(join.alias().length()) == '.') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void requireSingleFact() {
+        if (!joins.isEmpty()) {
+            throw new MetricValidationException(MetricErrorCode.METRIC_EXECUTION_MODE_UNSUPPORTED, "/metric/joins",
+                    "Joined facts are not supported by in-process aggregation");
+        }
+    }
+
+    private void validateParameters(Map<String, Object> parameterValues) {
+        for (String name : parameterValues.keySet()) {
+            if (!parameters.containsKey(name)) {
+                throw new MetricValidationException(
+                        MetricErrorCode.METRIC_PARAMETER_UNEXPECTED,
+                        "/parameterValues/" + MetricFilterCompiler.escape(name),
+                        "Query parameter is not declared by metric");
+            }
+        }
+        for (Map.Entry<String, MetricQueryParameterDefinitionDsl> entry : parameters.entrySet()) {
+            String path = "/parameterValues/" + MetricFilterCompiler.escape(entry.getKey());
+            Object value = parameterValues.get(entry.getKey());
+            if (value == null) {
+                throw new MetricValidationException(
+                        MetricErrorCode.METRIC_PARAMETER_MISSING, path, "Query parameter is required");
+            }
+            int number = (Integer) value;
+            MetricQueryParameterDefinitionDsl parameter = entry.getValue();
+            if (number < parameter.minimum() || number > parameter.maximum()) {
+                throw new MetricValidationException(
+                        MetricErrorCode.METRIC_PARAMETER_OUT_OF_RANGE, path, "Query parameter is out of range");
+            }
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.dsl.definition.MetricDefinitionSpec;
+import com.wind.integration.metrics.dsl.definition.MetricValueDsl;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import com.wind.integration.metrics.enums.MetricValueShape;
+import com.wind.integration.metrics.enums.MetricValueType;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 单个指标全部值字段的表达式求值程序。
+ *
+ * <p>值字段按声明顺序占用槽位 {@code 0..n-1}，其他指标的引用按首次出现顺序占用其后的槽位，
+ * 同一引用只占一个槽位。表达式字段之间的引用在编译期做拓扑排序，每个表达式求值一次，
+ * 结果写回自身槽位供后续字段使用；循环引用在编译期失败。实例不可变且线程安全。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-31 09:30
+ */
+final class CompiledMetricExpressions {
+
+    private final List<String> names;
+
+    private final String[] paths;
+
+    private final boolean[] computed;
+
+    private final List<CompiledExpressionValue> ordered;
+
+    private final List<MetricReference> references;
+
+    private CompiledMetricExpressions(List<String> names,
+                                      String[] paths,
+                                      boolean[] computed,
+                                      List<CompiledExpressionValue> ordered,
+                                      List<MetricReference> references) {
+        this.names = List.copyOf(names);
+        this.paths = paths;
+        this.computed = computed;
+        this.ordered = List.copyOf(ordered);
+        this.references = List.copyOf(references);
+    }
+
+    /**
+     * 编译指标的全部表达式值字段。
+     *
+     * @param metric 指标定义
+     * @param referenceTypes 其他指标值字段的类型解析
+     * @return 求值程序
+     * @throws MetricValidationException 表达式无效、引用无法解析或存在循环引用时抛出
+     */
+    static CompiledMetricExpressions compile(MetricDefinitionSpec metric, ReferenceTypes referenceTypes) {
+        Map<String, MetricValueDsl> declared = new LinkedHashMap<>();
+        Map<String, String> paths = new LinkedHashMap<>();
+        if (metric.valueShape() == MetricValueShape.SCALAR) {
+            declared.put("value", Objects.requireNonNull(metric.value()));
+            paths.put("value", "/metric/value");
+        } else {
+            for (Map.Entry<String, MetricValueDsl> entry : metric.fields().entrySet()) {
+                declared.put(entry.getKey(), entry.getValue());
+                paths.put(entry.getKey(), "/metric/fields/" + MetricFilterCompiler.escape(entry.getKey()));
+            }
+        }
+        return new Builder(declared, paths, referenceTypes).build();
+    }
+
+    /**
+     * 值字段名，下标即槽位。
+     */
+    List<String> names() {
+        return names;
+    }
+
+    /**
+     * 是否包含表达式值字段。
+     */
+    boolean hasExpressions() {
+        return !ordered.isEmpty();
+    }
+
+    /**
+     * 其他指标的值引用。
+     */
+    List<MetricReference> references() {
+        return references;
+    }
+
+    /**
+     * 创建与槽位数量一致的值数组。
+     */
+    @Nullable
+    Number[] newValues() {
+        return new Number[paths.length];
+    }
+
+    /**
+     * 按拓扑顺序计算全部表达式字段。
+     *
+     * @param values 已写入 measure 字段和指标引用的值数组，表达式字段的结果写回同一数组
+     * @return 传入的值数组
+     */
+    @Nullable
+    Number[] evaluate(@Nullable Number[] values) {
+        MetricOperands operands = new MetricOperands(values.length);
+        for (int i = 0; i < values.length; i++) {
+            if (!computed[i]) {
+                operands.set(i, values[i], paths[i]);
+            }
+        }
+        for (CompiledExpressionValue expression : ordered) {
+            Number value = expression.evaluate(operands);
+            values[expression.slot()] = value;
+            operands.set(expression.slot(), value, paths[expression.slot()]);
+        }
+        return values;
+    }
+
+    /**
+     * 其他指标值字段的类型解析。
+     */
+    @FunctionalInterface
+    interface ReferenceTypes {
+
+        /**
+         * 解析被引用指标值字段的类型。
+         *
+         * @param metricCode 指标编码
+         * @param field 值字段名
+         * @param path 表达式文本的 JSON Pointer
+         * @return 值类型
+         * @throws MetricValidationException 引用不存在或不允许引用时抛出
+         */
+        MetricValueType valueType(String metricCode, String field, String path);
+    }
+
+    /**
+     * 其他指标的值引用。
+     *
+     * @param metricCode 指标编码
+     * @param field 值字段名
+     * @param slot 槽位
+     */
+    record MetricReference(String metricCode, String field, int slot) {
+    }
+
+    private static final class Builder implements MetricExpressionCompiler.Resolver {
+
+        private final Map<String, MetricValueDsl> declared;
+
+        private final Map<String, String> declaredPaths;
+
+        private final ReferenceTypes referenceTypes;
+
+        private final Map<String, Integer> slots = new HashMap<>();
+
+        private final Map<String, CompiledExpressionValue> compiled = new HashMap<>();
+
+        private final Set<String> visiting = new HashSet<>();
+
+        private final List<CompiledExpressionValue> ordered = new ArrayList<>();
+
+        private final List<MetricReference> references = new ArrayList<>();
+
+        private final List<String> paths = new ArrayList<>();
+
+        private Builder(Map<String, MetricValueDsl> declared,
+                        Map<String, String> declaredPaths,
+                        ReferenceTypes referenceTypes) {
+            this.declared = declared;
+            this.declaredPaths = declaredPaths;
+            this.referenceTypes = referenceTypes;
+            for (String name : declared.keySet()) {
+                slots.put(name, slots.size());
+                paths.add(declaredPaths.get(name));
+            }
+        }
+
+        private CompiledMetricExpressions build() {
+            for (String name : declared.keySet()) {
+                if (declared.get(name).expression() != null) {
+                    compileField(name);
+                }
+            }
+            boolean[] computed = new boolean[paths.size()];
+            for (CompiledExpressionValue expression : ordered) {
+                computed[expression.slot()] = true;
+            }
+            return new CompiledMetricExpressions(List.copyOf(declared.keySet()), paths.toArray(String[]::new),
+                    computed, ordered, references);
+        }
+
+        private void compileField(String name) {
+            if (compiled.containsKey(name)) {
+                return;
+            }
+            String path = declaredPaths.get(name) + "/expression/value";
+            if (!visiting.add(name)) {
+                throw new MetricValidationException(
+                        MetricErrorCode.DSL_VALUE_INVALID, path, "Expression reference cycle at '" + name + "'");
+            }
+            MetricValueDsl value = declared.get(name);
+            MetricExpression expression = MetricExpressionCompiler.compile(
+                    Objects.requireNonNull(value.expression()).value(), path, this);
+            CompiledExpressionValue result = new CompiledExpressionValue(
+                    name, declaredPaths.get(name), slots.get(name), value, expression);
+            visiting.remove(name);
+            compiled.put(name, result);
+            ordered.add(result);
+        }
+
+        @Override
+        public MetricExpression field(String name, String path) {
+            MetricValueDsl value = declared.get(name);
+            if (value == null) {
+                throw new MetricValidationException(
+                        MetricErrorCode.DSL_VALUE_INVALID, path, "Unknown field '" + name + "'");
+            }
+            if (value.expression() != null) {
+                compileField(name);
+            }
+            return MetricExpression.slot(slots.get(name), value.valueType() == MetricValueType.DECIMAL);
+        }
+
+        @Override
+        public MetricExpression metric(String metricCode, String field, String path) {
+            MetricValueType valueType = referenceTypes.valueType(metricCode, field, path);
+            String key = metricCode + '\u0000' + field;
+            Integer slot = slots.get(key);
+            if (slot == null) {
+                slot = paths.size();
+                slots.put(key, slot);
+                paths.add(path);
+                references.add(new MetricReference(metricCode, field, slot));
+            }
+            return MetricExpression.slot(slot, valueType == MetricValueType.DECIMAL);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.dsl.definition.MetricJoinDsl;
+import com.wind.integration.metrics.dsl.definition.MetricJoinOnDsl;
+import com.wind.integration.metrics.enums.MetricJoinType;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 编译后的关联事实，按连接类型和定义实际引用的关联字段选择进程内执行策略。
+ *
+ * <p>DSL 只允许一对一和多对一关联，关联不会放大主事实行，因此：未引用任何关联字段的 {@code LEFT} 关联直接消除；
+ * 未引用关联字段的 {@code INNER} 关联只判断关联键是否存在，构建侧为键集合（半关联）；
+ * 其余关联构建以关联键为键的哈希表，单列整数键使用基本类型哈希表。
+ * 关联键按 {@link MetricFactValues#canonicalKey} 比较，任一关联键为 NULL 的主事实行按 SQL 语义不匹配。</p>
+ *
+ * @author wuxp
+ * @date 2026-08-12 09:30
+ */
+final class CompiledMetricJoin {
+
+    private final String alias;
+
+    private final String path;
+
+    private final MetricJoinType joinType;
+
+    private final Strategy strategy;
+
+    private final String[] primaryFields;
+
+    private final MetricJoinScan scan;
+
+    private CompiledMetricJoin(MetricJoinDsl join, int index, Set<String> referencedFields) {
+        this.alias = join.alias();
+        this.path = "/metric/joins/" + index;
+        this.joinType = join.joinType();
+        this.primaryFields = join.on().stream().map(MetricJoinOnDsl::primaryField).toArray(String[]::new);
+        List<String> keyFields = join.on().stream().map(MetricJoinOnDsl::joinField).toList();
+        if (!referencedFields.isEmpty()) {
+            this.strategy = Strategy.HASH;
+        } else {
+            this.strategy = joinType == MetricJoinType.INNER ? Strategy.SEMI : Strategy.ELIMINATED;
+        }
+        Set<String> fields = new LinkedHashSet<>(keyFields);
+        fields.addAll(referencedFields);
+        this.scan = new MetricJoinScan(join.fact(), keyFields, fields);
+    }
+
+    /**
+     * 编译定义的全部关联。
+     *
+     * @param joins 关联定义
+     * @param fields 定义引用的全部字段，关联字段为 {@code alias.field}
+     * @return 与关联定义顺序一致的编译结果
+     */
+    static List<CompiledMetricJoin> compile(List<MetricJoinDsl> joins, Set<String> fields) {
+        List<CompiledMetricJoin> result = new ArrayList<>(joins.size());
+        for (int i = 0; i < joins.size(); i++) {
+            MetricJoinDsl join = joins.get(i);
+            String prefix = join.alias() + ".";
+            Set<String> referencedFields = new LinkedHashSet<>();
+            for (String field : fields) {
+                if (field.startsWith(prefix)) {
+                    referencedFields.add(field.substring(prefix.length()));
+                }
+            }
+            result.add(new CompiledMetricJoin(join, i, referencedFields));
+        }
+        return List.copyOf(result);
+    }
+
+    String alias() {
+        return alias;
+    }
+
+    String path() {
+        return path;
+    }
+
+    Strategy strategy() {
+        return strategy;
+    }
+
+    boolean inner() {
+        return joinType == MetricJoinType.INNER;
+    }
+
+    List<String> primaryFields() {
+        return List.of(primaryFields);
+    }
+
+    MetricJoinScan scan() {
+        return scan;
+    }
+
+    /**
+     * 计算主事实行的探测键。
+     *
+     * @param row 主事实行
+     * @return 规范化的关联键，任一关联键为 NULL 时返回 {@code null}
+     */
+    @Nullable
+    Object probeKey(MetricFactRow row) {
+        return key(row, primaryFields, path + "/on");
+    }
+
+    /**
+     * 计算事实行在指定字段上的规范化关联键，单列时为规范值本身，多列时为规范值列表。
+     */
+    static @Nullable Object key(MetricFactRow row, String[] fields, String path) {
+        if (fields.length == 1) {
+            Object value = row.get(fields[0]);
+            return value == null ? null : MetricFactValues.canonicalKey(value, path);
+        }
+        Object[] result = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            Object value = row.get(fields[i]);
+            if (value == null) {
+                return null;
+            }
+            result[i] = MetricFactValues.canonicalKey(value, path);
+        }
+        return List.of(result);
+    }
+
+    /**
+     * 关联的进程内执行策略。
+     */
+    enum Strategy {
+
+        /** 左关联且未引用关联字段，关联不影响结果，直接消除。 */
+        ELIMINATED,
+
+        /** 内关联且未引用关联字段，只按关联键集合过滤主事实行。 */
+        SEMI,
+
+        /** 按关联键构建哈希表，为主事实行补充关联字段。 */
+        HASH
+    }
+}
@@ -0,0 +1,122 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.dsl.materialization.MetricMaterializationPlanDsl;
+import com.wind.integration.metrics.enums.MetricExecutionMode;
+import com.wind.integration.metrics.enums.MetricMergeState;
+import com.wind.integration.metrics.enums.SnapshotGranularity;
+import org.jspecify.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 与指标定义绑定的已校验物化计划。
+ *
+ * <p>通过 {@link MetricDefinitionCompiler#compilePlan} 创建，实例不可变且可在线程间共享。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-27 09:40
+ */
+public final class CompiledMetricPlan {
+
+    private final String planCode;
+
+    private final MetricMaterializationPlanDsl plan;
+
+    private final CompiledMetricDefinition definition;
+
+    private final SnapshotGranularity snapshotGranularity;
+
+    private final String snapshotTargetCode;
+
+    private final @Nullable Duration recentWindow;
+
+    private final List<MetricMergeState> mergeStates;
+
+    CompiledMetricPlan(String planCode,
+                       MetricMaterializationPlanDsl plan,
+                       CompiledMetricDefinition definition,
+                       SnapshotGranularity snapshotGranularity,
+                       String snapshotTargetCode,
+                       @Nullable Duration recentWindow,
+                       List<MetricMergeState> mergeStates) {
+        this.planCode = Objects.requireNonNull(planCode, "planCode must not be null");
+        this.plan = plan;
+        this.definition = definition;
+        this.snapshotGranularity = snapshotGranularity;
+        this.snapshotTargetCode = snapshotTargetCode;
+        this.recentWindow = recentWindow;
+        this.mergeStates = List.copyOf(mergeStates);
+    }
+
+    /**
+     * 获取物化计划编码。
+     *
+     * @return 计划编码
+     */
+    public String planCode() {
+        return planCode;
+    }
+
+    /**
+     * 获取物化计划。
+     *
+     * @return 物化计划
+     */
+    public MetricMaterializationPlanDsl plan() {
+        return plan;
+    }
+
+    /**
+     * 获取计划绑定的指标定义。
+     *
+     * @return 编译后的指标定义
+     */
+    public CompiledMetricDefinition definition() {
+        return definition;
+    }
+
+    /**
+     * 获取计划执行模式。
+     *
+     * @return {@code SNAPSHOT} 或 {@code SEGMENTED}
+     */
+    public MetricExecutionMode executionMode() {
+        return plan.executionMode();
+    }
+
+    /**
+     * 获取快照桶粒度；分段计划返回 archive 分段的粒度。
+     *
+     * @return 桶粒度
+     */
+    public SnapshotGranularity snapshotGranularity() {
+        return snapshotGranularity;
+    }
+
+    /**
+     * 获取快照逻辑目标编码；分段计划返回 archive 分段的目标。
+     *
+     * @return 目标编码
+     */
+    public String snapshotTargetCode() {
+        return snapshotTargetCode;
+    }
+
+    /**
+     * 获取分段计划的近期窗口。
+     *
+     * @return 近期窗口；全量快照计划为空
+     */
+    public @Nullable Duration recentWindow() {
+        return recentWindow;
+    }
+
+    /**
+     * 获取与值字段顺序一致的部分值合并状态。
+     */
+    List<MetricMergeState> mergeStates() {
+        return mergeStates;
+    }
+}
@@ -0,0 +1,145 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.dsl.definition.selection.MetricOrderByDsl;
+import com.wind.integration.metrics.dsl.definition.selection.MetricRowSelectionDsl;
+import com.wind.integration.metrics.enums.MetricSortDirection;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * 编译后的行选择：过滤、排序并截取前 N 行后再交给 measure 聚合。
+ *
+ * <p>排序遵循 SQL 默认语义，{@code ASC} 时 NULL 在前，{@code DESC} 时 NULL 在后。
+ * 每个聚合分组只保留当前排序最靠前的 N 行（容量为 N 的有界堆），n 行候选的选择代价为 O(n log N)，
+ * 内存只与 N 有关；排序键相同的行先到先留，与对全部候选行稳定排序后截取的结果一致。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-25 10:12
+ */
+final class CompiledMetricRowSelection {
+
+    private static final String PATH = "/metric/rowSelection";
+
+    private final Predicate<MetricFactRow> filter;
+
+    private final Comparator<MetricFactRow> order;
+
+    private final Comparator<Candidate> retainOrder;
+
+    private final @Nullable Integer limit;
+
+    private final @Nullable String limitParameter;
+
+    CompiledMetricRowSelection(MetricRowSelectionDsl rowSelection) {
+        this.filter = MetricFilterCompiler.compile(rowSelection.filter(), PATH + "/filter");
+        this.order = comparator(rowSelection.orderBy());
+        this.retainOrder = Comparator.<Candidate, MetricFactRow>comparing(Candidate::row, order)
+                .thenComparingLong(Candidate::sequence);
+        this.limit = rowSelection.limit().value();
+        this.limitParameter = rowSelection.limit().parameter();
+    }
+
+    /**
+     * 解析本次查询生效的行数上限。
+     *
+     * @param parameterValues 已校验的查询参数
+     * @return 行数上限
+     */
+    int resolveLimit(Map<String, Object> parameterValues) {
+        if (limit != null) {
+            return limit;
+        }
+        return (Integer) Objects.requireNonNull(parameterValues.get(limitParameter), "limit parameter is missing");
+    }
+
+    Selector newSelector(int rowLimit) {
+        return new Selector(rowLimit);
+    }
+
+    @Nullable
+    String limitParameter() {
+        return limitParameter;
+    }
+
+    private static Comparator<MetricFactRow> comparator(List<MetricOrderByDsl> orderBy) {
+        Comparator<MetricFactRow> result = null;
+        for (int i = 0; i < orderBy.size(); i++) {
+            MetricOrderByDsl item = orderBy.get(i);
+            String field = item.field();
+            String path = PATH + "/orderBy/" + i + "/field";
+            Comparator<MetricFactRow> fieldOrder =
+                    (left, right) -> compareNullsFirst(left.get(field), right.get(field), path);
+            if (item.direction() == MetricSortDirection.DESC) {
+                fieldOrder = fieldOrder.reversed();
+            }
+            result = result == null ? fieldOrder : result.thenComparing(fieldOrder);
+        }
+        return Objects.requireNonNull(result, "orderBy must not be empty");
+    }
+
+    private static int compareNullsFirst(@Nullable Object left, @Nullable Object right, String path) {
+        if (left == null || right == null) {
+            return left == right ? 0 : left == null ? -1 : 1;
+        }
+        return MetricFactValues.compare(left, right, path);
+    }
+
+    /**
+     * 单个聚合分组的行选择缓冲区，非线程安全。
+     */
+    final class Selector {
+
+        /** 有界堆的初始容量上限，行数上限较大但候选行较少时不预先分配。 */
+        private static final int MAX_INITIAL_CAPACITY = 64;
+
+        private final int rowLimit;
+
+        /** 堆顶是已保留行中排序最靠后的一行，排序键相同时后到的行靠后。 */
+        private final PriorityQueue<Candidate> candidates;
+
+        private long sequence;
+
+        private Selector(int rowLimit) {
+            this.rowLimit = rowLimit;
+            this.candidates = new PriorityQueue<>(Math.clamp(rowLimit, 1, MAX_INITIAL_CAPACITY),
+                    retainOrder.reversed());
+        }
+
+        void offer(MetricFactRow row) {
+            if (rowLimit <= 0 || !filter.test(row)) {
+                return;
+            }
+            if (candidates.size() < rowLimit) {
+                candidates.add(new Candidate(row, sequence++));
+            } else if (order.compare(row, candidates.peek().row()) < 0) {
+                candidates.poll();
+                candidates.add(new Candidate(row, sequence++));
+            }
+        }
+
+        /**
+         * 按排序输出被选中的行。
+         *
+         * @param consumer 行消费者
+         */
+        void forEachSelected(Consumer<MetricFactRow> consumer) {
+            MetricFactRow[] selected = new MetricFactRow[candidates.size()];
+            for (int i = selected.length - 1; i >= 0; i--) {
+                selected[i] = candidates.poll().row();
+            }
+            for (MetricFactRow row : selected) {
+                consumer.accept(row);
+            }
+        }
+    }
+
+    private record Candidate(MetricFactRow row, long sequence) {
+    }
+}
@@ -0,0 +1,431 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.dsl.definition.MetricMeasureDsl;
+import com.wind.integration.metrics.dsl.definition.selection.MetricOrderByDsl;
+import com.wind.integration.metrics.dsl.definition.selection.MetricRowSelectionDsl;
+import com.wind.integration.metrics.dsl.filter.ComparisonMetricFilterDsl;
+import com.wind.integration.metrics.dsl.filter.LogicalMetricFilterDsl;
+import com.wind.integration.metrics.dsl.filter.MetricFilterDsl;
+import com.wind.integration.metrics.dsl.filter.MetricLiteralDsl;
+import com.wind.integration.metrics.dsl.filter.NullMetricFilterDsl;
+import com.wind.integration.metrics.dsl.filter.SetMetricFilterDsl;
+import com.wind.integration.metrics.enums.MetricAggregation;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import com.wind.integration.metrics.enums.MetricFilterOperator;
+import com.wind.integration.metrics.enums.MetricSortDirection;
+import org.jspecify.annotations.Nullable;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * 编译后的指标 SQL。
+ *
+ * <p>表、列和关联在编译期一次解析完成；查询只绑定声明维度中的一部分，
+ * 因此按实际绑定的维度集合惰性生成并缓存语句文本，同一组合的查询始终复用同一条 SQL。
+ * 行选择生成排序截取子查询，多主体语句改用 {@code ROW_NUMBER() OVER (PARTITION BY 主体 ...)} 在每个主体内截取，
+ * 聚合在外层完成；平均值拆为求和与计数，在 Java 侧按定义的保留位数相除，
+ * 与进程内聚合结果一致。多主体查询生成按主体分组的语句，主体条件固定为 {@value #SUBJECT_BATCH_SIZE}
+ * 个占位符，执行器按批绑定，不同主体数量的查询共用同一条 SQL。
+ * 关联键分组的派生表输出的行数列追加在聚合列之后，读取时校验命中的关联键没有重复行。
+ * 实例不可变且线程安全，通过 {@link MetricSqlCompiler} 创建。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-29 10:05
+ */
+final class CompiledMetricSql {
+
+    /** 多主体语句中主体 {@code IN} 条件的占位符数量。 */
+    static final int SUBJECT_BATCH_SIZE = 500;
+
+    private static final String SELECTION_ALIAS = "s";
+
+    private final CompiledMetricDefinition definition;
+
+    private final Map<String, String> columns;
+
+    private final String from;
+
+    private final List<JoinGuard> joinGuards;
+
+    private final Map<Set<String>, MetricSqlStatement> statements = new ConcurrentHashMap<>();
+
+    private final Map<Set<String>, MetricSqlStatement> subjectStatements = new ConcurrentHashMap<>();
+
+    CompiledMetricSql(CompiledMetricDefinition definition,
+                      Map<String, String> columns,
+                      String from,
+                      List<JoinGuard> joinGuards) {
+        this.definition = definition;
+        this.columns = Map.copyOf(columns);
+        this.from = from;
+        this.joinGuards = List.copyOf(joinGuards);
+    }
+
+    CompiledMetricDefinition definition() {
+        return definition;
+    }
+
+    int revision() {
+        return definition.revision();
+    }
+
+    /**
+     * 获取与本次绑定维度集合对应的语句。
+     *
+     * @param dimensions 查询实际绑定的维度
+     * @return 参数化语句
+     */
+    MetricSqlStatement statement(Set<String> dimensions) {
+        MetricSqlStatement result = statements.get(dimensions);
+        return result == null ? statements.computeIfAbsent(Set.copyOf(dimensions), this::build) : result;
+    }
+
+    /**
+     * 获取按主体分组的多主体语句，首列为主体字段，其后为聚合列。
+     *
+     * @param dimensions 查询实际绑定的维度
+     * @return 参数化语句，主体占位符从 {@link MetricQueryBinding#subjectIds()} 按下标取值
+     */
+    MetricSqlStatement subjectsStatement(Set<String> dimensions) {
+        MetricSqlStatement result = subjectStatements.get(dimensions);
+        return result == null ? subjectStatements.computeIfAbsent(Set.copyOf(dimensions), this::buildSubjects) : result;
+    }
+
+    /**
+     * 读取聚合结果行，返回与值字段顺序一致的最终值。
+     *
+     * @param resultSet 已定位到结果行的结果集
+     * @return 应用 orElse 和类型转换后的值
+     * @throws SQLException 读取失败时抛出
+     */
+    @Nullable
+    Number[] read(ResultSet resultSet) throws SQLException {
+        return read(resultSet, 1);
+    }
+
+    /**
+     * 从指定列开始读取聚合结果行。
+     *
+     * @param resultSet 已定位到结果行的结果集
+     * @param firstColumn 第一个聚合列的序号，从 1 开始
+     * @return 应用 orElse 和类型转换后的值
+     * @throws SQLException 读取失败时抛出
+     * @throws MetricValidationException 命中的关联键存在重复行时抛出
+     */
+    @Nullable
+    Number[] read(ResultSet resultSet, int firstColumn) throws SQLException {
+        List<CompiledMetricValue> values = definition.values();
+        Number[] result = new Number[values.size()];
+        int column = firstColumn;
+        for (int i = 0; i < result.length; i++) {
+            CompiledMetricValue value = values.get(i);
+            Number raw = number(resultSet.getObject(column++), value);
+            if (value.aggregation() == MetricAggregation.AVG) {
+                Number count = number(resultSet.getObject(column++), value);
+                raw = value.average(raw, count == null ? 0 : MetricFactValues.toLong(count, value.path()));
+            }
+            result[i] = value.complete(raw);
+        }
+        for (JoinGuard guard : joinGuards) {
+            if (resultSet.getObject(column++) instanceof Number rows && rows.longValue() > 1) {
+                throw new MetricValidationException(MetricErrorCode.METRIC_FACT_VALUE_INVALID, guard.path(),
+                        "Join fact has duplicated keys, fan-out would inflate aggregated values");
+            }
+        }
+        return result;
+    }
+
+    private MetricSqlStatement buildSubjects(Set<String> dimensions) {
+        String subject = columns.get(Objects.requireNonNull(definition.subjectField()));
+        SqlBuilder sql = new SqlBuilder();
+        MetricRowSelectionDsl selection = definition.definition().metric().rowSelection();
+        if (selection == null) {
+            sql.append("SELECT ").append(subject).append(", ");
+            appendAggregations(sql, columns::get);
+            appendGuards(sql, false);
+            sql.append(" FROM ").append(from);
+            appendWhere(sql, dimensions, null, true);
+            sql.append(" GROUP BY ").append(subject);
+            return sql.toStatement();
+        }
+        // 每个主体分别截取前 N 行：窗口函数在 WHERE 之后按主体编号，外层按编号过滤后分组聚合
+        Map<String, String> projection = selectionProjection(1);
+        sql.append("SELECT ").append(SELECTION_ALIAS).append(".c0, ");
+        appendAggregations(sql, projection::get);
+        appendGuards(sql, true);
+        sql.append(" FROM (SELECT ").append(subject).append(" AS c0");
+        appendProjection(sql, projection, 1);
+        appendGuardProjection(sql);
+        sql.append(", ROW_NUMBER() OVER (PARTITION BY ").append(subject).append(" ORDER BY ");
+        appendOrderBy(sql, selection);
+        sql.append(") AS rn FROM ").append(from);
+        appendWhere(sql, dimensions, selection.filter(), true);
+        sql.append(") ").append(SELECTION_ALIAS)
+                .append(" WHERE ").append(SELECTION_ALIAS).append(".rn <= ").parameter(MetricQueryBinding::rowLimit)
+                .append(" GROUP BY ").append(SELECTION_ALIAS).append(".c0");
+        return sql.toStatement();
+    }
+
+    private MetricSqlStatement build(Set<String> dimensions) {
+        SqlBuilder sql = new SqlBuilder();
+        MetricRowSelectionDsl selection = definition.definition().metric().rowSelection();
+        if (selection == null) {
+            sql.append("SELECT ");
+            appendAggregations(sql, columns::get);
+            appendGuards(sql, false);
+            sql.append(" FROM ").append(from);
+            appendWhere(sql, dimensions, null, false);
+            return sql.toStatement();
+        }
+        Map<String, String> projection = selectionProjection(0);
+        sql.append("SELECT ");
+        appendAggregations(sql, projection::get);
+        appendGuards(sql, true);
+        sql.append(" FROM (SELECT ");
+        if (projection.isEmpty()) {
+            sql.append("1 AS c0");
+        }
+        appendProjection(sql, projection, 0);
+        appendGuardProjection(sql);
+        sql.append(" FROM ").append(from);
+        appendWhere(sql, dimensions, selection.filter(), false);
+        sql.append(" ORDER BY ");
+        appendOrderBy(sql, selection);
+        sql.append(" LIMIT ").parameter(MetricQueryBinding::rowLimit);
+        sql.append(") ").append(SELECTION_ALIAS);
+        return sql.toStatement();
+    }
+
+    /**
+     * 行选择子查询输出的值字段列，列名从 {@code c<firstColumn>} 开始编号。
+     */
+    private Map<String, String> selectionProjection(int firstColumn) {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String field : valueFields()) {
+            result.put(field, SELECTION_ALIAS + ".c" + (firstColumn + result.size()));
+        }
+        return result;
+    }
+
+    private void appendProjection(SqlBuilder sql, Map<String, String> projection, int firstColumn) {
+        int index = firstColumn;
+        for (String field : projection.keySet()) {
+            sql.append(index == 0 ? "" : ", ").append(columns.get(field)).append(" AS c").append(index++);
+        }
+    }
+
+    /**
+     * 关联键行数校验列，行选择时从子查询输出的 {@code g<n>} 列读取。
+     */
+    private void appendGuards(SqlBuilder sql, boolean selected) {
+        for (int i = 0; i < joinGuards.size(); i++) {
+            String column = selected ? SELECTION_ALIAS + ".g" + i : joinGuards.get(i).column();
+            sql.append(", MAX(").append(column).append(')');
+        }
+    }
+
+    private void appendGuardProjection(SqlBuilder sql) {
+        for (int i = 0; i < joinGuards.size(); i++) {
+            sql.append(", ").append(joinGuards.get(i).column()).append(" AS g").append(i);
+        }
+    }
+
+    private void appendOrderBy(SqlBuilder sql, MetricRowSelectionDsl selection) {
+        for (int i = 0; i < selection.orderBy().size(); i++) {
+            MetricOrderByDsl orderBy = selection.orderBy().get(i);
+            String column = columns.get(orderBy.field());
+            String direction = orderBy.direction() == MetricSortDirection.DESC ? " DESC" : " ASC";
+            // 显式 NULL 排序：ASC 时 NULL 在前，DESC 时 NULL 在后，与进程内行选择一致
+            sql.append(i == 0 ? "" : ", ")
+                    .append("CASE WHEN ").append(column).append(" IS NULL THEN 0 ELSE 1 END").append(direction)
+                    .append(", ").append(column).append(direction);
+        }
+    }
+
+    private Set<String> valueFields() {
+        Set<String> result = new LinkedHashSet<>();
+        for (CompiledMetricValue value : definition.values()) {
+            MetricMeasureDsl measure = value.measure();
+            if (measure.field() != null) {
+                result.add(measure.field());
+            }
+            MetricFilterCompiler.collectFields(measure.filter(), result);
+        }
+        return result;
+    }
+
+    private void appendAggregations(SqlBuilder sql, UnaryOperator<String> resolver) {
+        List<CompiledMetricValue> values = definition.values();
+        for (int i = 0; i < values.size(); i++) {
+            CompiledMetricValue value = values.get(i);
+            MetricMeasureDsl measure = value.measure();
+            String field = measure.field() == null ? null : resolver.apply(measure.field());
+            sql.append(i == 0 ? "" : ", ");
+            switch (value.aggregation()) {
+                case COUNT -> {
+                    if (measure.filter() == null) {
+                        sql.append("COUNT(*)");
+                    } else {
+                        sql.append("COUNT(CASE WHEN ");
+                        appendFilter(sql, measure.filter(), resolver);
+                        sql.append(" THEN 1 END)");
+                    }
+                }
+                case AVG -> {
+                    appendAggregation(sql, "SUM", field, measure.filter(), resolver);
+                    sql.append(", ");
+                    appendAggregation(sql, "COUNT", field, measure.filter(), resolver);
+                }
+                default -> appendAggregation(sql, value.aggregation().name(), field, measure.filter(), resolver);
+            }
+        }
+    }
+
+    private void appendAggregation(SqlBuilder sql,
+                                   String function,
+                                   @Nullable String field,
+                                   @Nullable MetricFilterDsl filter,
+                                   UnaryOperator<String> resolver) {
+        sql.append(function).append('(');
+        if (filter == null) {
+            sql.append(field);
+        } else {
+            sql.append("CASE WHEN ");
+            appendFilter(sql, filter, resolver);
+            sql.append(" THEN ").append(field).append(" END");
+        }
+        sql.append(')');
+    }
+
+    private void appendWhere(SqlBuilder sql,
+                             Set<String> dimensions,
+                             @Nullable MetricFilterDsl filter,
+                             boolean subjects) {
+        String time = columns.get(definition.timeField());
+        sql.append(" WHERE ").append(time).append(" >= ").parameter(MetricQueryBinding::startTime)
+                .append(" AND ").append(time).append(" < ").parameter(MetricQueryBinding::endTime);
+        String subjectField = definition.subjectField();
+        if (subjects) {
+            sql.append(" AND ").append(columns.get(Objects.requireNonNull(subjectField))).append(" IN (");
+            for (int i = 0; i < SUBJECT_BATCH_SIZE; i++) {
+                int index = i;
+                sql.append(i == 0 ? "" : ", ").parameter(binding -> binding.subjectIds().get(index));
+            }
+            sql.append(")");
+        } else if (subjectField != null) {
+            sql.append(" AND ").append(columns.get(subjectField)).append(" = ")
+                    .parameter(MetricQueryBinding::subjectId);
+        }
+        for (String dimension : definition.dimensionFields()) {
+            if (dimensions.contains(dimension)) {
+                sql.append(" AND ").append(columns.get(dimension)).append(" = ")
+                        .parameter(binding -> binding.dimensionValues().get(dimension));
+            }
+        }
+        if (filter != null) {
+            sql.append(" AND ");
+            appendFilter(sql, filter, columns::get);
+        }
+    }
+
+    private static void appendFilter(SqlBuilder sql, MetricFilterDsl filter, UnaryOperator<String> resolver) {
+        switch (filter) {
+            case ComparisonMetricFilterDsl comparison -> {
+                sql.append(resolver.apply(comparison.fieldRef()))
+                        .append(' ').append(comparisonOperator(comparison.operator())).append(' ');
+                sql.literal(comparison.value());
+            }
+            case SetMetricFilterDsl set -> {
+                sql.append(resolver.apply(set.fieldRef()))
+                        .append(set.operator() == MetricFilterOperator.NOT_IN ? " NOT IN (" : " IN (");
+                for (int i = 0; i < set.values().size(); i++) {
+                    sql.append(i == 0 ? "" : ", ");
+                    sql.literal(set.values().get(i));
+                }
+                sql.append(")");
+            }
+            case NullMetricFilterDsl nullFilter -> sql.append(resolver.apply(nullFilter.fieldRef()))
+                    .append(nullFilter.operator() == MetricFilterOperator.IS_NULL ? " IS NULL" : " IS NOT NULL");
+            case LogicalMetricFilterDsl logical -> {
+                String operator = logical.operator() == MetricFilterOperator.AND ? " AND " : " OR ";
+                sql.append("(");
+                for (int i = 0; i < logical.operands().size(); i++) {
+                    sql.append(i == 0 ? "" : operator);
+                    appendFilter(sql, logical.operands().get(i), resolver);
+                }
+                sql.append(")");
+            }
+        }
+    }
+
+    private static String comparisonOperator(MetricFilterOperator operator) {
+        return switch (operator) {
+            case EQ -> "=";
+            case NE -> "<>";
+            case GT -> ">";
+            case GE -> ">=";
+            case LT -> "<";
+            case LE -> "<=";
+            default -> throw new IllegalArgumentException("Not a comparison operator: " + operator);
+        };
+    }
+
+    private static @Nullable Number number(@Nullable Object value, CompiledMetricValue metricValue) {
+        if (value == null || value instanceof Number) {
+            return (Number) value;
+        }
+        throw new MetricValidationException(
+                MetricErrorCode.RESULT_INVALID, metricValue.path(), "Aggregated column is not numeric");
+    }
+
+    /**
+     * 关联键行数校验列。
+     *
+     * @param column 派生表输出的关联键行数列
+     * @param path 校验失败时报告的定义路径
+     */
+    record JoinGuard(String column, String path) {
+    }
+
+    /**
+     * 同步追加 SQL 文本和占位符取值规则，保证参数顺序与文本一致。
+     */
+    private static final class SqlBuilder {
+
+        private final StringBuilder sql = new StringBuilder(256);
+
+        private final List<Function<MetricQueryBinding, @Nullable Object>> parameters = new ArrayList<>();
+
+        SqlBuilder append(@Nullable Object text) {
+            sql.append(text);
+            return this;
+        }
+
+        SqlBuilder parameter(Function<MetricQueryBinding, @Nullable Object> parameter) {
+            sql.append('?');
+            parameters.add(parameter);
+            return this;
+        }
+
+        void literal(MetricLiteralDsl literal) {
+            Object value = MetricFilterCompiler.literalValue(literal);
+            parameter(binding -> value);
+        }
+
+        MetricSqlStatement toStatement() {
+            return new MetricSqlStatement(sql.toString(), parameters);
+        }
+    }
+}
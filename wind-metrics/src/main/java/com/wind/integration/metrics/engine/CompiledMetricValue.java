@@ -0,0 +1,190 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.dsl.definition.MetricMeasureDsl;
+import com.wind.integration.metrics.dsl.definition.MetricOrElseDsl;
+import com.wind.integration.metrics.dsl.definition.MetricValueDsl;
+import com.wind.integration.metrics.enums.MetricAggregation;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import com.wind.integration.metrics.enums.MetricMergeState;
+import com.wind.integration.metrics.enums.MetricValueType;
+import org.jspecify.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * 编译后的单个指标值字段。
+ *
+ * <p>持有 measure 过滤谓词、聚合函数和结果类型化规则；单值指标使用名称 {@code value}，
+ * 多字段指标使用字段名。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-25 10:12
+ */
+final class CompiledMetricValue {
+
+    private final String name;
+
+    private final String path;
+
+    private final MetricValueType valueType;
+
+    private final int scale;
+
+    private final RoundingMode roundingMode;
+
+    private final MetricAggregation aggregation;
+
+    private final MetricMeasureDsl measure;
+
+    private final @Nullable String field;
+
+    private final Predicate<MetricFactRow> filter;
+
+    private final boolean filtered;
+
+    private final @Nullable Number orElse;
+
+    CompiledMetricValue(String name, String path, MetricValueDsl value) {
+        MetricMeasureDsl measure = Objects.requireNonNull(value.measure(), "measure must not be null");
+        this.name = name;
+        this.path = path;
+        this.valueType = value.valueType();
+        this.scale = value.scale() == null ? 0 : value.scale();
+        this.roundingMode = value.roundingMode() == null ? RoundingMode.HALF_UP : value.roundingMode();
+        this.aggregation = measure.aggregation();
+        this.measure = measure;
+        this.field = measure.field();
+        this.filter = MetricFilterCompiler.compile(measure.filter(), path + "/measure/filter");
+        this.filtered = !MetricFilterCompiler.isAlways(filter);
+        this.orElse = orElseValue(value.orElse());
+    }
+
+    String name() {
+        return name;
+    }
+
+    MetricValueType valueType() {
+        return valueType;
+    }
+
+    @Nullable
+    String field() {
+        return field;
+    }
+
+    /**
+     * 获取跨桶合并部分聚合值的方式。
+     *
+     * @return 合并状态；平均值无法由部分值合并，返回 {@code null}
+     */
+    @Nullable
+    MetricMergeState mergeState() {
+        return switch (aggregation) {
+            case COUNT, SUM -> MetricMergeState.SUM;
+            case MIN -> MetricMergeState.MIN;
+            case MAX -> MetricMergeState.MAX;
+            case AVG -> null;
+        };
+    }
+
+    /**
+     * 无任何事实行时的聚合原始结果，与 SQL 一致 {@code COUNT} 为 0，其余为空。
+     */
+    @Nullable
+    Number emptyResult() {
+        return aggregation == MetricAggregation.COUNT ? (Number) 0L : null;
+    }
+
+    String path() {
+        return path;
+    }
+
+    MetricAggregation aggregation() {
+        return aggregation;
+    }
+
+    MetricMeasureDsl measure() {
+        return measure;
+    }
+
+    MetricAccumulator newAccumulator() {
+        return MetricAccumulator.create(aggregation, valueType, scale, roundingMode, path + "/measure/field");
+    }
+
+    /**
+     * 将一行事实累加到当前值字段。
+     *
+     * @param row 已通过主体、时间、维度和行选择的事实行
+     * @param accumulator 当前值字段的累加器
+     */
+    void accept(MetricFactRow row, MetricAccumulator accumulator) {
+        if (filtered && !filter.test(row)) {
+            return;
+        }
+        accumulator.accept(field == null ? null : row.get(field));
+    }
+
+    /**
+     * 应用 orElse 并转换为 DSL 声明的结果类型。
+     *
+     * @param raw 聚合原始结果
+     * @return 最终指标值
+     */
+    @Nullable
+    Number complete(@Nullable Number raw) {
+        return typed(raw == null ? orElse : raw, valueType, scale, roundingMode, path);
+    }
+
+    /**
+     * 将数值转换为声明的结果类型，整数类型要求数值是精确整数。
+     */
+    @Nullable
+    static Number typed(@Nullable Number value,
+                        MetricValueType valueType,
+                        int scale,
+                        RoundingMode roundingMode,
+                        String path) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return switch (valueType) {
+                case INTEGER -> Math.toIntExact(MetricFactValues.toLong(value, path));
+                case LONG -> MetricFactValues.toLong(value, path);
+                case DECIMAL -> MetricFactValues.toDecimal(value, path).setScale(scale, roundingMode);
+            };
+        } catch (ArithmeticException exception) {
+            throw new MetricValidationException(
+                    MetricErrorCode.RESULT_INVALID, path, "Metric value overflows valueType", exception);
+        }
+    }
+
+    /**
+     * 由求和与非空计数计算平均值，保留位数和舍入方式与进程内平均值累加器一致。
+     *
+     * @param sum 非空值求和，无有效值时为 {@code null}
+     * @param count 非空值计数
+     * @return 平均值原始结果，无有效值时为 {@code null}
+     */
+    @Nullable
+    Number average(@Nullable Number sum, long count) {
+        if (sum == null || count == 0) {
+            return null;
+        }
+        int resultScale = valueType == MetricValueType.DECIMAL ? scale : 0;
+        return MetricFactValues.toDecimal(sum, path).divide(BigDecimal.valueOf(count), resultScale, roundingMode);
+    }
+
+    static @Nullable Number orElseValue(MetricOrElseDsl orElse) {
+        return switch (orElse.mode()) {
+            case ZERO -> BigDecimal.ZERO;
+            case NULL -> null;
+            case VALUE -> (Number) MetricFilterCompiler.literalValue(
+                    Objects.requireNonNull(orElse.value(), "orElse value must not be null"));
+        };
+    }
+}
@@ -0,0 +1,57 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.query.MetricQuery;
+import com.wind.integration.metrics.query.MetricResult;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 派生指标执行器。
+ *
+ * <p>按编译期展开的依赖图执行：每个叶子指标以相同主体、时间窗口和维度条件、不带参数查询一次，
+ * 中间派生指标和目标指标按拓扑顺序在已取得的结果上求值，不再逐次解释表达式文本。
+ * 叶子查询委托给 {@link MetricLeafExecutor}，派生结果的执行模式为 {@code REALTIME}。执行器线程安全。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-31 09:30
+ */
+public final class DerivedMetricExecutor {
+
+    private final MetricLeafExecutor leafExecutor;
+
+    private final Clock clock;
+
+    public DerivedMetricExecutor(MetricLeafExecutor leafExecutor, Clock clock) {
+        this.leafExecutor = Objects.requireNonNull(leafExecutor, "leafExecutor must not be null");
+        this.clock = Objects.requireNonNull(clock, "clock must not be null");
+    }
+
+    /**
+     * 执行派生指标查询。
+     *
+     * @param metric 编译后的派生指标
+     * @param query 单指标查询，不携带参数
+     * @return {@code REALTIME} 查询结果
+     * @throws MetricValidationException 查询与定义不匹配、叶子指标执行失败或结果溢出时抛出
+     */
+    public MetricResult execute(CompiledDerivedMetric metric, MetricQuery query) {
+        metric.validate(query);
+        Map<String, MetricResult> results = new HashMap<>();
+        for (CompiledMetricDefinition leaf : metric.leaves()) {
+            MetricQuery leafQuery = new MetricQuery(leaf.code(), query.subjectId(), query.startTime(),
+                    query.endTime(), query.dimensionValues(), Map.of());
+            results.put(leaf.code(), leafExecutor.execute(leaf, leafQuery));
+        }
+        ZoneId zone = clock.getZone();
+        for (CompiledDerivedMetric derived : metric.derived()) {
+            results.put(derived.code(), derived.result(results, query, LocalDateTime.now(clock), zone));
+        }
+        return metric.result(results, query, LocalDateTime.now(clock), zone);
+    }
+}
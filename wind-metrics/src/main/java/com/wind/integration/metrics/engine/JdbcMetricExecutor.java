@@ -0,0 +1,163 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.common.exception.BaseException;
+import com.wind.common.exception.DefaultExceptionCode;
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import com.wind.integration.metrics.query.MetricColumnResult;
+import com.wind.integration.metrics.query.MetricQuery;
+import com.wind.integration.metrics.query.MetricResult;
+import com.wind.integration.metrics.query.MetricSubjectsQuery;
+import org.jspecify.annotations.Nullable;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 将实时聚合下推到数据库的指标执行器。
+ *
+ * <p>每个指标编码只缓存当前修订号的 {@link CompiledMetricSql}，修订号变化时重新编译并替换旧语句；
+ * 执行期只绑定主体、时间窗口、维度和行数上限，不再重新规划 SQL。
+ * 同一条 SQL 文本在连接上重复预编译，由连接池或驱动的预编译语句缓存复用执行计划。
+ * 支持关联事实，查询时间按 {@link Clock#getZone()} 解释。执行器线程安全。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-29 10:05
+ */
+public final class JdbcMetricExecutor {
+
+    private final DataSource dataSource;
+
+    private final MetricSqlCompiler compiler;
+
+    private final Clock clock;
+
+    private final Map<String, CompiledMetricSql> statements = new ConcurrentHashMap<>();
+
+    public JdbcMetricExecutor(DataSource dataSource, MetricSqlCatalog catalog, Clock clock) {
+        this.dataSource = Objects.requireNonNull(dataSource, "dataSource must not be null");
+        this.compiler = new MetricSqlCompiler(catalog);
+        this.clock = Objects.requireNonNull(clock, "clock must not be null");
+    }
+
+    public JdbcMetricExecutor(DataSource dataSource, MetricSqlCatalog catalog, ZoneId timeZone) {
+        this(dataSource, catalog, Clock.system(timeZone));
+    }
+
+    /**
+     * 执行单指标实时查询。
+     *
+     * @param definition 编译后的指标定义
+     * @param query 单指标查询
+     * @return {@code REALTIME} 查询结果
+     * @throws MetricValidationException 查询与定义不匹配、SQL 标识符无效或聚合结果无效时抛出
+     * @throws BaseException 数据库访问失败时抛出
+     */
+    public MetricResult execute(CompiledMetricDefinition definition, MetricQuery query) {
+        MetricQueryBinding binding = definition.bind(query);
+        CompiledMetricSql compiled = compiled(definition);
+        MetricSqlStatement statement = compiled.statement(binding.dimensionValues().keySet());
+        Number[] result;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement prepared = connection.prepareStatement(statement.sql())) {
+            statement.bind(prepared, binding);
+            try (ResultSet resultSet = prepared.executeQuery()) {
+                if (!resultSet.next()) {
+                    throw new MetricValidationException(
+                            MetricErrorCode.RESULT_INVALID, "", "Aggregate query returned no row");
+                }
+                result = compiled.read(resultSet);
+            }
+        } catch (SQLException exception) {
+            throw new BaseException(DefaultExceptionCode.COMMON_ERROR,
+                    "execute metric sql exception, metricCode = " + definition.code(), exception);
+        }
+        return definition.result(
+                binding, result, LocalDateTime.now(clock), clock.getZone(), MetricResultRoute.REALTIME);
+    }
+
+    /**
+     * 执行单指标多主体实时查询。
+     *
+     * <p>使用按主体分组的聚合语句，主体按 {@value CompiledMetricSql#SUBJECT_BATCH_SIZE} 个一批在同一连接、
+     * 同一预编译语句上执行，末批用最后一个主体补齐占位符。没有结果行的主体返回空聚合结果。</p>
+     *
+     * @param definition 编译后的指标定义
+     * @param query 多主体查询
+     * @return {@code REALTIME} 列式结果
+     * @throws MetricValidationException 查询与定义不匹配、SQL 标识符无效或聚合结果无效时抛出
+     * @throws BaseException 数据库访问失败时抛出
+     */
+    public MetricColumnResult executeSubjects(CompiledMetricDefinition definition, MetricSubjectsQuery query) {
+        MetricQueryBinding binding = definition.bind(query);
+        CompiledMetricSql compiled = compiled(definition);
+        MetricSqlStatement statement = compiled.subjectsStatement(binding.dimensionValues().keySet());
+        List<String> subjectIds = binding.subjectIds();
+        Map<String, Integer> indexes = HashMap.newHashMap(subjectIds.size());
+        for (int i = 0; i < subjectIds.size(); i++) {
+            indexes.put(subjectIds.get(i), i);
+        }
+        @Nullable Number[][] results = new Number[subjectIds.size()][];
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement prepared = connection.prepareStatement(statement.sql())) {
+            for (int start = 0; start < subjectIds.size(); start += CompiledMetricSql.SUBJECT_BATCH_SIZE) {
+                statement.bind(prepared, batch(binding, start));
+                try (ResultSet resultSet = prepared.executeQuery()) {
+                    while (resultSet.next()) {
+                        Object subject = resultSet.getObject(1);
+                        Integer index = subject == null ? null : indexes.get(MetricFactValues.subjectText(subject));
+                        if (index != null) {
+                            results[index] = compiled.read(resultSet, 2);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException exception) {
+            throw new BaseException(DefaultExceptionCode.COMMON_ERROR,
+                    "execute metric subjects sql exception, metricCode = " + definition.code(), exception);
+        }
+        @Nullable Number[] empty = definition.emptyResult();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                results[i] = empty;
+            }
+        }
+        return definition.columnResult(binding, results, LocalDateTime.now(clock), clock.getZone());
+    }
+
+    /**
+     * 获取指标定义当前修订号的编译 SQL，同一 {@code (metricCode, revision)} 只编译一次。
+     */
+    CompiledMetricSql compiled(CompiledMetricDefinition definition) {
+        CompiledMetricSql current = statements.get(definition.code());
+        if (current != null && current.revision() == definition.revision()) {
+            return current;
+        }
+        return statements.compute(definition.code(), (code, previous) ->
+                previous != null && previous.revision() == definition.revision()
+                        ? previous
+                        : compiler.compile(definition));
+    }
+
+    private static MetricQueryBinding batch(MetricQueryBinding binding, int start) {
+        List<String> subjectIds = binding.subjectIds();
+        int last = Math.min(start + CompiledMetricSql.SUBJECT_BATCH_SIZE, subjectIds.size()) - 1;
+        String[] batch = new String[CompiledMetricSql.SUBJECT_BATCH_SIZE];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = subjectIds.get(Math.min(start + i, last));
+        }
+        return new MetricQueryBinding(null, binding.startTime(), binding.endTime(), binding.dimensionValues(),
+                binding.rowLimit(), List.of(batch));
+    }
+}
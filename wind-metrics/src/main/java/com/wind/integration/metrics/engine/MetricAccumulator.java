@@ -0,0 +1,255 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.enums.MetricAggregation;
+import com.wind.integration.metrics.enums.MetricValueType;
+import org.jspecify.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 单个 measure 的聚合累加器。
+ *
+ * <p>整数类型的聚合使用 {@code long} 原始类型累加并在溢出时失败关闭，十进制类型使用
+ * {@link BigDecimal}。与 SQL 聚合一致，NULL 值不参与 {@code SUM/AVG/MIN/MAX}，
+ * 无有效值时 {@code COUNT} 返回 0，其余返回 {@code null}。累加器非线程安全。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-25 10:12
+ */
+abstract sealed class MetricAccumulator {
+
+    /**
+     * 事实字段路径，用于类型错误定位。
+     */
+    final String path;
+
+    MetricAccumulator(String path) {
+        this.path = path;
+    }
+
+    /**
+     * 累加一个已通过过滤条件的事实值。
+     *
+     * @param value 字段值；{@code COUNT} 不读取字段，始终为空
+     */
+    abstract void accept(@Nullable Object value);
+
+    /**
+     * 返回当前聚合结果。
+     *
+     * @return 聚合值；无有效值时除 {@code COUNT} 外返回 {@code null}
+     */
+    abstract @Nullable Number result();
+
+    /**
+     * 创建累加器。
+     *
+     * @param aggregation 聚合函数
+     * @param valueType 指标值类型，决定使用原始类型还是十进制累加
+     * @param scale 平均值结果保留位数
+     * @param roundingMode 平均值结果舍入方式
+     * @param path 事实字段路径
+     * @return 新的累加器
+     */
+    static MetricAccumulator create(MetricAggregation aggregation,
+                                    MetricValueType valueType,
+                                    int scale,
+                                    RoundingMode roundingMode,
+                                    String path) {
+        boolean integral = valueType != MetricValueType.DECIMAL;
+        return switch (aggregation) {
+            case COUNT -> new Count(path);
+            case SUM -> integral ? new LongSum(path) : new DecimalSum(path);
+            case AVG -> new Average(path, integral ? 0 : scale, roundingMode);
+            case MIN -> integral ? new LongExtreme(path, false) : new DecimalExtreme(path, false);
+            case MAX -> integral ? new LongExtreme(path, true) : new DecimalExtreme(path, true);
+        };
+    }
+
+    static final class Count extends MetricAccumulator {
+
+        private long count;
+
+        Count(String path) {
+            super(path);
+        }
+
+        @Override
+        void accept(@Nullable Object value) {
+            count++;
+        }
+
+        @Override
+        Number result() {
+            return count;
+        }
+    }
+
+    static final class LongSum extends MetricAccumulator {
+
+        private long sum;
+
+        private boolean present;
+
+        LongSum(String path) {
+            super(path);
+        }
+
+        @Override
+        void accept(@Nullable Object value) {
+            if (value != null) {
+                sum = exactAdd(sum, MetricFactValues.toLong(value, path), path);
+                present = true;
+            }
+        }
+
+        @Override
+        @Nullable
+        Number result() {
+            return present ? sum : null;
+        }
+    }
+
+    static final class DecimalSum extends MetricAccumulator {
+
+        private @Nullable BigDecimal sum;
+
+        DecimalSum(String path) {
+            super(path);
+        }
+
+        @Override
+        void accept(@Nullable Object value) {
+            if (value != null) {
+                BigDecimal decimal = MetricFactValues.toDecimal(value, path);
+                sum = sum == null ? decimal : sum.add(decimal);
+            }
+        }
+
+        @Override
+        @Nullable
+        Number result() {
+            return sum;
+        }
+    }
+
+    /**
+     * 平均值累加器，整数输入保持 {@code long} 求和，遇到小数或溢出后切换为十进制。
+     */
+    static final class Average extends MetricAccumulator {
+
+        private final int scale;
+
+        private final RoundingMode roundingMode;
+
+        private long longSum;
+
+        private @Nullable BigDecimal decimalSum;
+
+        private long count;
+
+        Average(String path, int scale, RoundingMode roundingMode) {
+            super(path);
+            this.scale = scale;
+            this.roundingMode = roundingMode;
+        }
+
+        @Override
+        void accept(@Nullable Object value) {
+            if (value == null) {
+                return;
+            }
+            count++;
+            if (decimalSum == null && MetricFactValues.isIntegral(value)) {
+                long number = ((Number) value).longValue();
+                long sum = longSum + number;
+                if (((longSum ^ sum) & (number ^ sum)) >= 0) {
+                    longSum = sum;
+                    return;
+                }
+            }
+            if (decimalSum == null) {
+                decimalSum = BigDecimal.valueOf(longSum);
+            }
+            decimalSum = decimalSum.add(MetricFactValues.toDecimal(value, path));
+        }
+
+        @Override
+        @Nullable
+        Number result() {
+            if (count == 0) {
+                return null;
+            }
+            BigDecimal sum = decimalSum == null ? BigDecimal.valueOf(longSum) : decimalSum;
+            return sum.divide(BigDecimal.valueOf(count), scale, roundingMode);
+        }
+    }
+
+    static final class LongExtreme extends MetricAccumulator {
+
+        private final boolean max;
+
+        private long value;
+
+        private boolean present;
+
+        LongExtreme(String path, boolean max) {
+            super(path);
+            this.max = max;
+        }
+
+        @Override
+        void accept(@Nullable Object value) {
+            if (value != null) {
+                long number = MetricFactValues.toLong(value, path);
+                if (!present || (max ? number > this.value : number < this.value)) {
+                    this.value = number;
+                    present = true;
+                }
+            }
+        }
+
+        @Override
+        @Nullable
+        Number result() {
+            return present ? value : null;
+        }
+    }
+
+    static final class DecimalExtreme extends MetricAccumulator {
+
+        private final boolean max;
+
+        private @Nullable BigDecimal value;
+
+        DecimalExtreme(String path, boolean max) {
+            super(path);
+            this.max = max;
+        }
+
+        @Override
+        void accept(@Nullable Object value) {
+            if (value != null) {
+                BigDecimal number = MetricFactValues.toDecimal(value, path);
+                if (this.value == null || (max ? number.compareTo(this.value) > 0 : number.compareTo(this.value) < 0)) {
+                    this.value = number;
+                }
+            }
+        }
+
+        @Override
+        @Nullable
+        Number result() {
+            return value;
+        }
+    }
+
+    static long exactAdd(long left, long right, String path) {
+        try {
+            return Math.addExact(left, right);
+        } catch (ArithmeticException exception) {
+            throw MetricFactValues.error(path, "Aggregated value overflows 64-bit integer");
+        }
+    }
+}
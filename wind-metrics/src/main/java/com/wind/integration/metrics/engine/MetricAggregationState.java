@@ -0,0 +1,82 @@
+package com.wind.integration.metrics.engine;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * 单个指标、单个查询分组的聚合状态。
+ *
+ * <p>无行选择时事实行直接流入各值字段的累加器；存在行选择时先缓冲候选行，
+ * 完成时再按排序截取并聚合。状态对象非线程安全。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-25 10:12
+ */
+final class MetricAggregationState {
+
+    private final CompiledMetricValue[] values;
+
+    private final MetricAccumulator[] accumulators;
+
+    private final CompiledMetricRowSelection.@Nullable Selector selector;
+
+    MetricAggregationState(List<CompiledMetricValue> values, CompiledMetricRowSelection.@Nullable Selector selector) {
+        this.values = values.toArray(CompiledMetricValue[]::new);
+        this.accumulators = new MetricAccumulator[this.values.length];
+        for (int i = 0; i < this.values.length; i++) {
+            accumulators[i] = this.values[i].newAccumulator();
+        }
+        this.selector = selector;
+    }
+
+    /**
+     * 接收一行已通过查询条件的事实。
+     *
+     * @param row 事实行
+     */
+    void accept(MetricFactRow row) {
+        if (selector == null) {
+            aggregate(row);
+        } else {
+            selector.offer(row);
+        }
+    }
+
+    /**
+     * 完成聚合并返回与值字段顺序一致的最终值。
+     *
+     * @return 应用 orElse 和类型转换后的值
+     */
+    @Nullable
+    Number[] complete() {
+        if (selector != null) {
+            selector.forEachSelected(this::aggregate);
+        }
+        Number[] result = new Number[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = values[i].complete(accumulators[i].result());
+        }
+        return result;
+    }
+
+    /**
+     * 返回各值字段未应用 orElse 和类型转换的部分聚合值。
+     *
+     * @return 与值字段顺序一致的部分聚合值，无有效值时为 {@code null}
+     */
+    @Nullable
+    Number[] partials() {
+        Number[] result = new Number[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = accumulators[i].result();
+        }
+        return result;
+    }
+
+    private void aggregate(MetricFactRow row) {
+        for (int i = 0; i < values.length; i++) {
+            values[i].accept(row, accumulators[i]);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.dsl.MetricDefinitionDslCodec;
+import com.wind.integration.metrics.dsl.MetricMaterializationPlanDslCodec;
+import com.wind.integration.metrics.dsl.definition.MetricDefinitionDsl;
+import com.wind.integration.metrics.dsl.definition.MetricDefinitionSpec;
+import com.wind.integration.metrics.dsl.definition.MetricMeasureDsl;
+import com.wind.integration.metrics.dsl.definition.MetricValueDsl;
+import com.wind.integration.metrics.dsl.definition.selection.MetricOrderByDsl;
+import com.wind.integration.metrics.dsl.definition.selection.MetricRowSelectionDsl;
+import com.wind.integration.metrics.dsl.materialization.MetricMaterializationDependencyDsl;
+import com.wind.integration.metrics.dsl.materialization.MetricMaterializationMeasureDsl;
+import com.wind.integration.metrics.dsl.materialization.MetricMaterializationPlanDsl;
+import com.wind.integration.metrics.dsl.materialization.MetricSegmentDsl;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import com.wind.integration.metrics.enums.MetricExecutionMode;
+import com.wind.integration.metrics.enums.MetricMergeState;
+import com.wind.integration.metrics.enums.MetricSegmentSourceType;
+import com.wind.integration.metrics.enums.MetricValueShape;
+import com.wind.integration.metrics.enums.MetricValueType;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 将已校验的事实指标定义编译为可重复执行的 {@link CompiledMetricDefinition}。
+ *
+ * <p>编译器无状态且线程安全。事实指标的 measure 编译为聚合状态，同指标内的表达式字段编译为求值树，
+ * 在 measure 结果上求值；派生指标由 {@link #compileDerived} 编译为依赖图。
+ * 关联事实由 {@link JdbcMetricExecutor} 下推到数据库执行，或由配置了关联事实源的 {@link RealtimeMetricExecutor}
+ * 在进程内关联，两者在关联键重复会放大聚合结果时都拒绝执行。物化计划在编译期与指标定义做兼容性校验，
+ * 快照和分段计划的桶无法保存关联事实，{@link #compilePlan} 拒绝关联定义。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-25 10:12
+ */
+public final class MetricDefinitionCompiler {
+
+    private final MetricDefinitionDslCodec codec = new MetricDefinitionDslCodec();
+
+    private final MetricMaterializationPlanDslCodec planCodec = new MetricMaterializationPlanDslCodec();
+
+    /**
+     * 编译指标定义。
+     *
+     * @param definition 指标定义
+     * @param revision 指标定义版本号
+     * @return 编译后的指标定义
+     * @throws MetricValidationException 定义无效或包含当前引擎不支持的结构时抛出
+     */
+    public CompiledMetricDefinition compile(MetricDefinitionDsl definition, int revision) {
+        Objects.requireNonNull(definition, "definition must not be null");
+        if (revision <= 0) {
+            throw new MetricValidationException(
+                    MetricErrorCode.DSL_VALUE_INVALID, "/definitionRevision", "definitionRevision must be positive");
+        }
+        codec.validateBasic(definition);
+        MetricDefinitionSpec metric = definition.metric();
+        if (metric.fact() == null || metric.time() == null) {
+            throw unsupported("/metric/fact", "Derived metric must be compiled by compileDerived");
+        }
+        Set<String> fields = new LinkedHashSet<>();
+        fields.add(metric.time().field());
+        if (metric.subject().field() != null) {
+            fields.add(metric.subject().field());
+        }
+        fields.addAll(metric.dimensions());
+        List<CompiledMetricValue> values = new ArrayList<>();
+        if (metric.valueShape() == MetricValueShape.SCALAR) {
+            values.add(compileValue("value", "/metric/value", Objects.requireNonNull(metric.value()), fields));
+        } else {
+            for (Map.Entry<String, MetricValueDsl> entry : metric.fields().entrySet()) {
+                String path = "/metric/fields/" + MetricFilterCompiler.escape(entry.getKey());
+                if (entry.getValue().measure() != null) {
+                    values.add(compileValue(entry.getKey(), path, entry.getValue(), fields));
+                }
+            }
+        }
+        CompiledMetricExpressions expressions = CompiledMetricExpressions.compile(metric, (code, field, path) -> {
+            throw unsupported(path, "Fact-based metric cannot reference other metrics");
+        });
+        CompiledMetricRowSelection rowSelection = null;
+        MetricRowSelectionDsl selection = metric.rowSelection();
+        if (selection != null) {
+            MetricFilterCompiler.collectFields(selection.filter(), fields);
+            for (MetricOrderByDsl orderBy : selection.orderBy()) {
+                fields.add(orderBy.field());
+            }
+            rowSelection = new CompiledMetricRowSelection(selection);
+        }
+        return new CompiledMetricDefinition(
+                definition, revision, rowSelection, values, expressions.hasExpressions() ? expressions : null, fields);
+    }
+
+    /**
+     * 编译派生指标并展开依赖图。
+     *
+     * <p>表达式中 {@code metric('CODE','field')} 引用的指标须由 {@code dependencies} 提供，
+     * 依赖可以是事实指标或已编译的派生指标，后者的依赖图会被合并。同一编码在依赖图中只能出现一个修订号，
+     * 引用自身或经由其他派生指标回到自身时失败。叶子指标须与派生指标的主体类型一致、声明派生指标的全部维度，
+     * 且不声明查询参数，以便执行时用同一组条件查询。</p>
+     *
+     * @param definition 派生指标定义
+     * @param revision 指标定义版本号
+     * @param dependencies 表达式直接引用的已编译指标
+     * @return 编译后的派生指标
+     * @throws MetricValidationException 定义无效、引用无法解析或依赖图不一致时抛出
+     */
+    public CompiledDerivedMetric compileDerived(MetricDefinitionDsl definition,
+                                                int revision,
+                                                Collection<? extends CompiledMetric> dependencies) {
+        Objects.requireNonNull(definition, "definition must not be null");
+        Objects.requireNonNull(dependencies, "dependencies must not be null");
+        if (revision <= 0) {
+            throw new MetricValidationException(
+                    MetricErrorCode.DSL_VALUE_INVALID, "/definitionRevision", "definitionRevision must be positive");
+        }
+        codec.validateBasic(definition);
+        MetricDefinitionSpec metric = definition.metric();
+        if (metric.fact() != null) {
+            throw unsupported("/metric/fact", "Fact-based metric must be compiled by compile");
+        }
+        Map<String, CompiledMetric> provided = new HashMap<>();
+        for (CompiledMetric dependency : dependencies) {
+            putUnique(provided, dependency);
+        }
+        CompiledMetricExpressions expressions = CompiledMetricExpressions.compile(metric, (code, field, path) -> {
+            if (code.equals(metric.code())) {
+                throw invalid(path, "Derived metric references itself");
+            }
+            CompiledMetric dependency = provided.get(code);
+            if (dependency == null) {
+                throw invalid(path, "Referenced metric '" + code + "' is not provided");
+            }
+            return valueType(dependency.definition().metric(), field, path);
+        });
+        if (expressions.references().isEmpty()) {
+            throw invalid("/metric", "Derived metric requires a metric reference");
+        }
+        Map<String, CompiledMetricDefinition> leaves = new LinkedHashMap<>();
+        Map<String, CompiledDerivedMetric> derived = new LinkedHashMap<>();
+        for (CompiledMetricExpressions.MetricReference reference : expressions.references()) {
+            CompiledMetric dependency = provided.get(reference.metricCode());
+            if (dependency instanceof CompiledDerivedMetric derivedDependency) {
+                derivedDependency.leaves().forEach(leaf -> putUnique(leaves, leaf));
+                derivedDependency.derived().forEach(item -> putUnique(derived, item));
+                putUnique(derived, derivedDependency);
+            } else {
+                putUnique(leaves, (CompiledMetricDefinition) dependency);
+            }
+        }
+        if (derived.containsKey(metric.code()) || leaves.containsKey(metric.code())) {
+            throw invalid("/metric/code", "Derived metric reference cycle");
+        }
+        for (CompiledMetricDefinition leaf : leaves.values()) {
+            validateLeaf(metric, leaf.definition().metric());
+        }
+        return new CompiledDerivedMetric(
+                definition, revision, expressions, List.copyOf(leaves.values()), List.copyOf(derived.values()));
+    }
+
+    /**
+     * 将物化计划与已编译的指标定义绑定。
+     *
+     * <p>{@code SNAPSHOT} 使用根级快照字段，{@code SEGMENTED} 使用 archive 分段的快照字段并要求
+     * recent 分段为实时聚合。快照桶只保存可按 {@link MetricMergeState} 合并的部分值，
+     * 因此定义不能包含行选择和平均值；快照物化只扫描主事实，定义不能包含关联事实；
+     * 计划依赖中声明了当前指标时，修订号和各值字段的合并状态须与定义一致。</p>
+     *
+     * @param planCode 物化计划编码
+     * @param plan 物化计划
+     * @param definition 编译后的指标定义
+     * @return 编译后的物化计划
+     * @throws MetricValidationException 计划无效或与定义不兼容时抛出
+     */
+    public CompiledMetricPlan compilePlan(String planCode,
+                                          MetricMaterializationPlanDsl plan,
+                                          CompiledMetricDefinition definition) {
+        Objects.requireNonNull(plan, "plan must not be null");
+        Objects.requireNonNull(definition, "definition must not be null");
+        if (planCode == null || planCode.isBlank()) {
+            throw new MetricValidationException(
+                    MetricErrorCode.DSL_PLAN_INVALID, "/planCode", "planCode must not be blank");
+        }
+        planCodec.validateBasic(plan);
+        if (!definition.joins().isEmpty()) {
+            throw unsupported("/metric/joins", "Joined facts cannot be materialized into snapshot buckets");
+        }
+        if (definition.hasRowSelection()) {
+            throw unsupported("/metric/rowSelection", "Row selection cannot be merged from snapshot buckets");
+        }
+        List<MetricMergeState> mergeStates = new ArrayList<>();
+        for (CompiledMetricValue value : definition.values()) {
+            MetricMergeState mergeState = value.mergeState();
+            if (mergeState == null) {
+                throw unsupported(value.path() + "/measure/aggregation", "AVG cannot be merged from snapshot buckets");
+            }
+            mergeStates.add(mergeState);
+        }
+        validateDependencies(plan, definition, mergeStates);
+        if (plan.executionMode() == MetricExecutionMode.SNAPSHOT) {
+            return new CompiledMetricPlan(planCode, plan, definition,
+                    Objects.requireNonNull(plan.snapshotGranularity()),
+                    Objects.requireNonNull(plan.snapshotTargetCode()),
+                    null,
+                    mergeStates);
+        }
+        MetricSegmentDsl archive = plan.segments().get(0);
+        if (plan.segments().get(1).sourceType() != MetricSegmentSourceType.REALTIME) {
+            throw unsupported("/segments/1/sourceType", "Recent segment must be computed in realtime");
+        }
+        return new CompiledMetricPlan(planCode, plan, definition,
+                Objects.requireNonNull(archive.snapshotGranularity()),
+                Objects.requireNonNull(archive.snapshotTargetCode()),
+                Duration.parse(Objects.requireNonNull(plan.recentWindow())),
+                mergeStates);
+    }
+
+    private static void validateDependencies(MetricMaterializationPlanDsl plan,
+                                             CompiledMetricDefinition definition,
+                                             List<MetricMergeState> mergeStates) {
+        List<CompiledMetricValue> values = definition.values();
+        for (int i = 0; i < plan.dependencies().size(); i++) {
+            MetricMaterializationDependencyDsl dependency = plan.dependencies().get(i);
+            if (!dependency.metricCode().equals(definition.code())) {
+                continue;
+            }
+            String path = "/dependencies/" + i;
+            if (dependency.definitionRevision() != definition.revision()) {
+                throw new MetricValidationException(
+                        MetricErrorCode.DSL_PLAN_INVALID,
+                        path + "/definitionRevision",
+                        "Dependency revision does not match definition");
+            }
+            for (int j = 0; j < dependency.measures().size(); j++) {
+                MetricMaterializationMeasureDsl measure = dependency.measures().get(j);
+                int index = indexOf(values, measure.valueField());
+                if (index < 0 || mergeStates.get(index) != measure.mergeState()) {
+                    throw new MetricValidationException(
+                            MetricErrorCode.DSL_PLAN_INVALID,
+                            path + "/measures/" + j,
+                            "Dependency measure does not match definition value");
+                }
+            }
+        }
+    }
+
+    private static int indexOf(List<CompiledMetricValue> values, String name) {
+        for (int i = 0; i < values.size(); i++) {
+            if (values.get(i).name().equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static CompiledMetricValue compileValue(String name,
+                                                    String path,
+                                                    MetricValueDsl value,
+                                                    Set<String> fields) {
+        MetricMeasureDsl measure = Objects.requireNonNull(value.measure(), "measure must not be null");
+        if (measure.field() != null) {
+            fields.add(measure.field());
+        }
+        MetricFilterCompiler.collectFields(measure.filter(), fields);
+        return new CompiledMetricValue(name, path, value);
+    }
+
+    private static <T extends CompiledMetric> void putUnique(Map<String, T> metrics, T metric) {
+        T existing = metrics.putIfAbsent(metric.code(), metric);
+        if (existing != null && existing.revision() != metric.revision()) {
+            throw invalid("/metric", "Dependency '" + metric.code() + "' has conflicting revisions");
+        }
+    }
+
+    private static MetricValueType valueType(MetricDefinitionSpec dependency, String field, String path) {
+        MetricValueDsl value = dependency.valueShape() == MetricValueShape.SCALAR
+                ? "value".equals(field) ? dependency.value() : null
+                : dependency.fields().get(field);
+        if (value == null) {
+            throw invalid(path, "Metric '" + dependency.code() + "' has no field '" + field + "'");
+        }
+        return value.valueType();
+    }
+
+    private static void validateLeaf(MetricDefinitionSpec metric, MetricDefinitionSpec leaf) {
+        if (!metric.subject().type().equals(leaf.subject().type())) {
+            throw invalid("/metric/subject/type", "Dependency '" + leaf.code() + "' has a different subject type");
+        }
+        if (!leaf.dimensions().containsAll(metric.dimensions())) {
+            throw invalid("/metric/dimensions", "Dependency '" + leaf.code() + "' does not declare all dimensions");
+        }
+        if (!leaf.parameters().isEmpty()) {
+            throw invalid("/metric", "Dependency '" + leaf.code() + "' declares query parameters");
+        }
+    }
+
+    private static MetricValidationException invalid(String path, String message) {
+        return new MetricValidationException(MetricErrorCode.DSL_VALUE_INVALID, path, message);
+    }
+
+    private static MetricValidationException unsupported(String path, String message) {
+        return new MetricValidationException(MetricErrorCode.METRIC_EXECUTION_MODE_UNSUPPORTED, path, message);
+    }
+}
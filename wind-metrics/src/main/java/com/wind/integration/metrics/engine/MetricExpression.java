@@ -0,0 +1,394 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import org.jspecify.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * 编译后的派生表达式求值树。
+ *
+ * <p>节点类型在编译期确定：全部操作数为整数的加、减、乘、取反、绝对值和最值保持 {@code long} 原始值运算，
+ * 溢出时失败关闭；出现十进制操作数或除法后切换为 {@link BigDecimal}。除法中间结果保留
+ * {@link MathContext#DECIMAL128} 精度，最终保留位数和舍入由指标值定义决定。
+ * 任一操作数缺失或除数为零时结果缺失，由指标值的 orElse 兜底。节点不可变且线程安全。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-31 09:30
+ */
+abstract sealed class MetricExpression {
+
+    private final boolean decimal;
+
+    private MetricExpression(boolean decimal) {
+        this.decimal = decimal;
+    }
+
+    /**
+     * 节点结果是否为十进制类型。
+     */
+    final boolean decimal() {
+        return decimal;
+    }
+
+    /**
+     * 整数节点结果是否存在，十进制节点以求值结果判断。
+     */
+    boolean present(MetricOperands operands) {
+        return decimalValue(operands) != null;
+    }
+
+    /**
+     * 求整数节点的值，调用前须确认 {@link #present(MetricOperands)}。
+     */
+    long longValue(MetricOperands operands) {
+        throw new IllegalStateException("Decimal expression has no long value");
+    }
+
+    /**
+     * 求节点的十进制值，整数节点转换为十进制。
+     */
+    @Nullable
+    BigDecimal decimalValue(MetricOperands operands) {
+        return present(operands) ? BigDecimal.valueOf(longValue(operands)) : null;
+    }
+
+    /**
+     * 求值并返回装箱结果，整数节点返回 {@link Long}。
+     */
+    @Nullable
+    final Number value(MetricOperands operands) {
+        if (decimal) {
+            return decimalValue(operands);
+        }
+        return present(operands) ? (Number) longValue(operands) : null;
+    }
+
+    static MetricExpression slot(int slot, boolean decimal) {
+        return decimal ? new DecimalSlot(slot) : new LongSlot(slot);
+    }
+
+    static MetricExpression constant(Number value) {
+        return MetricFactValues.isIntegral(value)
+                ? new LongConstant(value.longValue())
+                : new DecimalConstant(MetricFactValues.toDecimal(value, ""));
+    }
+
+    static MetricExpression arithmetic(char operator, MetricExpression left, MetricExpression right, String path) {
+        if (operator == '/') {
+            return new Divide(left, right);
+        }
+        return left.decimal || right.decimal
+                ? new DecimalArithmetic(operator, left, right)
+                : new LongArithmetic(operator, left, right, path);
+    }
+
+    static final class LongSlot extends MetricExpression {
+
+        private final int slot;
+
+        LongSlot(int slot) {
+            super(false);
+            this.slot = slot;
+        }
+
+        @Override
+        boolean present(MetricOperands operands) {
+            return operands.present(slot);
+        }
+
+        @Override
+        long longValue(MetricOperands operands) {
+            return operands.longValue(slot);
+        }
+    }
+
+    static final class DecimalSlot extends MetricExpression {
+
+        private final int slot;
+
+        DecimalSlot(int slot) {
+            super(true);
+            this.slot = slot;
+        }
+
+        @Override
+        @Nullable
+        BigDecimal decimalValue(MetricOperands operands) {
+            return operands.decimalValue(slot);
+        }
+    }
+
+    static final class LongConstant extends MetricExpression {
+
+        private final long value;
+
+        LongConstant(long value) {
+            super(false);
+            this.value = value;
+        }
+
+        @Override
+        boolean present(MetricOperands operands) {
+            return true;
+        }
+
+        @Override
+        long longValue(MetricOperands operands) {
+            return value;
+        }
+    }
+
+    static final class DecimalConstant extends MetricExpression {
+
+        private final BigDecimal value;
+
+        DecimalConstant(BigDecimal value) {
+            super(true);
+            this.value = value;
+        }
+
+        @Override
+        BigDecimal decimalValue(MetricOperands operands) {
+            return value;
+        }
+    }
+
+    static final class LongArithmetic extends MetricExpression {
+
+        private final char operator;
+
+        private final MetricExpression left;
+
+        private final MetricExpression right;
+
+        private final String path;
+
+        LongArithmetic(char operator, MetricExpression left, MetricExpression right, String path) {
+            super(false);
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+            this.path = path;
+        }
+
+        @Override
+        boolean present(MetricOperands operands) {
+            return left.present(operands) && right.present(operands);
+        }
+
+        @Override
+        long longValue(MetricOperands operands) {
+            long leftValue = left.longValue(operands);
+            long rightValue = right.longValue(operands);
+            try {
+                return switch (operator) {
+                    case '+' -> Math.addExact(leftValue, rightValue);
+                    case '-' -> Math.subtractExact(leftValue, rightValue);
+                    default -> Math.multiplyExact(leftValue, rightValue);
+                };
+            } catch (ArithmeticException exception) {
+                throw new MetricValidationException(
+                        MetricErrorCode.RESULT_INVALID, path, "Expression overflows long", exception);
+            }
+        }
+    }
+
+    static final class DecimalArithmetic extends MetricExpression {
+
+        private final char operator;
+
+        private final MetricExpression left;
+
+        private final MetricExpression right;
+
+        DecimalArithmetic(char operator, MetricExpression left, MetricExpression right) {
+            super(true);
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        @Nullable
+        BigDecimal decimalValue(MetricOperands operands) {
+            BigDecimal leftValue = left.decimalValue(operands);
+            BigDecimal rightValue = leftValue == null ? null : right.decimalValue(operands);
+            if (leftValue == null || rightValue == null) {
+                return null;
+            }
+            return switch (operator) {
+                case '+' -> leftValue.add(rightValue);
+                case '-' -> leftValue.subtract(rightValue);
+                default -> leftValue.multiply(rightValue);
+            };
+        }
+    }
+
+    static final class Divide extends MetricExpression {
+
+        private final MetricExpression dividend;
+
+        private final MetricExpression divisor;
+
+        Divide(MetricExpression dividend, MetricExpression divisor) {
+            super(true);
+            this.dividend = dividend;
+            this.divisor = divisor;
+        }
+
+        @Override
+        @Nullable
+        BigDecimal decimalValue(MetricOperands operands) {
+            BigDecimal divisorValue = divisor.decimalValue(operands);
+            if (divisorValue == null || divisorValue.signum() == 0) {
+                return null;
+            }
+            BigDecimal dividendValue = dividend.decimalValue(operands);
+            return dividendValue == null ? null : dividendValue.divide(divisorValue, MathContext.DECIMAL128);
+        }
+    }
+
+    static final class Negate extends MetricExpression {
+
+        private final MetricExpression operand;
+
+        private final boolean absolute;
+
+        private final String path;
+
+        Negate(MetricExpression operand, boolean absolute, String path) {
+            super(operand.decimal);
+            this.operand = operand;
+            this.absolute = absolute;
+            this.path = path;
+        }
+
+        @Override
+        boolean present(MetricOperands operands) {
+            return operand.present(operands);
+        }
+
+        @Override
+        long longValue(MetricOperands operands) {
+            long value = operand.longValue(operands);
+            if (absolute && value >= 0) {
+                return value;
+            }
+            if (value == Long.MIN_VALUE) {
+                throw new MetricValidationException(MetricErrorCode.RESULT_INVALID, path, "Expression overflows long");
+            }
+            return -value;
+        }
+
+        @Override
+        @Nullable
+        BigDecimal decimalValue(MetricOperands operands) {
+            if (!operand.decimal()) {
+                return super.decimalValue(operands);
+            }
+            BigDecimal value = operand.decimalValue(operands);
+            if (value == null) {
+                return null;
+            }
+            return absolute ? value.abs() : value.negate();
+        }
+    }
+
+    /**
+     * 最小值、最大值和首个非空值。最值要求全部操作数存在，首个非空值取第一个存在的操作数。
+     */
+    static final class Select extends MetricExpression {
+
+        private final MetricExpression[] operands;
+
+        private final int sign;
+
+        Select(MetricExpression[] operands, int sign) {
+            super(anyDecimal(operands));
+            this.operands = operands;
+            this.sign = sign;
+        }
+
+        static MetricExpression min(MetricExpression[] operands) {
+            return new Select(operands, -1);
+        }
+
+        static MetricExpression max(MetricExpression[] operands) {
+            return new Select(operands, 1);
+        }
+
+        static MetricExpression coalesce(MetricExpression[] operands) {
+            return new Select(operands, 0);
+        }
+
+        @Override
+        boolean present(MetricOperands values) {
+            if (decimal()) {
+                return decimalValue(values) != null;
+            }
+            for (MetricExpression operand : operands) {
+                boolean operandPresent = operand.present(values);
+                if (sign == 0 && operandPresent) {
+                    return true;
+                }
+                if (sign != 0 && !operandPresent) {
+                    return false;
+                }
+            }
+            return sign != 0;
+        }
+
+        @Override
+        long longValue(MetricOperands values) {
+            long result = 0;
+            boolean first = true;
+            for (MetricExpression operand : operands) {
+                if (sign == 0) {
+                    if (operand.present(values)) {
+                        return operand.longValue(values);
+                    }
+                    continue;
+                }
+                long value = operand.longValue(values);
+                result = first || Long.compare(value, result) == sign ? value : result;
+                first = false;
+            }
+            return result;
+        }
+
+        @Override
+        @Nullable
+        BigDecimal decimalValue(MetricOperands values) {
+            if (!decimal()) {
+                return super.decimalValue(values);
+            }
+            BigDecimal result = null;
+            for (MetricExpression operand : operands) {
+                BigDecimal value = operand.decimalValue(values);
+                if (sign == 0) {
+                    if (value != null) {
+                        return value;
+                    }
+                    continue;
+                }
+                if (value == null) {
+                    return null;
+                }
+                result = result == null || Integer.signum(value.compareTo(result)) == sign ? value : result;
+            }
+            return result;
+        }
+
+        private static boolean anyDecimal(MetricExpression[] operands) {
+            for (MetricExpression operand : operands) {
+                if (operand.decimal()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
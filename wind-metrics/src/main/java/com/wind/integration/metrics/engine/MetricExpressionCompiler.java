@@ -0,0 +1,241 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 将派生表达式文本一次性编译为 {@link MetricExpression} 求值树。
+ *
+ * <p>支持 SpEL 的受限算术子集：整数和小数字面量、同指标字段名、{@code + - * /}、一元负号、括号，
+ * 以及函数 {@code metric('CODE','field')}、{@code ratio(a, b)}、{@code min}、{@code max}、
+ * {@code abs} 和 {@code coalesce}。字符串字面量只能作为 {@code metric} 的参数。
+ * 其余 SpEL 语法（方法调用、类型引用、比较和逻辑运算等）在编译期失败关闭。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-31 09:30
+ */
+final class MetricExpressionCompiler {
+
+    private final String source;
+
+    private final String path;
+
+    private final Resolver resolver;
+
+    private int position;
+
+    private MetricExpressionCompiler(String source, String path, Resolver resolver) {
+        this.source = source;
+        this.path = path;
+        this.resolver = resolver;
+    }
+
+    /**
+     * 编译表达式。
+     *
+     * @param source 表达式文本
+     * @param path 表达式文本的 JSON Pointer
+     * @param resolver 字段和指标引用解析器
+     * @return 求值树
+     * @throws MetricValidationException 语法错误或引用无法解析时抛出
+     */
+    static MetricExpression compile(String source, String path, Resolver resolver) {
+        MetricExpressionCompiler compiler = new MetricExpressionCompiler(source, path, resolver);
+        MetricExpression result = compiler.additive();
+        compiler.skipWhitespace();
+        if (compiler.position < source.length()) {
+            throw compiler.error("Unexpected character '" + source.charAt(compiler.position) + "'");
+        }
+        return result;
+    }
+
+    private MetricExpression additive() {
+        MetricExpression result = multiplicative();
+        while (true) {
+            char operator = peek();
+            if (operator != '+' && operator != '-') {
+                return result;
+            }
+            position++;
+            result = MetricExpression.arithmetic(operator, result, multiplicative(), path);
+        }
+    }
+
+    private MetricExpression multiplicative() {
+        MetricExpression result = unary();
+        while (true) {
+            char operator = peek();
+            if (operator != '*' && operator != '/') {
+                return result;
+            }
+            position++;
+            result = MetricExpression.arithmetic(operator, result, unary(), path);
+        }
+    }
+
+    private MetricExpression unary() {
+        if (peek() == '-') {
+            position++;
+            return new MetricExpression.Negate(unary(), false, path);
+        }
+        return primary();
+    }
+
+    private MetricExpression primary() {
+        char next = peek();
+        if (next == '(') {
+            position++;
+            MetricExpression result = additive();
+            expect(')');
+            return result;
+        }
+        if (Character.isDigit(next)) {
+            return number();
+        }
+        if (Character.isLetter(next) || next == '_') {
+            String name = identifier();
+            return peek() == '(' ? function(name) : resolver.field(name, path);
+        }
+        throw error(next == 0 ? "Unexpected end of expression" : "Unexpected character '" + next + "'");
+    }
+
+    private MetricExpression function(String name) {
+        position++;
+        if ("metric".equals(name)) {
+            String code = string();
+            expect(',');
+            String field = string();
+            expect(')');
+            return resolver.metric(code, field, path);
+        }
+        List<MetricExpression> arguments = new ArrayList<>();
+        if (peek() != ')') {
+            arguments.add(additive());
+            while (peek() == ',') {
+                position++;
+                arguments.add(additive());
+            }
+        }
+        expect(')');
+        MetricExpression[] operands = arguments.toArray(MetricExpression[]::new);
+        return switch (name) {
+            case "ratio" -> {
+                requireArity(name, operands, 2);
+                yield new MetricExpression.Divide(operands[0], operands[1]);
+            }
+            case "abs" -> {
+                requireArity(name, operands, 1);
+                yield new MetricExpression.Negate(operands[0], true, path);
+            }
+            case "min" -> MetricExpression.Select.min(requireOperands(name, operands));
+            case "max" -> MetricExpression.Select.max(requireOperands(name, operands));
+            case "coalesce" -> MetricExpression.Select.coalesce(requireOperands(name, operands));
+            default -> throw error("Unsupported function '" + name + "'");
+        };
+    }
+
+    private MetricExpression number() {
+        int start = position;
+        while (position < source.length()
+                && (Character.isDigit(source.charAt(position)) || source.charAt(position) == '.')) {
+            position++;
+        }
+        String text = source.substring(start, position);
+        try {
+            BigDecimal value = new BigDecimal(text);
+            return text.indexOf('.') < 0
+                    ? MetricExpression.constant(value.longValueExact())
+                    : MetricExpression.constant(value);
+        } catch (NumberFormatException | ArithmeticException exception) {
+            throw error("Invalid number '" + text + "'");
+        }
+    }
+
+    private String identifier() {
+        int start = position;
+        while (position < source.length()
+                && (Character.isLetterOrDigit(source.charAt(position)) || source.charAt(position) == '_')) {
+            position++;
+        }
+        return source.substring(start, position);
+    }
+
+    private String string() {
+        expect('\'');
+        int end = source.indexOf('\'', position);
+        if (end < 0) {
+            throw error("Unterminated string literal");
+        }
+        String value = source.substring(position, end);
+        position = end + 1;
+        return value;
+    }
+
+    private void requireArity(String name, MetricExpression[] operands, int arity) {
+        if (operands.length != arity) {
+            throw error("Function '" + name + "' requires " + arity + " arguments");
+        }
+    }
+
+    private MetricExpression[] requireOperands(String name, MetricExpression[] operands) {
+        if (operands.length == 0) {
+            throw error("Function '" + name + "' requires arguments");
+        }
+        return operands;
+    }
+
+    private void expect(char expected) {
+        if (peek() != expected) {
+            throw error("Expected '" + expected + "'");
+        }
+        position++;
+    }
+
+    /**
+     * 跳过空白并返回下一个字符，已到末尾时返回 {@code 0}。
+     */
+    private char peek() {
+        skipWhitespace();
+        return position < source.length() ? source.charAt(position) : 0;
+    }
+
+    private void skipWhitespace() {
+        while (position < source.length() && Character.isWhitespace(source.charAt(position))) {
+            position++;
+        }
+    }
+
+    private MetricValidationException error(String message) {
+        return new MetricValidationException(
+                MetricErrorCode.DSL_VALUE_INVALID, path, message + " at position " + position);
+    }
+
+    /**
+     * 表达式引用解析器，将字段名和指标引用解析为操作数槽位节点。
+     */
+    interface Resolver {
+
+        /**
+         * 解析同指标字段引用。
+         *
+         * @param name 字段名
+         * @param path 表达式文本的 JSON Pointer
+         * @return 槽位节点
+         */
+        MetricExpression field(String name, String path);
+
+        /**
+         * 解析其他指标的值引用。
+         *
+         * @param metricCode 指标编码
+         * @param field 值字段名，单值指标为 {@code value}
+         * @param path 表达式文本的 JSON Pointer
+         * @return 槽位节点
+         */
+        MetricExpression metric(String metricCode, String field, String path);
+    }
+}
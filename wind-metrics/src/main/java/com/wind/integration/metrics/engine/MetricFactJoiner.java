@@ -0,0 +1,128 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 一次执行内把主事实行与关联事实组合为关联后的事实行，非线程安全。
+ *
+ * <p>主事实行按关联顺序逐个探测构建侧索引：半关联未命中时丢弃，哈希内关联未命中时丢弃，
+ * 哈希左关联未命中时关联字段为 NULL。关联事实违反声明基数（同一关联键对应多行）时，
+ * 只有全部值字段都是 {@code MIN}/{@code MAX} 且没有行选择的定义才按 SQL 语义展开，
+ * 其他定义展开后会重复累计主事实行，直接拒绝。</p>
+ *
+ * @author wuxp
+ * @date 2026-08-12 09:30
+ */
+final class MetricFactJoiner {
+
+    private final CompiledMetricJoin[] joins;
+
+    private final MetricJoinIndex[] indexes;
+
+    /** 关联字段引用到 (关联下标, 关联事实字段名) 的映射，读取时不拆分字符串。 */
+    private final Map<String, JoinField> joinFields = new HashMap<>();
+
+    private final boolean hasJoinFields;
+
+    private final @Nullable MetricFactRow[] matched;
+
+    /**
+     * @param joins 定义的全部关联
+     * @param indexes 按关联获取构建侧索引
+     * @param fanOutAllowed 是否允许违反基数的关联展开主事实行
+     * @throws MetricValidationException 不允许展开时关联事实存在重复关联键
+     */
+    MetricFactJoiner(List<CompiledMetricJoin> joins,
+                     Function<CompiledMetricJoin, MetricJoinIndex> indexes,
+                     boolean fanOutAllowed) {
+        List<CompiledMetricJoin> active = new ArrayList<>(joins.size());
+        List<MetricJoinIndex> activeIndexes = new ArrayList<>(joins.size());
+        for (CompiledMetricJoin join : joins) {
+            if (join.strategy() == CompiledMetricJoin.Strategy.ELIMINATED) {
+                continue;
+            }
+            MetricJoinIndex index = indexes.apply(join);
+            if (join.strategy() == CompiledMetricJoin.Strategy.HASH && index.duplicateKeys() && !fanOutAllowed) {
+                throw new MetricValidationException(MetricErrorCode.METRIC_FACT_VALUE_INVALID,
+                        join.path() + "/cardinality",
+                        "Join fact has duplicated keys, fan-out would inflate aggregated values");
+            }
+            if (join.strategy() == CompiledMetricJoin.Strategy.HASH) {
+                for (String field : join.scan().fields()) {
+                    joinFields.put(join.alias() + "." + field, new JoinField(active.size(), field));
+                }
+            }
+            active.add(join);
+            activeIndexes.add(index);
+        }
+        this.joins = active.toArray(CompiledMetricJoin[]::new);
+        this.indexes = activeIndexes.toArray(MetricJoinIndex[]::new);
+        this.hasJoinFields = !joinFields.isEmpty();
+        this.matched = new MetricFactRow[this.joins.length];
+    }
+
+    /**
+     * 关联一行主事实，并把关联后的每一行交给消费者。
+     *
+     * @param row 主事实行
+     * @param consumer 关联后事实行的消费者
+     */
+    void join(MetricFactRow row, Consumer<MetricFactRow> consumer) {
+        join(row, 0, consumer);
+    }
+
+    private void join(MetricFactRow row, int position, Consumer<MetricFactRow> consumer) {
+        if (position == joins.length) {
+            consumer.accept(hasJoinFields ? new JoinedRow(row, matched.clone(), joinFields) : row);
+            return;
+        }
+        CompiledMetricJoin join = joins[position];
+        Object key = join.probeKey(row);
+        Object value = key == null ? null : indexes[position].get(key);
+        if (value == null) {
+            if (join.inner()) {
+                return;
+            }
+            matched[position] = null;
+            join(row, position + 1, consumer);
+        } else if (value instanceof MetricFactRow[] rows) {
+            for (MetricFactRow joined : rows) {
+                matched[position] = joined;
+                join(row, position + 1, consumer);
+            }
+        } else {
+            matched[position] = value instanceof MetricFactRow joined ? joined : null;
+            join(row, position + 1, consumer);
+        }
+    }
+
+    private record JoinField(int position, String field) {
+    }
+
+    /**
+     * 关联后的事实行，行选择可能在扫描回调返回后继续持有，因此每行持有独立的关联行数组。
+     */
+    private record JoinedRow(MetricFactRow primary,
+                             @Nullable MetricFactRow[] matched,
+                             Map<String, JoinField> joinFields) implements MetricFactRow {
+
+        @Override
+        public @Nullable Object get(String field) {
+            JoinField joinField = joinFields.get(field);
+            if (joinField == null) {
+                return primary.get(field);
+            }
+            MetricFactRow joined = matched[joinField.position()];
+            return joined == null ? null : joined.get(joinField.field());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.wind.integration.metrics.engine;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 事实源的一行数据。
+ *
+ * <p>字段名与 DSL 中的 fieldRef 一致，关联事实字段使用 {@code alias.field}。
+ * 存在行选择时引擎会在扫描回调返回后继续持有行对象，实现不得复用可变的行实例。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-25 10:12
+ */
+@FunctionalInterface
+public interface MetricFactRow {
+
+    /**
+     * 读取字段值。
+     *
+     * @param field 字段引用
+     * @return 字段值，字段不存在或值为 SQL NULL 时返回 {@code null}
+     */
+    @Nullable
+    Object get(String field);
+
+    /**
+     * 使用字段映射创建只读事实行。
+     *
+     * @param values 字段值，允许包含 {@code null}
+     * @return 事实行
+     */
+    static MetricFactRow of(Map<String, ?> values) {
+        Map<String, ?> copy = Collections.unmodifiableMap(new HashMap<>(values));
+        return copy::get;
+    }
+}
@@ -0,0 +1,48 @@
+package com.wind.integration.metrics.engine;
+
+import org.jspecify.annotations.Nullable;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 一次事实扫描的下推提示。
+ *
+ * <p>事实源可以据此裁剪分区、索引和列，但引擎会重新校验全部条件，
+ * 事实源多返回的行不会影响结果。</p>
+ *
+ * @param fact 主事实源编码
+ * @param subjectField 主体字段；全局指标为空
+ * @param subjectId 主体标识；全局指标为空
+ * @param timeField 时间字段
+ * @param startTime 时间窗口开始，包含
+ * @param endTime 时间窗口结束，不包含
+ * @param dimensionValues 维度等值条件
+ * @param fields 计算需要读取的全部字段
+ * @param subjectIds 多主体查询的主体集合，此时 {@code subjectId} 为空；其他查询为空集合
+ *
+ * @author wuxp
+ * @date 2026-07-25 10:12
+ */
+public record MetricFactScan(String fact,
+                             @Nullable String subjectField,
+                             @Nullable String subjectId,
+                             String timeField,
+                             LocalDateTime startTime,
+                             LocalDateTime endTime,
+                             Map<String, Object> dimensionValues,
+                             Set<String> fields,
+                             Set<String> subjectIds) {
+
+    public MetricFactScan {
+        Objects.requireNonNull(fact, "fact must not be null");
+        Objects.requireNonNull(timeField, "timeField must not be null");
+        Objects.requireNonNull(startTime, "startTime must not be null");
+        Objects.requireNonNull(endTime, "endTime must not be null");
+        dimensionValues = Map.copyOf(dimensionValues);
+        fields = Set.copyOf(fields);
+        subjectIds = Set.copyOf(subjectIds);
+    }
+}
@@ -0,0 +1,21 @@
+package com.wind.integration.metrics.engine;
+
+import java.util.function.Consumer;
+
+/**
+ * 实时聚合使用的事实数据源。
+ *
+ * @author wuxp
+ * @date 2026-07-25 10:12
+ */
+@FunctionalInterface
+public interface MetricFactSource {
+
+    /**
+     * 按扫描提示逐行推送事实数据。
+     *
+     * @param scan 扫描提示
+     * @param consumer 行消费者，须在当前线程内同步调用
+     */
+    void scan(MetricFactScan scan, Consumer<MetricFactRow> consumer);
+}
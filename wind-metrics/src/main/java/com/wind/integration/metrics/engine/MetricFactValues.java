@@ -0,0 +1,201 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import org.jspecify.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * 事实字段值的数值、时间和比较转换。
+ *
+ * <p>整数类型优先走 {@code long} 快速路径，其他数值统一转换为 {@link BigDecimal}；
+ * 文本、枚举和 UUID 按字符串比较；时间点类型统一按 {@link Instant} 比较。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-25 10:12
+ */
+final class MetricFactValues {
+
+    private MetricFactValues() {
+    }
+
+    static boolean isIntegral(Object value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+    }
+
+    static long toLong(Object value, String path) {
+        if (isIntegral(value)) {
+            return ((Number) value).longValue();
+        }
+        try {
+            if (value instanceof BigInteger integer) {
+                return integer.longValueExact();
+            }
+            if (value instanceof BigDecimal decimal) {
+                return decimal.longValueExact();
+            }
+        } catch (ArithmeticException exception) {
+            throw new MetricValidationException(
+                    MetricErrorCode.METRIC_FACT_VALUE_INVALID,
+                    path,
+                    "Fact value is not an exact 64-bit integer",
+                    exception);
+        }
+        throw error(path, "Fact value is not an integer");
+    }
+
+    static BigDecimal toDecimal(Object value, String path) {
+        if (value instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        if (isIntegral(value)) {
+            return BigDecimal.valueOf(((Number) value).longValue());
+        }
+        if (value instanceof BigInteger integer) {
+            return new BigDecimal(integer);
+        }
+        if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            if (Double.isFinite(number)) {
+                return value instanceof Float ? new BigDecimal(value.toString()) : BigDecimal.valueOf(number);
+            }
+        }
+        throw error(path, "Fact value is not a finite number");
+    }
+
+    static LocalDateTime toDateTime(Object value, ZoneId zone, String path) {
+        if (value instanceof LocalDateTime dateTime) {
+            return dateTime;
+        }
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        Instant instant = toInstant(value);
+        if (instant == null) {
+            throw error(path, "Fact value is not a date time");
+        }
+        return LocalDateTime.ofInstant(instant, zone);
+    }
+
+    /**
+     * 比较两个非空事实值，类型不可比较时失败关闭。
+     */
+    static int compare(Object left, Object right, String path) {
+        if (left instanceof Number leftNumber && right instanceof Number rightNumber) {
+            if (isIntegral(left) && isIntegral(right)) {
+                return Long.compare(leftNumber.longValue(), rightNumber.longValue());
+            }
+            return toDecimal(left, path).compareTo(toDecimal(right, path));
+        }
+        if (left instanceof Boolean leftBoolean && right instanceof Boolean rightBoolean) {
+            return Boolean.compare(leftBoolean, rightBoolean);
+        }
+        String leftText = text(left);
+        String rightText = text(right);
+        if (leftText != null && rightText != null) {
+            return leftText.compareTo(rightText);
+        }
+        if (left instanceof LocalDateTime leftTime && right instanceof LocalDateTime rightTime) {
+            return leftTime.compareTo(rightTime);
+        }
+        Instant leftInstant = toInstant(left);
+        Instant rightInstant = toInstant(right);
+        if (leftInstant != null && rightInstant != null) {
+            return leftInstant.compareTo(rightInstant);
+        }
+        throw error(path, "Fact values are not comparable");
+    }
+
+    /**
+     * 返回用于等值和集合匹配的规范键。
+     *
+     * <p>数值去除尾随零并尽量收敛为 {@link Long}，文本类收敛为字符串，时间点收敛为 {@link Instant}。</p>
+     */
+    static Object canonicalKey(Object value, String path) {
+        if (isIntegral(value)) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Number) {
+            BigDecimal decimal = toDecimal(value, path);
+            if (decimal.signum() == 0) {
+                return 0L;
+            }
+            BigDecimal stripped = decimal.stripTrailingZeros();
+            if (stripped.scale() <= 0 && stripped.precision() - stripped.scale() <= 18) {
+                return stripped.longValueExact();
+            }
+            return stripped;
+        }
+        String text = text(value);
+        if (text != null) {
+            return text;
+        }
+        if (value instanceof LocalDateTime) {
+            return value;
+        }
+        Instant instant = toInstant(value);
+        return instant == null ? value : instant;
+    }
+
+    /**
+     * 将主体字段值转换为与查询 subjectId 对比的字符串。
+     */
+    static String subjectText(Object value) {
+        if (value instanceof String text) {
+            return text;
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal.toPlainString();
+        }
+        return value.toString();
+    }
+
+    static MetricValidationException error(String path, String message) {
+        return new MetricValidationException(MetricErrorCode.METRIC_FACT_VALUE_INVALID, path, message);
+    }
+
+    private static @Nullable String text(Object value) {
+        if (value instanceof String text) {
+            return text;
+        }
+        if (value instanceof Enum<?> enumValue) {
+            return enumValue.name();
+        }
+        if (value instanceof Character || value instanceof UUID) {
+            return value.toString();
+        }
+        return null;
+    }
+
+    private static @Nullable Instant toInstant(Object value) {
+        if (value instanceof Instant instant) {
+            return instant;
+        }
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toInstant();
+        }
+        if (value instanceof java.sql.Date date) {
+            return Instant.ofEpochMilli(date.getTime());
+        }
+        if (value instanceof Date date) {
+            return date.toInstant();
+        }
+        if (value instanceof OffsetDateTime dateTime) {
+            return dateTime.toInstant();
+        }
+        if (value instanceof ZonedDateTime dateTime) {
+            return dateTime.toInstant();
+        }
+        return null;
+    }
+}
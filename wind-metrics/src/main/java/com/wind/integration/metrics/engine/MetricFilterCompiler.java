@@ -0,0 +1,202 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.dsl.filter.BooleanMetricLiteralDsl;
+import com.wind.integration.metrics.dsl.filter.ComparisonMetricFilterDsl;
+import com.wind.integration.metrics.dsl.filter.DecimalMetricLiteralDsl;
+import com.wind.integration.metrics.dsl.filter.IntegralMetricLiteralDsl;
+import com.wind.integration.metrics.dsl.filter.LogicalMetricFilterDsl;
+import com.wind.integration.metrics.dsl.filter.MetricFilterDsl;
+import com.wind.integration.metrics.dsl.filter.MetricLiteralDsl;
+import com.wind.integration.metrics.dsl.filter.NullMetricFilterDsl;
+import com.wind.integration.metrics.dsl.filter.SetMetricFilterDsl;
+import com.wind.integration.metrics.dsl.filter.StringMetricLiteralDsl;
+import com.wind.integration.metrics.enums.MetricFilterOperator;
+import org.jspecify.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * 将过滤 DSL 编译为事实行谓词。
+ *
+ * <p>字面量、比较结果判定和集合成员在编译期一次准备完成，执行期只读取字段并比较。
+ * 与 SQL 语义一致，字段为 NULL 时除 {@code isNull} 外的条件都不成立。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-25 10:12
+ */
+final class MetricFilterCompiler {
+
+    private static final Predicate<MetricFactRow> ALWAYS = row -> true;
+
+    private MetricFilterCompiler() {
+    }
+
+    /**
+     * 编译过滤条件。
+     *
+     * @param filter 过滤 DSL，为空时返回恒真谓词
+     * @param path 过滤条件的 JSON Pointer，用于事实值错误定位
+     * @return 事实行谓词
+     */
+    static Predicate<MetricFactRow> compile(@Nullable MetricFilterDsl filter, String path) {
+        if (filter == null) {
+            return ALWAYS;
+        }
+        return switch (filter) {
+            case ComparisonMetricFilterDsl comparison -> comparison(comparison, path);
+            case SetMetricFilterDsl set -> set(set, path);
+            case NullMetricFilterDsl nullFilter -> nullCheck(nullFilter);
+            case LogicalMetricFilterDsl logical -> logical(logical, path);
+        };
+    }
+
+    /**
+     * 收集过滤条件引用的全部字段。
+     *
+     * @param filter 过滤 DSL
+     * @param fields 字段收集结果
+     */
+    static void collectFields(@Nullable MetricFilterDsl filter, Set<String> fields) {
+        switch (filter) {
+            case null -> {
+            }
+            case ComparisonMetricFilterDsl comparison -> fields.add(comparison.fieldRef());
+            case SetMetricFilterDsl set -> fields.add(set.fieldRef());
+            case NullMetricFilterDsl nullFilter -> fields.add(nullFilter.fieldRef());
+            case LogicalMetricFilterDsl logical ->
+                    logical.operands().forEach(operand -> collectFields(operand, fields));
+        }
+    }
+
+    static boolean isAlways(Predicate<MetricFactRow> predicate) {
+        return predicate == ALWAYS;
+    }
+
+    private static Predicate<MetricFactRow> comparison(ComparisonMetricFilterDsl comparison, String path) {
+        String field = comparison.fieldRef();
+        String fieldPath = path + "/" + operatorName(comparison.operator()) + "/" + escape(field);
+        IntPredicate outcome = outcome(comparison.operator());
+        Object literal = literalValue(comparison.value());
+        if (literal instanceof Long expected) {
+            long expectedValue = expected;
+            return row -> {
+                Object value = row.get(field);
+                if (value == null) {
+                    return false;
+                }
+                int result = MetricFactValues.isIntegral(value)
+                        ? Long.compare(((Number) value).longValue(), expectedValue)
+                        : MetricFactValues.compare(value, literal, fieldPath);
+                return outcome.test(result);
+            };
+        }
+        return row -> {
+            Object value = row.get(field);
+            return value != null && outcome.test(MetricFactValues.compare(value, literal, fieldPath));
+        };
+    }
+
+    private static Predicate<MetricFactRow> set(SetMetricFilterDsl set, String path) {
+        String field = set.fieldRef();
+        String fieldPath = path + "/" + operatorName(set.operator()) + "/" + escape(field);
+        Set<Object> keys = new HashSet<>();
+        for (MetricLiteralDsl literal : set.values()) {
+            keys.add(MetricFactValues.canonicalKey(literalValue(literal), fieldPath));
+        }
+        boolean negate = set.operator() == MetricFilterOperator.NOT_IN;
+        return row -> {
+            Object value = row.get(field);
+            return value != null && keys.contains(MetricFactValues.canonicalKey(value, fieldPath)) != negate;
+        };
+    }
+
+    private static Predicate<MetricFactRow> nullCheck(NullMetricFilterDsl nullFilter) {
+        String field = nullFilter.fieldRef();
+        return nullFilter.operator() == MetricFilterOperator.IS_NULL
+                ? row -> row.get(field) == null
+                : row -> row.get(field) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Predicate<MetricFactRow> logical(LogicalMetricFilterDsl logical, String path) {
+        List<MetricFilterDsl> operands = logical.operands();
+        String operandsPath = path + "/" + operatorName(logical.operator());
+        Predicate<MetricFactRow>[] predicates = new Predicate[operands.size()];
+        for (int i = 0; i < predicates.length; i++) {
+            predicates[i] = compile(operands.get(i), operandsPath + "/" + i);
+        }
+        if (logical.operator() == MetricFilterOperator.AND) {
+            return row -> {
+                for (Predicate<MetricFactRow> predicate : predicates) {
+                    if (!predicate.test(row)) {
+                        return false;
+                    }
+                }
+                return true;
+            };
+        }
+        return row -> {
+            for (Predicate<MetricFactRow> predicate : predicates) {
+                if (predicate.test(row)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    private static IntPredicate outcome(MetricFilterOperator operator) {
+        return switch (operator) {
+            case EQ -> result -> result == 0;
+            case NE -> result -> result != 0;
+            case GT -> result -> result > 0;
+            case GE -> result -> result >= 0;
+            case LT -> result -> result < 0;
+            case LE -> result -> result <= 0;
+            default -> throw new IllegalArgumentException("Not a comparison operator: " + operator);
+        };
+    }
+
+    /**
+     * 将 DSL 字面量转换为执行期比较值，可放入 {@code long} 的整数使用 {@link Long}。
+     */
+    static Object literalValue(MetricLiteralDsl literal) {
+        return switch (literal) {
+            case StringMetricLiteralDsl stringLiteral -> stringLiteral.value();
+            case BooleanMetricLiteralDsl booleanLiteral -> booleanLiteral.value();
+            case IntegralMetricLiteralDsl integralLiteral -> integralValue(integralLiteral.value());
+            case DecimalMetricLiteralDsl decimalLiteral -> decimalLiteral.value();
+        };
+    }
+
+    private static Object integralValue(BigInteger value) {
+        return value.bitLength() < Long.SIZE ? (Object) value.longValue() : new BigDecimal(value);
+    }
+
+    private static String operatorName(MetricFilterOperator operator) {
+        return switch (operator) {
+            case EQ -> "eq";
+            case NE -> "ne";
+            case IN -> "in";
+            case NOT_IN -> "notIn";
+            case GT -> "gt";
+            case GE -> "ge";
+            case LT -> "lt";
+            case LE -> "le";
+            case IS_NULL -> "isNull";
+            case IS_NOT_NULL -> "isNotNull";
+            case AND -> "and";
+            case OR -> "or";
+        };
+    }
+
+    static String escape(String field) {
+        return field.replace("~", "~0").replace("/", "~1");
+    }
+}
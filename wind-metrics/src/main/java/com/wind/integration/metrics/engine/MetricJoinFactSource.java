@@ -0,0 +1,21 @@
+package com.wind.integration.metrics.engine;
+
+import java.util.function.Consumer;
+
+/**
+ * 实时聚合使用的关联事实数据源，为哈希关联和半关联提供构建侧数据。
+ *
+ * @author wuxp
+ * @date 2026-08-12 09:30
+ */
+@FunctionalInterface
+public interface MetricJoinFactSource {
+
+    /**
+     * 逐行推送关联事实数据，行字段名为关联事实自身的字段名，不带关联别名。
+     *
+     * @param scan 扫描提示
+     * @param consumer 行消费者，须在当前线程内同步调用
+     */
+    void scan(MetricJoinScan scan, Consumer<MetricFactRow> consumer);
+}
@@ -0,0 +1,214 @@
+package com.wind.integration.metrics.engine;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 关联事实构建侧索引，构建完成后只读，可在查询和线程间共享。
+ *
+ * <p>半关联只保存关联键；哈希关联保存关联键到关联事实行的映射，同一关联键出现多行时保存行数组并标记，
+ * 由执行方按声明基数决定拒绝还是展开。全部关联键都是整数的单列关联使用开放寻址的 {@code long} 哈希表，
+ * 避免键装箱；出现非整数键时整体迁移到通用哈希表。</p>
+ *
+ * @author wuxp
+ * @date 2026-08-12 09:30
+ */
+final class MetricJoinIndex {
+
+    /** 半关联中关联键存在的标记。 */
+    private static final Object PRESENT = Boolean.TRUE;
+
+    private final @Nullable LongTable longs;
+
+    private final @Nullable Map<Object, Object> objects;
+
+    private final boolean duplicateKeys;
+
+    private MetricJoinIndex(@Nullable LongTable longs, @Nullable Map<Object, Object> objects, boolean duplicateKeys) {
+        this.longs = longs;
+        this.objects = objects;
+        this.duplicateKeys = duplicateKeys;
+    }
+
+    /**
+     * 扫描关联事实并构建索引。
+     *
+     * @param join 编译后的关联
+     * @param source 关联事实源
+     * @return 构建完成的索引
+     */
+    static MetricJoinIndex build(CompiledMetricJoin join, MetricJoinFactSource source) {
+        MetricJoinScan scan = join.scan();
+        String[] keyFields = scan.keyFields().toArray(String[]::new);
+        String path = join.path() + "/on";
+        Builder builder = new Builder(join.strategy() == CompiledMetricJoin.Strategy.SEMI);
+        source.scan(scan, row -> {
+            Object key = CompiledMetricJoin.key(row, keyFields, path);
+            if (key != null) {
+                builder.put(key, row);
+            }
+        });
+        return builder.build();
+    }
+
+    /**
+     * 按规范化关联键查找。
+     *
+     * @param key 规范化关联键
+     * @return 半关联为存在标记；哈希关联为单个 {@link MetricFactRow} 或重复键时的行数组；未命中返回 {@code null}
+     */
+    @Nullable
+    Object get(Object key) {
+        if (objects != null) {
+            return objects.get(key);
+        }
+        return key instanceof Long value && longs != null ? longs.get(value) : null;
+    }
+
+    /**
+     * @return 是否存在关联到多行的关联键，此时关联事实违反声明的基数
+     */
+    boolean duplicateKeys() {
+        return duplicateKeys;
+    }
+
+    private static final class Builder {
+
+        private final boolean semi;
+
+        private @Nullable LongTable longs = new LongTable(16);
+
+        private @Nullable Map<Object, Object> objects;
+
+        private boolean duplicateKeys;
+
+        private Builder(boolean semi) {
+            this.semi = semi;
+        }
+
+        void put(Object key, MetricFactRow row) {
+            if (longs != null && !(key instanceof Long)) {
+                objects = longs.toMap();
+                longs = null;
+            }
+            Object previous = longs != null ? longs.get((Long) key) : objects.get(key);
+            Object value = merge(previous, row);
+            if (value == previous) {
+                return;
+            }
+            if (longs != null) {
+                longs.put((Long) key, value);
+            } else {
+                objects.put(key, value);
+            }
+        }
+
+        private Object merge(@Nullable Object previous, MetricFactRow row) {
+            if (semi) {
+                return PRESENT;
+            }
+            if (previous == null) {
+                return row;
+            }
+            duplicateKeys = true;
+            if (previous instanceof MetricFactRow[] rows) {
+                MetricFactRow[] result = Arrays.copyOf(rows, rows.length + 1);
+                result[rows.length] = row;
+                return result;
+            }
+            return new MetricFactRow[]{(MetricFactRow) previous, row};
+        }
+
+        MetricJoinIndex build() {
+            return new MetricJoinIndex(longs, objects, duplicateKeys);
+        }
+    }
+
+    /**
+     * 开放寻址的 {@code long} 键哈希表，线性探测，装载因子不超过 1/2。
+     */
+    private static final class LongTable {
+
+        private long[] keys;
+
+        private @Nullable Object[] values;
+
+        private int size;
+
+        LongTable(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+        }
+
+        @Nullable
+        Object get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        void put(long key, Object value) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (values[i] != null) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            if (++size * 2 > keys.length) {
+                resize();
+            }
+        }
+
+        Map<Object, Object> toMap() {
+            Map<Object, Object> result = HashMap.newHashMap(Math.max(size, 16));
+            for (int i = 0; i < keys.length; i++) {
+                if (values[i] != null) {
+                    result.put(keys[i], values[i]);
+                }
+            }
+            return result;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            @Nullable Object[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new Object[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        }
+    }
+
+    /**
+     * 构建侧缓存键，扫描提示相同且策略相同的关联共享同一索引。
+     *
+     * @param scan 关联事实扫描提示
+     * @param strategy 执行策略
+     */
+    record Key(MetricJoinScan scan, CompiledMetricJoin.Strategy strategy) {
+
+        static Key of(CompiledMetricJoin join) {
+            return new Key(join.scan(), join.strategy());
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.wind.integration.metrics.engine;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 一次关联事实扫描的下推提示，同时作为构建侧缓存的键。
+ *
+ * @param fact 关联事实源编码
+ * @param keyFields 关联键字段，顺序与关联条件一致
+ * @param fields 需要读取的全部字段，包含关联键字段；半关联只读取关联键
+ *
+ * @author wuxp
+ * @date 2026-08-12 09:30
+ */
+public record MetricJoinScan(String fact, List<String> keyFields, Set<String> fields) {
+
+    public MetricJoinScan {
+        Objects.requireNonNull(fact, "fact must not be null");
+        keyFields = List.copyOf(keyFields);
+        fields = Set.copyOf(fields);
+    }
+}
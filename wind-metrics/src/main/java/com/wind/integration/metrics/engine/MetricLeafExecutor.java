@@ -0,0 +1,25 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.query.MetricQuery;
+import com.wind.integration.metrics.query.MetricResult;
+
+/**
+ * 派生指标依赖的事实聚合指标执行入口。
+ *
+ * <p>{@link RealtimeMetricExecutor#execute} 和 {@link JdbcMetricExecutor#execute} 均可直接作为实现。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-31 09:30
+ */
+@FunctionalInterface
+public interface MetricLeafExecutor {
+
+    /**
+     * 执行事实聚合指标查询。
+     *
+     * @param definition 编译后的指标定义
+     * @param query 单指标查询
+     * @return 查询结果
+     */
+    MetricResult execute(CompiledMetricDefinition definition, MetricQuery query);
+}
@@ -0,0 +1,63 @@
+package com.wind.integration.metrics.engine;
+
+import org.jspecify.annotations.Nullable;
+
+import java.math.BigDecimal;
+
+/**
+ * 表达式求值的操作数槽位。
+ *
+ * <p>整数槽位以 {@code long} 原始值保存，避免装箱；十进制槽位保存 {@link BigDecimal}。
+ * 槽位类型由编译期的引用类型决定，实例非线程安全，每次求值单独创建。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-31 09:30
+ */
+final class MetricOperands {
+
+    private final long[] longs;
+
+    private final @Nullable BigDecimal[] decimals;
+
+    private final boolean[] present;
+
+    MetricOperands(int size) {
+        this.longs = new long[size];
+        this.decimals = new BigDecimal[size];
+        this.present = new boolean[size];
+    }
+
+    /**
+     * 写入槽位值，整数写入原始值槽位，其余数值写入十进制槽位。
+     *
+     * @param slot 槽位
+     * @param value 指标值，{@code null} 表示缺失
+     * @param path 值来源的 JSON Pointer
+     */
+    void set(int slot, @Nullable Number value, String path) {
+        present[slot] = value != null;
+        decimals[slot] = null;
+        if (value != null && MetricFactValues.isIntegral(value)) {
+            longs[slot] = value.longValue();
+        } else if (value != null) {
+            decimals[slot] = MetricFactValues.toDecimal(value, path);
+        }
+    }
+
+    boolean present(int slot) {
+        return present[slot];
+    }
+
+    long longValue(int slot) {
+        return longs[slot];
+    }
+
+    @Nullable
+    BigDecimal decimalValue(int slot) {
+        if (!present[slot]) {
+            return null;
+        }
+        BigDecimal decimal = decimals[slot];
+        return decimal == null ? BigDecimal.valueOf(longs[slot]) : decimal;
+    }
+}
@@ -0,0 +1,44 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.enums.MetricMergeState;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * 部分聚合值的合并。
+ *
+ * @author wuxp
+ * @date 2026-07-27 09:40
+ */
+final class MetricPartials {
+
+    private MetricPartials() {
+    }
+
+    /**
+     * 按合并状态合并两个部分聚合值，任一侧为空时返回另一侧。
+     *
+     * @param mergeState 合并状态
+     * @param left 左侧部分值
+     * @param right 右侧部分值
+     * @param path 值字段路径
+     * @return 合并后的部分值
+     */
+    static @Nullable Number merge(MetricMergeState mergeState,
+                                  @Nullable Number left,
+                                  @Nullable Number right,
+                                  String path) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        return switch (mergeState) {
+            case SUM -> left instanceof Long leftValue && right instanceof Long rightValue
+                    ? (Number) MetricAccumulator.exactAdd(leftValue, rightValue, path)
+                    : MetricFactValues.toDecimal(left, path).add(MetricFactValues.toDecimal(right, path));
+            case MIN -> MetricFactValues.compare(left, right, path) <= 0 ? left : right;
+            case MAX -> MetricFactValues.compare(left, right, path) >= 0 ? left : right;
+        };
+    }
+}
@@ -0,0 +1,28 @@
+package com.wind.integration.metrics.engine;
+
+import org.jspecify.annotations.Nullable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 已按指标定义校验过的查询条件。
+ *
+ * @param subjectId 主体标识；全局指标为空
+ * @param startTime 查询开始时间，包含
+ * @param endTime 查询结束时间，不包含
+ * @param dimensionValues 已声明维度的等值条件
+ * @param rowLimit 行选择上限；无行选择时为 {@code 0}
+ * @param subjectIds 多主体查询的主体集合；单主体和全局查询为空列表
+ *
+ * @author wuxp
+ * @date 2026-07-25 10:12
+ */
+record MetricQueryBinding(@Nullable String subjectId,
+                          LocalDateTime startTime,
+                          LocalDateTime endTime,
+                          Map<String, Object> dimensionValues,
+                          int rowLimit,
+                          List<String> subjectIds) {
+}
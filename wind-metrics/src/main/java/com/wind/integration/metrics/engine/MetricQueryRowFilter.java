@@ -0,0 +1,82 @@
+package com.wind.integration.metrics.engine;
+
+import org.jspecify.annotations.Nullable;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 查询级别的事实行过滤：时间窗口、主体和维度等值条件。
+ *
+ * <p>事实源的扫描提示只用于裁剪，这里重新校验全部条件，保证结果不依赖事实源实现。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-25 10:12
+ */
+final class MetricQueryRowFilter implements Predicate<MetricFactRow> {
+
+    private final String timeField;
+
+    private final LocalDateTime startTime;
+
+    private final LocalDateTime endTime;
+
+    private final ZoneId zone;
+
+    private final @Nullable String subjectField;
+
+    private final @Nullable String subjectId;
+
+    private final String[] dimensionFields;
+
+    private final Object[] dimensionKeys;
+
+    MetricQueryRowFilter(String timeField,
+                         @Nullable String subjectField,
+                         MetricQueryBinding binding,
+                         ZoneId zone) {
+        this.timeField = timeField;
+        this.startTime = binding.startTime();
+        this.endTime = binding.endTime();
+        this.zone = zone;
+        this.subjectField = subjectField;
+        this.subjectId = binding.subjectId();
+        Map<String, Object> dimensionValues = binding.dimensionValues();
+        this.dimensionFields = new String[dimensionValues.size()];
+        this.dimensionKeys = new Object[dimensionValues.size()];
+        int index = 0;
+        for (Map.Entry<String, Object> entry : dimensionValues.entrySet()) {
+            dimensionFields[index] = entry.getKey();
+            dimensionKeys[index] = MetricFactValues.canonicalKey(
+                    entry.getValue(), "/dimensionValues/" + MetricFilterCompiler.escape(entry.getKey()));
+            index++;
+        }
+    }
+
+    @Override
+    public boolean test(MetricFactRow row) {
+        Object time = row.get(timeField);
+        if (time == null) {
+            return false;
+        }
+        LocalDateTime dateTime = MetricFactValues.toDateTime(time, zone, "/metric/time/field");
+        if (dateTime.isBefore(startTime) || !dateTime.isBefore(endTime)) {
+            return false;
+        }
+        if (subjectField != null) {
+            Object subject = row.get(subjectField);
+            if (subject == null || !MetricFactValues.subjectText(subject).equals(subjectId)) {
+                return false;
+            }
+        }
+        for (int i = 0; i < dimensionFields.length; i++) {
+            Object value = row.get(dimensionFields[i]);
+            if (value == null || !dimensionKeys[i].equals(MetricFactValues.canonicalKey(value, "/metric/dimensions"))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
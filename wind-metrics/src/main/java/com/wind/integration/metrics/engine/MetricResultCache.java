@@ -0,0 +1,209 @@
+package com.wind.integration.metrics.engine;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.wind.integration.metrics.enums.MetricExecutionMode;
+import com.wind.integration.metrics.query.MetricQuery;
+import com.wind.integration.metrics.query.MetricResult;
+import org.jspecify.annotations.Nullable;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 指标查询结果缓存。
+ *
+ * <p>按规范化查询缓存：指标编码、定义修订号、主体、半开时间窗口、维度值和参数值，
+ * 维度值和参数值按事实匹配使用的规范键比较，{@code 1.0} 与 {@code 1} 命中同一条目。
+ * 修订号变化后旧条目不再命中，由容量淘汰。</p>
+ *
+ * <p>条目有效期由结果决定：窗口完全落在快照水位之前的全量快照结果不会再变化，使用 {@code sealedTtl}；
+ * 窗口触及实时数据的结果使用 {@code openTtl}，分段查询总是包含最近窗口的实时分段，也使用 {@code openTtl}。
+ * 有效期通过 Caffeine {@link Expiry} 按条目设置，时间取自构造时传入的时钟。
+ * 迟到事实修复快照桶后调用 {@link #invalidate(String)} 淘汰该指标的条目。</p>
+ *
+ * <p>同一查询并发未命中时只执行一次，其他调用等待并共享结果或异常；执行失败不缓存。
+ * 每个指标编码维护一个代数，淘汰时递增；执行开始后指标被淘汰时，执行结果返回给调用方但不缓存，
+ * 淘汰之后的查询也不再等待淘汰之前开始的执行。</p>
+ *
+ * @author wuxp
+ * @date 2026-08-09 09:40
+ */
+public final class MetricResultCache {
+
+    private final Settings settings;
+
+    private final Cache<ResultKey, MetricResult> cache;
+
+    private final Map<ResultKey, CompletableFuture<MetricResult>> executing = new ConcurrentHashMap<>();
+
+    /**
+     * 指标编码 -> 淘汰代数
+     */
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    public MetricResultCache(Settings settings, Clock clock) {
+        this.settings = Objects.requireNonNull(settings, "settings must not be null");
+        Objects.requireNonNull(clock, "clock must not be null");
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(settings.maximumSize())
+                .expireAfter(Expiry.<ResultKey, MetricResult>writing((key, result) -> ttl(result)))
+                .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 读取缓存的查询结果，未命中或已过期时执行查询并缓存结果。
+     *
+     * @param definitionRevision 生效的指标定义修订号
+     * @param query 单指标查询
+     * @param execution 执行查询
+     * @return 查询结果
+     */
+    public MetricResult execute(int definitionRevision, MetricQuery query, Supplier<MetricResult> execution) {
+        ResultKey key = ResultKey.of(definitionRevision, query);
+        MetricResult cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        CompletableFuture<MetricResult> created = new CompletableFuture<>();
+        CompletableFuture<MetricResult> running = executing.putIfAbsent(key, created);
+        if (running != null) {
+            return join(running);
+        }
+        AtomicLong generation = generation(key.metricCode());
+        long expected = generation.get();
+        try {
+            MetricResult result = execution.get();
+            if (generation.get() == expected) {
+                cache.put(key, result);
+                // 写入与淘汰交错时由写入方撤回，淘汰先递增代数再删除条目
+                if (generation.get() != expected) {
+                    cache.asMap().remove(key, result);
+                }
+            }
+            created.complete(result);
+            return result;
+        } catch (RuntimeException | Error exception) {
+            created.completeExceptionally(exception);
+            throw exception;
+        } finally {
+            executing.remove(key, created);
+        }
+    }
+
+    /**
+     * 为事实聚合指标执行入口加上结果缓存。
+     *
+     * @param delegate 被装饰的执行入口
+     * @return 带结果缓存的执行入口
+     */
+    public MetricLeafExecutor caching(MetricLeafExecutor delegate) {
+        Objects.requireNonNull(delegate, "delegate must not be null");
+        return (definition, query) -> execute(definition.revision(), query, () -> delegate.execute(definition, query));
+    }
+
+    /**
+     * 淘汰指标全部修订号下的缓存条目。
+     *
+     * @param metricCode 指标编码
+     */
+    public void invalidate(String metricCode) {
+        generation(metricCode).incrementAndGet();
+        executing.keySet().removeIf(key -> key.metricCode().equals(metricCode));
+        cache.asMap().keySet().removeIf(key -> key.metricCode().equals(metricCode));
+    }
+
+    /**
+     * 淘汰全部缓存条目。
+     */
+    public void invalidateAll() {
+        generations.values().forEach(AtomicLong::incrementAndGet);
+        executing.clear();
+        cache.invalidateAll();
+    }
+
+    private AtomicLong generation(String metricCode) {
+        return generations.computeIfAbsent(metricCode, code -> new AtomicLong());
+    }
+
+    private Duration ttl(MetricResult result) {
+        return isSealed(result) ? settings.sealedTtl() : settings.openTtl();
+    }
+
+    private static boolean isSealed(MetricResult result) {
+        return result.executionMode() == MetricExecutionMode.SNAPSHOT
+                && result.watermarkTime() != null
+                && !result.endTime().isAfter(result.watermarkTime());
+    }
+
+    private static MetricResult join(CompletableFuture<MetricResult> running) {
+        try {
+            return running.join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (exception.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw exception;
+        }
+    }
+
+    /**
+     * 缓存配置。
+     *
+     * @param maximumSize 最大条目数
+     * @param sealedTtl 窗口完全落在快照水位之前的快照结果有效期
+     * @param openTtl 窗口触及实时数据的结果有效期
+     */
+    public record Settings(long maximumSize, Duration sealedTtl, Duration openTtl) {
+
+        public Settings {
+            if (maximumSize <= 0) {
+                throw new IllegalArgumentException("maximumSize must be positive");
+            }
+            if (sealedTtl.isNegative() || sealedTtl.isZero() || openTtl.isNegative() || openTtl.isZero()) {
+                throw new IllegalArgumentException("sealedTtl and openTtl must be positive");
+            }
+            if (openTtl.compareTo(sealedTtl) > 0) {
+                throw new IllegalArgumentException("openTtl must not be longer than sealedTtl");
+            }
+        }
+    }
+
+    private record ResultKey(String metricCode,
+                             int definitionRevision,
+                             @Nullable String subjectId,
+                             LocalDateTime startTime,
+                             LocalDateTime endTime,
+                             Map<String, Object> dimensionValues,
+                             Map<String, Object> parameterValues) {
+
+        static ResultKey of(int definitionRevision, MetricQuery query) {
+            return new ResultKey(query.metricCode(), definitionRevision, query.subjectId(),
+                    query.startTime(), query.endTime(),
+                    canonical(query.dimensionValues(), "/dimensionValues"),
+                    canonical(query.parameterValues(), "/parameterValues"));
+        }
+
+        private static Map<String, Object> canonical(Map<String, Object> values, String path) {
+            Map<String, Object> result = new TreeMap<>();
+            values.forEach((name, value) -> result.put(name, MetricFactValues.canonicalKey(value, path + "/" + name)));
+            return result;
+        }
+    }
+}
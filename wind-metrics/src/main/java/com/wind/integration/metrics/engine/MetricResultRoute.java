@@ -0,0 +1,33 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.enums.MetricExecutionMode;
+import com.wind.integration.metrics.enums.SnapshotGranularity;
+import com.wind.integration.metrics.query.MetricSegmentResult;
+import org.jspecify.annotations.Nullable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 查询结果的实际数据来源摘要。
+ *
+ * @param executionMode 实际执行模式
+ * @param snapshotGranularity 全量快照桶粒度；其他模式为空
+ * @param queryableStartTime 全量快照连续可读区间下界；其他模式为空
+ * @param watermarkTime 全量快照连续覆盖上界；其他模式为空
+ * @param planCode 物化计划编码；实时模式为空
+ * @param segments 分段模式实际执行的分段；其他模式为空列表
+ *
+ * @author wuxp
+ * @date 2026-07-27 09:40
+ */
+record MetricResultRoute(MetricExecutionMode executionMode,
+                         @Nullable SnapshotGranularity snapshotGranularity,
+                         @Nullable LocalDateTime queryableStartTime,
+                         @Nullable LocalDateTime watermarkTime,
+                         @Nullable String planCode,
+                         List<MetricSegmentResult> segments) {
+
+    static final MetricResultRoute REALTIME =
+            new MetricResultRoute(MetricExecutionMode.REALTIME, null, null, null, null, List.of());
+}
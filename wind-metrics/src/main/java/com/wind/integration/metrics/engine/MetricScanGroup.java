@@ -0,0 +1,20 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.dsl.definition.MetricJoinDsl;
+import org.jspecify.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * 批量执行时可共享一次事实扫描的指标分组。
+ *
+ * @param fact 主事实源编码
+ * @param timeField 时间字段
+ * @param subjectField 主体字段；全局指标为空
+ * @param joins 关联定义，关联相同的指标才能共享关联后的事实行；关联按组内定义引用字段的并集编译
+ *
+ * @author wuxp
+ * @date 2026-07-26 14:30
+ */
+record MetricScanGroup(String fact, String timeField, @Nullable String subjectField, List<MetricJoinDsl> joins) {
+}
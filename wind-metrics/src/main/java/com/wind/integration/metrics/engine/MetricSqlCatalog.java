@@ -0,0 +1,44 @@
+package com.wind.integration.metrics.engine;
+
+/**
+ * 事实源到数据库表和列的映射 SPI，供 {@link JdbcMetricExecutor} 生成 SQL。
+ *
+ * <p>返回的表名和列名会直接拼入 SQL，编译时只接受由字母、数字和下划线组成的标识符，
+ * 表名允许带一个 schema 前缀。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-29 10:05
+ */
+public interface MetricSqlCatalog {
+
+    /**
+     * 获取事实源对应的表名。
+     *
+     * @param fact 事实源编码
+     * @return 表名
+     */
+    String tableName(String fact);
+
+    /**
+     * 获取事实字段对应的列名，默认将驼峰字段名转换为下划线列名。
+     *
+     * @param fact 事实源编码
+     * @param field 事实字段名
+     * @return 列名
+     */
+    default String columnName(String fact, String field) {
+        StringBuilder result = new StringBuilder(field.length() + 4);
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (Character.isUpperCase(c)) {
+                if (i > 0) {
+                    result.append('_');
+                }
+                result.append(Character.toLowerCase(c));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,150 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.dsl.definition.MetricJoinDsl;
+import com.wind.integration.metrics.dsl.definition.MetricJoinOnDsl;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import com.wind.integration.metrics.enums.MetricJoinType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 将编译后的指标定义翻译为参数化 SQL。
+ *
+ * <p>主事实表别名为 {@code t0}，关联事实依次为 {@code t1}、{@code t2}；字段引用 {@code alias.field} 解析到对应关联表。
+ * DSL 只允许一对一和多对一关联，但数据不一定满足声明的基数：与 {@link MetricFactJoiner} 一致，
+ * 只有全部值字段都是 {@code MIN}/{@code MAX} 且没有行选择的定义直接关联（重复行不影响结果），
+ * 其他定义的关联事实改为按关联键分组的派生表，关联不会放大主事实行，
+ * 引用了关联字段的关联额外输出每个关联键的行数，命中的关联键存在重复行时执行器拒绝结果。
+ * 所有字面量都作为占位符绑定，SQL 文本中只出现经过校验的表名和列名。编译器无状态且线程安全。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-29 10:05
+ */
+final class MetricSqlCompiler {
+
+    private static final Pattern TABLE_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(?:\\.[A-Za-z_][A-Za-z0-9_]*)?");
+
+    private static final Pattern COLUMN_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    /** 分组派生表中关联键行数的列名。 */
+    private static final String JOIN_ROWS = "wind_join_rows";
+
+    private final MetricSqlCatalog catalog;
+
+    MetricSqlCompiler(MetricSqlCatalog catalog) {
+        this.catalog = Objects.requireNonNull(catalog, "catalog must not be null");
+    }
+
+    /**
+     * 编译指标 SQL。
+     *
+     * @param definition 编译后的指标定义
+     * @return 编译后的指标 SQL
+     * @throws MetricValidationException 表名、列名无效或字段引用了未声明的关联别名时抛出
+     */
+    CompiledMetricSql compile(CompiledMetricDefinition definition) {
+        String fact = definition.fact();
+        List<MetricJoinDsl> joins = definition.joins();
+        boolean grouped = !definition.joinFanOutSafe();
+        Map<String, Integer> aliases = new HashMap<>();
+        List<CompiledMetricSql.JoinGuard> guards = new ArrayList<>();
+        StringBuilder from = new StringBuilder(tableName(fact, "/metric/fact")).append(" t0");
+        for (int i = 0; i < joins.size(); i++) {
+            MetricJoinDsl join = joins.get(i);
+            String path = "/metric/joins/" + i;
+            String alias = "t" + (i + 1);
+            aliases.put(join.alias(), i);
+            from.append(join.joinType() == MetricJoinType.LEFT ? " LEFT JOIN " : " INNER JOIN ");
+            if (grouped) {
+                CompiledMetricJoin compiledJoin = definition.compiledJoins().get(i);
+                boolean guarded = compiledJoin.strategy() == CompiledMetricJoin.Strategy.HASH;
+                appendGroupedJoin(from, join, compiledJoin.scan(), path, guarded);
+                if (guarded) {
+                    guards.add(new CompiledMetricSql.JoinGuard(alias + "." + JOIN_ROWS, path + "/cardinality"));
+                }
+            } else {
+                from.append(tableName(join.fact(), path + "/fact"));
+            }
+            from.append(' ').append(alias).append(" ON ");
+            for (int j = 0; j < join.on().size(); j++) {
+                MetricJoinOnDsl on = join.on().get(j);
+                String onPath = path + "/on/" + j;
+                from.append(j == 0 ? "" : " AND ")
+                        .append("t0.").append(columnName(fact, on.primaryField(), onPath + "/primaryField"))
+                        .append(" = ")
+                        .append(alias).append('.')
+                        .append(columnName(join.fact(), on.joinField(), onPath + "/joinField"));
+            }
+        }
+        Map<String, String> columns = new HashMap<>();
+        for (String field : definition.fields()) {
+            columns.put(field, column(definition, aliases, field));
+        }
+        return new CompiledMetricSql(definition, columns, from.toString(), guards);
+    }
+
+    /**
+     * 按关联键分组的派生表，每个关联键只输出一行；引用了关联字段时输出关联键的行数供执行器校验基数。
+     */
+    private void appendGroupedJoin(StringBuilder from,
+                                   MetricJoinDsl join,
+                                   MetricJoinScan scan,
+                                   String path,
+                                   boolean guarded) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (String keyField : scan.keyFields()) {
+            keys.add(columnName(join.fact(), keyField, path + "/fact"));
+        }
+        from.append("(SELECT ").append(String.join(", ", keys));
+        for (String field : scan.fields()) {
+            String column = columnName(join.fact(), field, path + "/fact");
+            if (!keys.contains(column)) {
+                from.append(", MAX(").append(column).append(") AS ").append(column);
+            }
+        }
+        if (guarded) {
+            from.append(", COUNT(*) AS ").append(JOIN_ROWS);
+        }
+        from.append(" FROM ").append(tableName(join.fact(), path + "/fact"))
+                .append(" GROUP BY ").append(String.join(", ", keys)).append(')');
+    }
+
+    private String column(CompiledMetricDefinition definition, Map<String, Integer> aliases, String fieldRef) {
+        int separator = fieldRef.indexOf('.');
+        if (separator < 0) {
+            return "t0." + columnName(definition.fact(), fieldRef, "/metric/fact");
+        }
+        Integer index = aliases.get(fieldRef.substring(0, separator));
+        if (index == null) {
+            throw new MetricValidationException(
+                    MetricErrorCode.DSL_IDENTIFIER_INVALID, "/metric/joins", "Unknown join alias: " + fieldRef);
+        }
+        MetricJoinDsl join = definition.joins().get(index);
+        return "t" + (index + 1) + "."
+                + columnName(join.fact(), fieldRef.substring(separator + 1), "/metric/joins/" + index + "/fact");
+    }
+
+    private String tableName(String fact, String path) {
+        return requireName(catalog.tableName(fact), TABLE_NAME, path);
+    }
+
+    private String columnName(String fact, String field, String path) {
+        return requireName(catalog.columnName(fact, field), COLUMN_NAME, path);
+    }
+
+    private static String requireName(String name, Pattern pattern, String path) {
+        if (name == null || !pattern.matcher(name).matches()) {
+            throw new MetricValidationException(
+                    MetricErrorCode.DSL_IDENTIFIER_INVALID, path, "Invalid SQL identifier: " + name);
+        }
+        return name;
+    }
+}
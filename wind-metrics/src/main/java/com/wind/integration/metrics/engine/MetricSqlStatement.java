@@ -0,0 +1,41 @@
+package com.wind.integration.metrics.engine;
+
+import org.jspecify.annotations.Nullable;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * 参数化的指标 SQL 及其占位符取值规则。
+ *
+ * <p>SQL 文本在编译期生成，执行期只按占位符顺序从绑定后的查询取值，
+ * 相同文本可被连接池或驱动的预编译语句缓存复用。</p>
+ *
+ * @param sql 参数化 SQL
+ * @param parameters 与占位符顺序一致的取值规则
+ * @author wuxp
+ * @date 2026-07-29 10:05
+ */
+record MetricSqlStatement(String sql, List<Function<MetricQueryBinding, @Nullable Object>> parameters) {
+
+    MetricSqlStatement {
+        Objects.requireNonNull(sql, "sql must not be null");
+        parameters = List.copyOf(parameters);
+    }
+
+    /**
+     * 按本次查询设置全部占位符。
+     *
+     * @param statement 预编译语句
+     * @param binding 绑定后的查询
+     * @throws SQLException 设置参数失败时抛出
+     */
+    void bind(PreparedStatement statement, MetricQueryBinding binding) throws SQLException {
+        for (int i = 0; i < parameters.size(); i++) {
+            statement.setObject(i + 1, parameters.get(i).apply(binding));
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.wind.integration.metrics.engine;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import com.wind.integration.metrics.query.MetricBatchQuery;
+import com.wind.integration.metrics.query.MetricColumnResult;
+import com.wind.integration.metrics.query.MetricQuery;
+import com.wind.integration.metrics.query.MetricResult;
+import com.wind.integration.metrics.query.MetricSubjectsQuery;
+import org.jspecify.annotations.Nullable;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * 进程内实时聚合执行器。
+ *
+ * <p>单次扫描事实源，在内存中按编译好的谓词和累加器完成聚合，不经过数据库往返。
+ * 批量查询时事实源、时间字段和主体字段相同的指标共享一次扫描，每行事实分发给各指标的累加器；
+ * 多主体查询一次扫描按主体分组聚合。
+ * 查询时间和事实时间都按 {@link Clock#getZone()} 解释。执行器线程安全。</p>
+ *
+ * <p>配置关联事实源后支持关联定义：关联按 {@link CompiledMetricJoin} 选择的策略在扫描主事实时逐行探测，
+ * 构建侧索引按关联事实、关联键和读取字段缓存，在查询之间共享，到期或调用 {@link #invalidateJoins(String)} 后重建；
+ * 未配置关联事实源时关联定义以 {@code METRIC_EXECUTION_MODE_UNSUPPORTED} 失败。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-25 10:12
+ */
+public final class RealtimeMetricExecutor {
+
+    /** 缓存的关联构建侧数量上限。 */
+    private static final int JOIN_INDEX_CACHE_SIZE = 256;
+
+    private final MetricFactSource factSource;
+
+    private final @Nullable MetricJoinFactSource joinSource;
+
+    private final @Nullable Cache<MetricJoinIndex.Key, MetricJoinIndex> joinIndexes;
+
+    private final Clock clock;
+
+    public RealtimeMetricExecutor(MetricFactSource factSource, Clock clock) {
+        this.factSource = Objects.requireNonNull(factSource, "factSource must not be null");
+        this.clock = Objects.requireNonNull(clock, "clock must not be null");
+        this.joinSource = null;
+        this.joinIndexes = null;
+    }
+
+    /**
+     * 创建支持关联定义的执行器。
+     *
+     * @param factSource 主事实源
+     * @param joinSource 关联事实源
+     * @param joinIndexTtl 关联构建侧索引的缓存时长，关联事实变化后最多延迟该时长生效
+     * @param clock 时钟
+     */
+    public RealtimeMetricExecutor(MetricFactSource factSource,
+                                  MetricJoinFactSource joinSource,
+                                  Duration joinIndexTtl,
+                                  Clock clock) {
+        this.factSource = Objects.requireNonNull(factSource, "factSource must not be null");
+        this.joinSource = Objects.requireNonNull(joinSource, "joinSource must not be null");
+        this.clock = Objects.requireNonNull(clock, "clock must not be null");
+        if (joinIndexTtl.isNegative() || joinIndexTtl.isZero()) {
+            throw new IllegalArgumentException("joinIndexTtl must be positive");
+        }
+        this.joinIndexes = Caffeine.newBuilder()
+                .maximumSize(JOIN_INDEX_CACHE_SIZE)
+                .expireAfterWrite(joinIndexTtl)
+                .build();
+    }
+
+    public RealtimeMetricExecutor(MetricFactSource factSource, ZoneId timeZone) {
+        this(factSource, Clock.system(timeZone));
+    }
+
+    /**
+     * 执行单指标实时查询。
+     *
+     * @param definition 编译后的指标定义
+     * @param query 单指标查询
+     * @return {@code REALTIME} 查询结果
+     * @throws MetricValidationException 查询与定义不匹配或事实值无效时抛出
+     */
+    public MetricResult execute(CompiledMetricDefinition definition, MetricQuery query) {
+        MetricQueryBinding binding = definition.bind(query);
+        ZoneId zone = clock.getZone();
+        Predicate<MetricFactRow> rowFilter = definition.rowFilter(binding, zone);
+        MetricAggregationState state = definition.newState(binding);
+        factSource.scan(definition.primaryScan(binding), joining(List.of(definition), row -> {
+            if (rowFilter.test(row)) {
+                state.accept(row);
+            }
+        }));
+        return definition.result(
+                binding, state.complete(), LocalDateTime.now(clock), zone, MetricResultRoute.REALTIME);
+    }
+
+    /**
+     * 执行多指标批量实时查询。
+     *
+     * <p>同一扫描分组内的指标只扫描一次事实源，扫描提示字段为分组内全部指标所需字段的并集。
+     * 批量查询不携带参数，声明了查询参数的指标会以 {@code METRIC_PARAMETER_MISSING} 失败。</p>
+     *
+     * @param definitions 编译后的指标定义，须覆盖查询中的全部指标编码
+     * @param query 批量查询
+     * @return 与 {@link MetricBatchQuery#metricCodes()} 顺序一致的查询结果
+     * @throws MetricValidationException 指标定义缺失、查询与定义不匹配或事实值无效时抛出
+     */
+    public List<MetricResult> executeBatch(Collection<CompiledMetricDefinition> definitions, MetricBatchQuery query) {
+        Map<String, CompiledMetricDefinition> definitionsByCode = new HashMap<>();
+        for (CompiledMetricDefinition definition : definitions) {
+            definitionsByCode.put(definition.code(), definition);
+        }
+        Map<String, Object> dimensionValues = query.dimensionValues();
+        List<String> metricCodes = query.metricCodes();
+        CompiledMetricDefinition[] resolved = new CompiledMetricDefinition[metricCodes.size()];
+        MetricQueryBinding[] bindings = new MetricQueryBinding[metricCodes.size()];
+        Map<MetricScanGroup, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < metricCodes.size(); i++) {
+            CompiledMetricDefinition definition = definitionsByCode.get(metricCodes.get(i));
+            if (definition == null) {
+                throw new MetricValidationException(
+                        MetricErrorCode.QUERY_INVALID, "/metricCodes/" + i, "Metric definition is not provided");
+            }
+            resolved[i] = definition;
+            bindings[i] = definition.bind(
+                    query.subjectId(), query.startTime(), query.endTime(), dimensionValues, Map.of());
+            groups.computeIfAbsent(definition.scanGroup(), key -> new ArrayList<>()).add(i);
+        }
+        ZoneId zone = clock.getZone();
+        MetricAggregationState[] states = new MetricAggregationState[metricCodes.size()];
+        for (List<Integer> members : groups.values()) {
+            scanGroup(resolved, bindings, states, members, zone);
+        }
+        LocalDateTime calculatedTime = LocalDateTime.now(clock);
+        List<MetricResult> result = new ArrayList<>(metricCodes.size());
+        for (int i = 0; i < resolved.length; i++) {
+            result.add(resolved[i].result(
+                    bindings[i], states[i].complete(), calculatedTime, zone, MetricResultRoute.REALTIME));
+        }
+        return result;
+    }
+
+    /**
+     * 执行单指标多主体实时查询。
+     *
+     * <p>一次扫描覆盖全部查询主体：主体标识映射为结果下标，每个出现事实的主体持有独立的聚合状态，
+     * 窗口内没有事实的主体返回空聚合结果，结果按下标写入紧凑列。</p>
+     *
+     * @param definition 编译后的指标定义
+     * @param query 多主体查询
+     * @return {@code REALTIME} 列式结果
+     * @throws MetricValidationException 查询与定义不匹配或事实值无效时抛出
+     */
+    public MetricColumnResult executeSubjects(CompiledMetricDefinition definition, MetricSubjectsQuery query) {
+        MetricQueryBinding binding = definition.bind(query);
+        ZoneId zone = clock.getZone();
+        List<String> subjectIds = binding.subjectIds();
+        Map<String, Integer> indexes = HashMap.newHashMap(subjectIds.size());
+        for (int i = 0; i < subjectIds.size(); i++) {
+            indexes.put(subjectIds.get(i), i);
+        }
+        String subjectField = Objects.requireNonNull(definition.subjectField());
+        Predicate<MetricFactRow> rowFilter = definition.windowFilter(binding, zone);
+        MetricAggregationState[] states = new MetricAggregationState[subjectIds.size()];
+        factSource.scan(definition.primaryScan(binding), joining(List.of(definition), row -> {
+            Object subject = row.get(subjectField);
+            Integer index = subject == null ? null : indexes.get(MetricFactValues.subjectText(subject));
+            if (index == null || !rowFilter.test(row)) {
+                return;
+            }
+            MetricAggregationState state = states[index];
+            if (state == null) {
+                state = definition.newState(binding);
+                states[index] = state;
+            }
+            state.accept(row);
+        }));
+        @Nullable Number[] empty = definition.emptyResult();
+        @Nullable Number[][] results = new Number[states.length][];
+        for (int i = 0; i < states.length; i++) {
+            results[i] = states[i] == null ? empty : states[i].complete();
+        }
+        return definition.columnResult(binding, results, LocalDateTime.now(clock), zone);
+    }
+
+    /**
+     * 淘汰关联事实源的全部构建侧索引，关联事实变更后调用。
+     *
+     * @param fact 关联事实源编码
+     */
+    public void invalidateJoins(String fact) {
+        if (joinIndexes != null) {
+            joinIndexes.asMap().keySet().removeIf(key -> key.scan().fact().equals(fact));
+        }
+    }
+
+    private void scanGroup(CompiledMetricDefinition[] definitions,
+                           MetricQueryBinding[] bindings,
+                           MetricAggregationState[] states,
+                           List<Integer> members,
+                           ZoneId zone) {
+        MetricAggregationState[] groupStates = new MetricAggregationState[members.size()];
+        List<CompiledMetricDefinition> groupDefinitions = new ArrayList<>(members.size());
+        Set<String> fields = new LinkedHashSet<>();
+        for (int i = 0; i < groupStates.length; i++) {
+            int index = members.get(i);
+            groupStates[i] = definitions[index].newState(bindings[index]);
+            states[index] = groupStates[i];
+            groupDefinitions.add(definitions[index]);
+            fields.addAll(definitions[index].primaryFields());
+        }
+        CompiledMetricDefinition first = definitions[members.getFirst()];
+        MetricQueryBinding binding = bindings[members.getFirst()];
+        MetricFactScan scan = first.primaryScan(binding);
+        Predicate<MetricFactRow> rowFilter = first.rowFilter(binding, zone);
+        factSource.scan(
+                new MetricFactScan(scan.fact(), scan.subjectField(), scan.subjectId(), scan.timeField(),
+                        scan.startTime(), scan.endTime(), scan.dimensionValues(), fields, scan.subjectIds()),
+                joining(groupDefinitions, row -> {
+                    if (rowFilter.test(row)) {
+                        for (MetricAggregationState state : groupStates) {
+                            state.accept(row);
+                        }
+                    }
+                }));
+    }
+
+    /**
+     * 为主事实行消费者加上关联，同组定义的关联相同。
+     *
+     * <p>关联策略和构建侧字段取决于定义引用的关联字段，同组定义引用的字段可能不同，
+     * 多个定义时按全部定义引用字段的并集重新编译关联，关联行包含每个定义需要的字段。</p>
+     */
+    private Consumer<MetricFactRow> joining(List<CompiledMetricDefinition> definitions,
+                                            Consumer<MetricFactRow> consumer) {
+        CompiledMetricDefinition first = definitions.getFirst();
+        if (first.joins().isEmpty()) {
+            return consumer;
+        }
+        if (joinSource == null || joinIndexes == null) {
+            throw new MetricValidationException(MetricErrorCode.METRIC_EXECUTION_MODE_UNSUPPORTED, "/metric/joins",
+                    "Joined facts are not supported by in-process aggregation");
+        }
+        boolean fanOutAllowed = definitions.stream().allMatch(CompiledMetricDefinition::joinFanOutSafe);
+        List<CompiledMetricJoin> joins = first.compiledJoins();
+        if (definitions.size() > 1) {
+            Set<String> fields = new LinkedHashSet<>();
+            definitions.forEach(definition -> fields.addAll(definition.fields()));
+            joins = CompiledMetricJoin.compile(first.joins(), fields);
+        }
+        MetricFactJoiner joiner = new MetricFactJoiner(joins, join -> joinIndexes.get(
+                MetricJoinIndex.Key.of(join), key -> MetricJoinIndex.build(join, joinSource)), fanOutAllowed);
+        return row -> joiner.join(row, consumer);
+    }
+}
@@ -0,0 +1,147 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import com.wind.integration.metrics.enums.MetricExecutionMode;
+import com.wind.integration.metrics.enums.MetricMergeState;
+import com.wind.integration.metrics.enums.MetricSegmentSourceType;
+import com.wind.integration.metrics.enums.SnapshotGranularity;
+import com.wind.integration.metrics.query.MetricQuery;
+import com.wind.integration.metrics.query.MetricResult;
+import com.wind.integration.metrics.query.MetricSegmentResult;
+import com.wind.integration.metrics.snapshot.MetricSnapshotCoverage;
+import com.wind.integration.metrics.snapshot.MetricSnapshotStore;
+import org.jspecify.annotations.Nullable;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * 分段指标执行器：archive 段合并快照桶，recent 段实时聚合，再按合并状态合并两段部分值。
+ *
+ * <p>切分点取快照水位与 {@code endTime - recentWindow} 向下对齐到桶边界两者中的较早者。
+ * 查询开始时间未对齐、早于快照可读下界或切分点不晚于开始时间时，整个窗口只执行 recent 段。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-28 15:20
+ */
+public final class SegmentedMetricExecutor {
+
+    static final String ARCHIVE_SEGMENT = "archive";
+
+    static final String RECENT_SEGMENT = "recent";
+
+    private final MetricFactSource factSource;
+
+    private final MetricSnapshotStore snapshotStore;
+
+    private final SnapshotMetricExecutor snapshotExecutor;
+
+    private final Clock clock;
+
+    public SegmentedMetricExecutor(MetricFactSource factSource, MetricSnapshotStore snapshotStore, Clock clock) {
+        this.factSource = Objects.requireNonNull(factSource, "factSource must not be null");
+        this.snapshotStore = Objects.requireNonNull(snapshotStore, "snapshotStore must not be null");
+        this.clock = Objects.requireNonNull(clock, "clock must not be null");
+        this.snapshotExecutor = new SnapshotMetricExecutor(snapshotStore, clock);
+    }
+
+    /**
+     * 执行单指标分段查询。
+     *
+     * @param plan 编译后的 {@code SEGMENTED} 物化计划
+     * @param query 单指标查询
+     * @return {@code SEGMENTED} 查询结果，包含实际执行的连续分段
+     * @throws MetricValidationException 计划不是分段模式、查询与定义不匹配或事实值无效时抛出
+     */
+    public MetricResult execute(CompiledMetricPlan plan, MetricQuery query) {
+        if (plan.executionMode() != MetricExecutionMode.SEGMENTED || plan.recentWindow() == null) {
+            throw new MetricValidationException(
+                    MetricErrorCode.METRIC_EXECUTION_MODE_UNSUPPORTED, "/executionMode", "Plan is not SEGMENTED");
+        }
+        CompiledMetricDefinition definition = plan.definition();
+        MetricQueryBinding binding = definition.bind(query);
+        ZoneId zone = clock.getZone();
+        MetricSnapshotCoverage coverage = snapshotStore.getCoverage(plan.snapshotTargetCode()).orElse(null);
+        LocalDateTime splitTime = splitTime(plan, binding, coverage);
+        List<CompiledMetricValue> values = definition.values();
+        List<MetricMergeState> mergeStates = plan.mergeStates();
+        List<MetricSegmentResult> segments = new ArrayList<>(2);
+
+        Number[] partials = new Number[values.size()];
+        for (int i = 0; i < partials.length; i++) {
+            partials[i] = values.get(i).emptyResult();
+        }
+        if (coverage != null && splitTime.isAfter(binding.startTime())) {
+            Number[] archive = snapshotExecutor.merge(plan, binding, binding.startTime(), splitTime);
+            merge(values, mergeStates, partials, archive);
+            segments.add(new MetricSegmentResult(ARCHIVE_SEGMENT, MetricSegmentSourceType.SNAPSHOT,
+                    binding.startTime(), splitTime, plan.snapshotGranularity(),
+                    coverage.queryableStartTime(), coverage.watermarkTime(), null));
+        }
+        LocalDateTime recentStartTime = segments.isEmpty() ? binding.startTime() : splitTime;
+        merge(values, mergeStates, partials, recent(definition, binding, recentStartTime, zone));
+        LocalDateTime calculatedTime = LocalDateTime.now(clock);
+        segments.add(new MetricSegmentResult(RECENT_SEGMENT, MetricSegmentSourceType.REALTIME,
+                recentStartTime, binding.endTime(), null, null, null, calculatedTime));
+
+        Number[] result = new Number[partials.length];
+        for (int i = 0; i < partials.length; i++) {
+            result[i] = values.get(i).complete(partials[i]);
+        }
+        MetricResultRoute route = new MetricResultRoute(
+                MetricExecutionMode.SEGMENTED, null, null, null, plan.planCode(), segments);
+        return definition.result(binding, result, calculatedTime, zone, route);
+    }
+
+    /**
+     * 计算 archive 与 recent 的切分点，返回值不早于查询开始时间。
+     */
+    static LocalDateTime splitTime(CompiledMetricPlan plan,
+                                   MetricQueryBinding binding,
+                                   @Nullable MetricSnapshotCoverage coverage) {
+        LocalDateTime startTime = binding.startTime();
+        SnapshotGranularity granularity = plan.snapshotGranularity();
+        if (coverage == null
+                || !SnapshotBuckets.isAligned(startTime, granularity)
+                || coverage.queryableStartTime().isAfter(startTime)) {
+            return startTime;
+        }
+        LocalDateTime recentStartTime = SnapshotBuckets.alignDown(
+                binding.endTime().minus(Objects.requireNonNull(plan.recentWindow())), granularity);
+        LocalDateTime watermarkTime = SnapshotBuckets.alignDown(coverage.watermarkTime(), granularity);
+        LocalDateTime splitTime = recentStartTime.isBefore(watermarkTime) ? recentStartTime : watermarkTime;
+        return splitTime.isAfter(startTime) ? splitTime : startTime;
+    }
+
+    private Number[] recent(CompiledMetricDefinition definition,
+                            MetricQueryBinding binding,
+                            LocalDateTime startTime,
+                            ZoneId zone) {
+        MetricQueryBinding recent = new MetricQueryBinding(
+                binding.subjectId(), startTime, binding.endTime(), binding.dimensionValues(), binding.rowLimit(),
+                binding.subjectIds());
+        Predicate<MetricFactRow> rowFilter = definition.rowFilter(recent, zone);
+        MetricAggregationState state = definition.newPartialState();
+        factSource.scan(definition.scan(recent), row -> {
+            if (rowFilter.test(row)) {
+                state.accept(row);
+            }
+        });
+        return state.partials();
+    }
+
+    private static void merge(List<CompiledMetricValue> values,
+                              List<MetricMergeState> mergeStates,
+                              @Nullable Number[] target,
+                              @Nullable Number[] source) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] = MetricPartials.merge(mergeStates.get(i), target[i], source[i], values.get(i).path());
+        }
+    }
+}
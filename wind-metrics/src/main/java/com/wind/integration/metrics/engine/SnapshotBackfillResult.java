@@ -0,0 +1,63 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.snapshot.MetricSnapshotCoverage;
+import org.jspecify.annotations.Nullable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 一次快照回填的结果。
+ *
+ * @param targetCode 快照逻辑目标编码
+ * @param completedUntil 全部主体分区都已连续物化到的时间，不包含
+ * @param materializedTasks 本次执行成功的分块任务数
+ * @param resumedTasks 因分区进度已完成而跳过的分块任务数
+ * @param failures 失败的分块任务；分区失败后不再提交该分区后续的分块
+ * @param coverage 回填结束后的连续覆盖区间；回填区间与已有覆盖尚未连接时为已有覆盖
+ *
+ * @author wuxp
+ * @date 2026-08-07 09:50
+ */
+public record SnapshotBackfillResult(String targetCode,
+                                     LocalDateTime completedUntil,
+                                     int materializedTasks,
+                                     int resumedTasks,
+                                     List<Failure> failures,
+                                     @Nullable MetricSnapshotCoverage coverage) {
+
+    public SnapshotBackfillResult {
+        Objects.requireNonNull(targetCode, "targetCode must not be null");
+        Objects.requireNonNull(completedUntil, "completedUntil must not be null");
+        failures = List.copyOf(failures);
+    }
+
+    /**
+     * 判断回填区间是否已全部物化。
+     *
+     * @param endTime 回填区间结束
+     * @return 没有失败且全部分区都物化到区间结束时返回 {@code true}
+     */
+    public boolean completed(LocalDateTime endTime) {
+        return failures.isEmpty() && !completedUntil.isBefore(endTime);
+    }
+
+    /**
+     * 失败的分块任务。
+     *
+     * @param partitionId 主体分区标识
+     * @param startTime 分块开始，包含
+     * @param endTime 分块结束，不包含
+     * @param cause 失败原因
+     */
+    public record Failure(String partitionId, LocalDateTime startTime, LocalDateTime endTime, Throwable cause) {
+
+        public Failure {
+            Objects.requireNonNull(partitionId, "partitionId must not be null");
+            Objects.requireNonNull(startTime, "startTime must not be null");
+            Objects.requireNonNull(endTime, "endTime must not be null");
+            Objects.requireNonNull(cause, "cause must not be null");
+        }
+    }
+}
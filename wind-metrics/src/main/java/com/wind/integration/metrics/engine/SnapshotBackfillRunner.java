@@ -0,0 +1,342 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import com.wind.integration.metrics.snapshot.MetricSnapshotCheckpoint;
+import com.wind.integration.metrics.snapshot.MetricSnapshotCheckpointStore;
+import com.wind.integration.metrics.snapshot.MetricSnapshotCoverage;
+import com.wind.integration.metrics.snapshot.MetricSnapshotStore;
+import org.jspecify.annotations.Nullable;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按主体分区和时间分块并行回填快照。
+ *
+ * <p>通过物化计划的 {@code snapshotKeyProviderCode} 选择 {@link SnapshotKeyProvider} 枚举主体分区，
+ * 每个分区按 {@code bucketsPerTask} 个桶切分为分块任务，在 {@code executor} 上最多同时执行 {@code parallelism} 个，
+ * 每个任务只扫描自己的主体和时间范围，只替换自己的桶。任务按时间先后提交，使较早的时间先完成。</p>
+ *
+ * <p>分区内连续完成的位置前移时保存回填进度，中断后重新回填同一区间时从进度处继续；
+ * 进度记录分区主体集合的指纹，主体集合变化的分区从区间开始重新回填，新加入的主体不会被跳过。
+ * 覆盖区间只推进到全部分区都连续完成的位置，失败的分块会阻止覆盖区间越过它；
+ * 回填区间与已有覆盖既不相交也不相邻时暂不更新覆盖，避免覆盖区间跳到不连续的新区间。</p>
+ *
+ * <p>执行器可以使用虚拟线程（{@code Executors.newVirtualThreadPerTaskExecutor()}），并发度仍由 {@code parallelism} 限制，
+ * 以免压垮事实源。</p>
+ *
+ * @author wuxp
+ * @date 2026-08-07 09:50
+ */
+public final class SnapshotBackfillRunner {
+
+    private final SnapshotMetricMaterializer materializer;
+
+    private final MetricSnapshotStore snapshotStore;
+
+    private final MetricSnapshotCheckpointStore checkpointStore;
+
+    private final Map<String, SnapshotKeyProvider> keyProviders;
+
+    private final Executor executor;
+
+    private final int parallelism;
+
+    public SnapshotBackfillRunner(SnapshotMetricMaterializer materializer,
+                                  MetricSnapshotStore snapshotStore,
+                                  MetricSnapshotCheckpointStore checkpointStore,
+                                  Collection<? extends SnapshotKeyProvider> keyProviders,
+                                  Executor executor,
+                                  int parallelism) {
+        this.materializer = Objects.requireNonNull(materializer, "materializer must not be null");
+        this.snapshotStore = Objects.requireNonNull(snapshotStore, "snapshotStore must not be null");
+        this.checkpointStore = Objects.requireNonNull(checkpointStore, "checkpointStore must not be null");
+        this.executor = Objects.requireNonNull(executor, "executor must not be null");
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+        Map<String, SnapshotKeyProvider> providers = new HashMap<>();
+        for (SnapshotKeyProvider provider : keyProviders) {
+            if (providers.putIfAbsent(provider.code(), provider) != null) {
+                throw new IllegalArgumentException("duplicate snapshot key provider code: " + provider.code());
+            }
+        }
+        this.keyProviders = Map.copyOf(providers);
+    }
+
+    /**
+     * 回填区间内的快照，阻塞到全部已提交的分块任务结束。
+     *
+     * @param plan 编译后的物化计划
+     * @param startTime 回填区间开始，包含，须与桶边界对齐
+     * @param endTime 回填区间结束，不包含，须与桶边界对齐
+     * @param bucketsPerTask 每个分块任务包含的桶数量
+     * @return 回填结果，分块失败不会抛出异常而是记录在结果中
+     * @throws MetricValidationException 区间未对齐、找不到主体键枚举器或分区无效时抛出
+     */
+    public SnapshotBackfillResult backfill(CompiledMetricPlan plan,
+                                           LocalDateTime startTime,
+                                           LocalDateTime endTime,
+                                           int bucketsPerTask) {
+        if (!startTime.isBefore(endTime)) {
+            throw new MetricValidationException(
+                    MetricErrorCode.QUERY_INVALID, "/endTime", "endTime must be after startTime");
+        }
+        if (bucketsPerTask <= 0) {
+            throw new MetricValidationException(
+                    MetricErrorCode.QUERY_INVALID, "/bucketsPerTask", "bucketsPerTask must be positive");
+        }
+        SnapshotBuckets.requireAligned(startTime, endTime, plan.snapshotGranularity());
+        Backfill backfill = new Backfill(plan, startTime, endTime, partitions(plan, startTime, endTime));
+        return backfill.run(chunkBoundaries(plan, startTime, endTime, bucketsPerTask));
+    }
+
+    private List<SnapshotKeyPartition> partitions(CompiledMetricPlan plan,
+                                                  LocalDateTime startTime,
+                                                  LocalDateTime endTime) {
+        String providerCode = plan.plan().snapshotKeyProviderCode();
+        SnapshotKeyProvider provider = keyProviders.get(providerCode);
+        if (provider == null) {
+            throw new MetricValidationException(MetricErrorCode.DSL_PLAN_INVALID, "/snapshotKeyProviderCode",
+                    "snapshot key provider not found: " + providerCode);
+        }
+        List<SnapshotKeyPartition> partitions = List.copyOf(provider.partitions(plan, startTime, endTime));
+        if (partitions.isEmpty()) {
+            throw new MetricValidationException(MetricErrorCode.DSL_PLAN_INVALID, "/snapshotKeyProviderCode",
+                    "snapshot key provider returned no partition: " + providerCode);
+        }
+        Set<String> partitionIds = new HashSet<>();
+        Set<String> subjectIds = new HashSet<>();
+        for (SnapshotKeyPartition partition : partitions) {
+            boolean valid = partitionIds.add(partition.partitionId())
+                    && (partitions.size() == 1 || !partition.subjectIds().isEmpty());
+            for (String subjectId : partition.subjectIds()) {
+                valid &= subjectIds.add(subjectId);
+            }
+            if (!valid) {
+                throw new MetricValidationException(MetricErrorCode.DSL_PLAN_INVALID, "/snapshotKeyProviderCode",
+                        "snapshot key partitions must be disjoint: " + partition.partitionId());
+            }
+        }
+        return partitions;
+    }
+
+    private static List<LocalDateTime> chunkBoundaries(CompiledMetricPlan plan,
+                                                       LocalDateTime startTime,
+                                                       LocalDateTime endTime,
+                                                       int bucketsPerTask) {
+        List<LocalDateTime> result = new ArrayList<>();
+        LocalDateTime time = startTime;
+        result.add(time);
+        while (time.isBefore(endTime)) {
+            for (int i = 0; i < bucketsPerTask && time.isBefore(endTime); i++) {
+                time = SnapshotBuckets.next(time, plan.snapshotGranularity());
+            }
+            result.add(time);
+        }
+        return result;
+    }
+
+    /**
+     * 一次回填的执行状态。
+     */
+    private final class Backfill {
+
+        private final CompiledMetricPlan plan;
+
+        private final LocalDateTime startTime;
+
+        private final LocalDateTime endTime;
+
+        private final List<PartitionProgress> progresses;
+
+        private final AtomicInteger materializedTasks = new AtomicInteger();
+
+        private final List<SnapshotBackfillResult.Failure> failures = new ArrayList<>();
+
+        private Backfill(CompiledMetricPlan plan,
+                         LocalDateTime startTime,
+                         LocalDateTime endTime,
+                         List<SnapshotKeyPartition> partitions) {
+            this.plan = plan;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.progresses = new ArrayList<>(partitions.size());
+            for (SnapshotKeyPartition partition : partitions) {
+                String fingerprint = partition.fingerprint();
+                LocalDateTime resumeTime = checkpointStore
+                        .getCheckpoint(plan.snapshotTargetCode(), partition.partitionId())
+                        .filter(checkpoint -> checkpoint.startTime().equals(startTime)
+                                && checkpoint.partitionFingerprint().equals(fingerprint))
+                        .map(MetricSnapshotCheckpoint::completedUntil)
+                        .map(time -> time.isAfter(endTime) ? endTime : time)
+                        .orElse(startTime);
+                progresses.add(new PartitionProgress(partition, fingerprint, resumeTime));
+            }
+        }
+
+        SnapshotBackfillResult run(List<LocalDateTime> boundaries) {
+            publish();
+            Semaphore permits = new Semaphore(parallelism);
+            List<CompletableFuture<Void>> tasks = new ArrayList<>();
+            int resumedTasks = 0;
+            try {
+                for (int i = 0; i < boundaries.size() - 1; i++) {
+                    LocalDateTime chunkEndTime = boundaries.get(i + 1);
+                    for (PartitionProgress progress : progresses) {
+                        if (!chunkEndTime.isAfter(progress.resumeTime)) {
+                            resumedTasks++;
+                            continue;
+                        }
+                        if (progress.failed) {
+                            continue;
+                        }
+                        LocalDateTime chunkStartTime = boundaries.get(i).isBefore(progress.resumeTime)
+                                ? progress.resumeTime
+                                : boundaries.get(i);
+                        permits.acquire();
+                        try {
+                            tasks.add(CompletableFuture
+                                    .runAsync(() -> materialize(progress, chunkStartTime, chunkEndTime), executor)
+                                    .whenComplete((ignore, throwable) -> permits.release()));
+                        } catch (RuntimeException exception) {
+                            permits.release();
+                            fail(progress, chunkStartTime, chunkEndTime, exception);
+                        }
+                    }
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).join();
+            publish();
+            LocalDateTime completedUntil = completedUntil();
+            synchronized (failures) {
+                return new SnapshotBackfillResult(plan.snapshotTargetCode(), completedUntil, materializedTasks.get(),
+                        resumedTasks, failures, snapshotStore.getCoverage(plan.snapshotTargetCode()).orElse(null));
+            }
+        }
+
+        private void materialize(PartitionProgress progress, LocalDateTime chunkStartTime, LocalDateTime chunkEndTime) {
+            if (progress.failed) {
+                return;
+            }
+            try {
+                materializer.materializeBuckets(plan, progress.partition.subjectIds(), chunkStartTime, chunkEndTime);
+            } catch (RuntimeException exception) {
+                fail(progress, chunkStartTime, chunkEndTime, exception);
+                return;
+            }
+            materializedTasks.incrementAndGet();
+            if (progress.complete(chunkStartTime, chunkEndTime)) {
+                publish();
+            }
+        }
+
+        /**
+         * 记录分块失败，分区的后续分块不再执行，执行器拒绝提交的分块同样按失败处理。
+         */
+        private void fail(PartitionProgress progress,
+                          LocalDateTime chunkStartTime,
+                          LocalDateTime chunkEndTime,
+                          RuntimeException exception) {
+            progress.failed = true;
+            synchronized (failures) {
+                failures.add(new SnapshotBackfillResult.Failure(
+                        progress.partition.partitionId(), chunkStartTime, chunkEndTime, exception));
+            }
+        }
+
+        private LocalDateTime completedUntil() {
+            LocalDateTime result = endTime;
+            for (PartitionProgress progress : progresses) {
+                LocalDateTime time = progress.completedUntil;
+                if (time.isBefore(result)) {
+                    result = time;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * 把覆盖区间推进到全部分区都连续完成的位置。
+         */
+        private synchronized void publish() {
+            LocalDateTime completedUntil = completedUntil();
+            if (!completedUntil.isAfter(startTime)) {
+                return;
+            }
+            String targetCode = plan.snapshotTargetCode();
+            @Nullable MetricSnapshotCoverage current = snapshotStore.getCoverage(targetCode).orElse(null);
+            if (current == null) {
+                snapshotStore.updateCoverage(targetCode, new MetricSnapshotCoverage(startTime, completedUntil));
+            } else if (!startTime.isAfter(current.watermarkTime())
+                    && !completedUntil.isBefore(current.queryableStartTime())) {
+                snapshotStore.updateCoverage(targetCode, current.extend(startTime, completedUntil));
+            }
+        }
+
+        /**
+         * 单个主体分区的回填进度。
+         */
+        private final class PartitionProgress {
+
+            private final SnapshotKeyPartition partition;
+
+            private final String fingerprint;
+
+            private final LocalDateTime resumeTime;
+
+            /**
+             * 已完成但与连续位置之间还有未完成分块的分块，开始时间 -> 结束时间
+             */
+            private final TreeMap<LocalDateTime, LocalDateTime> pending = new TreeMap<>();
+
+            private volatile LocalDateTime completedUntil;
+
+            private volatile boolean failed;
+
+            private PartitionProgress(SnapshotKeyPartition partition, String fingerprint, LocalDateTime resumeTime) {
+                this.partition = partition;
+                this.fingerprint = fingerprint;
+                this.resumeTime = resumeTime;
+                this.completedUntil = resumeTime;
+            }
+
+            /**
+             * 记录完成的分块，连续位置前移时保存回填进度。
+             *
+             * @return 连续位置前移时返回 {@code true}
+             */
+            private synchronized boolean complete(LocalDateTime chunkStartTime, LocalDateTime chunkEndTime) {
+                pending.put(chunkStartTime, chunkEndTime);
+                LocalDateTime until = completedUntil;
+                LocalDateTime next;
+                while ((next = pending.remove(until)) != null) {
+                    until = next;
+                }
+                if (until.equals(completedUntil)) {
+                    return false;
+                }
+                checkpointStore.saveCheckpoint(plan.snapshotTargetCode(), partition.partitionId(),
+                        new MetricSnapshotCheckpoint(startTime, until, fingerprint));
+                completedUntil = until;
+                return true;
+            }
+        }
+    }
+}
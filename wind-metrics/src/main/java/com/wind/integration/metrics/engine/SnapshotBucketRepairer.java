@@ -0,0 +1,124 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.snapshot.MetricSnapshotCoverage;
+import com.wind.integration.metrics.snapshot.MetricSnapshotDirtyBucket;
+import com.wind.integration.metrics.snapshot.MetricSnapshotDirtyBucketStore;
+import com.wind.integration.metrics.snapshot.MetricSnapshotStore;
+import org.jspecify.annotations.Nullable;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 迟到事实的快照桶修复。
+ *
+ * <p>{@link #markChanged} 作为变更捕获入口，接收新增、更正或删除的事实行（更正时传入变更前后两行），
+ * 把落在已覆盖区间内的 (主体, 桶) 标记为待重建；覆盖区间之外的事实由常规物化处理。
+ * {@link #repair} 按桶开始时间升序取出待重建的桶，每个桶时间只扫描一次涉及主体的事实，
+ * 重新计算并替换这些主体在该桶内的部分聚合值，其他主体和其他桶保持不变，覆盖区间不回退。</p>
+ *
+ * @author wuxp
+ * @date 2026-08-08 10:05
+ */
+public final class SnapshotBucketRepairer {
+
+    private final SnapshotMetricMaterializer materializer;
+
+    private final MetricSnapshotStore snapshotStore;
+
+    private final MetricSnapshotDirtyBucketStore dirtyBucketStore;
+
+    private final ZoneId timeZone;
+
+    public SnapshotBucketRepairer(SnapshotMetricMaterializer materializer,
+                                  MetricSnapshotStore snapshotStore,
+                                  MetricSnapshotDirtyBucketStore dirtyBucketStore,
+                                  ZoneId timeZone) {
+        this.materializer = Objects.requireNonNull(materializer, "materializer must not be null");
+        this.snapshotStore = Objects.requireNonNull(snapshotStore, "snapshotStore must not be null");
+        this.dirtyBucketStore = Objects.requireNonNull(dirtyBucketStore, "dirtyBucketStore must not be null");
+        this.timeZone = Objects.requireNonNull(timeZone, "timeZone must not be null");
+    }
+
+    /**
+     * 标记变更事实所在的已覆盖快照桶需要重建。
+     *
+     * @param plan 编译后的物化计划
+     * @param rows 变更的事实行
+     * @return 标记的桶数量
+     */
+    public int markChanged(CompiledMetricPlan plan, Collection<? extends MetricFactRow> rows) {
+        @Nullable MetricSnapshotCoverage coverage = snapshotStore.getCoverage(plan.snapshotTargetCode()).orElse(null);
+        if (coverage == null) {
+            return 0;
+        }
+        CompiledMetricDefinition definition = plan.definition();
+        String subjectField = definition.subjectField();
+        Set<DirtyKey> keys = new HashSet<>();
+        for (MetricFactRow row : rows) {
+            Object time = row.get(definition.timeField());
+            if (time == null) {
+                continue;
+            }
+            LocalDateTime dateTime = MetricFactValues.toDateTime(time, timeZone, "/metric/time/field");
+            if (dateTime.isBefore(coverage.queryableStartTime()) || !dateTime.isBefore(coverage.watermarkTime())) {
+                continue;
+            }
+            String subjectId = null;
+            if (subjectField != null) {
+                Object subject = row.get(subjectField);
+                if (subject == null) {
+                    continue;
+                }
+                subjectId = MetricFactValues.subjectText(subject);
+            }
+            keys.add(new DirtyKey(subjectId, SnapshotBuckets.alignDown(dateTime, plan.snapshotGranularity())));
+        }
+        for (DirtyKey key : keys) {
+            dirtyBucketStore.markDirty(plan.snapshotTargetCode(), key.subjectId(), key.bucketStartTime());
+        }
+        return keys.size();
+    }
+
+    /**
+     * 重建待重建的快照桶，成功重建的桶清除标记，失败时已重建的桶保持清除、其余桶保留标记。
+     *
+     * @param plan 编译后的物化计划
+     * @param limit 本次最多重建的桶数量
+     * @return 重建的桶数量
+     */
+    public int repair(CompiledMetricPlan plan, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        String targetCode = plan.snapshotTargetCode();
+        List<MetricSnapshotDirtyBucket> dirtyBuckets = dirtyBucketStore.findDirty(targetCode, limit);
+        Map<LocalDateTime, List<MetricSnapshotDirtyBucket>> byBucketTime = new TreeMap<>();
+        for (MetricSnapshotDirtyBucket bucket : dirtyBuckets) {
+            byBucketTime.computeIfAbsent(bucket.bucketStartTime(), key -> new ArrayList<>()).add(bucket);
+        }
+        byBucketTime.forEach((bucketStartTime, buckets) -> {
+            Set<String> subjectIds = new HashSet<>();
+            for (MetricSnapshotDirtyBucket bucket : buckets) {
+                if (bucket.subjectId() != null) {
+                    subjectIds.add(bucket.subjectId());
+                }
+            }
+            materializer.materializeBuckets(plan, subjectIds, bucketStartTime,
+                    SnapshotBuckets.next(bucketStartTime, plan.snapshotGranularity()));
+            dirtyBucketStore.clearDirty(targetCode, buckets);
+        });
+        return dirtyBuckets.size();
+    }
+
+    private record DirtyKey(@Nullable String subjectId, LocalDateTime bucketStartTime) {
+    }
+}
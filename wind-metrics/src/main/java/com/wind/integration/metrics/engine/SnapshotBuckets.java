@@ -0,0 +1,53 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import com.wind.integration.metrics.enums.SnapshotGranularity;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 快照桶的时间对齐规则。
+ *
+ * @author wuxp
+ * @date 2026-07-27 09:40
+ */
+final class SnapshotBuckets {
+
+    private SnapshotBuckets() {
+    }
+
+    static LocalDateTime alignDown(LocalDateTime time, SnapshotGranularity granularity) {
+        return time.truncatedTo(unit(granularity));
+    }
+
+    static LocalDateTime next(LocalDateTime bucketStartTime, SnapshotGranularity granularity) {
+        return bucketStartTime.plus(1, unit(granularity));
+    }
+
+    static boolean isAligned(LocalDateTime time, SnapshotGranularity granularity) {
+        return alignDown(time, granularity).equals(time);
+    }
+
+    /**
+     * 校验时间窗口两端都与桶边界对齐。
+     */
+    static void requireAligned(LocalDateTime startTime, LocalDateTime endTime, SnapshotGranularity granularity) {
+        if (!isAligned(startTime, granularity)) {
+            throw new MetricValidationException(
+                    MetricErrorCode.QUERY_INVALID, "/startTime", "startTime is not aligned to snapshot granularity");
+        }
+        if (!isAligned(endTime, granularity)) {
+            throw new MetricValidationException(
+                    MetricErrorCode.QUERY_INVALID, "/endTime", "endTime is not aligned to snapshot granularity");
+        }
+    }
+
+    private static ChronoUnit unit(SnapshotGranularity granularity) {
+        return switch (granularity) {
+            case HOUR -> ChronoUnit.HOURS;
+            case DAY -> ChronoUnit.DAYS;
+        };
+    }
+}
@@ -0,0 +1,56 @@
+package com.wind.integration.metrics.engine;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 快照回填的一个主体分区。
+ *
+ * @param partitionId 分区标识，同一目标多次回填之间须保持稳定，用于恢复回填进度
+ * @param subjectIds 分区内的主体；为空时表示全部主体，只能作为唯一分区
+ *
+ * @author wuxp
+ * @date 2026-08-07 09:50
+ */
+public record SnapshotKeyPartition(String partitionId, Set<String> subjectIds) {
+
+    public SnapshotKeyPartition {
+        Objects.requireNonNull(partitionId, "partitionId must not be null");
+        if (partitionId.isBlank()) {
+            throw new IllegalArgumentException("partitionId must not be blank");
+        }
+        subjectIds = Set.copyOf(subjectIds);
+    }
+
+    /**
+     * 创建包含全部主体的唯一分区，全局指标只能使用该分区。
+     *
+     * @param partitionId 分区标识
+     * @return 全部主体分区
+     */
+    public static SnapshotKeyPartition all(String partitionId) {
+        return new SnapshotKeyPartition(partitionId, Set.of());
+    }
+
+    /**
+     * 计算分区内主体集合的指纹，主体集合变化后指纹不同，回填不复用旧的分区进度。
+     *
+     * @return 排序后主体标识的 SHA-256 摘要
+     */
+    public String fingerprint() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            subjectIds.stream().sorted().forEach(subjectId -> {
+                digest.update(subjectId.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            });
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is not available", exception);
+        }
+    }
+}
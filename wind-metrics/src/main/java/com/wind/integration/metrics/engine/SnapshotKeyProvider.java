@@ -0,0 +1,33 @@
+package com.wind.integration.metrics.engine;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 快照主体键枚举器，通过物化计划的 {@code snapshotKeyProviderCode} 选择。
+ *
+ * <p>把回填区间内需要物化的主体划分为互不相交的分区，每个分区独立回填并记录进度。
+ * 维度组合由事实数据决定，在分区内随桶一起物化，不需要枚举。</p>
+ *
+ * @author wuxp
+ * @date 2026-08-07 09:50
+ */
+public interface SnapshotKeyProvider {
+
+    /**
+     * 获取枚举器编码。
+     *
+     * @return 与物化计划的 {@code snapshotKeyProviderCode} 对应的编码
+     */
+    String code();
+
+    /**
+     * 枚举回填区间内的主体分区。
+     *
+     * @param plan 编译后的物化计划
+     * @param startTime 回填区间开始，包含
+     * @param endTime 回填区间结束，不包含
+     * @return 互不相交的主体分区；区间内可能有事实的主体都须落在某个分区内
+     */
+    List<SnapshotKeyPartition> partitions(CompiledMetricPlan plan, LocalDateTime startTime, LocalDateTime endTime);
+}
@@ -0,0 +1,116 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import com.wind.integration.metrics.enums.MetricExecutionMode;
+import com.wind.integration.metrics.enums.MetricMergeState;
+import com.wind.integration.metrics.query.MetricQuery;
+import com.wind.integration.metrics.query.MetricResult;
+import com.wind.integration.metrics.snapshot.MetricSnapshotBucket;
+import com.wind.integration.metrics.snapshot.MetricSnapshotCoverage;
+import com.wind.integration.metrics.snapshot.MetricSnapshotStore;
+import org.jspecify.annotations.Nullable;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 通过合并快照桶回答指标查询。
+ *
+ * <p>查询窗口须与桶边界对齐且被目标的连续覆盖区间完整包含，否则以
+ * {@code METRIC_SNAPSHOT_NOT_COVERED} 失败，调用方可以据此回退到实时聚合。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-27 09:40
+ */
+public final class SnapshotMetricExecutor {
+
+    private final MetricSnapshotStore snapshotStore;
+
+    private final Clock clock;
+
+    public SnapshotMetricExecutor(MetricSnapshotStore snapshotStore, Clock clock) {
+        this.snapshotStore = Objects.requireNonNull(snapshotStore, "snapshotStore must not be null");
+        this.clock = Objects.requireNonNull(clock, "clock must not be null");
+    }
+
+    /**
+     * 执行单指标快照查询。
+     *
+     * @param plan 编译后的物化计划
+     * @param query 单指标查询
+     * @return {@code SNAPSHOT} 查询结果
+     * @throws MetricValidationException 查询与定义不匹配、窗口未对齐或快照未覆盖时抛出
+     */
+    public MetricResult execute(CompiledMetricPlan plan, MetricQuery query) {
+        CompiledMetricDefinition definition = plan.definition();
+        MetricQueryBinding binding = definition.bind(query);
+        SnapshotBuckets.requireAligned(binding.startTime(), binding.endTime(), plan.snapshotGranularity());
+        MetricSnapshotCoverage coverage = requireCoverage(plan, binding.startTime(), binding.endTime());
+        Number[] partials = merge(plan, binding, binding.startTime(), binding.endTime());
+        List<CompiledMetricValue> values = definition.values();
+        Number[] result = new Number[partials.length];
+        for (int i = 0; i < partials.length; i++) {
+            result[i] = values.get(i).complete(partials[i]);
+        }
+        MetricResultRoute route = new MetricResultRoute(MetricExecutionMode.SNAPSHOT, plan.snapshotGranularity(),
+                coverage.queryableStartTime(), coverage.watermarkTime(), plan.planCode(), List.of());
+        return definition.result(binding, result, LocalDateTime.now(clock), clock.getZone(), route);
+    }
+
+    MetricSnapshotCoverage requireCoverage(CompiledMetricPlan plan, LocalDateTime startTime, LocalDateTime endTime) {
+        MetricSnapshotCoverage coverage = snapshotStore.getCoverage(plan.snapshotTargetCode()).orElse(null);
+        if (coverage == null || !coverage.contains(startTime, endTime)) {
+            throw new MetricValidationException(
+                    MetricErrorCode.METRIC_SNAPSHOT_NOT_COVERED, "/startTime", "Snapshot does not cover query window");
+        }
+        return coverage;
+    }
+
+    /**
+     * 合并区间内与查询主体和维度匹配的桶，返回各值字段的部分聚合值。
+     */
+    @Nullable
+    Number[] merge(CompiledMetricPlan plan,
+                   MetricQueryBinding binding,
+                   LocalDateTime startTime,
+                   LocalDateTime endTime) {
+        List<CompiledMetricValue> values = plan.definition().values();
+        List<MetricMergeState> mergeStates = plan.mergeStates();
+        Map<String, Object> dimensionValues = binding.dimensionValues();
+        Map<String, Object> dimensionKeys = new HashMap<>();
+        dimensionValues.forEach((key, value) -> dimensionKeys.put(
+                key, MetricFactValues.canonicalKey(value, "/dimensionValues/" + MetricFilterCompiler.escape(key))));
+        Number[] result = new Number[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i).emptyResult();
+        }
+        List<MetricSnapshotBucket> buckets =
+                snapshotStore.findBuckets(plan.snapshotTargetCode(), binding.subjectId(), startTime, endTime);
+        for (MetricSnapshotBucket bucket : buckets) {
+            if (!matches(bucket, dimensionKeys)) {
+                continue;
+            }
+            for (int i = 0; i < result.length; i++) {
+                CompiledMetricValue value = values.get(i);
+                result[i] = MetricPartials.merge(
+                        mergeStates.get(i), result[i], bucket.partials().get(value.name()), value.path());
+            }
+        }
+        return result;
+    }
+
+    private static boolean matches(MetricSnapshotBucket bucket, Map<String, Object> dimensionKeys) {
+        for (Map.Entry<String, Object> entry : dimensionKeys.entrySet()) {
+            Object value = bucket.dimensionValues().get(entry.getKey());
+            if (value == null || !entry.getValue().equals(MetricFactValues.canonicalKey(value, "/dimensionValues"))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
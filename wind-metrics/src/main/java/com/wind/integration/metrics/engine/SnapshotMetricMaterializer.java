@@ -0,0 +1,161 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import com.wind.integration.metrics.enums.SnapshotGranularity;
+import com.wind.integration.metrics.snapshot.MetricSnapshotBucket;
+import com.wind.integration.metrics.snapshot.MetricSnapshotCoverage;
+import com.wind.integration.metrics.snapshot.MetricSnapshotStore;
+import org.jspecify.annotations.Nullable;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 将事实数据物化为按主体、维度组合和时间桶划分的快照。
+ *
+ * <p>一次物化对整个区间只扫描一次事实源，按桶保存可合并的部分聚合值，
+ * 写入桶后再推进目标的连续覆盖区间。大区间回填使用 {@link SnapshotBackfillRunner} 按主体分区和时间分块并行物化。查询时间和事实时间都按构造时指定的时区解释。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-27 09:40
+ */
+public final class SnapshotMetricMaterializer {
+
+    private final MetricFactSource factSource;
+
+    private final MetricSnapshotStore snapshotStore;
+
+    private final ZoneId timeZone;
+
+    public SnapshotMetricMaterializer(MetricFactSource factSource, MetricSnapshotStore snapshotStore, ZoneId timeZone) {
+        this.factSource = Objects.requireNonNull(factSource, "factSource must not be null");
+        this.snapshotStore = Objects.requireNonNull(snapshotStore, "snapshotStore must not be null");
+        this.timeZone = Objects.requireNonNull(timeZone, "timeZone must not be null");
+    }
+
+    /**
+     * 物化全部主体在区间内的快照桶，并替换区间内已有的桶。
+     *
+     * @param plan 编译后的物化计划
+     * @param startTime 物化区间开始，包含，须与桶边界对齐
+     * @param endTime 物化区间结束，不包含，须与桶边界对齐
+     * @return 更新后的连续覆盖区间
+     * @throws MetricValidationException 区间未对齐或事实值无效时抛出
+     */
+    public MetricSnapshotCoverage materialize(CompiledMetricPlan plan, LocalDateTime startTime, LocalDateTime endTime) {
+        materializeBuckets(plan, Set.of(), startTime, endTime);
+        MetricSnapshotCoverage coverage = snapshotStore.getCoverage(plan.snapshotTargetCode())
+                .map(current -> current.extend(startTime, endTime))
+                .orElseGet(() -> new MetricSnapshotCoverage(startTime, endTime));
+        snapshotStore.updateCoverage(plan.snapshotTargetCode(), coverage);
+        return coverage;
+    }
+
+    /**
+     * 物化一组主体在区间内的快照桶，只替换这些主体已有的桶，不推进覆盖区间。
+     *
+     * <p>供分区回填使用：覆盖区间须等全部主体分区都连续完成后由调用方推进。</p>
+     *
+     * @param plan 编译后的物化计划
+     * @param subjectIds 物化的主体；为空时物化全部主体，全局指标只能为空
+     * @param startTime 物化区间开始，包含，须与桶边界对齐
+     * @param endTime 物化区间结束，不包含，须与桶边界对齐
+     * @return 写入的桶数量
+     * @throws MetricValidationException 区间未对齐、全局指标指定主体或事实值无效时抛出
+     */
+    public int materializeBuckets(CompiledMetricPlan plan,
+                                  Set<String> subjectIds,
+                                  LocalDateTime startTime,
+                                  LocalDateTime endTime) {
+        if (!startTime.isBefore(endTime)) {
+            throw new MetricValidationException(
+                    MetricErrorCode.QUERY_INVALID, "/endTime", "endTime must be after startTime");
+        }
+        SnapshotGranularity granularity = plan.snapshotGranularity();
+        SnapshotBuckets.requireAligned(startTime, endTime, granularity);
+        CompiledMetricDefinition definition = plan.definition();
+        if (definition.subjectField() == null && !subjectIds.isEmpty()) {
+            throw new MetricValidationException(
+                    MetricErrorCode.QUERY_INVALID, "/subjectIds", "global metric snapshot has no subject");
+        }
+        Map<BucketKey, MetricAggregationState> states =
+                aggregate(definition, granularity, Set.copyOf(subjectIds), startTime, endTime);
+        List<String> dimensions = definition.dimensionFields();
+        List<CompiledMetricValue> values = definition.values();
+        List<MetricSnapshotBucket> buckets = new ArrayList<>(states.size());
+        states.forEach((key, state) -> {
+            Map<String, @Nullable Object> dimensionValues = new LinkedHashMap<>();
+            for (int i = 0; i < dimensions.size(); i++) {
+                dimensionValues.put(dimensions.get(i), key.dimensionKeys().get(i));
+            }
+            Number[] partials = state.partials();
+            Map<String, Number> partialValues = new HashMap<>();
+            for (int i = 0; i < partials.length; i++) {
+                if (partials[i] != null) {
+                    partialValues.put(values.get(i).name(), partials[i]);
+                }
+            }
+            buckets.add(new MetricSnapshotBucket(plan.snapshotTargetCode(), key.subjectId(), dimensionValues,
+                    key.bucketStartTime(), SnapshotBuckets.next(key.bucketStartTime(), granularity), partialValues));
+        });
+        snapshotStore.replaceBuckets(plan.snapshotTargetCode(), subjectIds, startTime, endTime, buckets);
+        return buckets.size();
+    }
+
+    private Map<BucketKey, MetricAggregationState> aggregate(CompiledMetricDefinition definition,
+                                                            SnapshotGranularity granularity,
+                                                            Set<String> subjectIds,
+                                                            LocalDateTime startTime,
+                                                            LocalDateTime endTime) {
+        String timeField = definition.timeField();
+        String subjectField = definition.subjectField();
+        String[] dimensions = definition.dimensionFields().toArray(String[]::new);
+        Map<BucketKey, MetricAggregationState> states = new HashMap<>();
+        MetricFactScan scan = new MetricFactScan(definition.fact(), subjectField, null, timeField,
+                startTime, endTime, Map.of(), definition.fields(), subjectIds);
+        factSource.scan(scan, row -> {
+            Object time = row.get(timeField);
+            if (time == null) {
+                return;
+            }
+            LocalDateTime dateTime = MetricFactValues.toDateTime(time, timeZone, "/metric/time/field");
+            if (dateTime.isBefore(startTime) || !dateTime.isBefore(endTime)) {
+                return;
+            }
+            String subjectId = null;
+            if (subjectField != null) {
+                Object subject = row.get(subjectField);
+                if (subject == null) {
+                    return;
+                }
+                subjectId = MetricFactValues.subjectText(subject);
+                if (!subjectIds.isEmpty() && !subjectIds.contains(subjectId)) {
+                    return;
+                }
+            }
+            Object[] dimensionKeys = new Object[dimensions.length];
+            for (int i = 0; i < dimensions.length; i++) {
+                Object value = row.get(dimensions[i]);
+                dimensionKeys[i] = value == null ? null : MetricFactValues.canonicalKey(value, "/metric/dimensions");
+            }
+            BucketKey key = new BucketKey(
+                    subjectId, Arrays.asList(dimensionKeys), SnapshotBuckets.alignDown(dateTime, granularity));
+            states.computeIfAbsent(key, ignore -> definition.newPartialState()).accept(row);
+        });
+        return states;
+    }
+
+    private record BucketKey(@Nullable String subjectId,
+                             List<@Nullable Object> dimensionKeys,
+                             LocalDateTime bucketStartTime) {
+    }
+}
@@ -0,0 +1,7 @@
+/**
+ * 指标 Definition DSL 的进程内编译和实时聚合执行。
+ */
+@NullMarked
+package com.wind.integration.metrics.engine;
+
+import org.jspecify.annotations.NullMarked;
@@ -33,6 +33,8 @@ public enum MetricErrorCode implements DescriptiveEnum {
     METRIC_ROW_SELECTION_INVALID("指标行选择定义无效"),
     METRIC_ORDER_NOT_DETERMINISTIC("指标排序无法证明确定性"),
     METRIC_EXECUTION_MODE_UNSUPPORTED("指标执行模式不受支持"),
+    METRIC_FACT_VALUE_INVALID("指标事实数据值无效"),
+    METRIC_SNAPSHOT_NOT_COVERED("指标快照未覆盖查询窗口"),
     QUERY_INVALID("指标查询条件无效"),
     RESULT_INVALID("指标查询结果无效");
 
@@ -0,0 +1,249 @@
+package com.wind.integration.metrics.fields;
+
+import com.wind.common.exception.AssertUtils;
+import com.wind.integration.metrics.WindMetricsAggregationQuery;
+import com.wind.integration.metrics.pipeline.WindMetricsIncrement;
+import com.wind.integration.metrics.pipeline.WindMetricsIncrementWriter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地分段累加的指标字段工厂，适用于每次请求都递增的热点计数（例如用户请求次数）
+ * 每个 (指标名称, 业务维度标识) 对应一个进程内的 {@link AdderSingleValueMetricsField}，递增递减只写本地累加器，
+ * 由后台线程每隔 flushInterval 把自上次刷写以来的增量合并为一批交给 {@link WindMetricsIncrementWriter}，
+ * 因此热点计数不会在每次递增时竞争同一行数据库记录或同一个 Redis 键
+ * 写入失败时不推进刷写位置，增量在下一次刷写时重试；{@link #close()} 停止定时任务并执行最终刷写
+ * 连续 idleFlushes 次没有增量的字段从工厂中移除，仍持有该字段的调用方的后续操作会转发到工厂中的新字段
+ * 字段按 (指标名称, 业务维度标识) 写入增量，同一指标名称只能属于一种聚合维度（{@link WindMetricsAggregationQuery#getDimensions()}），
+ * 以不同聚合维度获取同名字段时抛出异常
+ * 字段值按 {@link #single(String, WindMetricsAggregationQuery, Class)} 声明的值类型返回，同一指标名称只能声明一种值类型；
+ * 未声明值类型的 {@link #single(String, WindMetricsAggregationQuery)} 按 {@link Number} 读取（只出现过整数为 {@link Long}，
+ * 否则为 {@link java.math.BigDecimal}），调用方应声明为 {@code SingleValueMetricsField<Number>}
+ * {@link #multiple} 返回同一业务维度下名称为 {@code name.子指标名称} 的单值字段组成的只读视图，子指标通过 {@link #single} 递增
+ * 字段值只反映本进程的基准值（{@link SingleValueMetricsField#setValue}）和本地增量，读取全局值请使用
+ * {@link com.wind.integration.metrics.WindMetricsValueResolver}
+ *
+ * @author wuxp
+ * @date 2026-08-05 09:30
+ **/
+@Slf4j
+public final class AdderMetricsFieldFactory implements WindMetricsFieldFactory, AutoCloseable {
+
+    /**
+     * 未指定查询条件时使用的业务维度标识
+     */
+    public static final String GLOBAL_DIMENSIONS_ID = "GLOBAL";
+
+    private final Map<FieldKey, AdderSingleValueMetricsField<?>> fields = new ConcurrentHashMap<>();
+
+    /**
+     * 已移除但尚未做最后一次刷写的字段，访问时持有工厂锁
+     */
+    private final List<AdderSingleValueMetricsField<?>> retiring = new ArrayList<>();
+
+    private final WindMetricsIncrementWriter writer;
+
+    private final int idleFlushes;
+
+    private final ScheduledExecutorService scheduler;
+
+    public AdderMetricsFieldFactory(WindMetricsIncrementWriter writer, Duration flushInterval, int idleFlushes) {
+        AssertUtils.notNull(writer, "argument writer must not null");
+        AssertUtils.isTrue(flushInterval.toMillis() > 0, "argument flushInterval must be positive");
+        AssertUtils.isTrue(idleFlushes > 0, "argument idleFlushes must be positive");
+        this.writer = writer;
+        this.idleFlushes = idleFlushes;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "wind-metrics-adder-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = flushInterval.toMillis();
+        this.scheduler.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 未声明值类型的单值字段，值按 {@link Number} 读取，请声明为 {@code SingleValueMetricsField<Number>}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <M extends Number> SingleValueMetricsField<M> single(String name, WindMetricsAggregationQuery query) {
+        return (SingleValueMetricsField<M>) single(name, query, Number.class);
+    }
+
+    /**
+     * 单个值指标
+     *
+     * @param name      指标名称，全局唯一
+     * @param query     查询条件，允许为空
+     * @param valueType 指标值类型，支持 {@link Number}、整数与浮点数包装类型、{@link java.math.BigDecimal}、
+     *                  {@link java.math.BigInteger}
+     * @param <M>       指标值类型
+     * @return 指标字段
+     */
+    public <M extends Number> SingleValueMetricsField<M> single(String name,
+                                                                WindMetricsAggregationQuery query,
+                                                                Class<M> valueType) {
+        AssertUtils.notNull(valueType, "argument valueType must not null");
+        AssertUtils.isTrue(AdderSingleValueMetricsField.VALUE_TYPES.contains(valueType),
+                () -> "unsupported metrics value type: " + valueType.getName());
+        if (query == null) {
+            return field(name, valueType, GLOBAL_DIMENSIONS_ID, GLOBAL_DIMENSIONS_ID);
+        }
+        return field(name, valueType, query.getDimensions(), dimensionsId(query));
+    }
+
+    @Override
+    public <M> MultipleValueMetricsField<M> multiple(String name, WindMetricsAggregationQuery query) {
+        AssertUtils.hasText(name, "argument name must not empty");
+        if (query == null) {
+            return new AdderMultipleValueMetricsField<>(name, GLOBAL_DIMENSIONS_ID, GLOBAL_DIMENSIONS_ID, this);
+        }
+        return new AdderMultipleValueMetricsField<>(name, query.getDimensions(), dimensionsId(query), this);
+    }
+
+    /**
+     * 立即刷写全部字段自上次成功刷写以来的增量
+     */
+    public synchronized void flush() {
+        List<AdderSingleValueMetricsField.PendingIncrement> pending = new ArrayList<>();
+        List<AdderSingleValueMetricsField<?>> retired = new ArrayList<>(retiring);
+        collect(retired, pending);
+        for (Iterator<AdderSingleValueMetricsField<?>> iterator = fields.values().iterator(); iterator.hasNext(); ) {
+            AdderSingleValueMetricsField<?> field = iterator.next();
+            AdderSingleValueMetricsField.PendingIncrement increment = field.pendingIncrement();
+            if (increment != null) {
+                pending.add(increment);
+            } else if (field.getIdleFlushes() >= idleFlushes) {
+                // 先移除再标记淘汰，标记前已进入递增的调用在下一次刷写时随 retiring 写出
+                iterator.remove();
+                field.detach();
+                retiring.add(field);
+            }
+        }
+        if (!pending.isEmpty()) {
+            write(pending);
+        }
+        retiring.removeAll(retired);
+    }
+
+    /**
+     * @return 工厂中的字段数量
+     */
+    public int size() {
+        return fields.size();
+    }
+
+    /**
+     * 停止定时刷写并执行最终刷写
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.warn("wait metrics adder flush task termination timeout");
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * @param valueType 值类型，{@link Number} 可以读取任意值类型的已有字段
+     */
+    @SuppressWarnings("unchecked")
+    <M extends Number> SingleValueMetricsField<M> field(String name,
+                                                        Class<M> valueType,
+                                                        String dimensions,
+                                                        Serializable dimensionsId) {
+        AssertUtils.hasText(name, "argument name must not empty");
+        AdderSingleValueMetricsField<?> result = fields.computeIfAbsent(new FieldKey(name, dimensionsId),
+                key -> new AdderSingleValueMetricsField<>(key.name(), valueType, dimensions, key.dimensionsId(), this));
+        AssertUtils.isTrue(result.getDimensions().equals(dimensions), () -> "metrics " + name
+                + " is already used by dimensions " + result.getDimensions() + ", actual dimensions = " + dimensions);
+        AssertUtils.isTrue(valueType == Number.class || result.getValueType() == valueType, () -> "metrics " + name
+                + " is already declared as " + result.getValueType().getName() + ", actual = " + valueType.getName());
+        // 值类型相同，或请求的是 Number，字段值一定是 M 的实例
+        return (SingleValueMetricsField<M>) result;
+    }
+
+    /**
+     * @return 当前的同一聚合维度、同一业务维度下名称以 prefix 开头的字段
+     */
+    List<AdderSingleValueMetricsField<?>> fields(String prefix, String dimensions, Serializable dimensionsId) {
+        List<AdderSingleValueMetricsField<?>> result = new ArrayList<>();
+        fields.forEach((key, field) -> {
+            if (key.name().startsWith(prefix) && key.dimensionsId().equals(dimensionsId)
+                    && field.getDimensions().equals(dimensions)) {
+                result.add(field);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 把淘汰后仍收到增量的字段交回刷写，工厂锁保证不会与正在进行的刷写交错
+     *
+     * @param field 已淘汰的字段
+     */
+    synchronized void retire(AdderSingleValueMetricsField<?> field) {
+        if (!retiring.contains(field)) {
+            retiring.add(field);
+        }
+    }
+
+    private static Serializable dimensionsId(WindMetricsAggregationQuery query) {
+        Object result = query.getDimensionsId();
+        AssertUtils.isTrue(result instanceof Serializable, () -> "metrics dimensionsId must be Serializable, actual = "
+                + (result == null ? null : result.getClass().getName()));
+        return (Serializable) result;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException exception) {
+            log.error("flush metrics adder fields failed, retry on next flush", exception);
+        }
+    }
+
+    private void write(List<AdderSingleValueMetricsField.PendingIncrement> pending) {
+        List<WindMetricsIncrement> increments = new ArrayList<>(pending.size());
+        for (AdderSingleValueMetricsField.PendingIncrement increment : pending) {
+            AdderSingleValueMetricsField<?> field = increment.field();
+            increments.add(new WindMetricsIncrement(field.getName(), field.getDimensionsId(), increment.value()));
+        }
+        writer.write(increments);
+        pending.forEach(increment -> increment.field().flushed(increment));
+    }
+
+    private static void collect(List<AdderSingleValueMetricsField<?>> source,
+                                List<AdderSingleValueMetricsField.PendingIncrement> target) {
+        for (AdderSingleValueMetricsField<?> field : source) {
+            AdderSingleValueMetricsField.PendingIncrement increment = field.pendingIncrement();
+            if (increment != null) {
+                target.add(increment);
+            }
+        }
+    }
+
+    private record FieldKey(String name, Serializable dimensionsId) {
+
+        FieldKey {
+            Objects.requireNonNull(dimensionsId, "dimensionsId must not be null");
+        }
+    }
+}
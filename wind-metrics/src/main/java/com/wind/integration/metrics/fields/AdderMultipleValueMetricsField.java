@@ -0,0 +1,86 @@
+package com.wind.integration.metrics.fields;
+
+import com.wind.integration.metrics.WindMetricsAggregationQuery;
+import com.wind.integration.metrics.WindMetricsValue;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 由 {@link AdderMetricsFieldFactory} 中同一业务维度下名称为 {@code name.子指标名称} 的单值字段组成的只读多值字段
+ * 每次读取时从工厂中查找当前的子指标字段，子指标按名称排序；子指标通过工厂的单值字段递增，被淘汰的空闲子指标不再出现
+ *
+ * @author wuxp
+ * @date 2026-08-05 09:30
+ **/
+final class AdderMultipleValueMetricsField<M> implements MultipleValueMetricsField<M> {
+
+    private final String name;
+
+    private final String dimensions;
+
+    private final Serializable dimensionsId;
+
+    private final AdderMetricsFieldFactory owner;
+
+    AdderMultipleValueMetricsField(String name,
+                                   String dimensions,
+                                   Serializable dimensionsId,
+                                   AdderMetricsFieldFactory owner) {
+        this.name = name;
+        this.dimensions = dimensions;
+        this.dimensionsId = dimensionsId;
+        this.owner = owner;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 子指标名称 -> 子指标值
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public M getValue() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (WindMetricsValue<Object> field : getMetricsFields()) {
+            result.put(field.getName(), field.getValue());
+        }
+        return (M) result;
+    }
+
+    @Override
+    public M evaluate(WindMetricsAggregationQuery query) {
+        return getValue();
+    }
+
+    @Override
+    public List<WindMetricsValue<Object>> getMetricsFields() {
+        String prefix = name + ".";
+        List<AdderSingleValueMetricsField<?>> fields = owner.fields(prefix, dimensions, dimensionsId);
+        fields.sort(Comparator.comparing(AdderSingleValueMetricsField::getName));
+        List<WindMetricsValue<Object>> result = new ArrayList<>(fields.size());
+        for (AdderSingleValueMetricsField<?> field : fields) {
+            String subName = field.getName().substring(prefix.length());
+            result.add(new WindMetricsValue<>() {
+
+                @Override
+                public String getName() {
+                    return subName;
+                }
+
+                @Override
+                public Object getValue() {
+                    return field.getValue();
+                }
+            });
+        }
+        return result;
+    }
+}
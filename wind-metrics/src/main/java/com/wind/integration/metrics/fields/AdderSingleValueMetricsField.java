@@ -0,0 +1,250 @@
+package com.wind.integration.metrics.fields;
+
+import com.wind.integration.metrics.WindMetricsAggregationQuery;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于分段累加器（{@link LongAdder}、{@link DecimalAdder}）的本地指标字段，递增递减不竞争同一个内存位置
+ * 整数增量累加到 {@link LongAdder}，其他数值按十进制精确累加到 {@link DecimalAdder}，不经过 double
+ * 读取的值转换为字段声明的值类型；值类型为 {@link Number} 时，只出现过整数为 {@link Long}，否则为 {@link BigDecimal}
+ * 由 {@link AdderMetricsFieldFactory} 创建，增量由工厂定时刷写到持久化存储
+ * 淘汰与递增并发时，递增后重新检查淘汰标记，已淘汰则把字段交回工厂再刷写一次，淘汰前最后一刻落下的增量不会丢失
+ *
+ * @author wuxp
+ * @date 2026-08-05 09:30
+ **/
+final class AdderSingleValueMetricsField<M extends Number> implements SingleValueMetricsField<M> {
+
+    /**
+     * 支持的值类型
+     */
+    static final Set<Class<? extends Number>> VALUE_TYPES = Set.of(Number.class, Long.class, Integer.class,
+            Short.class, Byte.class, Double.class, Float.class, BigDecimal.class, BigInteger.class);
+
+    private final String name;
+
+    private final Class<M> valueType;
+
+    private final String dimensions;
+
+    private final Serializable dimensionsId;
+
+    private final AdderMetricsFieldFactory owner;
+
+    private final LongAdder longs = new LongAdder();
+
+    private final DecimalAdder decimals = new DecimalAdder();
+
+    private volatile boolean decimal;
+
+    /**
+     * 基准值，{@link Long} 或 {@link BigDecimal}
+     */
+    private volatile Number base = 0L;
+
+    /**
+     * 已淘汰，之后的操作转发到工厂中当前的字段
+     */
+    private volatile boolean detached;
+
+    /**
+     * 以下字段只由刷写线程访问
+     */
+    private long flushedLongs;
+
+    private BigDecimal flushedDecimals = BigDecimal.ZERO;
+
+    private int idleFlushes;
+
+    AdderSingleValueMetricsField(String name,
+                                 Class<M> valueType,
+                                 String dimensions,
+                                 Serializable dimensionsId,
+                                 AdderMetricsFieldFactory owner) {
+        this.name = name;
+        this.valueType = valueType;
+        this.dimensions = dimensions;
+        this.dimensionsId = dimensionsId;
+        this.owner = owner;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public M getValue() {
+        Number current = base;
+        if (!decimal && current instanceof Long value) {
+            return convert(value + longs.sum());
+        }
+        return convert(toDecimal(current).add(BigDecimal.valueOf(longs.sum())).add(decimals.sum()));
+    }
+
+    /**
+     * 设置本地视图的基准值（例如使用持久化的历史值初始化），不产生增量，不写入持久化存储
+     *
+     * @param value 指标值
+     */
+    @Override
+    public void setValue(M value) {
+        if (detached) {
+            current().setValue(value);
+            return;
+        }
+        base = isIntegral(value) ? (Number) value.longValue() : toDecimal(value);
+    }
+
+    @Override
+    public M increase(M value) {
+        if (detached) {
+            return current().increase(value);
+        }
+        add(value, false);
+        return getValue();
+    }
+
+    @Override
+    public M decrease(M value) {
+        if (detached) {
+            return current().decrease(value);
+        }
+        add(value, true);
+        return getValue();
+    }
+
+    @Override
+    public M evaluate(WindMetricsAggregationQuery query) {
+        return getValue();
+    }
+
+    String getDimensions() {
+        return dimensions;
+    }
+
+    Class<M> getValueType() {
+        return valueType;
+    }
+
+    Serializable getDimensionsId() {
+        return dimensionsId;
+    }
+
+    /**
+     * 计算自上次成功刷写以来的增量，增量为零时累计空闲次数
+     *
+     * @return 增量，没有增量时返回 {@code null}
+     */
+    PendingIncrement pendingIncrement() {
+        long longDelta = longs.sum() - flushedLongs;
+        BigDecimal decimalDelta = decimals.sum().subtract(flushedDecimals);
+        if (longDelta == 0 && decimalDelta.signum() == 0) {
+            idleFlushes++;
+            return null;
+        }
+        idleFlushes = 0;
+        return new PendingIncrement(this, longDelta, decimalDelta);
+    }
+
+    /**
+     * 增量写入成功后推进刷写位置
+     *
+     * @param increment {@link #pendingIncrement()} 返回的增量
+     */
+    void flushed(PendingIncrement increment) {
+        flushedLongs += increment.longDelta();
+        flushedDecimals = flushedDecimals.add(increment.decimalDelta());
+    }
+
+    int getIdleFlushes() {
+        return idleFlushes;
+    }
+
+    void detach() {
+        detached = true;
+    }
+
+    private void add(M value, boolean negate) {
+        if (isIntegral(value)) {
+            longs.add(negate ? -value.longValue() : value.longValue());
+        } else {
+            BigDecimal delta = toDecimal(value);
+            decimal = true;
+            decimals.add(negate ? delta.negate() : delta);
+        }
+        if (detached) {
+            // 检查淘汰标记之后、累加之前字段被淘汰，增量可能晚于淘汰后的最后一次刷写
+            owner.retire(this);
+        }
+    }
+
+    private SingleValueMetricsField<M> current() {
+        return owner.field(name, valueType, dimensions, dimensionsId);
+    }
+
+    private M convert(long value) {
+        if (valueType == Number.class || valueType == Long.class) {
+            return valueType.cast(value);
+        }
+        return convert(BigDecimal.valueOf(value));
+    }
+
+    private M convert(BigDecimal value) {
+        Number result;
+        if (valueType == Number.class || valueType == BigDecimal.class) {
+            result = value;
+        } else if (valueType == Long.class) {
+            result = value.longValue();
+        } else if (valueType == Integer.class) {
+            result = value.intValue();
+        } else if (valueType == Short.class) {
+            result = value.shortValue();
+        } else if (valueType == Byte.class) {
+            result = value.byteValue();
+        } else if (valueType == Double.class) {
+            result = value.doubleValue();
+        } else if (valueType == Float.class) {
+            result = value.floatValue();
+        } else {
+            result = value.toBigInteger();
+        }
+        return valueType.cast(result);
+    }
+
+    private static boolean isIntegral(Number value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte
+                || value instanceof AtomicLong || value instanceof AtomicInteger;
+    }
+
+    private static BigDecimal toDecimal(Number value) {
+        if (value instanceof BigDecimal result) {
+            return result;
+        }
+        if (value instanceof BigInteger result) {
+            return new BigDecimal(result);
+        }
+        if (isIntegral(value)) {
+            return BigDecimal.valueOf(value.longValue());
+        }
+        // 浮点数按最短的十进制表示转换，0.1 累加为 0.1 而不是二进制近似值
+        return new BigDecimal(value.toString());
+    }
+
+    record PendingIncrement(AdderSingleValueMetricsField<?> field, long longDelta, BigDecimal decimalDelta) {
+
+        Number value() {
+            if (decimalDelta.signum() == 0) {
+                return longDelta;
+            }
+            return BigDecimal.valueOf(longDelta).add(decimalDelta);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.wind.integration.metrics.fields;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 分段的 {@link BigDecimal} 累加器，按线程把增量 CAS 累加到不同的分段，读取时合并全部分段
+ * 与 {@link java.util.concurrent.atomic.DoubleAdder} 不同，累加和读取都是精确的十进制运算，金额类指标不会随刷写漂移
+ *
+ * @author wuxp
+ * @date 2026-08-05 09:30
+ **/
+final class DecimalAdder {
+
+    private static final int STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2);
+
+    private final AtomicReferenceArray<BigDecimal> cells = new AtomicReferenceArray<>(STRIPES);
+
+    DecimalAdder() {
+        for (int i = 0; i < STRIPES; i++) {
+            cells.set(i, BigDecimal.ZERO);
+        }
+    }
+
+    void add(BigDecimal value) {
+        int index = (int) Thread.currentThread().threadId() & (STRIPES - 1);
+        BigDecimal current;
+        do {
+            current = cells.get(index);
+        } while (!cells.compareAndSet(index, current, current.add(value)));
+    }
+
+    BigDecimal sum() {
+        BigDecimal result = BigDecimal.ZERO;
+        for (int i = 0; i < STRIPES; i++) {
+            result = result.add(cells.get(i));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,291 @@
+package com.wind.integration.metrics.pipeline;
+
+import com.wind.common.exception.BaseException;
+import com.wind.common.exception.DefaultExceptionCode;
+import com.wind.integration.metrics.WindMetricsStatisticsExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.Nullable;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 异步批量的指标统计执行器。
+ *
+ * <p>业务线程只把业务对象放入有界环形缓冲区；单个消费线程计算增量，并在内存中按
+ * {@code (name, dimensionsId)} 合并，每累计 {@code flushEvents} 个业务对象或每隔 {@code flushInterval}
+ * 把每个键的合并增量一次性交给 {@link WindMetricsIncrementWriter}，把逐事件的读改写变为按键的批量累加。</p>
+ *
+ * <p>缓冲区满时 {@link #execute} 最多等待 {@code offerTimeout}，仍无空间则抛出异常，由调用方决定降级或重试。
+ * 写入失败的增量合并回待刷写集合并在下一次刷写时重试；{@link #close()} 停止接收业务对象并唤醒消费线程，
+ * 排空缓冲区后执行最终刷写，最终刷写失败时抛出异常。放入缓冲区与关闭互斥，关闭之后不会再有业务对象被接受后丢弃。
+ * 单个业务对象计算失败只记录日志并丢弃该对象。</p>
+ *
+ * @author wuxp
+ * @date 2026-08-02 10:40
+ */
+@Slf4j
+public final class BufferedMetricsStatisticsExecutor implements WindMetricsStatisticsExecutor<Object>, AutoCloseable {
+
+    /**
+     * 关闭时放入缓冲区唤醒消费线程，不计入业务对象
+     */
+    private static final MetricsEvent STOP = new MetricsEvent(new Object(), Map.of());
+
+    private final List<WindMetricsIncrementEvaluator<?>> evaluators;
+
+    private final WindMetricsIncrementWriter writer;
+
+    private final BlockingQueue<MetricsEvent> buffer;
+
+    private final int flushEvents;
+
+    private final long flushIntervalNanos;
+
+    private final long offerTimeoutNanos;
+
+    private final Map<IncrementKey, IncrementSum> pending = new HashMap<>();
+
+    private final Thread consumer;
+
+    /**
+     * 放入缓冲区持有读锁，关闭持有写锁，保证关闭之后没有正在放入的业务对象
+     */
+    private final ReadWriteLock stateLock = new ReentrantReadWriteLock();
+
+    private volatile boolean running = true;
+
+    private volatile @Nullable RuntimeException closeFailure;
+
+    private int pendingEvents;
+
+    /**
+     * @param evaluators 增量计算器，按顺序匹配第一个支持业务对象类型的计算器
+     * @param writer 合并增量的持久化
+     * @param capacity 缓冲区容量
+     * @param flushEvents 触发刷写的业务对象数量
+     * @param flushInterval 最长刷写间隔
+     * @param offerTimeout 缓冲区满时的最长等待时间
+     */
+    public BufferedMetricsStatisticsExecutor(Collection<? extends WindMetricsIncrementEvaluator<?>> evaluators,
+                                             WindMetricsIncrementWriter writer,
+                                             int capacity,
+                                             int flushEvents,
+                                             Duration flushInterval,
+                                             Duration offerTimeout) {
+        if (capacity <= 0 || flushEvents <= 0) {
+            throw new IllegalArgumentException("capacity and flushEvents must be positive");
+        }
+        if (flushInterval.isNegative() || flushInterval.isZero() || offerTimeout.isNegative()) {
+            throw new IllegalArgumentException("flushInterval must be positive and offerTimeout must not be negative");
+        }
+        this.evaluators = List.copyOf(evaluators);
+        this.writer = Objects.requireNonNull(writer, "writer must not be null");
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.flushEvents = flushEvents;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.offerTimeoutNanos = offerTimeout.toNanos();
+        this.consumer = new Thread(this::consume, "wind-metrics-statistics");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    @Override
+    public void execute(Object businessObject, Map<String, Object> variables) {
+        Objects.requireNonNull(businessObject, "businessObject must not be null");
+        Map<String, Object> copy = variables.isEmpty() ? Map.of() : new HashMap<>(variables);
+        boolean accepted;
+        stateLock.readLock().lock();
+        try {
+            if (!running) {
+                throw BaseException.common("metrics statistics executor is closed");
+            }
+            accepted = buffer.offer(new MetricsEvent(businessObject, copy), offerTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw BaseException.common("interrupted while waiting for metrics statistics buffer");
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        if (!accepted) {
+            throw BaseException.common("metrics statistics buffer is full, capacity = " + (buffer.size()
+                    + buffer.remainingCapacity()));
+        }
+    }
+
+    @Override
+    public boolean supports(Class<?> businessObjectType) {
+        for (WindMetricsIncrementEvaluator<?> evaluator : evaluators) {
+            if (evaluator.supports(businessObjectType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 获取缓冲区中尚未消费的业务对象数量。
+     *
+     * @return 业务对象数量
+     */
+    public int bufferedEvents() {
+        return buffer.size();
+    }
+
+    /**
+     * 停止接收业务对象，排空缓冲区并执行最终刷写。
+     *
+     * @throws BaseException 最终刷写失败，仍有增量未写出时抛出
+     */
+    @Override
+    public void close() {
+        stateLock.writeLock().lock();
+        try {
+            running = false;
+            // 缓冲区满时消费线程不会阻塞在 poll 上，放入失败也会在排空后退出
+            buffer.offer(STOP);
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+        try {
+            consumer.join();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw BaseException.common("interrupted while waiting for metrics statistics final flush");
+        }
+        RuntimeException failure = closeFailure;
+        if (failure != null) {
+            throw new BaseException(DefaultExceptionCode.COMMON_ERROR,
+                    "metrics statistics closed with " + pending.size() + " unwritten increments", failure);
+        }
+    }
+
+    private void consume() {
+        List<MetricsEvent> drained = new ArrayList<>();
+        long nextFlush = System.nanoTime() + flushIntervalNanos;
+        while (running || !buffer.isEmpty()) {
+            try {
+                MetricsEvent event = buffer.poll(Math.max(0L, nextFlush - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (event != null) {
+                    accumulate(event);
+                    buffer.drainTo(drained, Math.max(0, flushEvents - pendingEvents));
+                    drained.forEach(this::accumulate);
+                    drained.clear();
+                }
+            } catch (InterruptedException exception) {
+                log.warn("metrics statistics consumer interrupted, draining buffer");
+                // 与关闭一致在写锁内停止接收，持有读锁的放入完成后循环才会判断缓冲区是否为空
+                stateLock.writeLock().lock();
+                try {
+                    running = false;
+                } finally {
+                    stateLock.writeLock().unlock();
+                }
+            }
+            if (pendingEvents >= flushEvents || System.nanoTime() - nextFlush >= 0) {
+                flush();
+                nextFlush = System.nanoTime() + flushIntervalNanos;
+            }
+        }
+        closeFailure = flush();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void accumulate(MetricsEvent event) {
+        if (event == STOP) {
+            return;
+        }
+        pendingEvents++;
+        Object businessObject = event.businessObject();
+        for (WindMetricsIncrementEvaluator evaluator : evaluators) {
+            if (evaluator.supports(businessObject.getClass())) {
+                try {
+                    Collection<WindMetricsIncrement> increments = evaluator.evaluate(businessObject, event.variables());
+                    increments.forEach(this::merge);
+                } catch (RuntimeException exception) {
+                    log.error("evaluate metrics increment failed, businessObject type = {}",
+                            businessObject.getClass().getName(), exception);
+                }
+                return;
+            }
+        }
+        log.warn("no metrics increment evaluator supports {}", businessObject.getClass().getName());
+    }
+
+    private void merge(WindMetricsIncrement increment) {
+        pending.computeIfAbsent(new IncrementKey(increment.name(), increment.dimensionsId()), key -> new IncrementSum())
+                .add(increment.value());
+    }
+
+    /**
+     * @return 写入失败时返回异常，失败的增量已合并回待刷写集合
+     */
+    private @Nullable RuntimeException flush() {
+        pendingEvents = 0;
+        if (pending.isEmpty()) {
+            return null;
+        }
+        List<WindMetricsIncrement> increments = new ArrayList<>(pending.size());
+        pending.forEach((key, sum) -> increments.add(new WindMetricsIncrement(key.name(), key.dimensionsId(),
+                sum.value())));
+        pending.clear();
+        try {
+            writer.write(increments);
+        } catch (RuntimeException exception) {
+            log.error("write metrics increments failed, retry on next flush, size = {}", increments.size(), exception);
+            increments.forEach(this::merge);
+            return exception;
+        }
+        return null;
+    }
+
+    private record MetricsEvent(Object businessObject, Map<String, Object> variables) {
+    }
+
+    private record IncrementKey(String name, Serializable dimensionsId) {
+    }
+
+    /**
+     * 整数增量按 long 累加，出现十进制增量或 long 溢出后转为 BigDecimal 累加。
+     */
+    private static final class IncrementSum {
+
+        private long integral;
+
+        private @Nullable BigDecimal decimal;
+
+        void add(Number value) {
+            if (decimal == null && isIntegral(value)) {
+                long next = integral + value.longValue();
+                if (((integral ^ next) & (value.longValue() ^ next)) >= 0) {
+                    integral = next;
+                    return;
+                }
+            }
+            if (decimal == null) {
+                decimal = BigDecimal.valueOf(integral);
+            }
+            decimal = decimal.add(value instanceof BigDecimal d ? d : new BigDecimal(value.toString()));
+        }
+
+        Number value() {
+            return decimal == null ? (Number) integral : decimal;
+        }
+
+        private static boolean isIntegral(Number value) {
+            return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.wind.integration.metrics.pipeline;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * 某个业务维度上单个指标的增量。
+ *
+ * @param name 指标名称，全局唯一
+ * @param dimensionsId 业务维度标识（如用户 ID）
+ * @param value 增量值，整数或十进制数
+ * @author wuxp
+ * @date 2026-08-02 10:40
+ */
+public record WindMetricsIncrement(String name, Serializable dimensionsId, Number value) {
+
+    public WindMetricsIncrement {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("name must not be blank");
+        }
+        Objects.requireNonNull(dimensionsId, "dimensionsId must not be null");
+        Objects.requireNonNull(value, "value must not be null");
+    }
+}
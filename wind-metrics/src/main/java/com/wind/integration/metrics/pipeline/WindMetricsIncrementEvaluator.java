@@ -0,0 +1,76 @@
+package com.wind.integration.metrics.pipeline;
+
+import com.wind.integration.metrics.WindMetricsCalculateExpression;
+import com.wind.integration.metrics.WindMetricsValue;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * 将业务对象转换为指标增量，在管道的消费线程上执行，不占用业务线程。
+ *
+ * @param <E> 业务对象类型
+ * @author wuxp
+ * @date 2026-08-02 10:40
+ */
+public interface WindMetricsIncrementEvaluator<E> {
+
+    /**
+     * 计算业务对象产生的指标增量。
+     *
+     * @param businessObject 业务对象
+     * @param variables 上下文变量
+     * @return 指标增量，没有增量时返回空集合
+     */
+    Collection<WindMetricsIncrement> evaluate(E businessObject, Map<String, Object> variables);
+
+    /**
+     * 判断是否支持
+     *
+     * @param businessObjectType 业务对象类型
+     * @return true:支持
+     */
+    boolean supports(Class<?> businessObjectType);
+
+    /**
+     * 使用已有的指标计算表达式创建增量计算器，每个表达式的结果作为同一业务维度上的一个增量。
+     *
+     * @param businessObjectType 业务对象类型
+     * @param dimensionsId 从业务对象获取业务维度标识
+     * @param expressions 指标计算表达式
+     * @param <E> 业务对象类型
+     * @return 增量计算器
+     */
+    static <E> WindMetricsIncrementEvaluator<E> of(Class<E> businessObjectType,
+                                                  Function<? super E, ? extends Serializable> dimensionsId,
+                                                  Collection<? extends WindMetricsCalculateExpression<? extends Number>> expressions) {
+        Objects.requireNonNull(businessObjectType, "businessObjectType must not be null");
+        Objects.requireNonNull(dimensionsId, "dimensionsId must not be null");
+        List<WindMetricsCalculateExpression<? extends Number>> copy = List.copyOf(expressions);
+        return new WindMetricsIncrementEvaluator<>() {
+
+            @Override
+            public Collection<WindMetricsIncrement> evaluate(E businessObject, Map<String, Object> variables) {
+                Serializable id = dimensionsId.apply(businessObject);
+                List<WindMetricsIncrement> result = new ArrayList<>(copy.size());
+                for (WindMetricsCalculateExpression<? extends Number> expression : copy) {
+                    WindMetricsValue<? extends Number> value = expression.eval(businessObject, variables);
+                    if (value != null && value.getValue() != null) {
+                        result.add(new WindMetricsIncrement(value.getName(), id, value.getValue()));
+                    }
+                }
+                return result;
+            }
+
+            @Override
+            public boolean supports(Class<?> type) {
+                return businessObjectType.isAssignableFrom(type);
+            }
+        };
+    }
+}
@@ -0,0 +1,23 @@
+package com.wind.integration.metrics.pipeline;
+
+import java.util.List;
+
+/**
+ * 合并后增量的持久化 SPI，例如累加到指标宽表。
+ *
+ * <p>同一批次中每个 {@code (name, dimensionsId)} 只出现一次。写入失败时管道保留该批增量并在下一次刷写时重试，
+ * 因此增量至少写入一次；实现应在单个事务或单条语句中原子地累加整批增量，避免部分成功后重试造成重复累加。</p>
+ *
+ * @author wuxp
+ * @date 2026-08-02 10:40
+ */
+@FunctionalInterface
+public interface WindMetricsIncrementWriter {
+
+    /**
+     * 累加一批合并后的增量。
+     *
+     * @param increments 合并后的增量，不为空
+     */
+    void write(List<WindMetricsIncrement> increments);
+}
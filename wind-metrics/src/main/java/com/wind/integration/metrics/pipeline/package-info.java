@@ -0,0 +1,7 @@
+/**
+ * 指标增量统计的异步批量管道：有界缓冲、按键合并和定时定量刷写。
+ */
+@NullMarked
+package com.wind.integration.metrics.pipeline;
+
+import org.jspecify.annotations.NullMarked;
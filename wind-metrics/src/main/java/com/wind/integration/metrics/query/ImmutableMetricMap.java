@@ -0,0 +1,134 @@
+package com.wind.integration.metrics.query;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * 保持插入顺序的不可变映射，查询契约的受信构造路径。
+ *
+ * <p>{@link MetricQuery}、{@link MetricBatchQuery} 和 {@link MetricResult} 收到本类型的映射时只做校验，
+ * 不再复制；访问器在映射不含可变值（{@link Date} 及其子类）时直接返回本映射。
+ * 其他映射仍按原有契约防御性复制，复制结果也是本类型，因此从查询或结果中取出的映射传给下一个查询或结果时不会再次复制。</p>
+ *
+ * @author wuxp
+ * @date 2026-08-10 09:30
+ */
+public final class ImmutableMetricMap<V> extends AbstractMap<String, V> {
+
+    private static final ImmutableMetricMap<?> EMPTY = new ImmutableMetricMap<>(Map.of(), false);
+
+    private final Map<String, V> values;
+
+    private final boolean mutableValues;
+
+    private ImmutableMetricMap(Map<String, V> values, boolean mutableValues) {
+        this.values = Collections.unmodifiableMap(values);
+        this.mutableValues = mutableValues;
+    }
+
+    /**
+     * 获取空映射。
+     *
+     * @return 空映射
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> ImmutableMetricMap<V> of() {
+        return (ImmutableMetricMap<V>) EMPTY;
+    }
+
+    /**
+     * 创建构建器。
+     *
+     * @param expectedSize 预计条目数
+     * @return 构建器
+     */
+    public static <V> Builder<V> builder(int expectedSize) {
+        return new Builder<>(expectedSize);
+    }
+
+    @Override
+    public @Nullable V get(Object key) {
+        return values.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return values.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return values.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super V> action) {
+        values.forEach(action);
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        return values.entrySet();
+    }
+
+    /**
+     * @return 是否包含调用方可以修改的值，此时访问器仍须复制
+     */
+    boolean hasMutableValues() {
+        return mutableValues;
+    }
+
+    /**
+     * {@link ImmutableMetricMap} 构建器，只能构建一次。
+     */
+    public static final class Builder<V> {
+
+        private @Nullable Map<String, V> values;
+
+        private boolean mutableValues;
+
+        private Builder(int expectedSize) {
+            this.values = LinkedHashMap.newLinkedHashMap(expectedSize);
+        }
+
+        /**
+         * 添加条目，键重复时覆盖。
+         *
+         * @param key 键
+         * @param value 值
+         * @return 当前构建器
+         */
+        public Builder<V> put(String key, V value) {
+            Objects.requireNonNull(values, "ImmutableMetricMap builder has already been built");
+            Objects.requireNonNull(key, "key must not be null");
+            Objects.requireNonNull(value, "value must not be null");
+            values.put(key, value);
+            mutableValues |= value instanceof Date;
+            return this;
+        }
+
+        /**
+         * 构建不可变映射，之后构建器不可再使用。
+         *
+         * @return 不可变映射
+         */
+        public ImmutableMetricMap<V> build() {
+            Map<String, V> result = Objects.requireNonNull(values, "ImmutableMetricMap builder has already been built");
+            values = null;
+            return result.isEmpty() ? of() : new ImmutableMetricMap<>(result, mutableValues);
+        }
+    }
+}
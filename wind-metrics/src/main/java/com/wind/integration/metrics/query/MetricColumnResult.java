@@ -0,0 +1,90 @@
+package com.wind.integration.metrics.query;
+
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import com.wind.integration.metrics.enums.MetricExecutionMode;
+import com.wind.integration.metrics.enums.MetricValueShape;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.wind.integration.metrics.query.MetricQueryValueSupport.error;
+
+/**
+ * 多主体指标查询的列式结果。
+ *
+ * <p>每个值字段一列，{@code SCALAR} 只有名为 {@code value} 的一列，{@code FIELD_SET} 按定义字段顺序排列；
+ * 各列下标与 {@code subjectIds} 一致。窗口内没有事实的主体与单主体查询一样得到空聚合结果。</p>
+ *
+ * @param metricCode 指标编码
+ * @param definitionRevision 实际生效的指标定义修订号
+ * @param executionMode 本次查询实际使用的数据来源模式
+ * @param valueShape 指标值结构
+ * @param subjectIds 主体标识，顺序与查询一致
+ * @param columns 值字段名到结果列
+ * @param startTime 查询开始时间，包含
+ * @param endTime 查询结束时间，不包含
+ * @param calculatedTime 本次结果的计算完成时间
+ * @param timeZone 时间字段解释所使用的时区
+ *
+ * @author wuxp
+ * @date 2026-08-01 10:20
+ */
+public record MetricColumnResult(String metricCode,
+                                 Integer definitionRevision,
+                                 MetricExecutionMode executionMode,
+                                 MetricValueShape valueShape,
+                                 List<String> subjectIds,
+                                 Map<String, MetricValueColumn> columns,
+                                 LocalDateTime startTime,
+                                 LocalDateTime endTime,
+                                 LocalDateTime calculatedTime,
+                                 ZoneId timeZone) {
+
+    public MetricColumnResult {
+        if (metricCode == null || metricCode.isBlank()) {
+            throw error(MetricErrorCode.RESULT_INVALID, "/metricCode", "metricCode must not be blank");
+        }
+        if (definitionRevision == null || definitionRevision <= 0) {
+            throw error(MetricErrorCode.RESULT_INVALID, "/definitionRevision", "definitionRevision must be positive");
+        }
+        if (executionMode == null || valueShape == null || calculatedTime == null || timeZone == null) {
+            throw error(MetricErrorCode.RESULT_INVALID, "", "Result metadata must not be null");
+        }
+        MetricQueryValueSupport.validateWindow(startTime, endTime, MetricErrorCode.RESULT_INVALID);
+        if (subjectIds == null || columns == null || columns.isEmpty()) {
+            throw error(MetricErrorCode.RESULT_INVALID, "/columns", "subjectIds and columns must not be empty");
+        }
+        subjectIds = List.copyOf(subjectIds);
+        Map<String, MetricValueColumn> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, MetricValueColumn> entry : columns.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null
+                    || entry.getValue().size() != subjectIds.size()) {
+                throw error(MetricErrorCode.RESULT_INVALID, "/columns", "Column size must match subjectIds");
+            }
+            copy.put(entry.getKey(), entry.getValue());
+        }
+        if (valueShape == MetricValueShape.SCALAR && (copy.size() != 1 || !copy.containsKey("value"))) {
+            throw error(MetricErrorCode.RESULT_INVALID, "/columns", "SCALAR requires a single value column");
+        }
+        columns = Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * 获取值字段的结果列。
+     *
+     * @param field 值字段名，单值指标为 {@code value}
+     * @return 结果列
+     * @throws IllegalArgumentException 字段不存在时抛出
+     */
+    public MetricValueColumn column(String field) {
+        MetricValueColumn column = columns.get(field);
+        if (column == null) {
+            throw new IllegalArgumentException("Unknown metric field: " + field);
+        }
+        return column;
+    }
+}
@@ -10,15 +10,15 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.ZonedDateTime;
-import java.util.Collections;
 import java.util.Date;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.UUID;
 
 /**
  * 指标查询契约共享的值校验与防御性复制工具。
  *
+ * <p>{@link ImmutableMetricMap} 类型的输入只校验不复制，复制结果也使用该类型。</p>
+ *
  * @author wuxp
  * @date 2026-07-21 17:51
  */
@@ -31,26 +31,25 @@ final class MetricQueryValueSupport {
         if (source == null) {
             throw error(MetricErrorCode.QUERY_INVALID, "/dimensionValues", "dimensionValues must not be null");
         }
-        Map<String, Object> result = new LinkedHashMap<>();
+        if (source instanceof ImmutableMetricMap<Object> trusted && !trusted.hasMutableValues()) {
+            trusted.forEach(MetricQueryValueSupport::validateDimension);
+            return trusted;
+        }
+        ImmutableMetricMap.Builder<Object> result = ImmutableMetricMap.builder(source.size());
         source.forEach((key, value) -> {
-            if (key == null || key.isBlank()) {
-                throw error(MetricErrorCode.QUERY_INVALID, "/dimensionValues", "Dimension name must not be blank");
-            }
-            if (!isSupportedDimensionValue(value)) {
-                throw error(
-                        MetricErrorCode.QUERY_INVALID,
-                        "/dimensionValues/" + escape(key),
-                        "Unsupported dimension value");
-            }
+            validateDimension(key, value);
             result.put(key, copyDimensionValue(value));
         });
-        return Collections.unmodifiableMap(result);
+        return result.build();
     }
 
     static Map<String, Object> copyDimensions(Map<String, Object> source) {
-        Map<String, Object> result = new LinkedHashMap<>();
+        if (source instanceof ImmutableMetricMap<Object> trusted && !trusted.hasMutableValues()) {
+            return trusted;
+        }
+        ImmutableMetricMap.Builder<Object> result = ImmutableMetricMap.builder(source.size());
         source.forEach((key, value) -> result.put(key, copyDimensionValue(value)));
-        return Collections.unmodifiableMap(result);
+        return result.build();
     }
 
     static Map<String, Object> immutableParameters(Map<String, Object> source) {
@@ -60,18 +59,16 @@ final class MetricQueryValueSupport {
                     "/parameterValues",
                     "parameterValues must not be null");
         }
-        Map<String, Object> result = new LinkedHashMap<>();
+        if (source instanceof ImmutableMetricMap<Object> trusted) {
+            trusted.forEach(MetricQueryValueSupport::validateParameter);
+            return trusted;
+        }
+        ImmutableMetricMap.Builder<Object> result = ImmutableMetricMap.builder(source.size());
         source.forEach((key, value) -> {
-            String path = key == null || key.isBlank() ? "/parameterValues" : "/parameterValues/" + escape(key);
-            if (key == null || key.isBlank() || !(value instanceof Integer)) {
-                throw error(
-                        MetricErrorCode.METRIC_PARAMETER_TYPE_MISMATCH,
-                        path,
-                        "Query parameter must use a non-blank name and integer value");
-            }
+            validateParameter(key, value);
             result.put(key, value);
         });
-        return Collections.unmodifiableMap(result);
+        return result.build();
     }
 
     static void validateWindow(LocalDateTime startTime, LocalDateTime endTime, MetricErrorCode code) {
@@ -104,6 +101,28 @@ final class MetricQueryValueSupport {
         return new MetricValidationException(code, path, message);
     }
 
+    private static void validateDimension(String key, Object value) {
+        if (key == null || key.isBlank()) {
+            throw error(MetricErrorCode.QUERY_INVALID, "/dimensionValues", "Dimension name must not be blank");
+        }
+        if (!isSupportedDimensionValue(value)) {
+            throw error(
+                    MetricErrorCode.QUERY_INVALID,
+                    "/dimensionValues/" + escape(key),
+                    "Unsupported dimension value");
+        }
+    }
+
+    private static void validateParameter(String key, Object value) {
+        if (key == null || key.isBlank() || !(value instanceof Integer)) {
+            String path = key == null || key.isBlank() ? "/parameterValues" : "/parameterValues/" + escape(key);
+            throw error(
+                    MetricErrorCode.METRIC_PARAMETER_TYPE_MISMATCH,
+                    path,
+                    "Query parameter must use a non-blank name and integer value");
+        }
+    }
+
     private static boolean isSupportedDimensionValue(Object value) {
         return value instanceof String
                 || value instanceof Character
@@ -10,8 +10,6 @@ import org.jspecify.annotations.Nullable;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
-import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -120,14 +118,22 @@ public record MetricResult(String metricCode,
         if (source == null) {
             throw error(MetricErrorCode.RESULT_INVALID, "/fields", "fields must not be null");
         }
-        Map<String, MetricFieldValue> result = new LinkedHashMap<>();
+        if (source instanceof ImmutableMetricMap<MetricFieldValue> trusted) {
+            trusted.forEach(MetricResult::validateField);
+            return trusted;
+        }
+        ImmutableMetricMap.Builder<MetricFieldValue> result = ImmutableMetricMap.builder(source.size());
         source.forEach((key, fieldValue) -> {
-            if (key == null || key.isBlank() || fieldValue == null) {
-                throw error(MetricErrorCode.RESULT_INVALID, "/fields", "Field names and values must be present");
-            }
+            validateField(key, fieldValue);
             result.put(key, fieldValue);
         });
-        return Collections.unmodifiableMap(result);
+        return result.build();
+    }
+
+    private static void validateField(String key, MetricFieldValue fieldValue) {
+        if (key == null || key.isBlank() || fieldValue == null) {
+            throw error(MetricErrorCode.RESULT_INVALID, "/fields", "Field names and values must be present");
+        }
     }
 
     private static void validateValueBranch(MetricValueShape valueShape,
@@ -0,0 +1,60 @@
+package com.wind.integration.metrics.query;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import static com.wind.integration.metrics.enums.MetricErrorCode.QUERY_INVALID;
+import static com.wind.integration.metrics.query.MetricQueryValueSupport.error;
+
+/**
+ * 对多个主体、同一半开时间窗口和维度条件执行的单指标查询。
+ *
+ * <p>一次查询最多 {@value #MAX_SUBJECTS} 个主体，执行器一次扫描或按主体分组的聚合 SQL 计算全部主体，
+ * 结果以 {@link MetricColumnResult} 列式返回。多主体查询不携带参数。</p>
+ *
+ * @param metricCode 指标编码
+ * @param subjectIds 非空且不重复的主体标识列表，结果列按此顺序排列
+ * @param startTime 查询开始时间，包含
+ * @param endTime 查询结束时间，不包含
+ * @param dimensionValues DSL 已声明维度的查询值
+ *
+ * @author wuxp
+ * @date 2026-08-01 10:20
+ */
+public record MetricSubjectsQuery(String metricCode,
+                                  List<String> subjectIds,
+                                  LocalDateTime startTime,
+                                  LocalDateTime endTime,
+                                  Map<String, Object> dimensionValues) {
+
+    /** 单次查询的主体数量上限。 */
+    public static final int MAX_SUBJECTS = 50_000;
+
+    public MetricSubjectsQuery {
+        if (metricCode == null || metricCode.isBlank()) {
+            throw error(QUERY_INVALID, "/metricCode", "metricCode must not be blank");
+        }
+        if (subjectIds == null || subjectIds.isEmpty() || subjectIds.size() > MAX_SUBJECTS) {
+            throw error(QUERY_INVALID, "/subjectIds", "subjectIds size must be between 1 and " + MAX_SUBJECTS);
+        }
+        if (subjectIds.stream().anyMatch(subjectId -> subjectId == null || subjectId.isBlank())
+                || subjectIds.size() != new LinkedHashSet<>(subjectIds).size()) {
+            throw error(QUERY_INVALID, "/subjectIds", "subjectIds must be non-blank and unique");
+        }
+        subjectIds = List.copyOf(subjectIds);
+        MetricQueryValueSupport.validateWindow(startTime, endTime, QUERY_INVALID);
+        dimensionValues = MetricQueryValueSupport.immutableDimensions(dimensionValues);
+    }
+
+    /**
+     * 返回防御性复制后的只读维度条件。
+     *
+     * @return 不允许修改的维度条件
+     */
+    @Override
+    public Map<String, Object> dimensionValues() {
+        return MetricQueryValueSupport.copyDimensions(dimensionValues);
+    }
+}
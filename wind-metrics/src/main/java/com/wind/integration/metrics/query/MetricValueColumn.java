@@ -0,0 +1,134 @@
+package com.wind.integration.metrics.query;
+
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import com.wind.integration.metrics.enums.MetricValueType;
+import org.jspecify.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.util.BitSet;
+
+import static com.wind.integration.metrics.query.MetricQueryValueSupport.error;
+
+/**
+ * 多主体查询结果中单个值字段的紧凑列。
+ *
+ * <p>{@code INTEGER} 和 {@code LONG} 以 {@code long[]} 原始值保存，{@code DECIMAL} 以 {@link BigDecimal}
+ * 数组保存，空值由位图记录，避免为每个主体创建结果对象。下标与
+ * {@link MetricColumnResult#subjectIds()} 一致。列不可变且线程安全。</p>
+ *
+ * @author wuxp
+ * @date 2026-08-01 10:20
+ */
+public final class MetricValueColumn {
+
+    private final MetricValueType valueType;
+
+    private final int size;
+
+    private final long @Nullable [] longs;
+
+    private final @Nullable BigDecimal @Nullable [] decimals;
+
+    private final BitSet present;
+
+    private MetricValueColumn(MetricValueType valueType,
+                              int size,
+                              long @Nullable [] longs,
+                              @Nullable BigDecimal @Nullable [] decimals,
+                              BitSet present) {
+        this.valueType = valueType;
+        this.size = size;
+        this.longs = longs;
+        this.decimals = decimals;
+        this.present = present;
+    }
+
+    /**
+     * 由已按值类型转换的结果创建列。
+     *
+     * @param valueType 字段数值类型
+     * @param values 各主体的字段值，类型须与 {@code valueType} 一致
+     * @return 紧凑列
+     */
+    public static MetricValueColumn of(MetricValueType valueType, @Nullable Number[] values) {
+        if (valueType == null) {
+            throw error(MetricErrorCode.RESULT_INVALID, "/valueType", "valueType must not be null");
+        }
+        BitSet present = new BitSet(values.length);
+        if (valueType == MetricValueType.DECIMAL) {
+            BigDecimal[] decimals = new BigDecimal[values.length];
+            for (int i = 0; i < values.length; i++) {
+                MetricQueryValueSupport.validateMetricValue(valueType, values[i], "/values/" + i);
+                decimals[i] = (BigDecimal) values[i];
+                present.set(i, values[i] != null);
+            }
+            return new MetricValueColumn(valueType, values.length, null, decimals, present);
+        }
+        long[] longs = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            MetricQueryValueSupport.validateMetricValue(valueType, values[i], "/values/" + i);
+            if (values[i] != null) {
+                longs[i] = values[i].longValue();
+                present.set(i);
+            }
+        }
+        return new MetricValueColumn(valueType, values.length, longs, null, present);
+    }
+
+    public MetricValueType valueType() {
+        return valueType;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 判断下标处的值是否为空。
+     *
+     * @param index 主体下标
+     * @return SQL 正常空结果返回 {@code true}
+     */
+    public boolean isNull(int index) {
+        checkIndex(index);
+        return !present.get(index);
+    }
+
+    /**
+     * 读取整数列的原始值。
+     *
+     * @param index 主体下标
+     * @return 整数值
+     * @throws IllegalStateException 列为十进制或值为空时抛出
+     */
+    public long longValue(int index) {
+        if (longs == null || isNull(index)) {
+            throw new IllegalStateException("Column value is not a present integer, index = " + index);
+        }
+        return longs[index];
+    }
+
+    /**
+     * 读取下标处的值，整数列按 {@code valueType} 装箱。
+     *
+     * @param index 主体下标
+     * @return 字段值；空结果返回 {@code null}
+     */
+    @Nullable
+    public Number value(int index) {
+        if (isNull(index)) {
+            return null;
+        }
+        if (decimals != null) {
+            return decimals[index];
+        }
+        long value = longValue(index);
+        return valueType == MetricValueType.INTEGER ? (Number) Math.toIntExact(value) : (Number) value;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index = " + index + ", size = " + size);
+        }
+    }
+}
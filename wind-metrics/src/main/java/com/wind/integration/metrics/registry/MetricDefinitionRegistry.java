@@ -0,0 +1,207 @@
+package com.wind.integration.metrics.registry;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.dsl.MetricDefinitionDslCodec;
+import com.wind.integration.metrics.dsl.MetricMaterializationPlanDslCodec;
+import com.wind.integration.metrics.dsl.definition.MetricDefinitionDsl;
+import com.wind.integration.metrics.engine.CompiledMetricDefinition;
+import com.wind.integration.metrics.engine.CompiledMetricPlan;
+import com.wind.integration.metrics.engine.MetricDefinitionCompiler;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 指标定义和物化计划注册表，缓存解析、校验和编译结果，热路径不再重复解析 DSL。
+ *
+ * <p>定义以 {@code (metricCode, revision, SHA-256(source))} 为键，计划以
+ * {@code (planCode, SHA-256(source), metricCode, revision)} 为键。定义和计划按 codec 的
+ * {@code canonicalize} 输出持久化时，内容摘要即规范 JSON 摘要，同一内容只解析一次；
+ * 内容被篡改或格式不同的来源得到不同的键，不会命中旧结果。</p>
+ *
+ * <p>注册表记录每个指标见过的最高修订号：加载更高修订号时立即淘汰该指标旧修订号的定义和计划，
+ * 再请求旧修订号时照常解析编译但不写入缓存；写入缓存后再次检查最高修订号，
+ * 与修订号推进并发的滞后读取也不会把过期条目重新放回。
+ * 两类缓存都有容量上限并记录命中统计。注册表线程安全。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-30 14:10
+ */
+public final class MetricDefinitionRegistry {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final MetricDefinitionDslCodec codec = new MetricDefinitionDslCodec();
+
+    private final MetricMaterializationPlanDslCodec planCodec = new MetricMaterializationPlanDslCodec();
+
+    private final MetricDefinitionCompiler compiler;
+
+    private final Cache<DefinitionKey, CompiledMetricDefinition> definitions;
+
+    private final Cache<PlanKey, CompiledMetricPlan> plans;
+
+    private final Map<String, Integer> latestRevisions = new ConcurrentHashMap<>();
+
+    public MetricDefinitionRegistry(MetricDefinitionCompiler compiler, long maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+        this.compiler = Objects.requireNonNull(compiler, "compiler must not be null");
+        this.definitions = Caffeine.newBuilder().maximumSize(maximumSize).recordStats().build();
+        this.plans = Caffeine.newBuilder().maximumSize(maximumSize).recordStats().build();
+    }
+
+    public MetricDefinitionRegistry(long maximumSize) {
+        this(new MetricDefinitionCompiler(), maximumSize);
+    }
+
+    /**
+     * 获取编译后的指标定义，相同编码、修订号和内容只解析编译一次。
+     *
+     * @param metricCode 指标编码，须与定义内容中的编码一致
+     * @param revision 指标定义修订号
+     * @param source 定义 JSON
+     * @return 编译后的指标定义
+     * @throws MetricValidationException 定义无效、编码不一致或包含引擎不支持的结构时抛出
+     */
+    public CompiledMetricDefinition getDefinition(String metricCode, int revision, String source) {
+        Objects.requireNonNull(metricCode, "metricCode must not be null");
+        DefinitionKey key = new DefinitionKey(metricCode, revision, digest(source));
+        if (!advanceRevision(metricCode, revision)) {
+            CompiledMetricDefinition cached = definitions.getIfPresent(key);
+            return cached == null ? compile(key, source) : cached;
+        }
+        CompiledMetricDefinition result = definitions.get(key, ignore -> compile(key, source));
+        discardIfStale(definitions, key, metricCode, revision, result);
+        return result;
+    }
+
+    /**
+     * 获取与指标定义绑定的编译后物化计划。
+     *
+     * @param planCode 物化计划编码
+     * @param source 物化计划 JSON
+     * @param definition 编译后的指标定义
+     * @return 编译后的物化计划
+     * @throws MetricValidationException 计划无效或与定义不兼容时抛出
+     */
+    public CompiledMetricPlan getPlan(String planCode, String source, CompiledMetricDefinition definition) {
+        Objects.requireNonNull(planCode, "planCode must not be null");
+        PlanKey key = new PlanKey(planCode, digest(source), definition.code(), definition.revision());
+        if (!advanceRevision(definition.code(), definition.revision())) {
+            CompiledMetricPlan cached = plans.getIfPresent(key);
+            return cached == null ? compilePlan(key, source, definition) : cached;
+        }
+        CompiledMetricPlan result = plans.get(key, ignore -> compilePlan(key, source, definition));
+        discardIfStale(plans, key, definition.code(), definition.revision(), result);
+        return result;
+    }
+
+    /**
+     * 淘汰指标全部修订号的定义和计划，并清除已记录的最高修订号。
+     *
+     * @param metricCode 指标编码
+     */
+    public void invalidate(String metricCode) {
+        latestRevisions.remove(metricCode);
+        evict(metricCode, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 获取定义缓存的命中统计。
+     *
+     * @return 统计快照
+     */
+    public MetricRegistryCacheStats definitionStats() {
+        return stats(definitions);
+    }
+
+    /**
+     * 获取物化计划缓存的命中统计。
+     *
+     * @return 统计快照
+     */
+    public MetricRegistryCacheStats planStats() {
+        return stats(plans);
+    }
+
+    /**
+     * 记录修订号并淘汰更旧修订号的条目。
+     *
+     * @return 修订号不低于已知最高修订号时返回 {@code true}，结果可以写入缓存
+     */
+    private boolean advanceRevision(String metricCode, int revision) {
+        Integer latest = latestRevisions.get(metricCode);
+        if (latest != null && latest >= revision) {
+            return latest == revision;
+        }
+        if (latestRevisions.merge(metricCode, revision, Math::max) != revision) {
+            return false;
+        }
+        evict(metricCode, revision);
+        return true;
+    }
+
+    /**
+     * 写入缓存后重新检查修订号。写入期间推进到更高修订号或指标被淘汰时，
+     * 对应的淘汰可能早于本次写入完成，删除刚写入的条目；之后才推进的修订号由其自身的淘汰清除。
+     */
+    private <K, V> void discardIfStale(Cache<K, V> cache, K key, String metricCode, int revision, V value) {
+        Integer latest = latestRevisions.get(metricCode);
+        if (latest == null || latest != revision) {
+            cache.asMap().remove(key, value);
+        }
+    }
+
+    /**
+     * 淘汰指标低于给定修订号的定义和计划。
+     */
+    private void evict(String metricCode, int revision) {
+        definitions.asMap().keySet().removeIf(key -> key.metricCode().equals(metricCode) && key.revision() < revision);
+        plans.asMap().keySet().removeIf(key -> key.metricCode().equals(metricCode) && key.revision() < revision);
+    }
+
+    private CompiledMetricDefinition compile(DefinitionKey key, String source) {
+        MetricDefinitionDsl definition = codec.parse(source);
+        if (!definition.metric().code().equals(key.metricCode())) {
+            throw new MetricValidationException(
+                    MetricErrorCode.DSL_VALUE_INVALID, "/metric/code", "Definition code does not match metricCode");
+        }
+        return compiler.compile(definition, key.revision());
+    }
+
+    private CompiledMetricPlan compilePlan(PlanKey key, String source, CompiledMetricDefinition definition) {
+        return compiler.compilePlan(key.planCode(), planCodec.parse(source), definition);
+    }
+
+    private static MetricRegistryCacheStats stats(Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        return new MetricRegistryCacheStats(
+                stats.hitCount(), stats.missCount(), stats.evictionCount(), cache.estimatedSize());
+    }
+
+    private static String digest(String source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HEX.formatHex(digest.digest(source.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is not available", exception);
+        }
+    }
+
+    private record DefinitionKey(String metricCode, int revision, String digest) {
+    }
+
+    private record PlanKey(String planCode, String digest, String metricCode, int revision) {
+    }
+}
@@ -0,0 +1,25 @@
+package com.wind.integration.metrics.registry;
+
+/**
+ * 注册表缓存的命中统计快照。
+ *
+ * @param hitCount 命中次数
+ * @param missCount 未命中次数，即实际解析和编译的次数
+ * @param evictionCount 因容量上限被淘汰的条目数
+ * @param size 当前估计条目数
+ *
+ * @author wuxp
+ * @date 2026-07-30 14:10
+ */
+public record MetricRegistryCacheStats(long hitCount, long missCount, long evictionCount, long size) {
+
+    /**
+     * 计算命中率。
+     *
+     * @return 命中率，尚无请求时返回 {@code 1.0}
+     */
+    public double hitRate() {
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+}
@@ -0,0 +1,7 @@
+/**
+ * 已解析、校验和编译的指标定义与物化计划注册表。
+ */
+@NullMarked
+package com.wind.integration.metrics.registry;
+
+import org.jspecify.annotations.NullMarked;
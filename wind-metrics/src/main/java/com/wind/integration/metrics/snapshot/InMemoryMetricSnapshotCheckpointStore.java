@@ -0,0 +1,29 @@
+package com.wind.integration.metrics.snapshot;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于内存的快照回填进度存储，适用于单实例部署和测试。
+ *
+ * @author wuxp
+ * @date 2026-08-07 09:50
+ */
+public class InMemoryMetricSnapshotCheckpointStore implements MetricSnapshotCheckpointStore {
+
+    private final Map<CheckpointKey, MetricSnapshotCheckpoint> checkpoints = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<MetricSnapshotCheckpoint> getCheckpoint(String targetCode, String partitionId) {
+        return Optional.ofNullable(checkpoints.get(new CheckpointKey(targetCode, partitionId)));
+    }
+
+    @Override
+    public void saveCheckpoint(String targetCode, String partitionId, MetricSnapshotCheckpoint checkpoint) {
+        checkpoints.put(new CheckpointKey(targetCode, partitionId), checkpoint);
+    }
+
+    private record CheckpointKey(String targetCode, String partitionId) {
+    }
+}
@@ -0,0 +1,63 @@
+package com.wind.integration.metrics.snapshot;
+
+import org.jspecify.annotations.Nullable;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于内存的待重建快照桶标记存储，适用于单实例部署和测试。
+ *
+ * @author wuxp
+ * @date 2026-08-08 10:05
+ */
+public class InMemoryMetricSnapshotDirtyBucketStore implements MetricSnapshotDirtyBucketStore {
+
+    private static final Comparator<MetricSnapshotDirtyBucket> BUCKET_ORDER =
+            Comparator.comparing(MetricSnapshotDirtyBucket::bucketStartTime)
+                    .thenComparing(MetricSnapshotDirtyBucket::subjectId,
+                            Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final Map<String, Map<DirtyKey, Long>> targets = new ConcurrentHashMap<>();
+
+    private final AtomicLong versions = new AtomicLong();
+
+    @Override
+    public void markDirty(String targetCode, @Nullable String subjectId, LocalDateTime bucketStartTime) {
+        targets.computeIfAbsent(targetCode, key -> new ConcurrentHashMap<>())
+                .put(new DirtyKey(subjectId, bucketStartTime), versions.incrementAndGet());
+    }
+
+    @Override
+    public List<MetricSnapshotDirtyBucket> findDirty(String targetCode, int limit) {
+        Map<DirtyKey, Long> dirty = targets.get(targetCode);
+        if (dirty == null) {
+            return List.of();
+        }
+        return dirty.entrySet().stream()
+                .map(entry -> new MetricSnapshotDirtyBucket(
+                        entry.getKey().subjectId(), entry.getKey().bucketStartTime(), entry.getValue()))
+                .sorted(BUCKET_ORDER)
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public void clearDirty(String targetCode, Collection<MetricSnapshotDirtyBucket> buckets) {
+        Map<DirtyKey, Long> dirty = targets.get(targetCode);
+        if (dirty == null) {
+            return;
+        }
+        for (MetricSnapshotDirtyBucket bucket : buckets) {
+            dirty.remove(new DirtyKey(bucket.subjectId(), bucket.bucketStartTime()), bucket.version());
+        }
+    }
+
+    private record DirtyKey(@Nullable String subjectId, LocalDateTime bucketStartTime) {
+    }
+}
@@ -0,0 +1,97 @@
+package com.wind.integration.metrics.snapshot;
+
+import org.jspecify.annotations.Nullable;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于内存的快照桶存储，适用于单实例部署和测试。
+ *
+ * <p>同一目标的写入和读取以目标为粒度互斥，不同目标互不影响。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-27 09:40
+ */
+public class InMemoryMetricSnapshotStore implements MetricSnapshotStore {
+
+    private final Map<String, TargetBuckets> targets = new ConcurrentHashMap<>();
+
+    private final Map<String, MetricSnapshotCoverage> coverages = new ConcurrentHashMap<>();
+
+    @Override
+    public void replaceBuckets(String targetCode,
+                               Set<String> subjectIds,
+                               LocalDateTime startTime,
+                               LocalDateTime endTime,
+                               Collection<MetricSnapshotBucket> buckets) {
+        for (MetricSnapshotBucket bucket : buckets) {
+            if (!targetCode.equals(bucket.targetCode())
+                    || bucket.bucketStartTime().isBefore(startTime)
+                    || bucket.bucketEndTime().isAfter(endTime)
+                    || !subjectIds.isEmpty() && !subjectIds.contains(bucket.subjectId())) {
+                throw new IllegalArgumentException("Snapshot bucket is outside of replaced range: " + bucket);
+            }
+        }
+        TargetBuckets target = targets.computeIfAbsent(targetCode, key -> new TargetBuckets());
+        synchronized (target) {
+            target.subjects.forEach((subject, subjectBuckets) -> {
+                if (subjectIds.isEmpty() || subjectIds.contains(subject.subjectId())) {
+                    subjectBuckets.subMap(startTime, true, endTime, false).clear();
+                }
+            });
+            for (MetricSnapshotBucket bucket : buckets) {
+                target.subjects.computeIfAbsent(new SubjectKey(bucket.subjectId()), key -> new TreeMap<>())
+                        .computeIfAbsent(bucket.bucketStartTime(), key -> new ArrayList<>())
+                        .add(bucket);
+            }
+        }
+    }
+
+    @Override
+    public List<MetricSnapshotBucket> findBuckets(String targetCode,
+                                                  @Nullable String subjectId,
+                                                  LocalDateTime startTime,
+                                                  LocalDateTime endTime) {
+        TargetBuckets target = targets.get(targetCode);
+        if (target == null) {
+            return List.of();
+        }
+        List<MetricSnapshotBucket> result = new ArrayList<>();
+        synchronized (target) {
+            NavigableMap<LocalDateTime, List<MetricSnapshotBucket>> subjectBuckets =
+                    target.subjects.get(new SubjectKey(subjectId));
+            if (subjectBuckets != null) {
+                subjectBuckets.subMap(startTime, true, endTime, false).values().forEach(result::addAll);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Optional<MetricSnapshotCoverage> getCoverage(String targetCode) {
+        return Optional.ofNullable(coverages.get(targetCode));
+    }
+
+    @Override
+    public void updateCoverage(String targetCode, MetricSnapshotCoverage coverage) {
+        coverages.put(targetCode, coverage);
+    }
+
+    private record SubjectKey(@Nullable String subjectId) {
+    }
+
+    private static final class TargetBuckets {
+
+        private final Map<SubjectKey, NavigableMap<LocalDateTime, List<MetricSnapshotBucket>>> subjects =
+                new ConcurrentHashMap<>();
+    }
+}
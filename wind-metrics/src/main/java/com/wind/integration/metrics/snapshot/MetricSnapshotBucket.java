@@ -0,0 +1,44 @@
+package com.wind.integration.metrics.snapshot;
+
+import org.jspecify.annotations.Nullable;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 单个主体、维度组合和时间桶的预聚合结果。
+ *
+ * <p>{@code partials} 保存各值字段按 {@code MetricMergeState} 可合并的部分聚合值，
+ * 桶内无有效值的字段不出现在映射中。</p>
+ *
+ * @param targetCode 快照逻辑目标编码
+ * @param subjectId 主体标识；全局指标为空
+ * @param dimensionValues 维度值，可能包含 {@code null}
+ * @param bucketStartTime 桶开始时间，包含
+ * @param bucketEndTime 桶结束时间，不包含
+ * @param partials 值字段名到部分聚合值
+ *
+ * @author wuxp
+ * @date 2026-07-27 09:40
+ */
+public record MetricSnapshotBucket(String targetCode,
+                                   @Nullable String subjectId,
+                                   Map<String, @Nullable Object> dimensionValues,
+                                   LocalDateTime bucketStartTime,
+                                   LocalDateTime bucketEndTime,
+                                   Map<String, Number> partials) {
+
+    public MetricSnapshotBucket {
+        Objects.requireNonNull(targetCode, "targetCode must not be null");
+        Objects.requireNonNull(bucketStartTime, "bucketStartTime must not be null");
+        Objects.requireNonNull(bucketEndTime, "bucketEndTime must not be null");
+        if (!bucketStartTime.isBefore(bucketEndTime)) {
+            throw new IllegalArgumentException("bucketEndTime must be after bucketStartTime");
+        }
+        dimensionValues = Collections.unmodifiableMap(new LinkedHashMap<>(dimensionValues));
+        partials = Map.copyOf(partials);
+    }
+}
@@ -0,0 +1,28 @@
+package com.wind.integration.metrics.snapshot;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * 快照回填单个主体分区的连续进度。
+ *
+ * @param startTime 回填区间开始，包含；区间不同的回填不复用进度
+ * @param completedUntil 已连续物化到的时间，不包含
+ * @param partitionFingerprint 保存进度时分区主体集合的指纹；主体集合变化后不复用进度，分区从区间开始重新回填
+ *
+ * @author wuxp
+ * @date 2026-08-07 09:50
+ */
+public record MetricSnapshotCheckpoint(LocalDateTime startTime,
+                                       LocalDateTime completedUntil,
+                                       String partitionFingerprint) {
+
+    public MetricSnapshotCheckpoint {
+        Objects.requireNonNull(startTime, "startTime must not be null");
+        Objects.requireNonNull(completedUntil, "completedUntil must not be null");
+        Objects.requireNonNull(partitionFingerprint, "partitionFingerprint must not be null");
+        if (completedUntil.isBefore(startTime)) {
+            throw new IllegalArgumentException("completedUntil must not be before startTime");
+        }
+    }
+}
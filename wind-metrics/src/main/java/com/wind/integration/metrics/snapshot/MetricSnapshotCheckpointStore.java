@@ -0,0 +1,30 @@
+package com.wind.integration.metrics.snapshot;
+
+import java.util.Optional;
+
+/**
+ * 快照回填进度存储，回填中断后按分区从已连续完成的位置继续。
+ *
+ * @author wuxp
+ * @date 2026-08-07 09:50
+ */
+public interface MetricSnapshotCheckpointStore {
+
+    /**
+     * 读取分区进度。
+     *
+     * @param targetCode 快照逻辑目标编码
+     * @param partitionId 主体分区标识
+     * @return 尚未记录时为空
+     */
+    Optional<MetricSnapshotCheckpoint> getCheckpoint(String targetCode, String partitionId);
+
+    /**
+     * 保存分区进度，只在分区内连续完成的位置前移时调用。
+     *
+     * @param targetCode 快照逻辑目标编码
+     * @param partitionId 主体分区标识
+     * @param checkpoint 分区进度
+     */
+    void saveCheckpoint(String targetCode, String partitionId, MetricSnapshotCheckpoint checkpoint);
+}
@@ -0,0 +1,54 @@
+package com.wind.integration.metrics.snapshot;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * 快照目标的连续覆盖区间。
+ *
+ * @param queryableStartTime 连续可读区间下界，包含
+ * @param watermarkTime 连续覆盖上界，不包含
+ *
+ * @author wuxp
+ * @date 2026-07-27 09:40
+ */
+public record MetricSnapshotCoverage(LocalDateTime queryableStartTime, LocalDateTime watermarkTime) {
+
+    public MetricSnapshotCoverage {
+        Objects.requireNonNull(queryableStartTime, "queryableStartTime must not be null");
+        Objects.requireNonNull(watermarkTime, "watermarkTime must not be null");
+        if (!queryableStartTime.isBefore(watermarkTime)) {
+            throw new IllegalArgumentException("watermarkTime must be after queryableStartTime");
+        }
+    }
+
+    /**
+     * 判断覆盖区间是否包含指定时间窗口。
+     *
+     * @param startTime 窗口开始，包含
+     * @param endTime 窗口结束，不包含
+     * @return 完整包含时返回 {@code true}
+     */
+    public boolean contains(LocalDateTime startTime, LocalDateTime endTime) {
+        return !queryableStartTime.isAfter(startTime) && !watermarkTime.isBefore(endTime);
+    }
+
+    /**
+     * 合并新物化的区间。
+     *
+     * <p>新区间与当前覆盖相交或相邻时取并集；与当前覆盖不相交时保持当前覆盖不变，
+     * 较早的回填不会使水位回退，不连续的区间也不会被当作已覆盖。</p>
+     *
+     * @param startTime 新物化区间开始，包含
+     * @param endTime 新物化区间结束，不包含
+     * @return 合并后的覆盖区间
+     */
+    public MetricSnapshotCoverage extend(LocalDateTime startTime, LocalDateTime endTime) {
+        if (startTime.isAfter(watermarkTime) || endTime.isBefore(queryableStartTime)) {
+            return this;
+        }
+        return new MetricSnapshotCoverage(
+                startTime.isBefore(queryableStartTime) ? startTime : queryableStartTime,
+                endTime.isAfter(watermarkTime) ? endTime : watermarkTime);
+    }
+}
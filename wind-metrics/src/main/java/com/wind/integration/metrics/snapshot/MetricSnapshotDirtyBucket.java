@@ -0,0 +1,26 @@
+package com.wind.integration.metrics.snapshot;
+
+import org.jspecify.annotations.Nullable;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * 因迟到事实需要重建的快照桶。
+ *
+ * <p>同一主体和桶再次被标记时 {@code version} 增大，清除标记时只清除版本未变化的条目，
+ * 重建期间新到达的迟到事实不会因清除而丢失。</p>
+ *
+ * @param subjectId 主体标识；全局指标为空
+ * @param bucketStartTime 桶开始时间，包含
+ * @param version 标记版本
+ *
+ * @author wuxp
+ * @date 2026-08-08 10:05
+ */
+public record MetricSnapshotDirtyBucket(@Nullable String subjectId, LocalDateTime bucketStartTime, long version) {
+
+    public MetricSnapshotDirtyBucket {
+        Objects.requireNonNull(bucketStartTime, "bucketStartTime must not be null");
+    }
+}
@@ -0,0 +1,42 @@
+package com.wind.integration.metrics.snapshot;
+
+import org.jspecify.annotations.Nullable;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 待重建快照桶的标记存储。
+ *
+ * @author wuxp
+ * @date 2026-08-08 10:05
+ */
+public interface MetricSnapshotDirtyBucketStore {
+
+    /**
+     * 标记快照桶需要重建，已标记时增大标记版本。
+     *
+     * @param targetCode 快照逻辑目标编码
+     * @param subjectId 主体标识；全局指标为空
+     * @param bucketStartTime 桶开始时间
+     */
+    void markDirty(String targetCode, @Nullable String subjectId, LocalDateTime bucketStartTime);
+
+    /**
+     * 按桶开始时间升序读取待重建的桶，不清除标记。
+     *
+     * @param targetCode 快照逻辑目标编码
+     * @param limit 最多返回的数量
+     * @return 待重建的桶
+     */
+    List<MetricSnapshotDirtyBucket> findDirty(String targetCode, int limit);
+
+    /**
+     * 清除已重建的桶的标记，标记版本已变化的桶保留。
+     *
+     * @param targetCode 快照逻辑目标编码
+     * @param buckets {@link #findDirty} 返回的桶
+     */
+    void clearDirty(String targetCode, Collection<MetricSnapshotDirtyBucket> buckets);
+}
@@ -0,0 +1,80 @@
+package com.wind.integration.metrics.snapshot;
+
+import org.jspecify.annotations.Nullable;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * 指标快照桶存储。
+ *
+ * <p>实现须保证同一目标的桶替换与覆盖区间更新对读取方的可见顺序：先写入桶，再推进覆盖区间。</p>
+ *
+ * @author wuxp
+ * @date 2026-07-27 09:40
+ */
+public interface MetricSnapshotStore {
+
+    /**
+     * 替换目标在时间区间内的全部桶。
+     *
+     * @param targetCode 快照逻辑目标编码
+     * @param startTime 替换区间开始，包含，须与桶边界对齐
+     * @param endTime 替换区间结束，不包含，须与桶边界对齐
+     * @param buckets 新的桶，须全部落在替换区间内
+     */
+    default void replaceBuckets(String targetCode,
+                                LocalDateTime startTime,
+                                LocalDateTime endTime,
+                                Collection<MetricSnapshotBucket> buckets) {
+        replaceBuckets(targetCode, Set.of(), startTime, endTime, buckets);
+    }
+
+    /**
+     * 替换目标在时间区间内一组主体的桶，其他主体的桶保持不变。
+     *
+     * @param targetCode 快照逻辑目标编码
+     * @param subjectIds 被替换的主体；为空时替换全部主体
+     * @param startTime 替换区间开始，包含，须与桶边界对齐
+     * @param endTime 替换区间结束，不包含，须与桶边界对齐
+     * @param buckets 新的桶，须全部落在替换区间内且属于被替换的主体
+     */
+    void replaceBuckets(String targetCode,
+                        Set<String> subjectIds,
+                        LocalDateTime startTime,
+                        LocalDateTime endTime,
+                        Collection<MetricSnapshotBucket> buckets);
+
+    /**
+     * 读取单个主体在时间区间内的桶。
+     *
+     * @param targetCode 快照逻辑目标编码
+     * @param subjectId 主体标识；全局指标为空
+     * @param startTime 区间开始，包含
+     * @param endTime 区间结束，不包含
+     * @return 桶开始时间落在区间内的桶，按开始时间升序
+     */
+    List<MetricSnapshotBucket> findBuckets(String targetCode,
+                                           @Nullable String subjectId,
+                                           LocalDateTime startTime,
+                                           LocalDateTime endTime);
+
+    /**
+     * 读取目标的连续覆盖区间。
+     *
+     * @param targetCode 快照逻辑目标编码
+     * @return 尚未物化时为空
+     */
+    Optional<MetricSnapshotCoverage> getCoverage(String targetCode);
+
+    /**
+     * 更新目标的连续覆盖区间。
+     *
+     * @param targetCode 快照逻辑目标编码
+     * @param coverage 新的覆盖区间
+     */
+    void updateCoverage(String targetCode, MetricSnapshotCoverage coverage);
+}
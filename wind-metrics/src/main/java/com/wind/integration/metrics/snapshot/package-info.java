@@ -0,0 +1,7 @@
+/**
+ * 指标快照桶存储契约和内存实现。
+ */
+@NullMarked
+package com.wind.integration.metrics.snapshot;
+
+import org.jspecify.annotations.NullMarked;
@@ -0,0 +1,143 @@
+package com.wind.integration.tag;
+
+import com.wind.common.exception.AssertUtils;
+import com.wind.core.ReadonlyContextVariables;
+import com.wind.integration.core.model.IdObject;
+import org.jspecify.annotations.NonNull;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * 批量打标器，用于对大量对象重新打标（例如每日全量风控打标）
+ * 对象流按 batchSize 切分为批次，在 executor 上最多同时执行 parallelism 个批次，读取对象流的速度受并发批次数限制
+ * 每个批次对每个对象执行该标签来源下全部适用的评估器，同一对象同名的标签按 {@link TagSource#getPriority()} 在内存中取优先级最高的一个
+ * （优先级相同时保留先注册的评估器给出的标签），然后整批交给 {@link EntityTagRepository#saveTags(Collection)} 保存
+ * 评估器在创建时按标签来源建立索引，打标时先按上下文变量整批筛选，再按对象类型筛选并缓存，不适用的评估器不会被调用
+ *
+ * @param <I> 业务对象标识类型
+ * @author wuxp
+ * @date 2026-08-13 10:00
+ **/
+public final class BulkEntityTagger<I extends Serializable> {
+
+    private final EntityTagEvaluatorIndex evaluators;
+
+    private final EntityTagRepository<I> repository;
+
+    private final Executor executor;
+
+    private final int parallelism;
+
+    private final int batchSize;
+
+    public BulkEntityTagger(@NonNull Collection<? extends EntityTagEvaluator> evaluators,
+                            @NonNull EntityTagRepository<I> repository,
+                            @NonNull Executor executor,
+                            int parallelism,
+                            int batchSize) {
+        AssertUtils.notNull(evaluators, "argument evaluators must not null");
+        AssertUtils.notNull(repository, "argument repository must not null");
+        AssertUtils.notNull(executor, "argument executor must not null");
+        AssertUtils.isTrue(parallelism > 0, "argument parallelism must be positive");
+        AssertUtils.isTrue(batchSize > 0, "argument batchSize must be positive");
+        this.evaluators = new EntityTagEvaluatorIndex(evaluators);
+        this.repository = repository;
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 批量打标，阻塞到对象流处理完成并且全部批次结束
+     *
+     * @param data   业务对象流，调用方负责关闭
+     * @param source 标签来源
+     * @return 打标结果，批次失败不会抛出异常而是记录在结果中
+     */
+    @NonNull
+    public BulkTaggingResult tag(@NonNull Stream<? extends IdObject<I>> data, @NonNull TagSource source) {
+        return tag(data, source, ReadonlyContextVariables.empty());
+    }
+
+    /**
+     * 批量打标，阻塞到对象流处理完成并且全部批次结束
+     *
+     * @param data      业务对象流，调用方负责关闭
+     * @param source    标签来源
+     * @param variables 上下文变量，同一次打标的全部对象共享
+     * @return 打标结果，批次失败不会抛出异常而是记录在结果中
+     */
+    @NonNull
+    public BulkTaggingResult tag(@NonNull Stream<? extends IdObject<I>> data,
+                                 @NonNull TagSource source,
+                                 @NonNull ReadonlyContextVariables variables) {
+        AssertUtils.notNull(data, "argument data must not null");
+        AssertUtils.notNull(source, "argument source must not null");
+        AssertUtils.notNull(variables, "argument variables must not null");
+        Tagging tagging = new Tagging(evaluators.evaluation(source, variables));
+        EntityTagBatches.<IdObject<I>>run(data.iterator(), executor, parallelism, batchSize, tagging::run,
+                (batch, exception) -> tagging.fail(batch.size(), exception));
+        return tagging.result();
+    }
+
+    /**
+     * 一次批量打标的执行状态
+     **/
+    private final class Tagging {
+
+        private final EntityTagEvaluatorIndex.Evaluation evaluation;
+
+        private final AtomicLong processed = new AtomicLong();
+
+        private final AtomicLong tagged = new AtomicLong();
+
+        private final AtomicLong tags = new AtomicLong();
+
+        private final AtomicLong failed = new AtomicLong();
+
+        private final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+        private Tagging(EntityTagEvaluatorIndex.Evaluation evaluation) {
+            this.evaluation = evaluation;
+        }
+
+        void run(List<IdObject<I>> batch) {
+            try {
+                List<TaggingResult> results = new ArrayList<>(batch.size());
+                long tagCount = 0;
+                for (IdObject<I> data : batch) {
+                    Collection<EntityTag> resolved = evaluation.evaluate(data).values();
+                    if (!resolved.isEmpty()) {
+                        results.add(new TaggingResult(data, resolved));
+                        tagCount += resolved.size();
+                    }
+                }
+                if (!results.isEmpty()) {
+                    repository.saveTags(results);
+                }
+                processed.addAndGet(batch.size());
+                tagged.addAndGet(results.size());
+                tags.addAndGet(tagCount);
+            } catch (RuntimeException exception) {
+                fail(batch.size(), exception);
+            }
+        }
+
+        void fail(int size, Throwable throwable) {
+            processed.addAndGet(size);
+            failed.addAndGet(size);
+            firstFailure.compareAndSet(null, throwable);
+        }
+
+        BulkTaggingResult result() {
+            return new BulkTaggingResult(processed.get(), tagged.get(), tags.get(), failed.get(), firstFailure.get());
+        }
+    }
+}
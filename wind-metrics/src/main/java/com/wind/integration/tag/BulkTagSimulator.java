@@ -0,0 +1,237 @@
+package com.wind.integration.tag;
+
+import com.wind.common.exception.AssertUtils;
+import com.wind.core.ReadonlyContextVariables;
+import com.wind.integration.core.model.IdObject;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * 批量模拟打标，上线新规则前在全量对象上对比原规则与新规则的打标结果，不保存标签
+ * 对象流的切分和并发方式与 {@link BulkEntityTagger} 一致，每个对象分别用两组评估器评估（评估器筛选和同名标签优先级规则也一致），
+ * 批次内先在本地合并标签变化再汇总，报告只保存 (标签名称, 原值, 新值) 的计数：
+ * 变化种类超过 maxTransitions 后新出现的种类只计入溢出数量，变化对象只保留 sampleSize 个标识，内存占用与对象数量无关
+ *
+ * @author wuxp
+ * @date 2026-08-17 10:20
+ **/
+public final class BulkTagSimulator {
+
+    private final EntityTagEvaluatorIndex baseline;
+
+    private final EntityTagEvaluatorIndex candidate;
+
+    private final Executor executor;
+
+    private final int parallelism;
+
+    private final int batchSize;
+
+    private final int maxTransitions;
+
+    private final int sampleSize;
+
+    /**
+     * @param baseline       原规则评估器
+     * @param candidate      新规则评估器
+     * @param executor       批次执行器
+     * @param parallelism    最大并发批次数
+     * @param batchSize      批次大小
+     * @param maxTransitions 单独统计的标签变化种类上限
+     * @param sampleSize     保留的变化对象标识数量
+     */
+    public BulkTagSimulator(@NonNull Collection<? extends EntityTagEvaluator> baseline,
+                            @NonNull Collection<? extends EntityTagEvaluator> candidate,
+                            @NonNull Executor executor,
+                            int parallelism,
+                            int batchSize,
+                            int maxTransitions,
+                            int sampleSize) {
+        AssertUtils.notNull(baseline, "argument baseline must not null");
+        AssertUtils.notNull(candidate, "argument candidate must not null");
+        AssertUtils.notNull(executor, "argument executor must not null");
+        AssertUtils.isTrue(parallelism > 0, "argument parallelism must be positive");
+        AssertUtils.isTrue(batchSize > 0, "argument batchSize must be positive");
+        AssertUtils.isTrue(maxTransitions > 0, "argument maxTransitions must be positive");
+        AssertUtils.isTrue(sampleSize >= 0, "argument sampleSize must not be negative");
+        this.baseline = new EntityTagEvaluatorIndex(baseline);
+        this.candidate = new EntityTagEvaluatorIndex(candidate);
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+        this.maxTransitions = maxTransitions;
+        this.sampleSize = sampleSize;
+    }
+
+    /**
+     * 批量模拟打标，阻塞到对象流处理完成并且全部批次结束
+     *
+     * @param data   业务对象流，调用方负责关闭
+     * @param source 标签来源
+     * @return 差异报告，批次失败不会抛出异常而是记录在报告中
+     */
+    @NonNull
+    public TagSimulationReport simulate(@NonNull Stream<? extends IdObject<?>> data, @NonNull TagSource source) {
+        return simulate(data, source, ReadonlyContextVariables.empty());
+    }
+
+    /**
+     * 批量模拟打标，阻塞到对象流处理完成并且全部批次结束
+     *
+     * @param data      业务对象流，调用方负责关闭
+     * @param source    标签来源
+     * @param variables 上下文变量，同一次模拟的全部对象共享
+     * @return 差异报告，批次失败不会抛出异常而是记录在报告中
+     */
+    @NonNull
+    public TagSimulationReport simulate(@NonNull Stream<? extends IdObject<?>> data,
+                                        @NonNull TagSource source,
+                                        @NonNull ReadonlyContextVariables variables) {
+        AssertUtils.notNull(data, "argument data must not null");
+        AssertUtils.notNull(source, "argument source must not null");
+        AssertUtils.notNull(variables, "argument variables must not null");
+        Simulation simulation = new Simulation(baseline.evaluation(source, variables),
+                candidate.evaluation(source, variables));
+        EntityTagBatches.<IdObject<?>>run(data.iterator(), executor, parallelism, batchSize, simulation::run,
+                (batch, exception) -> simulation.fail(batch.size(), exception));
+        return simulation.report();
+    }
+
+    /**
+     * 一次批量模拟的执行状态
+     **/
+    private final class Simulation {
+
+        private final EntityTagEvaluatorIndex.Evaluation baseline;
+
+        private final EntityTagEvaluatorIndex.Evaluation candidate;
+
+        private final Map<TransitionKey, LongAdder> transitions = new ConcurrentHashMap<>();
+
+        private final AtomicInteger transitionKinds = new AtomicInteger();
+
+        private final Queue<Serializable> changedSample = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger sampled = new AtomicInteger();
+
+        private final AtomicLong processed = new AtomicLong();
+
+        private final AtomicLong changed = new AtomicLong();
+
+        private final AtomicLong failed = new AtomicLong();
+
+        private final AtomicLong overflowed = new AtomicLong();
+
+        private final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+        private Simulation(EntityTagEvaluatorIndex.Evaluation baseline, EntityTagEvaluatorIndex.Evaluation candidate) {
+            this.baseline = baseline;
+            this.candidate = candidate;
+        }
+
+        void run(List<IdObject<?>> batch) {
+            Map<TransitionKey, Long> local = new HashMap<>();
+            List<Serializable> changedIds = new ArrayList<>();
+            try {
+                for (IdObject<?> data : batch) {
+                    if (diff(baseline.evaluate(data), candidate.evaluate(data), local)) {
+                        changedIds.add(data.getId());
+                    }
+                }
+            } catch (RuntimeException exception) {
+                fail(batch.size(), exception);
+                return;
+            }
+            local.forEach(this::merge);
+            changedIds.forEach(this::sample);
+            processed.addAndGet(batch.size());
+            changed.addAndGet(changedIds.size());
+        }
+
+        void fail(int size, Throwable throwable) {
+            processed.addAndGet(size);
+            failed.addAndGet(size);
+            firstFailure.compareAndSet(null, throwable);
+        }
+
+        TagSimulationReport report() {
+            List<TagSimulationReport.Transition> result = new ArrayList<>(transitions.size());
+            transitions.forEach((key, count) -> result.add(
+                    new TagSimulationReport.Transition(key.tagName(), key.before(), key.after(), count.sum())));
+            result.sort(Comparator.comparingLong(TagSimulationReport.Transition::count).reversed()
+                    .thenComparing(TagSimulationReport.Transition::tagName));
+            return new TagSimulationReport(processed.get(), changed.get(), failed.get(), result, overflowed.get(),
+                    new ArrayList<>(changedSample), firstFailure.get());
+        }
+
+        private boolean diff(Map<String, EntityTag> before, Map<String, EntityTag> after,
+                             Map<TransitionKey, Long> local) {
+            boolean result = false;
+            for (EntityTag tag : before.values()) {
+                EntityTag updated = after.get(tag.name());
+                String value = updated == null ? null : updated.value();
+                if (!tag.value().equals(value)) {
+                    local.merge(new TransitionKey(tag.name(), tag.value(), value), 1L, Long::sum);
+                    result = true;
+                }
+            }
+            for (EntityTag tag : after.values()) {
+                if (!before.containsKey(tag.name())) {
+                    local.merge(new TransitionKey(tag.name(), null, tag.value()), 1L, Long::sum);
+                    result = true;
+                }
+            }
+            return result;
+        }
+
+        private void merge(TransitionKey key, long count) {
+            LongAdder counter = transitions.get(key);
+            if (counter == null) {
+                if (transitionKinds.incrementAndGet() > maxTransitions) {
+                    transitionKinds.decrementAndGet();
+                    overflowed.addAndGet(count);
+                    return;
+                }
+                LongAdder created = new LongAdder();
+                counter = transitions.putIfAbsent(key, created);
+                if (counter == null) {
+                    counter = created;
+                } else {
+                    transitionKinds.decrementAndGet();
+                }
+            }
+            counter.add(count);
+        }
+
+        private void sample(Serializable objectId) {
+            if (sampled.get() < sampleSize && sampled.incrementAndGet() <= sampleSize) {
+                changedSample.add(objectId);
+            }
+        }
+    }
+
+    private record TransitionKey(String tagName, @Nullable String before, @Nullable String after) {
+
+        TransitionKey {
+            Objects.requireNonNull(tagName, "tagName must not be null");
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.wind.integration.tag;
+
+import org.jspecify.annotations.Nullable;
+
+/**
+ * 批量打标结果
+ *
+ * @param processed    处理的对象数量
+ * @param tagged       得到标签并保存的对象数量
+ * @param tags         保存的标签数量
+ * @param failed       评估或保存失败的对象数量，失败批次内的对象全部计入
+ * @param firstFailure 第一个失败批次的异常，没有失败时为空
+ * @author wuxp
+ * @date 2026-08-13 10:00
+ */
+public record BulkTaggingResult(long processed, long tagged, long tags, long failed, @Nullable Throwable firstFailure) {
+
+    /**
+     * @return 是否全部成功
+     */
+    public boolean isSuccess() {
+        return failed == 0;
+    }
+}
@@ -0,0 +1,241 @@
+package com.wind.integration.tag;
+
+import com.wind.common.exception.AssertUtils;
+import org.jspecify.annotations.NonNull;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * 紧凑标签集合，只保存 {@link TagDictionary} 中的标签标识（有序 int 数组）
+ * 不可变，实现 {@link Set} 并按名称和值判断标签是否存在，可以直接传给 {@link WindTag} 的工具方法，遍历得到字典中的规范标签
+ * 同一字典创建的集合之间的包含、交集按有序数组合并计算，不创建标签对象
+ *
+ * @author wuxp
+ * @date 2026-08-16 10:00
+ **/
+public final class CompactTagSet extends AbstractSet<WindTag> {
+
+    private static final int[] EMPTY_IDS = new int[0];
+
+    private final TagDictionary dictionary;
+
+    private final int[] ids;
+
+    private CompactTagSet(TagDictionary dictionary, int[] ids) {
+        this.dictionary = dictionary;
+        this.ids = ids;
+    }
+
+    /**
+     * 使用标签标识创建集合，标识会被排序去重
+     *
+     * @param dictionary 标签字典
+     * @param ids        标签标识
+     * @return 紧凑标签集合
+     */
+    static CompactTagSet of(TagDictionary dictionary, int[] ids) {
+        if (ids.length == 0) {
+            return new CompactTagSet(dictionary, EMPTY_IDS);
+        }
+        Arrays.sort(ids);
+        int size = 1;
+        for (int i = 1; i < ids.length; i++) {
+            if (ids[i] != ids[size - 1]) {
+                ids[size++] = ids[i];
+            }
+        }
+        return new CompactTagSet(dictionary, size == ids.length ? ids : Arrays.copyOf(ids, size));
+    }
+
+    /**
+     * @return 标签字典
+     */
+    @NonNull
+    public TagDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * @param name  标签名称
+     * @param value 标签值
+     * @return 是否包含标签
+     */
+    public boolean contains(@NonNull String name, @NonNull String value) {
+        int id = dictionary.find(name, value);
+        return id >= 0 && Arrays.binarySearch(ids, id) >= 0;
+    }
+
+    /**
+     * 按名称和值判断，不比较标签的其他属性（例如 {@link EntityTag#source()}）
+     */
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof WindTag tag && contains(tag.name(), tag.value());
+    }
+
+    @Override
+    public boolean containsAll(@NonNull Collection<?> c) {
+        if (c instanceof CompactTagSet other && other.dictionary == dictionary) {
+            return intersectionSize(other) == other.ids.length;
+        }
+        return super.containsAll(c);
+    }
+
+    /**
+     * 计算交集
+     *
+     * @param other 同一字典创建的标签集合
+     * @return 交集
+     */
+    @NonNull
+    public CompactTagSet intersect(@NonNull CompactTagSet other) {
+        requireSameDictionary(other);
+        int[] result = new int[Math.min(ids.length, other.ids.length)];
+        int size = 0;
+        int left = 0;
+        int right = 0;
+        while (left < ids.length && right < other.ids.length) {
+            if (ids[left] < other.ids[right]) {
+                left++;
+            } else if (ids[left] > other.ids[right]) {
+                right++;
+            } else {
+                result[size++] = ids[left];
+                left++;
+                right++;
+            }
+        }
+        return new CompactTagSet(dictionary, size == result.length ? result : Arrays.copyOf(result, size));
+    }
+
+    /**
+     * 计算并集，右侧集合的标签与当前集合合并，不处理同名标签的覆盖
+     *
+     * @param other 同一字典创建的标签集合
+     * @return 并集
+     */
+    @NonNull
+    public CompactTagSet union(@NonNull CompactTagSet other) {
+        requireSameDictionary(other);
+        int[] result = Arrays.copyOf(ids, ids.length + other.ids.length);
+        System.arraycopy(other.ids, 0, result, ids.length, other.ids.length);
+        return of(dictionary, result);
+    }
+
+    /**
+     * @param other 同一字典创建的标签集合
+     * @return 是否存在相同的标签
+     */
+    public boolean intersects(@NonNull CompactTagSet other) {
+        requireSameDictionary(other);
+        return intersectionSize(other) > 0;
+    }
+
+    /**
+     * 获取指定名称的标签值
+     *
+     * @param name 标签名称
+     * @return 标签值
+     */
+    @NonNull
+    public Set<String> getValues(@NonNull String name) {
+        Set<String> result = null;
+        for (int id : ids) {
+            WindTag tag = dictionary.getTag(id);
+            if (tag.name().equals(name)) {
+                if (result == null) {
+                    result = new LinkedHashSet<>();
+                }
+                result.add(tag.value());
+            }
+        }
+        return result == null ? Collections.emptySet() : Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * 按照标签名称分组，与 {@link WindTag#groupTagsKeyValues} 结果一致
+     *
+     * @return 标签名称 -> 标签值
+     */
+    @NonNull
+    public Map<String, Set<String>> groupKeyValues() {
+        Map<String, Set<String>> result = new HashMap<>();
+        for (int id : ids) {
+            WindTag tag = dictionary.getTag(id);
+            result.computeIfAbsent(tag.name(), key -> new LinkedHashSet<>()).add(tag.value());
+        }
+        return result;
+    }
+
+    @Override
+    @NonNull
+    public Iterator<WindTag> iterator() {
+        return new Iterator<>() {
+
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < ids.length;
+            }
+
+            @Override
+            public WindTag next() {
+                if (index >= ids.length) {
+                    throw new NoSuchElementException();
+                }
+                return dictionary.getTag(ids[index++]);
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof CompactTagSet other && other.dictionary == dictionary) {
+            return Arrays.equals(ids, other.ids);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    private int intersectionSize(CompactTagSet other) {
+        int result = 0;
+        int left = 0;
+        int right = 0;
+        while (left < ids.length && right < other.ids.length) {
+            if (ids[left] < other.ids[right]) {
+                left++;
+            } else if (ids[left] > other.ids[right]) {
+                right++;
+            } else {
+                result++;
+                left++;
+                right++;
+            }
+        }
+        return result;
+    }
+
+    private void requireSameDictionary(CompactTagSet other) {
+        AssertUtils.notNull(other, "argument other must not null");
+        AssertUtils.isTrue(other.dictionary == dictionary, "tag sets must share the same dictionary");
+    }
+}
@@ -0,0 +1,57 @@
+package com.wind.integration.tag;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * 按批次并发处理对象流，批量打标和批量模拟共用
+ * 对象流按 batchSize 切分为批次，在 executor 上最多同时执行 parallelism 个批次，读取对象流的速度受并发批次数限制，
+ * 内存中最多保留 parallelism + 1 个批次
+ *
+ * @author wuxp
+ * @date 2026-08-17 09:40
+ **/
+final class EntityTagBatches {
+
+    private EntityTagBatches() {
+        throw new AssertionError();
+    }
+
+    /**
+     * 处理对象流，阻塞到全部批次结束
+     *
+     * @param data        对象
+     * @param executor    批次执行器
+     * @param parallelism 最大并发批次数
+     * @param batchSize   批次大小
+     * @param task        批次任务，需要自行处理批次内的异常
+     * @param rejected    批次提交失败时的回调，参数为批次和异常
+     */
+    static <T> void run(Iterator<? extends T> data, Executor executor, int parallelism, int batchSize,
+                        Consumer<List<T>> task, BiConsumer<List<T>, Throwable> rejected) {
+        Semaphore permits = new Semaphore(parallelism);
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        while (data.hasNext()) {
+            List<T> batch = new ArrayList<>(batchSize);
+            while (batch.size() < batchSize && data.hasNext()) {
+                batch.add(data.next());
+            }
+            permits.acquireUninterruptibly();
+            try {
+                tasks.add(CompletableFuture.runAsync(() -> task.accept(batch), executor)
+                        .whenComplete((ignore, throwable) -> permits.release()));
+            } catch (RuntimeException exception) {
+                permits.release();
+                rejected.accept(batch, exception);
+            }
+            tasks.removeIf(CompletableFuture::isDone);
+        }
+        tasks.forEach(future -> future.exceptionally(throwable -> null).join());
+    }
+}
@@ -5,6 +5,8 @@ import com.wind.integration.core.model.IdObject;
 import org.jspecify.annotations.NonNull;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
 
 /**
  * 打标器评估器
@@ -42,4 +44,24 @@ public interface EntityTagEvaluator {
      */
     @NonNull
     TagSource getSupportsSource();
+
+    /**
+     * 获取支持的对象类型，批量打标时按对象类型预先筛选评估器，不支持的对象不会调用 eval
+     *
+     * @return 支持的对象类型（包含子类型），为空表示支持所有类型
+     */
+    @NonNull
+    default Set<Class<?>> getSupportsTypes() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * 获取依赖的上下文变量名称，批量打标时上下文缺少任一变量则整批跳过该评估器
+     *
+     * @return 依赖的上下文变量名称
+     */
+    @NonNull
+    default Set<String> getRequiredVariables() {
+        return Collections.emptySet();
+    }
 }
@@ -0,0 +1,108 @@
+package com.wind.integration.tag;
+
+import com.wind.core.ReadonlyContextVariables;
+import com.wind.integration.core.model.IdObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按标签来源预先索引的评估器，批量打标和批量模拟共用
+ * 每次运行先按上下文变量整批筛选评估器，再按对象类型筛选并缓存，不适用的评估器不会被调用；
+ * 同一对象同名的标签按 {@link TagSource#getPriority()} 取优先级最高的一个（优先级相同时保留先注册的评估器给出的标签）
+ *
+ * @author wuxp
+ * @date 2026-08-17 09:30
+ **/
+final class EntityTagEvaluatorIndex {
+
+    private final Map<TagSource, List<EntityTagEvaluator>> evaluators;
+
+    EntityTagEvaluatorIndex(Collection<? extends EntityTagEvaluator> evaluators) {
+        Map<TagSource, List<EntityTagEvaluator>> index = new EnumMap<>(TagSource.class);
+        for (EntityTagEvaluator evaluator : evaluators) {
+            index.computeIfAbsent(evaluator.getSupportsSource(), source -> new ArrayList<>()).add(evaluator);
+        }
+        index.replaceAll((source, list) -> List.copyOf(list));
+        this.evaluators = Collections.unmodifiableMap(index);
+    }
+
+    /**
+     * 创建一次运行的评估器
+     *
+     * @param source    标签来源
+     * @param variables 上下文变量，同一次运行的全部对象共享
+     * @return 评估器
+     */
+    Evaluation evaluation(TagSource source, ReadonlyContextVariables variables) {
+        Map<String, Object> contextVariables = variables.getContextVariables();
+        List<EntityTagEvaluator> result = new ArrayList<>();
+        for (EntityTagEvaluator evaluator : evaluators.getOrDefault(source, Collections.emptyList())) {
+            if (contextVariables.keySet().containsAll(evaluator.getRequiredVariables())) {
+                result.add(evaluator);
+            }
+        }
+        return new Evaluation(result, variables);
+    }
+
+    /**
+     * 一次运行的评估器，线程安全
+     **/
+    static final class Evaluation {
+
+        private final List<EntityTagEvaluator> evaluators;
+
+        private final ReadonlyContextVariables variables;
+
+        /**
+         * 对象类型到适用评估器的缓存，同一类型的对象只筛选一次
+         */
+        private final Map<Class<?>, List<EntityTagEvaluator>> evaluatorsByType = new ConcurrentHashMap<>();
+
+        private Evaluation(List<EntityTagEvaluator> evaluators, ReadonlyContextVariables variables) {
+            this.evaluators = evaluators;
+            this.variables = variables;
+        }
+
+        /**
+         * 评估对象的标签
+         *
+         * @param data 对象
+         * @return 标签名称 -> 生效的标签
+         */
+        Map<String, EntityTag> evaluate(IdObject<?> data) {
+            List<EntityTagEvaluator> candidates = evaluatorsByType.computeIfAbsent(data.getClass(), this::supports);
+            if (candidates.isEmpty()) {
+                return Collections.emptyMap();
+            }
+            Map<String, EntityTag> result = new LinkedHashMap<>();
+            for (EntityTagEvaluator evaluator : candidates) {
+                for (EntityTag tag : evaluator.eval(data, variables)) {
+                    EntityTag current = result.get(tag.name());
+                    if (current == null || tag.source().getPriority() > current.source().getPriority()) {
+                        result.put(tag.name(), tag);
+                    }
+                }
+            }
+            return result;
+        }
+
+        private List<EntityTagEvaluator> supports(Class<?> type) {
+            List<EntityTagEvaluator> result = new ArrayList<>(evaluators.size());
+            for (EntityTagEvaluator evaluator : evaluators) {
+                Set<Class<?>> types = evaluator.getSupportsTypes();
+                if (types.isEmpty() || types.stream().anyMatch(supported -> supported.isAssignableFrom(type))) {
+                    result.add(evaluator);
+                }
+            }
+            return result;
+        }
+    }
+}
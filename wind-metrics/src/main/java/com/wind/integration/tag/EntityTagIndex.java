@@ -0,0 +1,246 @@
+package com.wind.integration.tag;
+
+import com.wind.common.exception.AssertUtils;
+import org.jspecify.annotations.NonNull;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 标签倒排索引，(标签名称, 标签值) -> 拥有该标签的对象位图
+ * 对象标识按首次写入顺序映射为连续的 int 序号，位图中存放序号，查询结果再映射回对象标识
+ * 查询语义与 {@link com.wind.integration.metrics.WindMetricsAggregationQuery#getSearchTags()} 一致：
+ * 不同标签名称之间取交集，同一标签名称的多个值之间取并集；交集按位图大小从小到大计算，遇到空集提前结束
+ * 索引只保存对象当前生效的标签值（一个对象的一个标签名称只有一个值），由 {@link IndexedEntityTagRepository} 在写入后维护
+ * 每个对象序号另外保存其标签名称 -> 标签值的反向映射，替换和移除对象的标签只访问对象自己的标签，不扫描全部位图
+ * 线程安全，查询之间可以并发执行，写入与查询互斥
+ *
+ * @param <I> 业务对象标识类型
+ * @author wuxp
+ * @date 2026-08-14 10:10
+ **/
+public final class EntityTagIndex<I extends Serializable> {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<I, Integer> ordinals = new HashMap<>();
+
+    private final List<I> objectIds = new ArrayList<>();
+
+    /**
+     * 对象序号 -> 标签名称 -> 标签值
+     */
+    private final List<Map<String, String>> objectTags = new ArrayList<>();
+
+    /**
+     * 标签名称 -> 标签值 -> 对象位图
+     */
+    private final Map<String, Map<String, TagBitmap>> postings = new HashMap<>();
+
+    /**
+     * 替换对象的标签，对象原有的其他标签不变
+     *
+     * @param objectId 对象标识
+     * @param tags     对象当前生效的标签
+     */
+    public void put(@NonNull I objectId, @NonNull Collection<? extends WindTag> tags) {
+        AssertUtils.notNull(objectId, "argument objectId must not null");
+        AssertUtils.notNull(tags, "argument tags must not null");
+        lock.writeLock().lock();
+        try {
+            int ordinal = ordinal(objectId);
+            Map<String, String> current = objectTags.get(ordinal);
+            for (WindTag tag : tags) {
+                String previous = current.put(tag.name(), tag.value());
+                if (previous != null) {
+                    removePosting(tag.name(), previous, ordinal);
+                }
+                postings.computeIfAbsent(tag.name(), name -> new HashMap<>())
+                        .computeIfAbsent(tag.value(), value -> new TagBitmap())
+                        .add(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 使用对象当前生效的全部标签重建对象的索引
+     *
+     * @param objectId 对象标识
+     * @param tags     对象当前生效的全部标签
+     */
+    public void replaceAll(@NonNull I objectId, @NonNull Collection<? extends WindTag> tags) {
+        AssertUtils.notNull(tags, "argument tags must not null");
+        lock.writeLock().lock();
+        try {
+            remove(objectId);
+            put(objectId, tags);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 移除对象指定名称的标签
+     *
+     * @param objectId 对象标识
+     * @param tagName  标签名称
+     */
+    public void remove(@NonNull I objectId, @NonNull String tagName) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.get(objectId);
+            String value = ordinal == null ? null : objectTags.get(ordinal).remove(tagName);
+            if (value != null) {
+                removePosting(tagName, value, ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 移除对象的全部标签
+     *
+     * @param objectId 对象标识
+     */
+    public void remove(@NonNull I objectId) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.get(objectId);
+            if (ordinal != null) {
+                Map<String, String> current = objectTags.get(ordinal);
+                current.forEach((name, value) -> removePosting(name, value, ordinal));
+                current.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查询同时满足全部标签条件的对象
+     *
+     * @param tags 查询标签，不同名称之间为 and，同一名称的多个值之间为 or
+     * @return 对象序号位图，调用方可以修改
+     */
+    @NonNull
+    public TagBitmap search(@NonNull Collection<? extends WindTag> tags) {
+        AssertUtils.notEmpty(tags, "argument tags must not empty");
+        lock.readLock().lock();
+        try {
+            List<TagBitmap> groups = new ArrayList<>();
+            for (Map.Entry<String, List<String>> entry : groupValues(tags).entrySet()) {
+                TagBitmap group = union(entry.getKey(), entry.getValue());
+                if (group.isEmpty()) {
+                    return new TagBitmap();
+                }
+                groups.add(group);
+            }
+            groups.sort(Comparator.comparingLong(TagBitmap::cardinality));
+            TagBitmap result = groups.get(0).copy();
+            for (int i = 1; i < groups.size() && !result.isEmpty(); i++) {
+                result = result.and(groups.get(i));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 查询同时满足全部标签条件的对象数量
+     *
+     * @param tags 查询标签
+     * @return 对象数量
+     */
+    public long count(@NonNull Collection<? extends WindTag> tags) {
+        return search(tags).cardinality();
+    }
+
+    /**
+     * 查询同时满足全部标签条件的对象标识
+     *
+     * @param tags 查询标签
+     * @return 对象标识，按首次写入索引的顺序排列
+     */
+    @NonNull
+    public List<I> searchObjectIds(@NonNull Collection<? extends WindTag> tags) {
+        return getObjectIds(search(tags));
+    }
+
+    /**
+     * 将对象序号位图转换为对象标识
+     *
+     * @param bitmap 对象序号位图
+     * @return 对象标识，按首次写入索引的顺序排列
+     */
+    @NonNull
+    public List<I> getObjectIds(@NonNull TagBitmap bitmap) {
+        lock.readLock().lock();
+        try {
+            List<I> result = new ArrayList<>(Math.toIntExact(bitmap.cardinality()));
+            bitmap.forEach(ordinal -> result.add(objectIds.get(ordinal)));
+            return Collections.unmodifiableList(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int ordinal(I objectId) {
+        Integer result = ordinals.get(objectId);
+        if (result == null) {
+            result = objectIds.size();
+            ordinals.put(objectId, result);
+            objectIds.add(objectId);
+            objectTags.add(new HashMap<>());
+        }
+        return result;
+    }
+
+    private TagBitmap union(String tagName, List<String> tagValues) {
+        Map<String, TagBitmap> values = postings.getOrDefault(tagName, Collections.emptyMap());
+        TagBitmap result = null;
+        for (String tagValue : tagValues) {
+            TagBitmap bitmap = values.get(tagValue);
+            if (bitmap != null) {
+                result = result == null ? bitmap : result.or(bitmap);
+            }
+        }
+        return result == null ? new TagBitmap() : result;
+    }
+
+    private void removePosting(String tagName, String tagValue, int ordinal) {
+        Map<String, TagBitmap> values = postings.get(tagName);
+        TagBitmap bitmap = values == null ? null : values.get(tagValue);
+        if (bitmap != null && bitmap.remove(ordinal) && bitmap.isEmpty()) {
+            values.remove(tagValue);
+            if (values.isEmpty()) {
+                postings.remove(tagName);
+            }
+        }
+    }
+
+    /**
+     * 按标签名称分组，查询标签通常只有几个，使用列表避免 {@link WindTag#groupTagsKeyValues(Collection)} 的集合开销
+     */
+    private static Map<String, List<String>> groupValues(Collection<? extends WindTag> tags) {
+        Map<String, List<String>> result = new HashMap<>();
+        for (WindTag tag : tags) {
+            List<String> values = result.computeIfAbsent(tag.name(), name -> new ArrayList<>(1));
+            if (!values.contains(tag.value())) {
+                values.add(tag.value());
+            }
+        }
+        return result;
+    }
+}
@@ -45,6 +45,19 @@ public interface EntityTagRepository<I extends Serializable> {
      */
     void saveTags(@NonNull IdObject<I> target, @NonNull Collection<EntityTag> tags);
 
+    /**
+     * 批量保存多个对象的标签，覆盖规则与 {@link #saveTags(IdObject, Collection)} 一致
+     * 默认逐个对象保存，实现可以覆盖为批量写入
+     *
+     * @param results 打标结果，打标数据的标识类型须为 I
+     */
+    @SuppressWarnings("unchecked")
+    default void saveTags(@NonNull Collection<TaggingResult> results) {
+        for (TaggingResult result : results) {
+            saveTags((IdObject<I>) result.data(), result.tags());
+        }
+    }
+
     /**
      * 获取对象指定名称的标签
      *
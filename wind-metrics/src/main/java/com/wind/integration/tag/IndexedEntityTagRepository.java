@@ -0,0 +1,141 @@
+package com.wind.integration.tag;
+
+import com.wind.common.exception.AssertUtils;
+import com.wind.integration.core.model.IdObject;
+import jakarta.validation.constraints.NotNull;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 维护标签倒排索引的标签服务装饰器
+ * 写入委托给被装饰的标签服务，写入成功后读取对象当前生效的标签（已按标签来源优先级覆盖）更新 {@link EntityTagIndex}，
+ * 低优先级来源被忽略的写入不会进入索引
+ * 读取对象标签和替换索引在按对象标识分段的锁内一步完成，并发写入同一对象时较早的读取不会覆盖较新的索引
+ * 每个写入的对象都要读取一次被装饰的标签服务（批量保存时逐个对象读取），写入吞吐受读取开销限制；
+ * 索引不保存标签来源，无法只根据写入的标签和来源优先级推导生效的标签
+ * 标签查询条件可以通过 {@link #getIndex()} 计算为位图交集，不再逐个对象读取标签
+ *
+ * @param <I> 业务对象标识类型
+ * @author wuxp
+ * @date 2026-08-14 11:00
+ **/
+public final class IndexedEntityTagRepository<I extends Serializable> implements EntityTagRepository<I> {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final EntityTagRepository<I> delegate;
+
+    private final EntityTagIndex<I> index;
+
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    public IndexedEntityTagRepository(@NonNull EntityTagRepository<I> delegate) {
+        this(delegate, new EntityTagIndex<>());
+    }
+
+    public IndexedEntityTagRepository(@NonNull EntityTagRepository<I> delegate, @NonNull EntityTagIndex<I> index) {
+        AssertUtils.notNull(delegate, "argument delegate must not null");
+        AssertUtils.notNull(index, "argument index must not null");
+        this.delegate = delegate;
+        this.index = index;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * @return 标签倒排索引
+     */
+    @NonNull
+    public EntityTagIndex<I> getIndex() {
+        return index;
+    }
+
+    /**
+     * 从被装饰的标签服务加载对象的标签到索引，用于启动时或索引丢失后重建
+     *
+     * @param objectIds 对象标识
+     */
+    public void reindex(@NonNull Collection<I> objectIds) {
+        AssertUtils.notNull(objectIds, "argument objectIds must not null");
+        for (I objectId : objectIds) {
+            refresh(objectId);
+        }
+    }
+
+    @Override
+    public void saveTags(@NonNull IdObject<I> target, @NonNull Collection<EntityTag> tags) {
+        delegate.saveTags(target, tags);
+        refresh(target.getId());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void saveTags(@NonNull Collection<TaggingResult> results) {
+        delegate.saveTags(results);
+        for (TaggingResult result : results) {
+            refresh((I) result.data().getId());
+        }
+    }
+
+    @Override
+    @Nullable
+    public EntityTag getTag(@NotNull I objectId, @NonNull String tagName) {
+        return delegate.getTag(objectId, tagName);
+    }
+
+    @Override
+    @NonNull
+    public List<EntityTag> getTags(@NonNull I objectId) {
+        return delegate.getTags(objectId);
+    }
+
+    @Override
+    @NonNull
+    public List<EntityTag> getTags(@NonNull I objectId, @NonNull TagSource source) {
+        return delegate.getTags(objectId, source);
+    }
+
+    @Override
+    public void deleteTag(@NonNull I objectId, @NonNull String tagName) {
+        delegate.deleteTag(objectId, tagName);
+        refresh(objectId);
+    }
+
+    @Override
+    public void deleteTags(@NonNull I objectId) {
+        delegate.deleteTags(objectId);
+        ReentrantLock lock = lock(objectId);
+        lock.lock();
+        try {
+            index.remove(objectId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteTags(@NonNull I objectId, @NonNull TagSource source) {
+        delegate.deleteTags(objectId, source);
+        refresh(objectId);
+    }
+
+    private void refresh(I objectId) {
+        ReentrantLock lock = lock(objectId);
+        lock.lock();
+        try {
+            index.replaceAll(objectId, delegate.getTags(objectId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lock(I objectId) {
+        return locks[Math.floorMod(objectId.hashCode(), LOCK_STRIPES)];
+    }
+}
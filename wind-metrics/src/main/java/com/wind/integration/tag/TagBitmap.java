@@ -0,0 +1,539 @@
+package com.wind.integration.tag;
+
+import com.wind.common.exception.AssertUtils;
+import org.jspecify.annotations.NonNull;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * 压缩位图，存放标签索引中的对象序号（非负 int）
+ * 按 Roaring 的方式分块：序号高 16 位作为块键，低 16 位存放在块容器中，
+ * 块内元素不超过 4096 个时使用有序 char 数组，超过后使用 1024 个 long 的位图，交集、并集按块逐个合并
+ * 非线程安全，由 {@link EntityTagIndex} 负责并发控制
+ *
+ * @author wuxp
+ * @date 2026-08-14 09:30
+ **/
+public final class TagBitmap {
+
+    /**
+     * 数组容器的最大元素数量，超过后转为位图容器（此时两者占用的内存相同）
+     */
+    private static final int ARRAY_MAX_SIZE = 4096;
+
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    private char[] keys;
+
+    private Container[] containers;
+
+    private int size;
+
+    public TagBitmap() {
+        this(new char[4], new Container[4], 0);
+    }
+
+    private TagBitmap(char[] keys, Container[] containers, int size) {
+        this.keys = keys;
+        this.containers = containers;
+        this.size = size;
+    }
+
+    /**
+     * 创建包含指定序号的位图
+     *
+     * @param values 对象序号
+     * @return 位图
+     */
+    @NonNull
+    public static TagBitmap of(int... values) {
+        TagBitmap result = new TagBitmap();
+        for (int value : values) {
+            result.add(value);
+        }
+        return result;
+    }
+
+    /**
+     * 添加序号
+     *
+     * @param value 对象序号
+     * @return 是否新增
+     */
+    public boolean add(int value) {
+        AssertUtils.isTrue(value >= 0, "argument value must not be negative");
+        char key = highBits(value);
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index < 0) {
+            insert(-index - 1, key, new ArrayContainer(lowBits(value)));
+            return true;
+        }
+        Container container = containers[index];
+        int before = container.cardinality();
+        containers[index] = container.add(lowBits(value));
+        return containers[index].cardinality() > before;
+    }
+
+    /**
+     * 移除序号
+     *
+     * @param value 对象序号
+     * @return 是否移除
+     */
+    public boolean remove(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int index = Arrays.binarySearch(keys, 0, size, highBits(value));
+        if (index < 0) {
+            return false;
+        }
+        Container container = containers[index];
+        int before = container.cardinality();
+        Container removed = container.remove(lowBits(value));
+        if (removed.cardinality() == 0) {
+            delete(index);
+        } else {
+            containers[index] = removed;
+        }
+        return removed.cardinality() < before;
+    }
+
+    /**
+     * @param value 对象序号
+     * @return 是否包含序号
+     */
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int index = Arrays.binarySearch(keys, 0, size, highBits(value));
+        return index >= 0 && containers[index].contains(lowBits(value));
+    }
+
+    /**
+     * @return 序号数量
+     */
+    public long cardinality() {
+        long result = 0;
+        for (int i = 0; i < size; i++) {
+            result += containers[i].cardinality();
+        }
+        return result;
+    }
+
+    /**
+     * @return 是否为空
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 计算交集，不修改当前位图和参数
+     *
+     * @param other 另一个位图
+     * @return 交集
+     */
+    @NonNull
+    public TagBitmap and(@NonNull TagBitmap other) {
+        TagBitmap result = new TagBitmap(new char[Math.max(1, Math.min(size, other.size))],
+                new Container[Math.max(1, Math.min(size, other.size))], 0);
+        int left = 0;
+        int right = 0;
+        while (left < size && right < other.size) {
+            if (keys[left] < other.keys[right]) {
+                left++;
+            } else if (keys[left] > other.keys[right]) {
+                right++;
+            } else {
+                Container container = containers[left].and(other.containers[right]);
+                if (container.cardinality() > 0) {
+                    result.append(keys[left], container);
+                }
+                left++;
+                right++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 计算并集，不修改当前位图和参数
+     *
+     * @param other 另一个位图
+     * @return 并集
+     */
+    @NonNull
+    public TagBitmap or(@NonNull TagBitmap other) {
+        TagBitmap result = new TagBitmap(new char[Math.max(1, size + other.size)],
+                new Container[Math.max(1, size + other.size)], 0);
+        int left = 0;
+        int right = 0;
+        while (left < size || right < other.size) {
+            if (right == other.size || (left < size && keys[left] < other.keys[right])) {
+                result.append(keys[left], containers[left].copy());
+                left++;
+            } else if (left == size || keys[left] > other.keys[right]) {
+                result.append(other.keys[right], other.containers[right].copy());
+                right++;
+            } else {
+                result.append(keys[left], containers[left].or(other.containers[right]));
+                left++;
+                right++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 复制位图
+     *
+     * @return 副本
+     */
+    @NonNull
+    public TagBitmap copy() {
+        Container[] copied = new Container[Math.max(1, size)];
+        for (int i = 0; i < size; i++) {
+            copied[i] = containers[i].copy();
+        }
+        return new TagBitmap(Arrays.copyOf(keys, copied.length), copied, size);
+    }
+
+    /**
+     * 按升序遍历序号
+     *
+     * @param consumer 序号消费者
+     */
+    public void forEach(@NonNull IntConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, consumer);
+        }
+    }
+
+    /**
+     * @return 升序排列的序号
+     */
+    @NonNull
+    public int[] toArray() {
+        int[] result = new int[Math.toIntExact(cardinality())];
+        int[] position = {0};
+        forEach(value -> result[position[0]++] = value);
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof TagBitmap other) || size != other.size) {
+            return false;
+        }
+        return Arrays.equals(toArray(), other.toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        return "TagBitmap{cardinality=" + cardinality() + "}";
+    }
+
+    private void insert(int index, char key, Container container) {
+        ensureCapacity(size + 1);
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private void append(char key, Container container) {
+        ensureCapacity(size + 1);
+        keys[size] = key;
+        containers[size] = container;
+        size++;
+    }
+
+    private void delete(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        size--;
+        containers[size] = null;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > keys.length) {
+            int length = Math.max(capacity, keys.length * 2);
+            keys = Arrays.copyOf(keys, length);
+            containers = Arrays.copyOf(containers, length);
+        }
+    }
+
+    private static char highBits(int value) {
+        return (char) (value >>> 16);
+    }
+
+    private static char lowBits(int value) {
+        return (char) value;
+    }
+
+    /**
+     * 块容器，修改操作可能返回转换后的新容器
+     **/
+    private sealed interface Container permits ArrayContainer, BitmapContainer {
+
+        Container add(char value);
+
+        Container remove(char value);
+
+        boolean contains(char value);
+
+        int cardinality();
+
+        Container and(Container other);
+
+        Container or(Container other);
+
+        Container copy();
+
+        void forEach(int high, IntConsumer consumer);
+    }
+
+    /**
+     * 稀疏块，有序 char 数组
+     **/
+    private static final class ArrayContainer implements Container {
+
+        private char[] values;
+
+        private int cardinality;
+
+        ArrayContainer(char value) {
+            this(new char[]{value, 0, 0, 0}, 1);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        public Container add(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX_SIZE) {
+                return toBitmap().add(value);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX_SIZE, values.length * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        public Container remove(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public Container and(Container other) {
+            char[] result = new char[Math.max(1, cardinality)];
+            int count = 0;
+            if (other instanceof ArrayContainer array) {
+                int left = 0;
+                int right = 0;
+                while (left < cardinality && right < array.cardinality) {
+                    if (values[left] < array.values[right]) {
+                        left++;
+                    } else if (values[left] > array.values[right]) {
+                        right++;
+                    } else {
+                        result[count++] = values[left];
+                        left++;
+                        right++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        result[count++] = values[i];
+                    }
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        public Container or(Container other) {
+            if (other instanceof BitmapContainer bitmap) {
+                return bitmap.or(this);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            char[] result = new char[Math.max(1, cardinality + array.cardinality)];
+            int count = 0;
+            int left = 0;
+            int right = 0;
+            while (left < cardinality || right < array.cardinality) {
+                if (right == array.cardinality || (left < cardinality && values[left] < array.values[right])) {
+                    result[count++] = values[left++];
+                } else if (left == cardinality || values[left] > array.values[right]) {
+                    result[count++] = array.values[right++];
+                } else {
+                    result[count++] = values[left++];
+                    right++;
+                }
+            }
+            ArrayContainer merged = new ArrayContainer(result, count);
+            return count > ARRAY_MAX_SIZE ? merged.toBitmap() : merged;
+        }
+
+        @Override
+        public Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(1, cardinality)), cardinality);
+        }
+
+        @Override
+        public void forEach(int high, IntConsumer consumer) {
+            for (int i = 0; i < cardinality; i++) {
+                consumer.accept(high | values[i]);
+            }
+        }
+
+        private BitmapContainer toBitmap() {
+            BitmapContainer result = new BitmapContainer(new long[BITMAP_WORDS], 0);
+            for (int i = 0; i < cardinality; i++) {
+                result.add(values[i]);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 稠密块，65536 位的位图
+     **/
+    private static final class BitmapContainer implements Container {
+
+        private final long[] words;
+
+        private int cardinality;
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        public Container add(char value) {
+            long word = words[value >>> 6];
+            long updated = word | (1L << value);
+            if (updated != word) {
+                words[value >>> 6] = updated;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        public Container remove(char value) {
+            long word = words[value >>> 6];
+            long updated = word & ~(1L << value);
+            if (updated != word) {
+                words[value >>> 6] = updated;
+                cardinality--;
+            }
+            return cardinality > ARRAY_MAX_SIZE ? this : toArray();
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public Container and(Container other) {
+            if (other instanceof ArrayContainer array) {
+                return array.and(this);
+            }
+            BitmapContainer bitmap = (BitmapContainer) other;
+            long[] result = new long[BITMAP_WORDS];
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result[i] = words[i] & bitmap.words[i];
+                count += Long.bitCount(result[i]);
+            }
+            BitmapContainer intersection = new BitmapContainer(result, count);
+            return count > ARRAY_MAX_SIZE ? intersection : intersection.toArray();
+        }
+
+        @Override
+        public Container or(Container other) {
+            BitmapContainer result = (BitmapContainer) copy();
+            if (other instanceof ArrayContainer array) {
+                for (int i = 0; i < array.cardinality; i++) {
+                    result.add(array.values[i]);
+                }
+                return result;
+            }
+            BitmapContainer bitmap = (BitmapContainer) other;
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result.words[i] |= bitmap.words[i];
+                count += Long.bitCount(result.words[i]);
+            }
+            result.cardinality = count;
+            return result;
+        }
+
+        @Override
+        public Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        public void forEach(int high, IntConsumer consumer) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    consumer.accept(high | (i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        private ArrayContainer toArray() {
+            char[] values = new char[Math.max(1, cardinality)];
+            int[] position = {0};
+            forEach(0, value -> values[position[0]++] = (char) value);
+            return new ArrayContainer(values, cardinality);
+        }
+    }
+}
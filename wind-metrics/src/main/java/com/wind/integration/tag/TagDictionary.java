@@ -0,0 +1,140 @@
+package com.wind.integration.tag;
+
+import com.wind.common.exception.AssertUtils;
+import org.jspecify.annotations.NonNull;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 标签字典，将 (标签名称, 标签值) 驻留为 int 标识
+ * 每个不同的标签只保存一个规范的 {@link WindTag} 实例，标签名称字符串在同名标签之间共享，
+ * {@link CompactTagSet} 只保存标签标识，大量缓存对象的标签集合不再各自持有标签对象和字符串
+ * 字典只增不减，适合标签名称和值可枚举的场景（规则、风控标签），不要驻留不受控的自由文本
+ * 线程安全，读取不加锁
+ *
+ * @author wuxp
+ * @date 2026-08-16 09:30
+ **/
+public final class TagDictionary {
+
+    private final Map<String, String> names = new ConcurrentHashMap<>();
+
+    private final Map<ImmutableTag, Integer> ids = new ConcurrentHashMap<>();
+
+    /**
+     * 标签标识 -> 规范标签，扩容时整体替换，每次驻留后重新发布
+     */
+    private volatile WindTag[] tags = new WindTag[64];
+
+    private int size;
+
+    /**
+     * 驻留标签
+     *
+     * @param tag 标签
+     * @return 标签标识
+     */
+    public int intern(@NonNull WindTag tag) {
+        AssertUtils.notNull(tag, "argument tag must not null");
+        return intern(tag.name(), tag.value());
+    }
+
+    /**
+     * 驻留标签
+     *
+     * @param name  标签名称
+     * @param value 标签值
+     * @return 标签标识
+     */
+    public int intern(@NonNull String name, @NonNull String value) {
+        AssertUtils.hasText(name, "argument name must not empty");
+        AssertUtils.notNull(value, "argument value must not null");
+        Integer result = ids.get(new ImmutableTag(name, value));
+        return result == null ? add(name, value) : result;
+    }
+
+    /**
+     * 查找标签标识，不驻留
+     *
+     * @param name  标签名称
+     * @param value 标签值
+     * @return 标签标识，未驻留时返回 -1
+     */
+    public int find(@NonNull String name, @NonNull String value) {
+        return ids.getOrDefault(new ImmutableTag(name, value), -1);
+    }
+
+    /**
+     * @param id 标签标识
+     * @return 规范标签
+     */
+    @NonNull
+    public WindTag getTag(int id) {
+        WindTag[] current = tags;
+        AssertUtils.isTrue(id >= 0 && id < current.length && current[id] != null, () -> "unknown tag id: " + id);
+        return current[id];
+    }
+
+    /**
+     * 创建紧凑标签集合
+     *
+     * @param tags 标签
+     * @return 紧凑标签集合
+     */
+    @NonNull
+    public CompactTagSet tagSet(@NonNull Collection<? extends WindTag> tags) {
+        AssertUtils.notNull(tags, "argument tags must not null");
+        if (tags instanceof CompactTagSet set && set.getDictionary() == this) {
+            return set;
+        }
+        int[] result = new int[tags.size()];
+        int index = 0;
+        for (WindTag tag : tags) {
+            result[index++] = intern(tag);
+        }
+        return CompactTagSet.of(this, result);
+    }
+
+    /**
+     * 创建紧凑标签集合
+     *
+     * @param keyValues 标签键值对，偶数位表示 key, 奇数位表示 value，例如：{"信用评级","A"}
+     * @return 紧凑标签集合
+     */
+    @NonNull
+    public CompactTagSet tagSet(String... keyValues) {
+        int[] result = new int[keyValues.length / 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = intern(keyValues[i * 2], keyValues[i * 2 + 1]);
+        }
+        return CompactTagSet.of(this, result);
+    }
+
+    /**
+     * @return 驻留的标签数量
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    private synchronized int add(String name, String value) {
+        ImmutableTag tag = new ImmutableTag(names.computeIfAbsent(name, key -> key), value);
+        Integer existing = ids.get(tag);
+        if (existing != null) {
+            return existing;
+        }
+        WindTag[] current = tags;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, size * 2);
+        }
+        int result = size++;
+        current[result] = tag;
+        // 先发布数组再发布标识，通过标识读取标签的线程一定能看到标签
+        tags = current;
+        ids.put(tag, result);
+        return result;
+    }
+}
@@ -0,0 +1,46 @@
+package com.wind.integration.tag;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 批量模拟打标的差异报告
+ *
+ * @param processed     处理的对象数量（包含失败的对象）
+ * @param changed       标签有变化的对象数量
+ * @param failed        评估失败的对象数量，失败批次内的对象全部计入
+ * @param transitions   标签变化及其对象数量，按数量从大到小排列
+ * @param overflowed    超过变化种类上限而未单独统计的标签变化数量
+ * @param changedSample 标签有变化的对象标识样本
+ * @param firstFailure  第一个失败批次的异常，没有失败时为空
+ * @author wuxp
+ * @date 2026-08-17 10:00
+ */
+public record TagSimulationReport(long processed,
+                                  long changed,
+                                  long failed,
+                                  @NonNull List<Transition> transitions,
+                                  long overflowed,
+                                  @NonNull List<Serializable> changedSample,
+                                  @Nullable Throwable firstFailure) {
+
+    public TagSimulationReport {
+        transitions = List.copyOf(transitions);
+        changedSample = List.copyOf(changedSample);
+    }
+
+    /**
+     * 标签变化，只比较标签值，不比较标签来源
+     *
+     * @param tagName 标签名称
+     * @param before  原规则的标签值，为空表示新增标签
+     * @param after   新规则的标签值，为空表示移除标签
+     * @param count   发生该变化的对象数量
+     */
+    public record Transition(@NonNull String tagName, @Nullable String before, @Nullable String after, long count) {
+
+    }
+}
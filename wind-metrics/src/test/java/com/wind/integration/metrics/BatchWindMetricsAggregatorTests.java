@@ -0,0 +1,90 @@
+package com.wind.integration.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * 批量指标对象聚合测试。
+ *
+ * @author wuxp
+ * @date 2026-08-06 10:20
+ */
+class BatchWindMetricsAggregatorTests {
+
+    private final List<List<?>> batches = new ArrayList<>();
+
+    private final WindMetricsAggregatorFactory factory = new DefaultWindMetricsAggregatorFactory(this::load, 4);
+
+    @Test
+    @DisplayName("按批次加载维度标识，字段按类型转换后逐个交给调用方")
+    void testAggregateInBatches() {
+        Map<Object, Example> result = new LinkedHashMap<>();
+        factory.factory(Example.class)
+                .named("successTotal", "success_total")
+                .named("totalAmount", "total_amount")
+                .aggregate(WindMetricsAggregationQuery.of("user", 0L),
+                        IntStream.rangeClosed(1, 10).mapToObj(i -> (Object) (long) i).toList(), result::put);
+
+        Assertions.assertEquals(3, batches.size());
+        Assertions.assertEquals(List.of(9L, 10L), batches.get(2));
+        Assertions.assertEquals(10, result.size());
+        Assertions.assertEquals(3, result.get(3L).successTotal);
+        Assertions.assertEquals(300L, result.get(3L).totalAmount);
+        Assertions.assertNull(result.get(10L).successTotal);
+        Assertions.assertEquals(0L, result.get(10L).totalAmount);
+    }
+
+    @Test
+    @DisplayName("多值指标按同名子指标映射字段，named 可以覆盖映射")
+    void testAggregateMultipleValueMetrics() {
+        Summary summary = factory.factory("summary", Summary.class)
+                .named("total", "amount")
+                .aggregate(WindMetricsAggregationQuery.of("user", 7L));
+
+        Assertions.assertEquals(7, summary.count);
+        Assertions.assertEquals(new BigDecimal("1.50"), summary.total);
+        Assertions.assertEquals(List.of(List.of(7L)), batches);
+    }
+
+    private Map<Object, Map<String, Object>> load(WindMetricsAggregationQuery query, Collection<?> dimensionsIds,
+                                                  Collection<String> metricsNames) {
+        batches.add(List.copyOf(dimensionsIds));
+        Map<Object, Map<String, Object>> result = new HashMap<>();
+        for (Object dimensionsId : dimensionsIds) {
+            long id = (Long) dimensionsId;
+            if (id % 10 == 0) {
+                continue;
+            }
+            Map<String, Object> values = new HashMap<>();
+            values.put("success_total", id);
+            values.put("total_amount", id * 100);
+            values.put("summary", Map.of("count", id, "amount", new BigDecimal("1.50")));
+            result.put(dimensionsId, values);
+        }
+        return result;
+    }
+
+    static class Example {
+
+        private Integer successTotal;
+
+        private long totalAmount;
+    }
+
+    static class Summary {
+
+        private int count;
+
+        private BigDecimal total;
+    }
+}
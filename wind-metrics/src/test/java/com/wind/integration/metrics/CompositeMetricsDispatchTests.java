@@ -0,0 +1,83 @@
+package com.wind.integration.metrics;
+
+import com.wind.common.exception.BaseException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 组合执行器和组合解析器按类型分派的测试。
+ *
+ * @author wuxp
+ * @date 2026-08-03 09:20
+ */
+class CompositeMetricsDispatchTests {
+
+    @Test
+    @DisplayName("执行器按业务对象类型分派到全部支持的委托，支持判断每个类型只执行一次")
+    void testExecutorDispatchesToAllSupportingDelegatesOnce() {
+        AtomicInteger supportsCalls = new AtomicInteger();
+        List<String> executed = new ArrayList<>();
+        CompositeMetricsStatisticsExecutor executor = new CompositeMetricsStatisticsExecutor(List.of(
+                executor("number", Number.class, supportsCalls, executed),
+                executor("string", String.class, supportsCalls, executed),
+                executor("long", Long.class, supportsCalls, executed)));
+
+        executor.execute(1L);
+        executor.execute(2L);
+        executor.execute(3);
+
+        Assertions.assertEquals(List.of("number", "long", "number", "long", "number"), executed);
+        Assertions.assertEquals(6, supportsCalls.get());
+    }
+
+    @Test
+    @DisplayName("解析器返回第一个支持的委托，未找到时抛出异常")
+    void testResolverUsesFirstSupportingDelegate() {
+        CompositeMetricsValueResolver resolver = new CompositeMetricsValueResolver(List.of(
+                resolver("number", Number.class), resolver("integer", Integer.class)));
+
+        Assertions.assertEquals("number", resolver.resolve(1L, Integer.class));
+        Assertions.assertEquals("number", resolver.resolve(List.of(1L), Long.class));
+        Assertions.assertThrows(BaseException.class, () -> resolver.resolve(1L, String.class));
+    }
+
+    private static WindMetricsStatisticsExecutor<?> executor(String name, Class<?> type, AtomicInteger supportsCalls,
+                                                             List<String> executed) {
+        return new WindMetricsStatisticsExecutor<>() {
+
+            @Override
+            public void execute(Object businessObject, Map<String, Object> variables) {
+                executed.add(name);
+            }
+
+            @Override
+            public boolean supports(Class<?> businessObjectType) {
+                supportsCalls.incrementAndGet();
+                return type.isAssignableFrom(businessObjectType);
+            }
+        };
+    }
+
+    private static WindMetricsValueResolver<?> resolver(String name, Class<?> type) {
+        return new WindMetricsValueResolver<Object>() {
+
+            @Override
+            public Object resolve(Collection<? extends Serializable> dimensionsIds, Class<?> metricsValueType) {
+                return name;
+            }
+
+            @Override
+            public boolean supports(Class<Object> metricsValueType) {
+                return type.isAssignableFrom(metricsValueType);
+            }
+        };
+    }
+}
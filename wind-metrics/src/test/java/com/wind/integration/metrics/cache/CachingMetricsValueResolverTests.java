@@ -0,0 +1,218 @@
+package com.wind.integration.metrics.cache;
+
+import com.wind.integration.metrics.WindMetricsValueResolver;
+import com.wind.integration.metrics.pipeline.WindMetricsIncrement;
+import com.wind.integration.metrics.pipeline.WindMetricsIncrementWriter;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分层缓存指标值解析器测试。
+ *
+ * @author wuxp
+ * @date 2026-08-04 10:15
+ */
+class CachingMetricsValueResolverTests {
+
+    private final AtomicLong version = new AtomicLong(1);
+
+    private final List<String> loads = new ArrayList<>();
+
+    private final Map<String, Object> shared = new HashMap<>();
+
+    private final List<Runnable> refreshTasks = new ArrayList<>();
+
+    private final MutableClock clock = new MutableClock();
+
+    private final CachingMetricsValueResolver.Settings settings = new CachingMetricsValueResolver.Settings(1000,
+            Set.of(String.class), Duration.ofMinutes(1), Duration.ofMinutes(5), Duration.ofSeconds(10), "metrics:");
+
+    private final CachingMetricsValueResolver resolver = new CachingMetricsValueResolver(new MerchantResolver(),
+            new MapSharedCache(), settings, refreshTasks::add, clock);
+
+    private volatile Runnable afterLoad = () -> {
+    };
+
+    @Test
+    @DisplayName("同一业务维度重复解析命中近端缓存，并回填共享缓存")
+    void testResolveHitsNearCache() {
+        Assertions.assertEquals("m1#1", resolver.resolve("m1", String.class));
+        Assertions.assertEquals("m1#1", resolver.resolve(List.of("m1"), String.class));
+
+        Assertions.assertEquals(List.of("m1"), loads);
+        Assertions.assertEquals("m1#1", shared.get("metrics:java.lang.String:m1"));
+    }
+
+    @Test
+    @DisplayName("近端缓存未命中时优先读取共享缓存")
+    void testResolveFromSharedCache() {
+        shared.put("metrics:java.lang.String:m2", "m2#shared");
+
+        Assertions.assertEquals("m2#shared", resolver.resolve("m2", String.class));
+        Assertions.assertTrue(loads.isEmpty());
+    }
+
+    @Test
+    @DisplayName("增量写入成功后淘汰两层缓存，下一次解析重新加载")
+    void testInvalidateAfterIncrementWrite() {
+        resolver.resolve("m1", String.class);
+        WindMetricsIncrementWriter writer = resolver.invalidating(increments -> version.incrementAndGet());
+
+        writer.write(List.of(new WindMetricsIncrement("order_count", "m1", 1L),
+                new WindMetricsIncrement("order_amount", "m1", 2L)));
+
+        Assertions.assertFalse(shared.containsKey("metrics:java.lang.String:m1"));
+        Assertions.assertEquals("m1#2", resolver.resolve("m1", String.class));
+        Assertions.assertEquals(List.of("m1", "m1"), loads);
+    }
+
+    @Test
+    @DisplayName("条目陈旧后先返回旧值，后台刷新只提交一次，刷新后返回新值")
+    void testStaleWhileRevalidate() {
+        resolver.resolve("m1", String.class);
+        version.incrementAndGet();
+        clock.advance(Duration.ofSeconds(15));
+
+        Assertions.assertEquals("m1#1", resolver.resolve("m1", String.class));
+        Assertions.assertEquals("m1#1", resolver.resolve("m1", String.class));
+        Assertions.assertEquals(1, refreshTasks.size());
+        refreshTasks.get(0).run();
+
+        Assertions.assertEquals("m1#2", resolver.resolve("m1", String.class));
+        Assertions.assertEquals("m1#2", shared.get("metrics:java.lang.String:m1"));
+    }
+
+    @Test
+    @DisplayName("后台刷新被执行器拒绝时返回旧值，后续解析重新提交刷新")
+    void testRefreshRejectedIsResubmitted() {
+        AtomicLong rejections = new AtomicLong();
+        CachingMetricsValueResolver rejecting = new CachingMetricsValueResolver(new MerchantResolver(),
+                new MapSharedCache(), settings, task -> {
+                    if (rejections.getAndIncrement() == 0) {
+                        throw new RejectedExecutionException("refresh queue is full");
+                    }
+                    refreshTasks.add(task);
+                }, clock);
+        rejecting.resolve("m1", String.class);
+        version.incrementAndGet();
+        clock.advance(Duration.ofSeconds(15));
+
+        Assertions.assertEquals("m1#1", rejecting.resolve("m1", String.class));
+        Assertions.assertEquals("m1#1", rejecting.resolve("m1", String.class));
+        Assertions.assertEquals(1, refreshTasks.size());
+        refreshTasks.get(0).run();
+
+        Assertions.assertEquals("m1#2", rejecting.resolve("m1", String.class));
+    }
+
+    @Test
+    @DisplayName("未解析过的进程按声明的值类型淘汰共享缓存，未声明的值类型不缓存")
+    void testInvalidateDeclaredValueTypesFromWriter() {
+        resolver.resolve("m1", String.class);
+        CachingMetricsValueResolver writer = new CachingMetricsValueResolver(new MerchantResolver(),
+                new MapSharedCache(), settings, refreshTasks::add, clock);
+
+        writer.invalidate("m1");
+        resolver.resolve("m1", Object.class);
+        resolver.resolve("m1", Object.class);
+
+        Assertions.assertFalse(shared.containsKey("metrics:java.lang.String:m1"));
+        Assertions.assertEquals(List.of("m1", "m1", "m1"), loads);
+        Assertions.assertFalse(shared.containsKey("metrics:java.lang.Object:m1"));
+    }
+
+    @Test
+    @DisplayName("后台刷新期间发生淘汰时，不把刷新加载的旧值写回共享缓存")
+    void testRefreshRacingInvalidateDoesNotWriteBack() {
+        resolver.resolve("m1", String.class);
+        clock.advance(Duration.ofSeconds(15));
+        resolver.resolve("m1", String.class);
+        afterLoad = () -> {
+            version.incrementAndGet();
+            resolver.invalidate("m1");
+        };
+
+        refreshTasks.get(0).run();
+        afterLoad = () -> {
+        };
+
+        Assertions.assertFalse(shared.containsKey("metrics:java.lang.String:m1"));
+        Assertions.assertEquals("m1#2", resolver.resolve("m1", String.class));
+        Assertions.assertEquals("m1#2", shared.get("metrics:java.lang.String:m1"));
+    }
+
+    private final class MerchantResolver implements WindMetricsValueResolver<Object> {
+
+        @Override
+        public Object resolve(Collection<? extends Serializable> dimensionsIds, Class<?> metricsValueType) {
+            String id = String.valueOf(dimensionsIds.iterator().next());
+            loads.add(id);
+            String result = id + "#" + version.get();
+            afterLoad.run();
+            return result;
+        }
+
+        @Override
+        public boolean supports(Class<Object> metricsValueType) {
+            return true;
+        }
+    }
+
+    private final class MapSharedCache implements WindMetricsValueSharedCache {
+
+        @Override
+        public @Nullable Object get(String key) {
+            return shared.get(key);
+        }
+
+        @Override
+        public void put(String key, Object value, Duration ttl) {
+            shared.put(key, value);
+        }
+
+        @Override
+        public void evict(String key) {
+            shared.remove(key);
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant = Instant.parse("2026-08-04T02:00:00Z");
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("Asia/Shanghai");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
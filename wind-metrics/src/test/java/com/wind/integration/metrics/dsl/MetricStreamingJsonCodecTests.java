@@ -0,0 +1,156 @@
+package com.wind.integration.metrics.dsl;
+
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import com.wind.integration.metrics.enums.MetricExecutionMode;
+import com.wind.integration.metrics.enums.MetricSegmentSourceType;
+import com.wind.integration.metrics.enums.MetricValueShape;
+import com.wind.integration.metrics.enums.MetricValueType;
+import com.wind.integration.metrics.enums.SnapshotGranularity;
+import com.wind.integration.metrics.query.MetricBatchQuery;
+import com.wind.integration.metrics.query.MetricFieldValue;
+import com.wind.integration.metrics.query.MetricQuery;
+import com.wind.integration.metrics.query.MetricResult;
+import com.wind.integration.metrics.query.MetricSegmentResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 指标查询与结果流式 JSON 编解码测试。
+ *
+ * @author wuxp
+ * @date 2026-08-11 10:20
+ */
+class MetricStreamingJsonCodecTests {
+
+    private static final LocalDateTime START_TIME = LocalDateTime.of(2026, 3, 1, 0, 0);
+
+    private static final LocalDateTime CUTOVER_TIME = LocalDateTime.of(2026, 4, 15, 0, 0);
+
+    private static final LocalDateTime END_TIME = LocalDateTime.of(2026, 7, 15, 0, 0);
+
+    private final MetricStreamingJsonCodec codec = new MetricStreamingJsonCodec();
+
+    @Test
+    @DisplayName("流式写出多字段和分段结果，小数按普通数字写出")
+    void testWriteFieldSetAndSegmentedResults() {
+        Map<String, MetricFieldValue> fields = new LinkedHashMap<>();
+        fields.put("approvedTotal", new MetricFieldValue(MetricValueType.LONG, 3L));
+        fields.put("approvalRate", new MetricFieldValue(MetricValueType.DECIMAL, new BigDecimal("1E-7")));
+        MetricResult scalar = new MetricResult("VCC_APPROVED_TOTAL", 2, MetricExecutionMode.REALTIME, null, null,
+                MetricValueShape.SCALAR, MetricValueType.LONG, 42L, Map.of(), "cust_001", START_TIME, END_TIME,
+                END_TIME, ZoneId.of("Asia/Shanghai"), null, null, null, null, List.of());
+        MetricResult segmented = new MetricResult("VCC_AUTH_SUMMARY", 1, MetricExecutionMode.SEGMENTED, null, null,
+                MetricValueShape.FIELD_SET, null, null, fields, "cust_001", START_TIME, END_TIME, END_TIME,
+                ZoneId.of("Asia/Shanghai"), null, null, null, null, List.of(
+                new MetricSegmentResult("archive", MetricSegmentSourceType.SNAPSHOT, START_TIME, CUTOVER_TIME,
+                        SnapshotGranularity.DAY, START_TIME, CUTOVER_TIME, null),
+                new MetricSegmentResult("recent", MetricSegmentSourceType.REALTIME, CUTOVER_TIME, END_TIME,
+                        null, null, null, END_TIME)));
+        StringWriter output = new StringWriter();
+
+        codec.writeResults(List.of(scalar, segmented), output);
+
+        String json = output.toString();
+        Assertions.assertTrue(json.startsWith("[{\"metricCode\":\"VCC_APPROVED_TOTAL\",\"definitionRevision\":2,"));
+        Assertions.assertTrue(json.contains("\"value\":42,\"fields\":{}"));
+        Assertions.assertTrue(json.contains("\"approvedTotal\":{\"valueType\":\"LONG\",\"value\":3}"));
+        Assertions.assertTrue(json.contains("\"approvalRate\":{\"valueType\":\"DECIMAL\",\"value\":0.0000001}"));
+        Assertions.assertTrue(json.contains("\"segmentCode\":\"archive\",\"sourceType\":\"SNAPSHOT\","
+                + "\"startTime\":\"2026-03-01T00:00:00\",\"endTime\":\"2026-04-15T00:00:00\""));
+        Assertions.assertTrue(json.contains("\"timeZone\":\"Asia/Shanghai\""));
+        Assertions.assertTrue(json.endsWith("}]}]"));
+    }
+
+    @Test
+    @DisplayName("逐个读取查询数组，维度映射直接交给查询不再复制")
+    void testReadQueriesWithoutIntermediateTree() {
+        String json = """
+                [
+                  {"metricCode": "VCC_APPROVED_TOTAL", "subjectId": "cust_001",
+                   "startTime": "2026-03-01 00:00:00", "endTime": "2026-07-15T00:00:00",
+                   "dimensionValues": {"currency": "USD", "amount": 12.50, "count": 3, "large": 3000000000},
+                   "parameterValues": {"days": 7}},
+                  {"metricCode": "VCC_TOTAL_AMOUNT",
+                   "startTime": "2026-03-01T00:00:00", "endTime": "2026-07-15T00:00:00"}
+                ]
+                """;
+        List<MetricQuery> queries = new ArrayList<>();
+
+        codec.readQueries(input(json), queries::add);
+
+        Assertions.assertEquals(2, queries.size());
+        MetricQuery query = queries.get(0);
+        Assertions.assertEquals(START_TIME, query.startTime());
+        Assertions.assertEquals(new BigDecimal("12.50"), query.dimensionValues().get("amount"));
+        Assertions.assertEquals(3, query.dimensionValues().get("count"));
+        Assertions.assertEquals(3_000_000_000L, query.dimensionValues().get("large"));
+        Assertions.assertEquals(7, query.parameterValues().get("days"));
+        Assertions.assertSame(query.dimensionValues(), query.dimensionValues());
+        Assertions.assertTrue(queries.get(1).dimensionValues().isEmpty());
+        Assertions.assertNull(queries.get(1).subjectId());
+    }
+
+    @Test
+    @DisplayName("数组中查询的错误路径带元素下标")
+    void testReadQueriesReportsIndexedPath() {
+        String json = """
+                [
+                  {"metricCode": "VCC_APPROVED_TOTAL",
+                   "startTime": "2026-03-01T00:00:00", "endTime": "2026-07-15T00:00:00"},
+                  {"metricCode": "VCC_TOTAL_AMOUNT",
+                   "startTime": "2026-03-01T00:00:00", "endTime": "2026-07-15T00:00:00",
+                   "dimensionValues": {"currency": null}}
+                ]
+                """;
+        List<MetricQuery> queries = new ArrayList<>();
+
+        MetricValidationException exception = Assertions.assertThrows(
+                MetricValidationException.class, () -> codec.readQueries(input(json), queries::add));
+
+        Assertions.assertEquals(MetricErrorCode.QUERY_INVALID, exception.errorCode());
+        Assertions.assertEquals("/1/dimensionValues/currency", exception.fieldPath());
+        Assertions.assertEquals(1, queries.size());
+    }
+
+    @Test
+    @DisplayName("流式读取批量查询，拒绝未知字段和重复字段")
+    void testReadBatchQuery() {
+        MetricBatchQuery query = codec.readBatchQuery(input("""
+                {"metricCodes": ["VCC_APPROVED_TOTAL", "VCC_TOTAL_AMOUNT"], "subjectId": "cust_001",
+                 "startTime": "2026-03-01T00:00:00", "endTime": "2026-07-15T00:00:00",
+                 "dimensionValues": {"currency": "USD"}}
+                """));
+        MetricValidationException unknown = Assertions.assertThrows(MetricValidationException.class,
+                () -> codec.readBatchQuery(input("""
+                        {"metricCodes": ["VCC_APPROVED_TOTAL"], "parameterValues": {"days": 7}}
+                        """)));
+        MetricValidationException duplicated = Assertions.assertThrows(MetricValidationException.class,
+                () -> codec.readBatchQuery(input("""
+                        {"subjectId": "cust_001", "subjectId": "cust_002"}
+                        """)));
+
+        Assertions.assertEquals(List.of("VCC_APPROVED_TOTAL", "VCC_TOTAL_AMOUNT"), query.metricCodes());
+        Assertions.assertEquals("USD", query.dimensionValues().get("currency"));
+        Assertions.assertEquals("/parameterValues", unknown.fieldPath());
+        Assertions.assertEquals(MetricErrorCode.DSL_FIELD_DUPLICATED, duplicated.errorCode());
+        Assertions.assertEquals("/subjectId", duplicated.fieldPath());
+    }
+
+    private static InputStream input(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,234 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.dsl.MetricDefinitionDslCodec;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import com.wind.integration.metrics.query.MetricQuery;
+import com.wind.integration.metrics.query.MetricResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 派生表达式编译和派生指标执行测试。
+ *
+ * @author wuxp
+ * @date 2026-07-31 09:30
+ */
+class DerivedMetricExecutorTests {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 7, 1, 0, 0);
+
+    private static final LocalDateTime END = LocalDateTime.of(2026, 7, 2, 0, 0);
+
+    private final MetricDefinitionDslCodec codec = new MetricDefinitionDslCodec();
+
+    private final MetricDefinitionCompiler compiler = new MetricDefinitionCompiler();
+
+    private final List<MetricFactRow> rows = new ArrayList<>();
+
+    private final List<String> leafExecutions = new ArrayList<>();
+
+    private final Clock clock = Clock.fixed(Instant.parse("2026-07-02T01:00:00Z"), ZONE);
+
+    private final RealtimeMetricExecutor realtimeExecutor =
+            new RealtimeMetricExecutor((scan, consumer) -> rows.forEach(consumer), clock);
+
+    private final DerivedMetricExecutor executor = new DerivedMetricExecutor((definition, query) -> {
+        leafExecutions.add(definition.code());
+        return realtimeExecutor.execute(definition, query);
+    }, clock);
+
+    @Test
+    @DisplayName("事实指标的表达式字段在 measure 结果上按依赖顺序求值并按声明精度舍入")
+    void testEvaluateExpressionFieldsOfFactMetric() {
+        addTransaction("APPROVED", "10");
+        addTransaction("APPROVED", "20");
+        addTransaction("DECLINED", "5");
+        CompiledMetricDefinition definition = compiler.compile(codec.parse(summaryDefinition()), 1);
+
+        MetricResult result = realtimeExecutor.execute(definition, query("VCC_APPROVAL_SUMMARY"));
+
+        Assertions.assertEquals(3L, result.fields().get("count").value());
+        Assertions.assertEquals(new BigDecimal("0.6667"), result.fields().get("approvalRate").value());
+        Assertions.assertEquals(new BigDecimal("66.6700"), result.fields().get("approvalPercent").value());
+        Assertions.assertEquals(15L, result.fields().get("averageTicket").value());
+    }
+
+    @Test
+    @DisplayName("除数为零或操作数缺失时结果缺失并应用 orElse")
+    void testDivideByZeroFallsBackToOrElse() {
+        CompiledMetricDefinition definition = compiler.compile(codec.parse(summaryDefinition()), 1);
+
+        MetricResult result = realtimeExecutor.execute(definition, query("VCC_APPROVAL_SUMMARY"));
+
+        Assertions.assertEquals(0L, result.fields().get("count").value());
+        Assertions.assertEquals(new BigDecimal("0.0000"), result.fields().get("approvalRate").value());
+        Assertions.assertEquals(new BigDecimal("0.0000"), result.fields().get("approvalPercent").value());
+        Assertions.assertNull(result.fields().get("averageTicket").value());
+    }
+
+    @Test
+    @DisplayName("派生指标展开依赖图，多条路径引用的叶子指标每次查询只执行一次")
+    void testExecuteDerivedMetricFetchesEachLeafOnce() {
+        addTransaction("APPROVED", "10");
+        addTransaction("DECLINED", "5");
+        addTransaction("DECLINED", "5");
+        addTransaction("APPROVED", "20");
+        CompiledMetricDefinition approved = compiler.compile(codec.parse(countDefinition("VCC_APPROVED_COUNT",
+                ", \"filter\": {\"eq\": {\"status\": \"APPROVED\"}}")), 1);
+        CompiledMetricDefinition total = compiler.compile(codec.parse(countDefinition("VCC_TOTAL_COUNT", "")), 1);
+        CompiledDerivedMetric rate = compiler.compileDerived(codec.parse(derivedDefinition("VCC_APPROVAL_RATE",
+                "ratio(metric('VCC_APPROVED_COUNT','value'), metric('VCC_TOTAL_COUNT','value'))")), 1,
+                List.of(approved, total));
+        CompiledDerivedMetric score = compiler.compileDerived(codec.parse(derivedDefinition("VCC_APPROVAL_SCORE",
+                "metric('VCC_APPROVAL_RATE','value') * 100 + metric('VCC_APPROVED_COUNT','value')")), 1,
+                List.of(rate, approved));
+
+        MetricResult result = executor.execute(score, query("VCC_APPROVAL_SCORE"));
+
+        Assertions.assertEquals(List.of("VCC_APPROVED_COUNT", "VCC_TOTAL_COUNT"), leafExecutions);
+        Assertions.assertEquals(List.of(rate), score.derived());
+        Assertions.assertEquals(new BigDecimal("52.0000"), result.value());
+        Assertions.assertEquals("cust_001", result.subjectId());
+    }
+
+    @Test
+    @DisplayName("字段循环引用、未知字段和未提供的指标引用在编译期失败")
+    void testRejectInvalidReferences() {
+        MetricValidationException cycle = Assertions.assertThrows(MetricValidationException.class,
+                () -> compiler.compile(codec.parse(cycleDefinition()), 1));
+        MetricValidationException unknown = Assertions.assertThrows(MetricValidationException.class,
+                () -> compiler.compileDerived(codec.parse(derivedDefinition("VCC_APPROVAL_RATE",
+                        "metric('VCC_APPROVED_COUNT','value') / 2")), 1, List.of()));
+
+        Assertions.assertEquals(MetricErrorCode.DSL_VALUE_INVALID, cycle.errorCode());
+        Assertions.assertEquals("/metric/fields/first/expression/value", cycle.fieldPath());
+        Assertions.assertEquals(MetricErrorCode.DSL_VALUE_INVALID, unknown.errorCode());
+        Assertions.assertEquals("/metric/value/expression/value", unknown.fieldPath());
+    }
+
+    private MetricQuery query(String metricCode) {
+        return new MetricQuery(metricCode, "cust_001", START, END, Map.of(), Map.of());
+    }
+
+    private void addTransaction(String status, String amount) {
+        rows.add(MetricFactRow.of(Map.of(
+                "customerId", "cust_001",
+                "authTime", START.plusHours(rows.size() + 1),
+                "status", status,
+                "amount", new BigDecimal(amount))));
+    }
+
+    private static String summaryDefinition() {
+        return """
+                {
+                  "schemaVersion": 1,
+                  "metric": {
+                    "code": "VCC_APPROVAL_SUMMARY",
+                    "valueShape": "FIELD_SET",
+                    "fact": "VccTransaction",
+                    "subject": {"type": "CUSTOMER", "field": "customerId"},
+                    "time": {"field": "authTime"},
+                    "dimensions": [],
+                    "fields": {
+                      "count": {"valueType": "LONG", "measure": {"aggregation": "COUNT"}},
+                      "approvedCount": {
+                        "valueType": "LONG",
+                        "measure": {"aggregation": "COUNT", "filter": {"eq": {"status": "APPROVED"}}}
+                      },
+                      "approvedAmount": {
+                        "valueType": "DECIMAL",
+                        "scale": 4,
+                        "measure": {"aggregation": "SUM", "field": "amount", "filter": {"eq": {"status": "APPROVED"}}}
+                      },
+                      "approvalPercent": {
+                        "valueType": "DECIMAL",
+                        "scale": 4,
+                        "expression": {"type": "SPEL", "value": "approvalRate * 100"},
+                        "orElse": {"mode": "ZERO"}
+                      },
+                      "approvalRate": {
+                        "valueType": "DECIMAL",
+                        "scale": 4,
+                        "expression": {"type": "SPEL", "value": "ratio(approvedCount, count)"},
+                        "orElse": {"mode": "ZERO"}
+                      },
+                      "averageTicket": {
+                        "valueType": "LONG",
+                        "expression": {"type": "SPEL", "value": "approvedAmount / approvedCount"}
+                      }
+                    }
+                  }
+                }
+                """;
+    }
+
+    private static String countDefinition(String code, String filter) {
+        return """
+                {
+                  "schemaVersion": 1,
+                  "metric": {
+                    "code": "%s",
+                    "valueShape": "SCALAR",
+                    "fact": "VccTransaction",
+                    "subject": {"type": "CUSTOMER", "field": "customerId"},
+                    "time": {"field": "authTime"},
+                    "dimensions": [],
+                    "value": {"valueType": "LONG", "measure": {"aggregation": "COUNT"%s}}
+                  }
+                }
+                """.formatted(code, filter);
+    }
+
+    private static String derivedDefinition(String code, String expression) {
+        return """
+                {
+                  "schemaVersion": 1,
+                  "metric": {
+                    "code": "%s",
+                    "valueShape": "SCALAR",
+                    "subject": {"type": "CUSTOMER"},
+                    "dimensions": [],
+                    "value": {
+                      "valueType": "DECIMAL",
+                      "scale": 4,
+                      "expression": {"type": "SPEL", "value": "%s"}
+                    }
+                  }
+                }
+                """.formatted(code, expression);
+    }
+
+    private static String cycleDefinition() {
+        return """
+                {
+                  "schemaVersion": 1,
+                  "metric": {
+                    "code": "VCC_CYCLE",
+                    "valueShape": "FIELD_SET",
+                    "fact": "VccTransaction",
+                    "subject": {"type": "CUSTOMER", "field": "customerId"},
+                    "time": {"field": "authTime"},
+                    "dimensions": [],
+                    "fields": {
+                      "count": {"valueType": "LONG", "measure": {"aggregation": "COUNT"}},
+                      "first": {"valueType": "LONG", "expression": {"type": "SPEL", "value": "second + count"}},
+                      "second": {"valueType": "LONG", "expression": {"type": "SPEL", "value": "first - 1"}}
+                    }
+                  }
+                }
+                """;
+    }
+}
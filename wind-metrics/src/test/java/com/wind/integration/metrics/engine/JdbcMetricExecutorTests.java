@@ -0,0 +1,340 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.dsl.MetricDefinitionDslCodec;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import com.wind.integration.metrics.enums.MetricExecutionMode;
+import com.wind.integration.metrics.query.MetricColumnResult;
+import com.wind.integration.metrics.query.MetricQuery;
+import com.wind.integration.metrics.query.MetricResult;
+import com.wind.integration.metrics.query.MetricSubjectsQuery;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 指标 SQL 生成和数据库执行测试。
+ *
+ * @author wuxp
+ * @date 2026-07-29 10:05
+ */
+class JdbcMetricExecutorTests {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 6, 1, 0, 0);
+
+    private static final LocalDateTime END = LocalDateTime.of(2026, 7, 1, 0, 0);
+
+    private final MetricDefinitionDslCodec codec = new MetricDefinitionDslCodec();
+
+    private final MetricDefinitionCompiler compiler = new MetricDefinitionCompiler();
+
+    private final List<String> preparedSql = new ArrayList<>();
+
+    private final List<List<Object>> boundParameters = new ArrayList<>();
+
+    private Object[] resultRow = new Object[0];
+
+    private final JdbcMetricExecutor executor = new JdbcMetricExecutor(
+            dataSource(), fact -> fact.equals("VccTransaction") ? "vcc_transaction" : "merchant",
+            Clock.fixed(Instant.parse("2026-07-02T01:00:00Z"), ZONE));
+
+    @Test
+    @DisplayName("关联、过滤和平均值生成参数化 SQL，字面量和维度都作为占位符绑定")
+    void testGenerateJoinedAggregateSql() {
+        CompiledMetricDefinition definition = compiler.compile(codec.parse(regionDefinition()), 1);
+        resultRow = new Object[]{new BigDecimal("30.5"), new BigDecimal("61"), 3L, 1L};
+
+        MetricResult result = executor.execute(definition, new MetricQuery(
+                "VCC_REGION_SUMMARY", "cust_001", START, END, Map.of("merchant.region", "APAC"), Map.of()));
+
+        Assertions.assertEquals("SELECT SUM(CASE WHEN t0.status = ? THEN t0.amount END), "
+                + "SUM(t0.amount), COUNT(t0.amount), MAX(t1.wind_join_rows) "
+                + "FROM vcc_transaction t0 LEFT JOIN (SELECT id, MAX(region) AS region, "
+                + "COUNT(*) AS wind_join_rows FROM merchant GROUP BY id) t1 ON t0.merchant_id = t1.id "
+                + "WHERE t0.auth_time >= ? AND t0.auth_time < ? AND t0.customer_id = ? AND t1.region = ?",
+                preparedSql.getFirst());
+        Assertions.assertEquals(List.of("APPROVED", START, END, "cust_001", "APAC"), boundParameters.getFirst());
+        Assertions.assertEquals(MetricExecutionMode.REALTIME, result.executionMode());
+        Assertions.assertEquals(new BigDecimal("30.5000"), result.fields().get("approvedAmount").value());
+        Assertions.assertEquals(new BigDecimal("20.3333"), result.fields().get("averageAmount").value());
+    }
+
+    @Test
+    @DisplayName("同一指标修订号只编译一次，不同维度组合生成各自的语句，修订号变化时重新编译")
+    void testReuseCompiledSqlPerRevision() {
+        CompiledMetricDefinition definition = compiler.compile(codec.parse(regionDefinition()), 1);
+        resultRow = new Object[]{null, null, 0L, null};
+        MetricQuery query = new MetricQuery("VCC_REGION_SUMMARY", "cust_001", START, END, Map.of(), Map.of());
+
+        executor.execute(definition, query);
+        CompiledMetricSql compiled = executor.compiled(definition);
+        MetricResult empty = executor.execute(definition, query);
+        CompiledMetricSql cached = executor.compiled(definition);
+        CompiledMetricSql recompiled = executor.compiled(compiler.compile(codec.parse(regionDefinition()), 2));
+
+        Assertions.assertSame(compiled, cached);
+        Assertions.assertSame(compiled.statement(Set.of()), compiled.statement(Set.of()));
+        Assertions.assertEquals(preparedSql.get(0), preparedSql.get(1));
+        Assertions.assertFalse(preparedSql.get(0).contains("t1.region"));
+        Assertions.assertNotSame(compiled, recompiled);
+        Assertions.assertEquals(2, recompiled.revision());
+        Assertions.assertEquals(new BigDecimal("0.0000"), empty.fields().get("approvedAmount").value());
+        Assertions.assertNull(empty.fields().get("averageAmount").value());
+    }
+
+    @Test
+    @DisplayName("行选择生成排序截取子查询，行数上限由查询参数绑定")
+    void testGenerateRowSelectionSubquery() {
+        CompiledMetricDefinition definition = compiler.compile(codec.parse(refundFirstNDefinition()), 1);
+        resultRow = new Object[]{new BigDecimal("12.5"), 2L};
+
+        MetricResult result = executor.execute(definition, new MetricQuery(
+                "VCC_REFUND_FIRST_N", "vcc_001", START, END, Map.of(), Map.of("entryLimit", 5)));
+
+        Assertions.assertEquals("SELECT SUM(s.c0), COUNT(*) FROM (SELECT t0.payment_amount AS c0 "
+                + "FROM vcc_transaction t0 WHERE t0.auth_time >= ? AND t0.auth_time < ? AND t0.vcc_id = ? "
+                + "AND t0.category = ? ORDER BY CASE WHEN t0.auth_time IS NULL THEN 0 ELSE 1 END ASC, "
+                + "t0.auth_time ASC, CASE WHEN t0.transaction_id IS NULL THEN 0 ELSE 1 END DESC, "
+                + "t0.transaction_id DESC LIMIT ?) s", preparedSql.getFirst());
+        Assertions.assertEquals(List.of(START, END, "vcc_001", "REFUND", 5), boundParameters.getFirst());
+        Assertions.assertEquals(new BigDecimal("12.5000"), result.fields().get("refundAmount").value());
+        Assertions.assertEquals(2L, result.fields().get("refundCount").value());
+    }
+
+    @Test
+    @DisplayName("多主体查询生成按主体分组的语句，主体按固定批大小绑定，末批以最后一个主体补齐")
+    void testGenerateGroupedSubjectsSql() {
+        CompiledMetricDefinition definition = compiler.compile(codec.parse(regionDefinition()), 1);
+        resultRow = new Object[]{"cust_002", new BigDecimal("30.5"), new BigDecimal("61"), 3L, 1L};
+
+        MetricColumnResult result = executor.executeSubjects(definition, new MetricSubjectsQuery(
+                "VCC_REGION_SUMMARY", List.of("cust_001", "cust_002", "cust_003"), START, END, Map.of()));
+
+        Assertions.assertTrue(preparedSql.getFirst().startsWith("SELECT t0.customer_id, "
+                + "SUM(CASE WHEN t0.status = ? THEN t0.amount END), SUM(t0.amount), COUNT(t0.amount), "
+                + "MAX(t1.wind_join_rows) FROM vcc_transaction t0 LEFT JOIN (SELECT id, MAX(region) AS region, "
+                + "COUNT(*) AS wind_join_rows FROM merchant GROUP BY id) t1 ON t0.merchant_id = t1.id "
+                + "WHERE t0.auth_time >= ? AND t0.auth_time < ? AND t0.customer_id IN (?, ?, "));
+        Assertions.assertTrue(preparedSql.getFirst().endsWith(", ?) GROUP BY t0.customer_id"));
+        List<Object> parameters = boundParameters.getFirst();
+        Assertions.assertEquals(3 + CompiledMetricSql.SUBJECT_BATCH_SIZE, parameters.size());
+        Assertions.assertEquals(List.of("cust_001", "cust_002", "cust_003", "cust_003"), parameters.subList(3, 7));
+        Assertions.assertEquals("cust_003", parameters.getLast());
+        Assertions.assertEquals(new BigDecimal("0.0000"), result.column("approvedAmount").value(0));
+        Assertions.assertEquals(new BigDecimal("30.5000"), result.column("approvedAmount").value(1));
+        Assertions.assertTrue(result.column("averageAmount").isNull(2));
+        Assertions.assertEquals(new BigDecimal("20.3333"), result.column("averageAmount").value(1));
+    }
+
+    @Test
+    @DisplayName("多主体行选择下推为按主体编号的窗口函数，外层按编号截取后分组聚合")
+    void testGenerateSubjectsRowSelectionWindow() {
+        CompiledMetricDefinition definition = compiler.compile(codec.parse(latestAverageDefinition()), 1);
+        resultRow = new Object[]{"cust_001", new BigDecimal("60"), 2L};
+
+        MetricColumnResult result = executor.executeSubjects(definition, new MetricSubjectsQuery(
+                "VCC_LATEST_AVERAGE_AMOUNT", List.of("cust_001", "cust_002"), START, END, Map.of()));
+
+        String sql = preparedSql.getFirst();
+        Assertions.assertTrue(sql.startsWith("SELECT s.c0, SUM(s.c1), COUNT(s.c1) FROM (SELECT t0.customer_id AS c0, "
+                + "t0.amount AS c1, ROW_NUMBER() OVER (PARTITION BY t0.customer_id ORDER BY "
+                + "CASE WHEN t0.auth_time IS NULL THEN 0 ELSE 1 END DESC, t0.auth_time DESC) AS rn "
+                + "FROM vcc_transaction t0 WHERE t0.auth_time >= ? AND t0.auth_time < ? "
+                + "AND t0.customer_id IN (?, ?, "), sql);
+        Assertions.assertTrue(sql.endsWith(", ?) AND t0.status = ?) s WHERE s.rn <= ? GROUP BY s.c0"), sql);
+        List<Object> parameters = boundParameters.getFirst();
+        Assertions.assertEquals(List.of("APPROVED", 10), parameters.subList(parameters.size() - 2, parameters.size()));
+        Assertions.assertEquals(new BigDecimal("30.0000"), result.column("value").value(0));
+        Assertions.assertTrue(result.column("value").isNull(1));
+    }
+
+    @Test
+    @DisplayName("命中的关联键存在重复行时拒绝结果，与进程内关联一致，不放大求和与计数")
+    void testRejectJoinFanOut() {
+        CompiledMetricDefinition definition = compiler.compile(codec.parse(regionDefinition()), 1);
+        resultRow = new Object[]{new BigDecimal("61"), new BigDecimal("61"), 3L, 2L};
+
+        MetricValidationException exception = Assertions.assertThrows(MetricValidationException.class,
+                () -> executor.execute(definition, new MetricQuery(
+                        "VCC_REGION_SUMMARY", "cust_001", START, END, Map.of(), Map.of())));
+
+        Assertions.assertEquals(MetricErrorCode.METRIC_FACT_VALUE_INVALID, exception.errorCode());
+        Assertions.assertEquals("/metric/joins/0/cardinality", exception.fieldPath());
+    }
+
+    @Test
+    @DisplayName("关联事实无法由进程内扫描执行")
+    void testRejectJoinedDefinitionInProcess() {
+        CompiledMetricDefinition definition = compiler.compile(codec.parse(regionDefinition()), 1);
+        RealtimeMetricExecutor realtimeExecutor = new RealtimeMetricExecutor((scan, consumer) -> {
+        }, ZONE);
+
+        MetricValidationException exception = Assertions.assertThrows(MetricValidationException.class,
+                () -> realtimeExecutor.execute(definition, new MetricQuery(
+                        "VCC_REGION_SUMMARY", "cust_001", START, END, Map.of(), Map.of())));
+
+        Assertions.assertEquals(MetricErrorCode.METRIC_EXECUTION_MODE_UNSUPPORTED, exception.errorCode());
+        Assertions.assertEquals("/metric/joins", exception.fieldPath());
+    }
+
+    private DataSource dataSource() {
+        return proxy(DataSource.class, (method, args) -> method.equals("getConnection")
+                ? proxy(Connection.class, (connectionMethod, connectionArgs) -> switch (connectionMethod) {
+                    case "prepareStatement" -> preparedStatement((String) connectionArgs[0]);
+                    default -> null;
+                })
+                : null);
+    }
+
+    private PreparedStatement preparedStatement(String sql) {
+        preparedSql.add(sql);
+        List<Object> parameters = new ArrayList<>();
+        boundParameters.add(parameters);
+        return proxy(PreparedStatement.class, (method, args) -> switch (method) {
+            case "setObject" -> {
+                parameters.add(args[1]);
+                yield null;
+            }
+            case "executeQuery" -> resultSet();
+            default -> null;
+        });
+    }
+
+    private ResultSet resultSet() {
+        boolean[] consumed = new boolean[1];
+        return proxy(ResultSet.class, (method, args) -> switch (method) {
+            case "next" -> {
+                boolean result = !consumed[0];
+                consumed[0] = true;
+                yield result;
+            }
+            case "getObject" -> resultRow[(Integer) args[0] - 1];
+            default -> null;
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, JdbcHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (target, method, args) -> handler.invoke(method.getName(), args)));
+    }
+
+    private interface JdbcHandler {
+
+        Object invoke(String method, Object[] args);
+    }
+
+    private String regionDefinition() {
+        return """
+                {
+                  "schemaVersion": 1,
+                  "metric": {
+                    "code": "VCC_REGION_SUMMARY",
+                    "valueShape": "FIELD_SET",
+                    "fact": "VccTransaction",
+                    "joins": [{
+                      "alias": "merchant",
+                      "fact": "Merchant",
+                      "joinType": "LEFT",
+                      "cardinality": "MANY_TO_ONE",
+                      "on": [{"primaryField": "merchantId", "joinField": "id"}]
+                    }],
+                    "subject": {"type": "CUSTOMER", "field": "customerId"},
+                    "time": {"field": "authTime"},
+                    "dimensions": ["merchant.region"],
+                    "fields": {
+                      "approvedAmount": {
+                        "valueType": "DECIMAL",
+                        "scale": 4,
+                        "measure": {"aggregation": "SUM", "field": "amount", "filter": {"eq": {"status": "APPROVED"}}},
+                        "orElse": {"mode": "ZERO"}
+                      },
+                      "averageAmount": {
+                        "valueType": "DECIMAL",
+                        "scale": 4,
+                        "measure": {"aggregation": "AVG", "field": "amount"}
+                      }
+                    }
+                  }
+                }
+                """;
+    }
+
+    private String latestAverageDefinition() {
+        return """
+                {
+                  "schemaVersion": 1,
+                  "metric": {
+                    "code": "VCC_LATEST_AVERAGE_AMOUNT",
+                    "valueShape": "SCALAR",
+                    "fact": "VccTransaction",
+                    "subject": {"type": "CUSTOMER", "field": "customerId"},
+                    "time": {"field": "authTime"},
+                    "dimensions": [],
+                    "rowSelection": {
+                      "filter": {"eq": {"status": "APPROVED"}},
+                      "orderBy": [{"field": "authTime", "direction": "DESC"}],
+                      "limit": {"value": 10}
+                    },
+                    "value": {
+                      "valueType": "DECIMAL",
+                      "scale": 4,
+                      "measure": {"aggregation": "AVG", "field": "amount"}
+                    }
+                  }
+                }
+                """;
+    }
+
+    private String refundFirstNDefinition() {
+        return """
+                {
+                  "schemaVersion": 1,
+                  "metric": {
+                    "code": "VCC_REFUND_FIRST_N",
+                    "valueShape": "FIELD_SET",
+                    "fact": "VccTransaction",
+                    "subject": {"type": "VCC", "field": "vccId"},
+                    "time": {"field": "authTime"},
+                    "dimensions": [],
+                    "parameters": {
+                      "entryLimit": {"valueType": "INTEGER", "minimum": 1, "maximum": 100}
+                    },
+                    "rowSelection": {
+                      "filter": {"eq": {"category": "REFUND"}},
+                      "orderBy": [
+                        {"field": "authTime", "direction": "ASC"},
+                        {"field": "transactionId", "direction": "DESC"}
+                      ],
+                      "limit": {"parameter": "entryLimit"}
+                    },
+                    "fields": {
+                      "refundAmount": {
+                        "valueType": "DECIMAL",
+                        "scale": 4,
+                        "measure": {"aggregation": "SUM", "field": "paymentAmount"},
+                        "orElse": {"mode": "ZERO"}
+                      },
+                      "refundCount": {"valueType": "LONG", "measure": {"aggregation": "COUNT"}}
+                    }
+                  }
+                }
+                """;
+    }
+}
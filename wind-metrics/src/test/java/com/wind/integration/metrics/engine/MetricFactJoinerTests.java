@@ -0,0 +1,276 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.dsl.MetricDefinitionDslCodec;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import com.wind.integration.metrics.query.MetricBatchQuery;
+import com.wind.integration.metrics.query.MetricQuery;
+import com.wind.integration.metrics.query.MetricResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 进程内关联执行策略测试。
+ *
+ * @author wuxp
+ * @date 2026-08-12 09:30
+ */
+class MetricFactJoinerTests {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    private static final LocalDateTime START_TIME = LocalDateTime.of(2026, 7, 1, 0, 0);
+
+    private static final LocalDateTime END_TIME = LocalDateTime.of(2026, 7, 2, 0, 0);
+
+    private final MetricDefinitionDslCodec codec = new MetricDefinitionDslCodec();
+
+    private final MetricDefinitionCompiler compiler = new MetricDefinitionCompiler();
+
+    private final List<MetricFactRow> transactions = new ArrayList<>();
+
+    private final List<MetricFactRow> merchants = new ArrayList<>();
+
+    private final List<MetricFactScan> scans = new ArrayList<>();
+
+    private final List<MetricJoinScan> joinScans = new ArrayList<>();
+
+    private final RealtimeMetricExecutor executor = new RealtimeMetricExecutor(
+            (scan, consumer) -> {
+                scans.add(scan);
+                transactions.forEach(consumer);
+            },
+            (scan, consumer) -> {
+                joinScans.add(scan);
+                merchants.forEach(consumer);
+            },
+            Duration.ofMinutes(5),
+            Clock.fixed(Instant.parse("2026-07-02T01:00:00Z"), ZONE));
+
+    @Test
+    @DisplayName("左关联按关联字段维度过滤，构建侧在查询之间复用，淘汰后重建")
+    void testHashJoinReusesBuildSide() {
+        addMerchant(1L, "EAST");
+        addMerchant(2L, "WEST");
+        addTransaction("t1", 1, "10");
+        addTransaction("t2", new BigDecimal("2.0"), "20");
+        addTransaction("t3", 3L, "40");
+        addTransaction("t4", null, "80");
+        CompiledMetricDefinition definition = compiler.compile(codec.parse(regionDefinition("LEFT", "SUM")), 1);
+
+        MetricResult east = executor.execute(definition, query("VCC_REGION_SUM", Map.of("merchant.region", "EAST")));
+        MetricResult west = executor.execute(definition, query("VCC_REGION_SUM", Map.of("merchant.region", "WEST")));
+        MetricResult all = executor.execute(definition, query("VCC_REGION_SUM", Map.of()));
+
+        Assertions.assertEquals(new BigDecimal("10.0000"), east.value());
+        Assertions.assertEquals(new BigDecimal("20.0000"), west.value());
+        Assertions.assertEquals(new BigDecimal("150.0000"), all.value());
+        Assertions.assertEquals(1, joinScans.size());
+        Assertions.assertEquals(new MetricJoinScan("Merchant", List.of("id"), Set.of("id", "region")),
+                joinScans.getFirst());
+        Assertions.assertFalse(scans.getFirst().fields().contains("merchant.region"));
+        Assertions.assertTrue(scans.getFirst().fields().contains("merchantId"));
+        Assertions.assertTrue(scans.getFirst().dimensionValues().isEmpty());
+
+        executor.invalidateJoins("Merchant");
+        executor.execute(definition, query("VCC_REGION_SUM", Map.of()));
+
+        Assertions.assertEquals(2, joinScans.size());
+    }
+
+    @Test
+    @DisplayName("未引用关联字段的内关联按关联键集合过滤，未引用关联字段的左关联直接消除")
+    void testSemiJoinAndEliminatedJoin() {
+        addMerchant(1L, "EAST");
+        addTransaction("t1", 1L, "10");
+        addTransaction("t2", 2L, "20");
+        CompiledMetricDefinition semi = compiler.compile(codec.parse(existingMerchantDefinition("INNER")), 1);
+        CompiledMetricDefinition eliminated = compiler.compile(codec.parse(existingMerchantDefinition("LEFT")), 1);
+
+        MetricResult semiResult = executor.execute(semi, query("VCC_REGION_SUM", Map.of()));
+        MetricResult eliminatedResult = executor.execute(eliminated, query("VCC_REGION_SUM", Map.of()));
+
+        Assertions.assertEquals(new BigDecimal("10.0000"), semiResult.value());
+        Assertions.assertEquals(new BigDecimal("30.0000"), eliminatedResult.value());
+        Assertions.assertEquals(List.of(new MetricJoinScan("Merchant", List.of("id"), Set.of("id"))), joinScans);
+    }
+
+    @Test
+    @DisplayName("关联事实重复关联键时拒绝会重复累计的求和，只含最大值的定义按 SQL 语义展开")
+    void testFanOutGuard() {
+        addMerchant(1L, "EAST");
+        addMerchant(1L, "WEST");
+        addTransaction("t1", 1L, "10");
+        CompiledMetricDefinition sum = compiler.compile(codec.parse(regionDefinition("INNER", "SUM")), 1);
+        CompiledMetricDefinition max = compiler.compile(codec.parse(regionDefinition("INNER", "MAX")), 1);
+
+        MetricValidationException exception = Assertions.assertThrows(MetricValidationException.class,
+                () -> executor.execute(sum, query("VCC_REGION_SUM", Map.of())));
+        MetricResult west = executor.execute(max, query("VCC_REGION_MAX", Map.of("merchant.region", "WEST")));
+
+        Assertions.assertEquals(MetricErrorCode.METRIC_FACT_VALUE_INVALID, exception.errorCode());
+        Assertions.assertEquals("/metric/joins/0/cardinality", exception.fieldPath());
+        Assertions.assertEquals(new BigDecimal("10.0000"), west.value());
+    }
+
+    @Test
+    @DisplayName("批量查询中关联相同的指标共享一次主事实扫描和构建侧")
+    void testBatchSharesJoinedScan() {
+        addMerchant(1L, "EAST");
+        addTransaction("t1", 1L, "10");
+        addTransaction("t2", 2L, "20");
+        CompiledMetricDefinition sum = compiler.compile(codec.parse(regionDefinition("INNER", "SUM")), 1);
+        CompiledMetricDefinition max = compiler.compile(codec.parse(regionDefinition("INNER", "MAX")), 1);
+
+        List<MetricResult> results = executor.executeBatch(List.of(sum, max), new MetricBatchQuery(
+                List.of("VCC_REGION_SUM", "VCC_REGION_MAX"), "cust_001", START_TIME, END_TIME, Map.of()));
+
+        Assertions.assertEquals(new BigDecimal("10.0000"), results.get(0).value());
+        Assertions.assertEquals(new BigDecimal("10.0000"), results.get(1).value());
+        Assertions.assertEquals(1, scans.size());
+        Assertions.assertEquals(1, joinScans.size());
+    }
+
+    @Test
+    @DisplayName("批量查询中关联相同但引用关联字段不同的指标，按引用字段的并集关联，结果与定义顺序无关")
+    void testBatchWithMixedJoinFields() {
+        addMerchant(1L, "EAST");
+        addTransaction("t1", 1L, "10");
+        addTransaction("t2", 2L, "20");
+        CompiledMetricDefinition sum = compiler.compile(codec.parse(existingMerchantDefinition("LEFT")), 1);
+        CompiledMetricDefinition east = compiler.compile(codec.parse(eastMerchantDefinition()), 1);
+
+        List<MetricResult> sumFirst = executor.executeBatch(List.of(sum, east), new MetricBatchQuery(
+                List.of("VCC_REGION_SUM", "VCC_EAST_SUM"), "cust_001", START_TIME, END_TIME, Map.of()));
+        List<MetricResult> eastFirst = executor.executeBatch(List.of(sum, east), new MetricBatchQuery(
+                List.of("VCC_EAST_SUM", "VCC_REGION_SUM"), "cust_001", START_TIME, END_TIME, Map.of()));
+
+        Assertions.assertEquals(new BigDecimal("30.0000"), sumFirst.get(0).value());
+        Assertions.assertEquals(new BigDecimal("10.0000"), sumFirst.get(1).value());
+        Assertions.assertEquals(new BigDecimal("10.0000"), eastFirst.get(0).value());
+        Assertions.assertEquals(new BigDecimal("30.0000"), eastFirst.get(1).value());
+        Assertions.assertEquals(2, scans.size());
+    }
+
+    private MetricQuery query(String metricCode, Map<String, Object> dimensionValues) {
+        return new MetricQuery(metricCode, "cust_001", START_TIME, END_TIME, dimensionValues, Map.of());
+    }
+
+    private void addMerchant(long id, String region) {
+        merchants.add(MetricFactRow.of(Map.of("id", id, "region", region)));
+    }
+
+    private void addTransaction(String id, Object merchantId, String amount) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("transactionId", id);
+        values.put("customerId", "cust_001");
+        values.put("merchantId", merchantId);
+        values.put("authTime", START_TIME.plusHours(1));
+        values.put("amount", new BigDecimal(amount));
+        transactions.add(MetricFactRow.of(values));
+    }
+
+    private String regionDefinition(String joinType, String aggregation) {
+        return """
+                {
+                  "schemaVersion": 1,
+                  "metric": {
+                    "code": "VCC_REGION_%s",
+                    "valueShape": "SCALAR",
+                    "fact": "VccTransaction",
+                    "joins": [{
+                      "alias": "merchant",
+                      "fact": "Merchant",
+                      "joinType": "%s",
+                      "cardinality": "MANY_TO_ONE",
+                      "on": [{"primaryField": "merchantId", "joinField": "id"}]
+                    }],
+                    "subject": {"type": "CUSTOMER", "field": "customerId"},
+                    "time": {"field": "authTime"},
+                    "dimensions": ["merchant.region"],
+                    "value": {
+                      "valueType": "DECIMAL",
+                      "scale": 4,
+                      "measure": {"aggregation": "%s", "field": "amount"},
+                      "orElse": {"mode": "ZERO"}
+                    }
+                  }
+                }
+                """.formatted(aggregation, joinType, aggregation);
+    }
+
+    private String existingMerchantDefinition(String joinType) {
+        return """
+                {
+                  "schemaVersion": 1,
+                  "metric": {
+                    "code": "VCC_REGION_SUM",
+                    "valueShape": "SCALAR",
+                    "fact": "VccTransaction",
+                    "joins": [{
+                      "alias": "merchant",
+                      "fact": "Merchant",
+                      "joinType": "%s",
+                      "cardinality": "MANY_TO_ONE",
+                      "on": [{"primaryField": "merchantId", "joinField": "id"}]
+                    }],
+                    "subject": {"type": "CUSTOMER", "field": "customerId"},
+                    "time": {"field": "authTime"},
+                    "dimensions": [],
+                    "value": {
+                      "valueType": "DECIMAL",
+                      "scale": 4,
+                      "measure": {"aggregation": "SUM", "field": "amount"},
+                      "orElse": {"mode": "ZERO"}
+                    }
+                  }
+                }
+                """.formatted(joinType);
+    }
+
+    private String eastMerchantDefinition() {
+        return """
+                {
+                  "schemaVersion": 1,
+                  "metric": {
+                    "code": "VCC_EAST_SUM",
+                    "valueShape": "SCALAR",
+                    "fact": "VccTransaction",
+                    "joins": [{
+                      "alias": "merchant",
+                      "fact": "Merchant",
+                      "joinType": "LEFT",
+                      "cardinality": "MANY_TO_ONE",
+                      "on": [{"primaryField": "merchantId", "joinField": "id"}]
+                    }],
+                    "subject": {"type": "CUSTOMER", "field": "customerId"},
+                    "time": {"field": "authTime"},
+                    "dimensions": [],
+                    "value": {
+                      "valueType": "DECIMAL",
+                      "scale": 4,
+                      "measure": {
+                        "aggregation": "SUM",
+                        "field": "amount",
+                        "filter": {"eq": {"merchant.region": "EAST"}}
+                      },
+                      "orElse": {"mode": "ZERO"}
+                    }
+                  }
+                }
+                """;
+    }
+}
@@ -0,0 +1,245 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.dsl.MetricDefinitionDslCodec;
+import com.wind.integration.metrics.dsl.MetricMaterializationPlanDslCodec;
+import com.wind.integration.metrics.query.MetricQuery;
+import com.wind.integration.metrics.query.MetricResult;
+import com.wind.integration.metrics.snapshot.InMemoryMetricSnapshotStore;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 指标查询结果缓存测试。
+ *
+ * @author wuxp
+ * @date 2026-08-09 09:40
+ */
+class MetricResultCacheTests {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    private static final LocalDateTime MONTH_START = LocalDateTime.of(2026, 6, 1, 0, 0);
+
+    private static final LocalDateTime MONTH_END = LocalDateTime.of(2026, 7, 1, 0, 0);
+
+    private final MetricDefinitionCompiler compiler = new MetricDefinitionCompiler();
+
+    private final List<MetricFactRow> rows = new ArrayList<>();
+
+    private final AtomicInteger scans = new AtomicInteger();
+
+    private final MetricFactSource factSource = (scan, consumer) -> {
+        scans.incrementAndGet();
+        rows.forEach(consumer);
+    };
+
+    private final Clock executionClock = Clock.fixed(Instant.parse("2026-06-20T01:00:00Z"), ZONE);
+
+    private final MutableClock clock = new MutableClock();
+
+    private final MetricResultCache cache = new MetricResultCache(
+            new MetricResultCache.Settings(100, Duration.ofHours(1), Duration.ofSeconds(5)), clock);
+
+    @Test
+    @DisplayName("触及实时数据的窗口短期缓存，规范化后相同的维度值命中同一条目")
+    void testOpenWindowUsesShortTtl() {
+        rows.add(transaction(MONTH_START.plusDays(1), "1.5"));
+        CompiledMetricPlan plan = compilePlan();
+        MetricLeafExecutor executor = cache.caching(new RealtimeMetricExecutor(factSource, executionClock)::execute);
+
+        MetricResult first = executor.execute(plan.definition(), query(MONTH_START, MONTH_END, new BigDecimal("1.0")));
+        MetricResult second = executor.execute(plan.definition(), query(MONTH_START, MONTH_END, 1L));
+        clock.advance(Duration.ofSeconds(6));
+        executor.execute(plan.definition(), query(MONTH_START, MONTH_END, 1L));
+
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(2, scans.get());
+    }
+
+    @Test
+    @DisplayName("窗口完全落在快照水位之前的快照结果长期缓存，淘汰指标后重新执行")
+    void testSealedWindowUsesLongTtl() {
+        rows.add(transaction(MONTH_START.plusDays(1), "1.5"));
+        CompiledMetricPlan plan = compilePlan();
+        InMemoryMetricSnapshotStore snapshotStore = new InMemoryMetricSnapshotStore();
+        new SnapshotMetricMaterializer(factSource, snapshotStore, ZONE).materialize(plan, MONTH_START, MONTH_END);
+        SnapshotMetricExecutor snapshotExecutor = new SnapshotMetricExecutor(snapshotStore, executionClock);
+        AtomicInteger executions = new AtomicInteger();
+        MetricQuery query = query(MONTH_START, MONTH_START.plusDays(7), 1L);
+
+        for (int i = 0; i < 3; i++) {
+            cache.execute(plan.definition().revision(), query, () -> {
+                executions.incrementAndGet();
+                return snapshotExecutor.execute(plan, query);
+            });
+            clock.advance(Duration.ofMinutes(10));
+        }
+        cache.invalidate("VCC_AMOUNT_SUMMARY");
+        cache.execute(plan.definition().revision(), query, () -> {
+            executions.incrementAndGet();
+            return snapshotExecutor.execute(plan, query);
+        });
+
+        Assertions.assertEquals(2, executions.get());
+    }
+
+    @Test
+    @DisplayName("并发的相同查询只执行一次")
+    void testConcurrentQueriesCoalesce() throws Exception {
+        rows.add(transaction(MONTH_START.plusDays(1), "1.5"));
+        CompiledMetricPlan plan = compilePlan();
+        RealtimeMetricExecutor realtime = new RealtimeMetricExecutor(factSource, executionClock);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+        MetricQuery query = query(MONTH_START, MONTH_END, 1L);
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<MetricResult>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executorService.submit(() -> cache.execute(plan.definition().revision(), query, () -> {
+                    executions.incrementAndGet();
+                    started.countDown();
+                    await(release);
+                    return realtime.execute(plan.definition(), query);
+                })));
+            }
+            Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            release.countDown();
+            MetricResult expected = futures.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<MetricResult> future : futures) {
+                Assertions.assertSame(expected, future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        Assertions.assertEquals(1, executions.get());
+    }
+
+    @Test
+    @DisplayName("执行期间指标被淘汰时不缓存淘汰之前的结果")
+    void testInvalidateDuringExecutionNotCached() {
+        rows.add(transaction(MONTH_START.plusDays(1), "1.5"));
+        CompiledMetricPlan plan = compilePlan();
+        RealtimeMetricExecutor realtime = new RealtimeMetricExecutor(factSource, executionClock);
+        AtomicInteger executions = new AtomicInteger();
+        MetricQuery query = query(MONTH_START, MONTH_END, 1L);
+
+        MetricResult stale = cache.execute(plan.definition().revision(), query, () -> {
+            MetricResult result = realtime.execute(plan.definition(), query);
+            executions.incrementAndGet();
+            // 迟到事实修复后淘汰指标，此时执行已经读取了旧数据
+            cache.invalidate("VCC_AMOUNT_SUMMARY");
+            return result;
+        });
+        MetricResult fresh = cache.execute(plan.definition().revision(), query, () -> {
+            executions.incrementAndGet();
+            return realtime.execute(plan.definition(), query);
+        });
+        MetricResult cached = cache.execute(plan.definition().revision(), query, () -> {
+            executions.incrementAndGet();
+            return realtime.execute(plan.definition(), query);
+        });
+
+        Assertions.assertNotSame(stale, fresh);
+        Assertions.assertSame(fresh, cached);
+        Assertions.assertEquals(2, executions.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static MetricQuery query(LocalDateTime startTime, LocalDateTime endTime, Object channel) {
+        return new MetricQuery("VCC_AMOUNT_SUMMARY", "cust_001", startTime, endTime,
+                Map.of("channel", channel), Map.of());
+    }
+
+    private static MetricFactRow transaction(LocalDateTime authTime, String amount) {
+        return MetricFactRow.of(Map.of(
+                "customerId", "cust_001",
+                "authTime", authTime,
+                "channel", 1L,
+                "amount", new BigDecimal(amount)));
+    }
+
+    private CompiledMetricPlan compilePlan() {
+        CompiledMetricDefinition compiled = compiler.compile(new MetricDefinitionDslCodec().parse("""
+                {
+                  "schemaVersion": 1,
+                  "metric": {
+                    "code": "VCC_AMOUNT_SUMMARY",
+                    "valueShape": "FIELD_SET",
+                    "fact": "VccTransaction",
+                    "subject": {"type": "CUSTOMER", "field": "customerId"},
+                    "time": {"field": "authTime"},
+                    "dimensions": ["channel"],
+                    "fields": {
+                      "count": {"valueType": "LONG", "measure": {"aggregation": "COUNT"}},
+                      "amount": {
+                        "valueType": "DECIMAL",
+                        "measure": {"aggregation": "SUM", "field": "amount"},
+                        "orElse": {"mode": "ZERO"}
+                      }
+                    }
+                  }
+                }
+                """), 1);
+        return compiler.compilePlan("VCC_AMOUNT_DAY_PLAN", new MetricMaterializationPlanDslCodec().parse("""
+                {
+                  "schemaVersion": 1,
+                  "executionMode": "SNAPSHOT",
+                  "snapshotKeyProviderCode": "VCC_CUSTOMER",
+                  "snapshotGranularity": "DAY",
+                  "snapshotTargetCode": "VCC_AMOUNT_DAY"
+                }
+                """), compiled);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private volatile Instant instant = Instant.parse("2026-08-09T02:00:00Z");
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZONE;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
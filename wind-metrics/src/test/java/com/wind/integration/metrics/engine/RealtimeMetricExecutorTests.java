@@ -0,0 +1,374 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.dsl.MetricDefinitionDslCodec;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import com.wind.integration.metrics.enums.MetricExecutionMode;
+import com.wind.integration.metrics.query.MetricBatchQuery;
+import com.wind.integration.metrics.query.MetricColumnResult;
+import com.wind.integration.metrics.query.MetricQuery;
+import com.wind.integration.metrics.query.MetricResult;
+import com.wind.integration.metrics.query.MetricSubjectsQuery;
+import com.wind.integration.metrics.query.MetricValueColumn;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 进程内实时聚合执行器测试。
+ *
+ * @author wuxp
+ * @date 2026-07-25 10:12
+ */
+class RealtimeMetricExecutorTests {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    private static final LocalDateTime START_TIME = LocalDateTime.of(2026, 7, 1, 0, 0);
+
+    private static final LocalDateTime END_TIME = LocalDateTime.of(2026, 7, 2, 0, 0);
+
+    private final MetricDefinitionDslCodec codec = new MetricDefinitionDslCodec();
+
+    private final MetricDefinitionCompiler compiler = new MetricDefinitionCompiler();
+
+    private final List<MetricFactRow> rows = new ArrayList<>();
+
+    private final List<MetricFactScan> scans = new ArrayList<>();
+
+    private final RealtimeMetricExecutor executor = new RealtimeMetricExecutor(
+            (scan, consumer) -> {
+                scans.add(scan);
+                rows.forEach(consumer);
+            },
+            Clock.fixed(Instant.parse("2026-07-02T01:00:00Z"), ZONE));
+
+    @Test
+    @DisplayName("实时聚合按主体、时间窗口、维度和 measure 过滤计算单值")
+    void testExecuteScalarSumWithFilters() {
+        addTransaction("t1", "cust_001", START_TIME.plusHours(1), "USD", "APPROVED", "10.10");
+        addTransaction("t2", "cust_001", START_TIME.plusHours(2), "USD", "DECLINED", "99");
+        addTransaction("t3", "cust_001", START_TIME.plusHours(3), "EUR", "APPROVED", "5");
+        addTransaction("t4", "cust_002", START_TIME.plusHours(4), "USD", "APPROVED", "7");
+        addTransaction("t5", "cust_001", END_TIME, "USD", "APPROVED", "8");
+        addTransaction("t6", "cust_001", START_TIME, "USD", "APPROVED", "2.005");
+        CompiledMetricDefinition definition = compiler.compile(codec.parse(approvedAmountDefinition()), 3);
+
+        MetricResult result = executor.execute(definition, query(
+                "VCC_APPROVED_AMOUNT", "cust_001", Map.of("currency", "USD"), Map.of()));
+
+        Assertions.assertEquals(MetricExecutionMode.REALTIME, result.executionMode());
+        Assertions.assertEquals(3, result.definitionRevision());
+        Assertions.assertEquals(new BigDecimal("12.1050"), result.value());
+        Assertions.assertEquals(LocalDateTime.of(2026, 7, 2, 9, 0), result.calculatedTime());
+        Assertions.assertEquals(ZONE, result.timeZone());
+        MetricFactScan scan = scans.getFirst();
+        Assertions.assertEquals("VccTransaction", scan.fact());
+        Assertions.assertEquals("cust_001", scan.subjectId());
+        Assertions.assertTrue(scan.fields().containsAll(List.of("amount", "status", "currency", "customerId")));
+    }
+
+    @Test
+    @DisplayName("空结果按 orElse 返回，平均值按 scale 和 HALF_UP 舍入")
+    void testExecuteOrElseAndAverage() {
+        CompiledMetricDefinition definition = compiler.compile(codec.parse(approvedAmountDefinition()
+                .replace("\"aggregation\": \"SUM\"", "\"aggregation\": \"AVG\"")
+                .replace("\"mode\": \"NULL\"", "\"mode\": \"ZERO\"")), 1);
+
+        Assertions.assertEquals(new BigDecimal("0.0000"), executor.execute(definition, query(
+                "VCC_APPROVED_AMOUNT", "cust_001", Map.of(), Map.of())).value());
+
+        addTransaction("t1", "cust_001", START_TIME.plusHours(1), "USD", "APPROVED", "1");
+        addTransaction("t2", "cust_001", START_TIME.plusHours(2), "USD", "APPROVED", "1");
+        addTransaction("t3", "cust_001", START_TIME.plusHours(3), "USD", "APPROVED", "0.00002");
+        Assertions.assertEquals(new BigDecimal("0.6667"), executor.execute(definition, query(
+                "VCC_APPROVED_AMOUNT", "cust_001", Map.of(), Map.of())).value());
+    }
+
+    @Test
+    @DisplayName("行选择先过滤排序截取前 N 行，再由各字段聚合")
+    void testExecuteFieldSetWithRowSelection() {
+        addRefund("r3", START_TIME.plusHours(3), "REFUND", "30");
+        addRefund("r1", START_TIME.plusHours(1), "REFUND", "10");
+        addRefund("r0", START_TIME.plusMinutes(1), "CHARGE", "1000");
+        addRefund("r2b", START_TIME.plusHours(2), "REFUND", "21");
+        addRefund("r2a", START_TIME.plusHours(2), "REFUND", "20");
+        CompiledMetricDefinition definition = compiler.compile(codec.parse(refundFirstNDefinition()), 1);
+
+        MetricResult result = executor.execute(definition, query(
+                "VCC_REFUND_FIRST_N_SUMMARY", "vcc_001", Map.of(), Map.of("entryLimit", 2)));
+
+        Assertions.assertEquals(new BigDecimal("30.0000"), result.fields().get("refundAmount").value());
+        Assertions.assertEquals(2L, result.fields().get("refundCount").value());
+    }
+
+    @Test
+    @DisplayName("查询参数、维度和主体与定义不匹配时失败关闭")
+    void testRejectQueryNotMatchingDefinition() {
+        CompiledMetricDefinition rowSelection = compiler.compile(codec.parse(refundFirstNDefinition()), 1);
+        CompiledMetricDefinition amount = compiler.compile(codec.parse(approvedAmountDefinition()), 1);
+
+        MetricValidationException missing = Assertions.assertThrows(MetricValidationException.class,
+                () -> executor.execute(rowSelection, query(
+                        "VCC_REFUND_FIRST_N_SUMMARY", "vcc_001", Map.of(), Map.of())));
+        MetricValidationException outOfRange = Assertions.assertThrows(MetricValidationException.class,
+                () -> executor.execute(rowSelection, query(
+                        "VCC_REFUND_FIRST_N_SUMMARY", "vcc_001", Map.of(), Map.of("entryLimit", 101))));
+        MetricValidationException dimension = Assertions.assertThrows(MetricValidationException.class,
+                () -> executor.execute(amount, query(
+                        "VCC_APPROVED_AMOUNT", "cust_001", Map.of("region", "CN"), Map.of())));
+        MetricValidationException subject = Assertions.assertThrows(MetricValidationException.class,
+                () -> executor.execute(amount, query("VCC_APPROVED_AMOUNT", null, Map.of(), Map.of())));
+
+        Assertions.assertEquals(MetricErrorCode.METRIC_PARAMETER_MISSING, missing.errorCode());
+        Assertions.assertEquals("/parameterValues/entryLimit", missing.fieldPath());
+        Assertions.assertEquals(MetricErrorCode.METRIC_PARAMETER_OUT_OF_RANGE, outOfRange.errorCode());
+        Assertions.assertEquals(MetricErrorCode.QUERY_INVALID, dimension.errorCode());
+        Assertions.assertEquals("/dimensionValues/region", dimension.fieldPath());
+        Assertions.assertEquals("/subjectId", subject.fieldPath());
+    }
+
+    @Test
+    @DisplayName("事实值类型与 measure 不匹配时失败关闭")
+    void testRejectInvalidFactValue() {
+        Map<String, Object> values = new HashMap<>();
+        values.put("customerId", "cust_001");
+        values.put("authTime", START_TIME.plusHours(1));
+        values.put("status", "APPROVED");
+        values.put("amount", "not-a-number");
+        rows.add(MetricFactRow.of(values));
+        CompiledMetricDefinition definition = compiler.compile(codec.parse(approvedAmountDefinition()), 1);
+
+        MetricValidationException exception = Assertions.assertThrows(MetricValidationException.class,
+                () -> executor.execute(definition, query("VCC_APPROVED_AMOUNT", "cust_001", Map.of(), Map.of())));
+
+        Assertions.assertEquals(MetricErrorCode.METRIC_FACT_VALUE_INVALID, exception.errorCode());
+        Assertions.assertEquals("/metric/value/measure/field", exception.fieldPath());
+    }
+
+    @Test
+    @DisplayName("批量查询按事实源分组共享扫描，并按请求顺序返回结果")
+    void testExecuteBatchSharesFactScan() {
+        addTransaction("t1", "cust_001", START_TIME.plusHours(1), "USD", "APPROVED", "10");
+        addTransaction("t2", "cust_001", START_TIME.plusHours(2), "USD", "DECLINED", "3");
+        CompiledMetricDefinition amount = compiler.compile(codec.parse(approvedAmountDefinition()), 1);
+        CompiledMetricDefinition count = compiler.compile(codec.parse(approvedAmountDefinition()
+                .replace("VCC_APPROVED_AMOUNT", "VCC_APPROVED_COUNT")
+                .replace("\"valueType\": \"DECIMAL\"", "\"valueType\": \"LONG\"")
+                .replace("\"scale\": 4,", "")
+                .replace("\"aggregation\": \"SUM\"", "\"aggregation\": \"COUNT\"")
+                .replace("\"field\": \"amount\",", "")), 1);
+        CompiledMetricDefinition other = compiler.compile(codec.parse(approvedAmountDefinition()
+                .replace("VCC_APPROVED_AMOUNT", "VCC_OTHER_AMOUNT")
+                .replace("VccTransaction", "VccOtherTransaction")), 1);
+
+        List<MetricResult> results = executor.executeBatch(List.of(other, amount, count), new MetricBatchQuery(
+                List.of("VCC_APPROVED_COUNT", "VCC_OTHER_AMOUNT", "VCC_APPROVED_AMOUNT"),
+                "cust_001", START_TIME, END_TIME, Map.of("currency", "USD")));
+
+        Assertions.assertEquals(2, scans.size());
+        Assertions.assertEquals("VccTransaction", scans.get(0).fact());
+        Assertions.assertTrue(scans.get(0).fields().containsAll(List.of("amount", "status")));
+        Assertions.assertEquals("VCC_APPROVED_COUNT", results.get(0).metricCode());
+        Assertions.assertEquals(1L, results.get(0).value());
+        Assertions.assertEquals(new BigDecimal("10.0000"), results.get(1).value());
+        Assertions.assertEquals(new BigDecimal("10.0000"), results.get(2).value());
+        MetricValidationException missing = Assertions.assertThrows(MetricValidationException.class,
+                () -> executor.executeBatch(List.of(amount), new MetricBatchQuery(
+                        List.of("VCC_APPROVED_AMOUNT", "VCC_APPROVED_COUNT"),
+                        "cust_001", START_TIME, END_TIME, Map.of())));
+        Assertions.assertEquals("/metricCodes/1", missing.fieldPath());
+    }
+
+    @Test
+    @DisplayName("多主体查询一次扫描按主体分组，结果按查询主体顺序写入紧凑列")
+    void testExecuteSubjectsInSingleScan() {
+        addTransaction("t1", "cust_001", START_TIME.plusHours(1), "USD", "APPROVED", "10");
+        addTransaction("t2", "cust_002", START_TIME.plusHours(2), "USD", "APPROVED", "7");
+        addTransaction("t3", "cust_002", START_TIME.plusHours(3), "USD", "APPROVED", "3");
+        addTransaction("t4", "cust_004", START_TIME.plusHours(4), "USD", "APPROVED", "99");
+        addTransaction("t5", "cust_001", START_TIME.plusHours(5), "EUR", "APPROVED", "1");
+        CompiledMetricDefinition definition = compiler.compile(codec.parse(approvedAmountDefinition()), 1);
+
+        MetricColumnResult result = executor.executeSubjects(definition, new MetricSubjectsQuery(
+                "VCC_APPROVED_AMOUNT", List.of("cust_002", "cust_001", "cust_003"), START_TIME, END_TIME,
+                Map.of("currency", "USD")));
+
+        Assertions.assertEquals(1, scans.size());
+        Assertions.assertNull(scans.getFirst().subjectId());
+        Assertions.assertEquals(Set.of("cust_001", "cust_002", "cust_003"), scans.getFirst().subjectIds());
+        MetricValueColumn column = result.column("value");
+        Assertions.assertEquals(List.of("cust_002", "cust_001", "cust_003"), result.subjectIds());
+        Assertions.assertEquals(new BigDecimal("10.0000"), column.value(0));
+        Assertions.assertEquals(new BigDecimal("10.0000"), column.value(1));
+        Assertions.assertTrue(column.isNull(2));
+    }
+
+    @Test
+    @DisplayName("多主体行选择在每个主体内分别截取最近 N 行")
+    void testExecuteSubjectsWithPerSubjectRowSelection() {
+        addTransaction("t1", "cust_001", START_TIME.plusHours(1), "USD", "APPROVED", "100");
+        addTransaction("t2", "cust_001", START_TIME.plusHours(2), "USD", "APPROVED", "20");
+        addTransaction("t3", "cust_002", START_TIME.plusHours(1), "USD", "APPROVED", "5");
+        addTransaction("t4", "cust_001", START_TIME.plusHours(3), "USD", "APPROVED", "40");
+        addTransaction("t5", "cust_002", START_TIME.plusHours(4), "USD", "APPROVED", "7");
+        addTransaction("t6", "cust_002", START_TIME.plusHours(4), "USD", "APPROVED", "9");
+        CompiledMetricDefinition definition = compiler.compile(codec.parse(latestAverageDefinition()), 1);
+
+        MetricColumnResult result = executor.executeSubjects(definition, new MetricSubjectsQuery(
+                "VCC_LATEST_AVERAGE_AMOUNT", List.of("cust_001", "cust_002", "cust_003"), START_TIME, END_TIME,
+                Map.of()));
+
+        MetricValueColumn column = result.column("value");
+        Assertions.assertEquals(new BigDecimal("30.0000"), column.value(0));
+        Assertions.assertEquals(new BigDecimal("8.0000"), column.value(1));
+        Assertions.assertTrue(column.isNull(2));
+    }
+
+    @Test
+    @DisplayName("多主体查询不支持参数化的行数上限")
+    void testRejectSubjectsWithParameterizedRowLimit() {
+        CompiledMetricDefinition definition = compiler.compile(codec.parse(refundFirstNDefinition()), 1);
+
+        MetricValidationException exception = Assertions.assertThrows(MetricValidationException.class,
+                () -> executor.executeSubjects(definition, new MetricSubjectsQuery(
+                        "VCC_REFUND_FIRST_N_SUMMARY", List.of("vcc_001"), START_TIME, END_TIME, Map.of())));
+
+        Assertions.assertEquals(MetricErrorCode.METRIC_EXECUTION_MODE_UNSUPPORTED, exception.errorCode());
+        Assertions.assertEquals("/metric/rowSelection/limit", exception.fieldPath());
+    }
+
+    private MetricQuery query(String metricCode,
+                              String subjectId,
+                              Map<String, Object> dimensionValues,
+                              Map<String, Object> parameterValues) {
+        return new MetricQuery(metricCode, subjectId, START_TIME, END_TIME, dimensionValues, parameterValues);
+    }
+
+    private void addTransaction(String id,
+                                String customerId,
+                                LocalDateTime authTime,
+                                String currency,
+                                String status,
+                                String amount) {
+        rows.add(MetricFactRow.of(Map.of(
+                "transactionId", id,
+                "customerId", customerId,
+                "authTime", authTime,
+                "currency", currency,
+                "status", status,
+                "amount", new BigDecimal(amount))));
+    }
+
+    private void addRefund(String id, LocalDateTime authorizationTime, String category, String amount) {
+        rows.add(MetricFactRow.of(Map.of(
+                "transactionId", id,
+                "vccId", "vcc_001",
+                "authorizationTime", authorizationTime,
+                "category", category,
+                "businessScene", "VCC_REFUND",
+                "paymentAmount", new BigDecimal(amount))));
+    }
+
+    private String approvedAmountDefinition() {
+        return """
+                {
+                  "schemaVersion": 1,
+                  "metric": {
+                    "code": "VCC_APPROVED_AMOUNT",
+                    "valueShape": "SCALAR",
+                    "fact": "VccTransaction",
+                    "subject": {"type": "CUSTOMER", "field": "customerId"},
+                    "time": {"field": "authTime"},
+                    "dimensions": ["currency"],
+                    "value": {
+                      "valueType": "DECIMAL",
+                      "scale": 4,
+                      "measure": {
+                        "aggregation": "SUM",
+                        "field": "amount",
+                        "filter": {"eq": {"status": "APPROVED"}}
+                      },
+                      "orElse": {"mode": "NULL"}
+                    }
+                  }
+                }
+                """;
+    }
+
+    private String latestAverageDefinition() {
+        return """
+                {
+                  "schemaVersion": 1,
+                  "metric": {
+                    "code": "VCC_LATEST_AVERAGE_AMOUNT",
+                    "valueShape": "SCALAR",
+                    "fact": "VccTransaction",
+                    "subject": {"type": "CUSTOMER", "field": "customerId"},
+                    "time": {"field": "authTime"},
+                    "dimensions": [],
+                    "rowSelection": {
+                      "orderBy": [{"field": "authTime", "direction": "DESC"}],
+                      "limit": {"value": 2}
+                    },
+                    "value": {
+                      "valueType": "DECIMAL",
+                      "scale": 4,
+                      "measure": {"aggregation": "AVG", "field": "amount"}
+                    }
+                  }
+                }
+                """;
+    }
+
+    private String refundFirstNDefinition() {
+        return """
+                {
+                  "schemaVersion": 1,
+                  "metric": {
+                    "code": "VCC_REFUND_FIRST_N_SUMMARY",
+                    "valueShape": "FIELD_SET",
+                    "fact": "VccRefundTransaction",
+                    "subject": {"type": "VCC", "field": "vccId"},
+                    "time": {"field": "authorizationTime"},
+                    "dimensions": [],
+                    "parameters": {
+                      "entryLimit": {"valueType": "INTEGER", "minimum": 1, "maximum": 100}
+                    },
+                    "rowSelection": {
+                      "filter": {"eq": {"category": "REFUND"}},
+                      "orderBy": [
+                        {"field": "authorizationTime", "direction": "ASC"},
+                        {"field": "transactionId", "direction": "ASC"}
+                      ],
+                      "limit": {"parameter": "entryLimit"}
+                    },
+                    "fields": {
+                      "refundAmount": {
+                        "valueType": "DECIMAL",
+                        "scale": 4,
+                        "measure": {"aggregation": "SUM", "field": "paymentAmount"},
+                        "orElse": {"mode": "ZERO"}
+                      },
+                      "refundCount": {
+                        "valueType": "LONG",
+                        "measure": {"aggregation": "COUNT"},
+                        "orElse": {"mode": "ZERO"}
+                      }
+                    }
+                  }
+                }
+                """;
+    }
+}
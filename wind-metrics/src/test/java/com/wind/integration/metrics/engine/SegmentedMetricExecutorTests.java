@@ -0,0 +1,192 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.dsl.MetricDefinitionDslCodec;
+import com.wind.integration.metrics.dsl.MetricMaterializationPlanDslCodec;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import com.wind.integration.metrics.enums.MetricExecutionMode;
+import com.wind.integration.metrics.enums.MetricSegmentSourceType;
+import com.wind.integration.metrics.query.MetricQuery;
+import com.wind.integration.metrics.query.MetricResult;
+import com.wind.integration.metrics.query.MetricSegmentResult;
+import com.wind.integration.metrics.snapshot.InMemoryMetricSnapshotStore;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分段指标执行测试。
+ *
+ * @author wuxp
+ * @date 2026-07-28 15:20
+ */
+class SegmentedMetricExecutorTests {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    private static final LocalDateTime QUARTER_START = LocalDateTime.of(2026, 4, 1, 0, 0);
+
+    private static final LocalDateTime QUARTER_END = LocalDateTime.of(2026, 7, 1, 0, 0);
+
+    private final MetricDefinitionDslCodec codec = new MetricDefinitionDslCodec();
+
+    private final MetricMaterializationPlanDslCodec planCodec = new MetricMaterializationPlanDslCodec();
+
+    private final MetricDefinitionCompiler compiler = new MetricDefinitionCompiler();
+
+    private final List<MetricFactRow> rows = new ArrayList<>();
+
+    private final InMemoryMetricSnapshotStore snapshotStore = new InMemoryMetricSnapshotStore();
+
+    private final Clock clock = Clock.fixed(Instant.parse("2026-07-01T01:00:00Z"), ZONE);
+
+    private final MetricFactSource factSource = (scan, consumer) -> rows.forEach(consumer);
+
+    private final SnapshotMetricMaterializer materializer =
+            new SnapshotMetricMaterializer(factSource, snapshotStore, ZONE);
+
+    private final SegmentedMetricExecutor executor = new SegmentedMetricExecutor(factSource, snapshotStore, clock);
+
+    private final RealtimeMetricExecutor realtimeExecutor = new RealtimeMetricExecutor(factSource, clock);
+
+    @Test
+    @DisplayName("archive 合并快照桶、recent 实时聚合，合并结果与全量实时聚合一致")
+    void testSegmentedMatchesRealtimeAggregation() {
+        for (int day = 0; day < 91; day++) {
+            LocalDateTime time = QUARTER_START.plusDays(day).plusHours(day % 24);
+            addTransaction("cust_001", time, BigDecimal.valueOf(day, 1));
+        }
+        CompiledMetricPlan plan = compilePlan();
+        LocalDateTime splitTime = QUARTER_END.minusDays(7);
+        materializer.materialize(plan, QUARTER_START, QUARTER_END.minusDays(3));
+        MetricQuery query = new MetricQuery(
+                "VCC_AMOUNT_SUMMARY", "cust_001", QUARTER_START, QUARTER_END, Map.of(), Map.of());
+
+        MetricResult segmented = executor.execute(plan, query);
+        MetricResult realtime = realtimeExecutor.execute(plan.definition(), query);
+
+        List<MetricSegmentResult> segments = segmented.segments();
+        Assertions.assertEquals(MetricExecutionMode.SEGMENTED, segmented.executionMode());
+        Assertions.assertEquals("VCC_AMOUNT_SEGMENTED_PLAN", segmented.planCode());
+        Assertions.assertEquals(realtime.fields(), segmented.fields());
+        Assertions.assertEquals(91L, segmented.fields().get("count").value());
+        Assertions.assertEquals(2, segments.size());
+        Assertions.assertEquals("archive", segments.get(0).segmentCode());
+        Assertions.assertEquals(MetricSegmentSourceType.SNAPSHOT, segments.get(0).sourceType());
+        Assertions.assertEquals(splitTime, segments.get(0).endTime());
+        Assertions.assertEquals(QUARTER_END.minusDays(3), segments.get(0).watermarkTime());
+        Assertions.assertEquals("recent", segments.get(1).segmentCode());
+        Assertions.assertEquals(splitTime, segments.get(1).startTime());
+        Assertions.assertEquals(QUARTER_END, segments.get(1).endTime());
+    }
+
+    @Test
+    @DisplayName("快照水位早于近期窗口时切分点退到水位，无覆盖时整个窗口走 recent")
+    void testSplitFallsBackToWatermarkOrRealtime() {
+        for (int day = 0; day < 91; day++) {
+            addTransaction("cust_001", QUARTER_START.plusDays(day), BigDecimal.ONE);
+        }
+        CompiledMetricPlan plan = compilePlan();
+        MetricQuery query = new MetricQuery(
+                "VCC_AMOUNT_SUMMARY", "cust_001", QUARTER_START, QUARTER_END, Map.of(), Map.of());
+
+        MetricResult withoutCoverage = executor.execute(plan, query);
+        materializer.materialize(plan, QUARTER_START, QUARTER_START.plusDays(30));
+        MetricResult lagging = executor.execute(plan, query);
+
+        Assertions.assertEquals(1, withoutCoverage.segments().size());
+        Assertions.assertEquals("recent", withoutCoverage.segments().getFirst().segmentCode());
+        Assertions.assertEquals(QUARTER_START, withoutCoverage.segments().getFirst().startTime());
+        Assertions.assertEquals(new BigDecimal("91.0000"), withoutCoverage.fields().get("amount").value());
+        Assertions.assertEquals(QUARTER_START.plusDays(30), lagging.segments().getFirst().endTime());
+        Assertions.assertEquals(QUARTER_START.plusDays(30), lagging.segments().get(1).startTime());
+        Assertions.assertEquals(withoutCoverage.fields(), lagging.fields());
+    }
+
+    @Test
+    @DisplayName("快照计划不能按分段模式执行")
+    void testRejectSnapshotPlan() {
+        CompiledMetricDefinition definition = compiler.compile(codec.parse(summaryDefinition()), 1);
+        CompiledMetricPlan plan = compiler.compilePlan("VCC_AMOUNT_DAY_PLAN", planCodec.parse("""
+                {
+                  "schemaVersion": 1,
+                  "executionMode": "SNAPSHOT",
+                  "snapshotKeyProviderCode": "VCC_CUSTOMER",
+                  "snapshotGranularity": "DAY",
+                  "snapshotTargetCode": "VCC_AMOUNT_DAY"
+                }
+                """), definition);
+
+        MetricValidationException exception = Assertions.assertThrows(MetricValidationException.class,
+                () -> executor.execute(plan, new MetricQuery(
+                        "VCC_AMOUNT_SUMMARY", "cust_001", QUARTER_START, QUARTER_END, Map.of(), Map.of())));
+
+        Assertions.assertEquals(MetricErrorCode.METRIC_EXECUTION_MODE_UNSUPPORTED, exception.errorCode());
+    }
+
+    private CompiledMetricPlan compilePlan() {
+        CompiledMetricDefinition definition = compiler.compile(codec.parse(summaryDefinition()), 1);
+        return compiler.compilePlan("VCC_AMOUNT_SEGMENTED_PLAN", planCodec.parse("""
+                {
+                  "schemaVersion": 1,
+                  "executionMode": "SEGMENTED",
+                  "recentWindow": "P7D",
+                  "snapshotKeyProviderCode": "VCC_CUSTOMER",
+                  "segments": [
+                    {
+                      "segmentCode": "archive",
+                      "sourceType": "SNAPSHOT",
+                      "snapshotGranularity": "DAY",
+                      "snapshotTargetCode": "VCC_AMOUNT_ARCHIVE"
+                    },
+                    {"segmentCode": "recent", "sourceType": "REALTIME"}
+                  ]
+                }
+                """), definition);
+    }
+
+    private void addTransaction(String customerId, LocalDateTime authTime, BigDecimal amount) {
+        rows.add(MetricFactRow.of(Map.of(
+                "customerId", customerId,
+                "authTime", authTime,
+                "currency", "USD",
+                "amount", amount)));
+    }
+
+    private String summaryDefinition() {
+        return """
+                {
+                  "schemaVersion": 1,
+                  "metric": {
+                    "code": "VCC_AMOUNT_SUMMARY",
+                    "valueShape": "FIELD_SET",
+                    "fact": "VccTransaction",
+                    "subject": {"type": "CUSTOMER", "field": "customerId"},
+                    "time": {"field": "authTime"},
+                    "dimensions": ["currency"],
+                    "fields": {
+                      "count": {"valueType": "LONG", "measure": {"aggregation": "COUNT"}},
+                      "amount": {
+                        "valueType": "DECIMAL",
+                        "measure": {"aggregation": "SUM", "field": "amount"},
+                        "orElse": {"mode": "ZERO"}
+                      },
+                      "maxAmount": {
+                        "valueType": "DECIMAL",
+                        "measure": {"aggregation": "MAX", "field": "amount"}
+                      }
+                    }
+                  }
+                }
+                """;
+    }
+}
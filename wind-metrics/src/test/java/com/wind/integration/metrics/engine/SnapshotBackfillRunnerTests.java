@@ -0,0 +1,239 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.dsl.MetricDefinitionDslCodec;
+import com.wind.integration.metrics.dsl.MetricMaterializationPlanDslCodec;
+import com.wind.integration.metrics.query.MetricQuery;
+import com.wind.integration.metrics.query.MetricResult;
+import com.wind.integration.metrics.snapshot.InMemoryMetricSnapshotCheckpointStore;
+import com.wind.integration.metrics.snapshot.InMemoryMetricSnapshotStore;
+import com.wind.integration.metrics.snapshot.MetricSnapshotCheckpoint;
+import com.wind.integration.metrics.snapshot.MetricSnapshotCoverage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 快照分区并行回填测试。
+ *
+ * @author wuxp
+ * @date 2026-08-07 09:50
+ */
+class SnapshotBackfillRunnerTests {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    private static final LocalDateTime MONTH_START = LocalDateTime.of(2026, 6, 1, 0, 0);
+
+    private static final LocalDateTime MONTH_END = LocalDateTime.of(2026, 7, 1, 0, 0);
+
+    private final MetricDefinitionCompiler compiler = new MetricDefinitionCompiler();
+
+    private final List<MetricFactRow> rows = new ArrayList<>();
+
+    private final InMemoryMetricSnapshotStore snapshotStore = new InMemoryMetricSnapshotStore();
+
+    private final InMemoryMetricSnapshotCheckpointStore checkpointStore = new InMemoryMetricSnapshotCheckpointStore();
+
+    private final Clock clock = Clock.fixed(Instant.parse("2026-07-02T01:00:00Z"), ZONE);
+
+    private final ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+
+    private volatile LocalDateTime failCustomer002At;
+
+    private volatile Set<String> partition1Subjects = Set.of("cust_002", "cust_003");
+
+    private final MetricFactSource factSource = (scan, consumer) -> {
+        if (failCustomer002At != null && scan.subjectIds().contains("cust_002")
+                && scan.startTime().equals(failCustomer002At)) {
+            throw new IllegalStateException("fact source unavailable");
+        }
+        rows.forEach(consumer);
+    };
+
+    private final SnapshotMetricMaterializer materializer =
+            new SnapshotMetricMaterializer(factSource, snapshotStore, ZONE);
+
+    private final SnapshotKeyProvider keyProvider = new SnapshotKeyProvider() {
+
+        @Override
+        public String code() {
+            return "VCC_CUSTOMER";
+        }
+
+        @Override
+        public List<SnapshotKeyPartition> partitions(CompiledMetricPlan plan,
+                                                     LocalDateTime startTime,
+                                                     LocalDateTime endTime) {
+            return List.of(new SnapshotKeyPartition("P0", Set.of("cust_001")),
+                    new SnapshotKeyPartition("P1", partition1Subjects));
+        }
+    };
+
+    private final SnapshotBackfillRunner runner = new SnapshotBackfillRunner(
+            materializer, snapshotStore, checkpointStore, List.of(keyProvider), executorService, 3);
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdown();
+    }
+
+    @Test
+    @DisplayName("按主体分区和时间分块并行回填，结果与实时聚合一致")
+    void testBackfillMatchesRealtimeAggregation() {
+        addMonthTransactions();
+        CompiledMetricPlan plan = compilePlan();
+
+        SnapshotBackfillResult result = runner.backfill(plan, MONTH_START, MONTH_END, 7);
+
+        Assertions.assertTrue(result.completed(MONTH_END));
+        Assertions.assertEquals(10, result.materializedTasks());
+        Assertions.assertEquals(new MetricSnapshotCoverage(MONTH_START, MONTH_END), result.coverage());
+        Assertions.assertEquals(new MetricSnapshotCheckpoint(MONTH_START, MONTH_END,
+                        new SnapshotKeyPartition("P1", Set.of("cust_003", "cust_002")).fingerprint()),
+                checkpointStore.getCheckpoint("VCC_AMOUNT_DAY", "P1").orElseThrow());
+        assertMatchesRealtime(plan, "cust_001");
+        assertMatchesRealtime(plan, "cust_002");
+    }
+
+    @Test
+    @DisplayName("分块失败阻止覆盖区间越过失败位置，重新回填从分区进度继续")
+    void testFailedChunkBlocksWatermarkAndResumes() {
+        addMonthTransactions();
+        CompiledMetricPlan plan = compilePlan();
+        failCustomer002At = MONTH_START.plusDays(14);
+
+        SnapshotBackfillResult failed = runner.backfill(plan, MONTH_START, MONTH_END, 7);
+
+        Assertions.assertFalse(failed.completed(MONTH_END));
+        Assertions.assertEquals(MONTH_START.plusDays(14), failed.completedUntil());
+        Assertions.assertEquals(new MetricSnapshotCoverage(MONTH_START, MONTH_START.plusDays(14)), failed.coverage());
+        Assertions.assertEquals(1, failed.failures().size());
+        Assertions.assertEquals("P1", failed.failures().get(0).partitionId());
+        Assertions.assertEquals(MONTH_START.plusDays(14), failed.failures().get(0).startTime());
+        Assertions.assertEquals(new MetricSnapshotCheckpoint(MONTH_START, MONTH_END,
+                        new SnapshotKeyPartition("P0", Set.of("cust_001")).fingerprint()),
+                checkpointStore.getCheckpoint("VCC_AMOUNT_DAY", "P0").orElseThrow());
+
+        failCustomer002At = null;
+        SnapshotBackfillResult resumed = runner.backfill(plan, MONTH_START, MONTH_END, 7);
+
+        Assertions.assertTrue(resumed.completed(MONTH_END));
+        Assertions.assertEquals(3, resumed.materializedTasks());
+        Assertions.assertEquals(7, resumed.resumedTasks());
+        Assertions.assertEquals(new MetricSnapshotCoverage(MONTH_START, MONTH_END), resumed.coverage());
+        assertMatchesRealtime(plan, "cust_001");
+        assertMatchesRealtime(plan, "cust_002");
+    }
+
+    @Test
+    @DisplayName("分区主体集合变化后不复用分区进度，新加入的主体从区间开始回填")
+    void testChangedPartitionSubjectsRestartPartition() {
+        addMonthTransactions();
+        addTransaction("cust_004", MONTH_START.plusDays(3), "USD", BigDecimal.TEN);
+        CompiledMetricPlan plan = compilePlan();
+        failCustomer002At = MONTH_START.plusDays(14);
+        runner.backfill(plan, MONTH_START, MONTH_END, 7);
+
+        failCustomer002At = null;
+        partition1Subjects = Set.of("cust_002", "cust_003", "cust_004");
+        SnapshotBackfillResult resumed = runner.backfill(plan, MONTH_START, MONTH_END, 7);
+
+        Assertions.assertTrue(resumed.completed(MONTH_END));
+        Assertions.assertEquals(5, resumed.materializedTasks());
+        Assertions.assertEquals(5, resumed.resumedTasks());
+        Assertions.assertEquals(new MetricSnapshotCheckpoint(MONTH_START, MONTH_END,
+                        new SnapshotKeyPartition("P1", partition1Subjects).fingerprint()),
+                checkpointStore.getCheckpoint("VCC_AMOUNT_DAY", "P1").orElseThrow());
+        assertMatchesRealtime(plan, "cust_002");
+        assertMatchesRealtime(plan, "cust_004");
+    }
+
+    @Test
+    @DisplayName("执行器拒绝分块任务时释放并发许可并记录为失败")
+    void testRejectedChunkReleasesPermit() {
+        addMonthTransactions();
+        CompiledMetricPlan plan = compilePlan();
+        SnapshotBackfillRunner rejecting = new SnapshotBackfillRunner(materializer, snapshotStore, checkpointStore,
+                List.of(keyProvider), command -> {
+                    throw new RejectedExecutionException("executor is shut down");
+                }, 1);
+
+        SnapshotBackfillResult result = rejecting.backfill(plan, MONTH_START, MONTH_END, 7);
+
+        Assertions.assertEquals(0, result.materializedTasks());
+        Assertions.assertEquals(2, result.failures().size());
+        Assertions.assertInstanceOf(RejectedExecutionException.class, result.failures().get(0).cause());
+        Assertions.assertNull(result.coverage());
+    }
+
+    private void assertMatchesRealtime(CompiledMetricPlan plan, String customerId) {
+        MetricQuery query = new MetricQuery(
+                "VCC_AMOUNT_SUMMARY", customerId, MONTH_START, MONTH_END, Map.of("currency", "USD"), Map.of());
+        MetricResult snapshot = new SnapshotMetricExecutor(snapshotStore, clock).execute(plan, query);
+        MetricResult realtime = new RealtimeMetricExecutor(factSource, clock).execute(plan.definition(), query);
+        Assertions.assertEquals(realtime.fields(), snapshot.fields());
+    }
+
+    private void addMonthTransactions() {
+        for (int day = 0; day < 30; day++) {
+            LocalDateTime time = MONTH_START.plusDays(day).plusHours(day % 24);
+            addTransaction("cust_001", time, day % 2 == 0 ? "USD" : "EUR", BigDecimal.valueOf(day, 1));
+            addTransaction("cust_002", time, "USD", BigDecimal.ONE);
+        }
+    }
+
+    private CompiledMetricPlan compilePlan() {
+        CompiledMetricDefinition compiled = compiler.compile(new MetricDefinitionDslCodec().parse("""
+                {
+                  "schemaVersion": 1,
+                  "metric": {
+                    "code": "VCC_AMOUNT_SUMMARY",
+                    "valueShape": "FIELD_SET",
+                    "fact": "VccTransaction",
+                    "subject": {"type": "CUSTOMER", "field": "customerId"},
+                    "time": {"field": "authTime"},
+                    "dimensions": ["currency"],
+                    "fields": {
+                      "count": {"valueType": "LONG", "measure": {"aggregation": "COUNT"}},
+                      "amount": {
+                        "valueType": "DECIMAL",
+                        "measure": {"aggregation": "SUM", "field": "amount"},
+                        "orElse": {"mode": "ZERO"}
+                      }
+                    }
+                  }
+                }
+                """), 1);
+        return compiler.compilePlan("VCC_AMOUNT_DAY_PLAN", new MetricMaterializationPlanDslCodec().parse("""
+                {
+                  "schemaVersion": 1,
+                  "executionMode": "SNAPSHOT",
+                  "snapshotKeyProviderCode": "VCC_CUSTOMER",
+                  "snapshotGranularity": "DAY",
+                  "snapshotTargetCode": "VCC_AMOUNT_DAY"
+                }
+                """), compiled);
+    }
+
+    private void addTransaction(String customerId, LocalDateTime authTime, String currency, BigDecimal amount) {
+        rows.add(MetricFactRow.of(Map.of(
+                "customerId", customerId,
+                "authTime", authTime,
+                "currency", currency,
+                "amount", amount)));
+    }
+}
@@ -0,0 +1,163 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.dsl.MetricDefinitionDslCodec;
+import com.wind.integration.metrics.dsl.MetricMaterializationPlanDslCodec;
+import com.wind.integration.metrics.query.MetricQuery;
+import com.wind.integration.metrics.query.MetricResult;
+import com.wind.integration.metrics.snapshot.InMemoryMetricSnapshotDirtyBucketStore;
+import com.wind.integration.metrics.snapshot.InMemoryMetricSnapshotStore;
+import com.wind.integration.metrics.snapshot.MetricSnapshotCoverage;
+import com.wind.integration.metrics.snapshot.MetricSnapshotDirtyBucket;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 迟到事实的快照桶修复测试。
+ *
+ * @author wuxp
+ * @date 2026-08-08 10:05
+ */
+class SnapshotBucketRepairerTests {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    private static final LocalDateTime MONTH_START = LocalDateTime.of(2026, 6, 1, 0, 0);
+
+    private static final LocalDateTime MONTH_END = LocalDateTime.of(2026, 7, 1, 0, 0);
+
+    private final MetricDefinitionCompiler compiler = new MetricDefinitionCompiler();
+
+    private final List<MetricFactRow> rows = new ArrayList<>();
+
+    private final List<MetricFactScan> scans = new ArrayList<>();
+
+    private final InMemoryMetricSnapshotStore snapshotStore = new InMemoryMetricSnapshotStore();
+
+    private final InMemoryMetricSnapshotDirtyBucketStore dirtyBucketStore =
+            new InMemoryMetricSnapshotDirtyBucketStore();
+
+    private final Clock clock = Clock.fixed(Instant.parse("2026-07-02T01:00:00Z"), ZONE);
+
+    private final MetricFactSource factSource = (scan, consumer) -> {
+        scans.add(scan);
+        rows.forEach(consumer);
+    };
+
+    private final SnapshotMetricMaterializer materializer =
+            new SnapshotMetricMaterializer(factSource, snapshotStore, ZONE);
+
+    private final SnapshotBucketRepairer repairer =
+            new SnapshotBucketRepairer(materializer, snapshotStore, dirtyBucketStore, ZONE);
+
+    @Test
+    @DisplayName("迟到事实只重建涉及的主体和桶，覆盖区间不回退")
+    void testRepairOnlyDirtyBuckets() {
+        for (int day = 0; day < 30; day++) {
+            addTransaction("cust_001", MONTH_START.plusDays(day).plusHours(3), BigDecimal.ONE);
+            addTransaction("cust_002", MONTH_START.plusDays(day).plusHours(5), BigDecimal.TEN);
+        }
+        CompiledMetricPlan plan = compilePlan();
+        materializer.materialize(plan, MONTH_START, MONTH_END);
+        List<MetricFactRow> late = List.of(
+                transaction("cust_001", MONTH_START.plusDays(3).plusHours(8), new BigDecimal("-0.5")),
+                transaction("cust_001", MONTH_START.plusDays(3).plusHours(9), new BigDecimal("2")),
+                transaction("cust_002", MONTH_END.plusHours(1), BigDecimal.ONE));
+        rows.addAll(late);
+        scans.clear();
+
+        int marked = repairer.markChanged(plan, late);
+        int repaired = repairer.repair(plan, 100);
+
+        Assertions.assertEquals(1, marked);
+        Assertions.assertEquals(1, repaired);
+        Assertions.assertEquals(1, scans.size());
+        Assertions.assertEquals(Set.of("cust_001"), scans.get(0).subjectIds());
+        Assertions.assertEquals(MONTH_START.plusDays(3), scans.get(0).startTime());
+        Assertions.assertEquals(MONTH_START.plusDays(4), scans.get(0).endTime());
+        Assertions.assertEquals(new MetricSnapshotCoverage(MONTH_START, MONTH_END),
+                snapshotStore.getCoverage("VCC_AMOUNT_DAY").orElseThrow());
+        Assertions.assertTrue(dirtyBucketStore.findDirty("VCC_AMOUNT_DAY", 100).isEmpty());
+        assertMatchesRealtime(plan, "cust_001", new BigDecimal("31.5000"));
+        assertMatchesRealtime(plan, "cust_002", new BigDecimal("300.0000"));
+    }
+
+    @Test
+    @DisplayName("重建期间再次标记的桶不会因清除标记而丢失")
+    void testRemarkedBucketSurvivesClear() {
+        LocalDateTime bucket = MONTH_START.plusDays(1);
+        dirtyBucketStore.markDirty("VCC_AMOUNT_DAY", "cust_001", bucket);
+        List<MetricSnapshotDirtyBucket> found = dirtyBucketStore.findDirty("VCC_AMOUNT_DAY", 10);
+        dirtyBucketStore.markDirty("VCC_AMOUNT_DAY", "cust_001", bucket);
+
+        dirtyBucketStore.clearDirty("VCC_AMOUNT_DAY", found);
+
+        List<MetricSnapshotDirtyBucket> remaining = dirtyBucketStore.findDirty("VCC_AMOUNT_DAY", 10);
+        Assertions.assertEquals(1, remaining.size());
+        Assertions.assertTrue(remaining.get(0).version() > found.get(0).version());
+    }
+
+    private void assertMatchesRealtime(CompiledMetricPlan plan, String customerId, BigDecimal amount) {
+        MetricQuery query = new MetricQuery(
+                "VCC_AMOUNT_SUMMARY", customerId, MONTH_START, MONTH_END, Map.of(), Map.of());
+        MetricResult snapshot = new SnapshotMetricExecutor(snapshotStore, clock).execute(plan, query);
+        MetricResult realtime = new RealtimeMetricExecutor(factSource, clock).execute(plan.definition(), query);
+        Assertions.assertEquals(realtime.fields(), snapshot.fields());
+        Assertions.assertEquals(amount, snapshot.fields().get("amount").value());
+    }
+
+    private CompiledMetricPlan compilePlan() {
+        CompiledMetricDefinition compiled = compiler.compile(new MetricDefinitionDslCodec().parse("""
+                {
+                  "schemaVersion": 1,
+                  "metric": {
+                    "code": "VCC_AMOUNT_SUMMARY",
+                    "valueShape": "FIELD_SET",
+                    "fact": "VccTransaction",
+                    "subject": {"type": "CUSTOMER", "field": "customerId"},
+                    "time": {"field": "authTime"},
+                    "dimensions": ["currency"],
+                    "fields": {
+                      "count": {"valueType": "LONG", "measure": {"aggregation": "COUNT"}},
+                      "amount": {
+                        "valueType": "DECIMAL",
+                        "measure": {"aggregation": "SUM", "field": "amount"},
+                        "orElse": {"mode": "ZERO"}
+                      }
+                    }
+                  }
+                }
+                """), 1);
+        return compiler.compilePlan("VCC_AMOUNT_DAY_PLAN", new MetricMaterializationPlanDslCodec().parse("""
+                {
+                  "schemaVersion": 1,
+                  "executionMode": "SNAPSHOT",
+                  "snapshotKeyProviderCode": "VCC_CUSTOMER",
+                  "snapshotGranularity": "DAY",
+                  "snapshotTargetCode": "VCC_AMOUNT_DAY"
+                }
+                """), compiled);
+    }
+
+    private void addTransaction(String customerId, LocalDateTime authTime, BigDecimal amount) {
+        rows.add(transaction(customerId, authTime, amount));
+    }
+
+    private static MetricFactRow transaction(String customerId, LocalDateTime authTime, BigDecimal amount) {
+        return MetricFactRow.of(Map.of(
+                "customerId", customerId,
+                "authTime", authTime,
+                "currency", "USD",
+                "amount", amount));
+    }
+}
@@ -0,0 +1,212 @@
+package com.wind.integration.metrics.engine;
+
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.dsl.MetricDefinitionDslCodec;
+import com.wind.integration.metrics.dsl.MetricMaterializationPlanDslCodec;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import com.wind.integration.metrics.enums.MetricExecutionMode;
+import com.wind.integration.metrics.enums.SnapshotGranularity;
+import com.wind.integration.metrics.query.MetricQuery;
+import com.wind.integration.metrics.query.MetricResult;
+import com.wind.integration.metrics.snapshot.InMemoryMetricSnapshotStore;
+import com.wind.integration.metrics.snapshot.MetricSnapshotCoverage;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 快照物化与快照查询测试。
+ *
+ * @author wuxp
+ * @date 2026-07-27 09:40
+ */
+class SnapshotMetricExecutorTests {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    private static final LocalDateTime MONTH_START = LocalDateTime.of(2026, 6, 1, 0, 0);
+
+    private static final LocalDateTime MONTH_END = LocalDateTime.of(2026, 7, 1, 0, 0);
+
+    private final MetricDefinitionDslCodec codec = new MetricDefinitionDslCodec();
+
+    private final MetricMaterializationPlanDslCodec planCodec = new MetricMaterializationPlanDslCodec();
+
+    private final MetricDefinitionCompiler compiler = new MetricDefinitionCompiler();
+
+    private final List<MetricFactRow> rows = new ArrayList<>();
+
+    private final InMemoryMetricSnapshotStore snapshotStore = new InMemoryMetricSnapshotStore();
+
+    private final Clock clock = Clock.fixed(Instant.parse("2026-07-02T01:00:00Z"), ZONE);
+
+    private final MetricFactSource factSource = (scan, consumer) -> rows.forEach(consumer);
+
+    private final SnapshotMetricMaterializer materializer =
+            new SnapshotMetricMaterializer(factSource, snapshotStore, ZONE);
+
+    private final SnapshotMetricExecutor executor = new SnapshotMetricExecutor(snapshotStore, clock);
+
+    private final RealtimeMetricExecutor realtimeExecutor = new RealtimeMetricExecutor(factSource, clock);
+
+    @Test
+    @DisplayName("月度查询合并日快照桶，结果与实时聚合一致")
+    void testSnapshotMatchesRealtimeAggregation() {
+        for (int day = 0; day < 30; day++) {
+            LocalDateTime time = MONTH_START.plusDays(day).plusHours(day % 24);
+            addTransaction("cust_001", time, day % 2 == 0 ? "USD" : "EUR", BigDecimal.valueOf(day, 1));
+            addTransaction("cust_002", time, "USD", BigDecimal.ONE);
+        }
+        CompiledMetricPlan plan = compilePlan(summaryDefinition());
+
+        MetricSnapshotCoverage coverage = materializer.materialize(plan, MONTH_START, MONTH_END);
+        MetricQuery query = new MetricQuery(
+                "VCC_AMOUNT_SUMMARY", "cust_001", MONTH_START, MONTH_END, Map.of("currency", "USD"), Map.of());
+        MetricResult snapshot = executor.execute(plan, query);
+        MetricResult realtime = realtimeExecutor.execute(plan.definition(), query);
+
+        Assertions.assertEquals(new MetricSnapshotCoverage(MONTH_START, MONTH_END), coverage);
+        Assertions.assertEquals(MetricExecutionMode.SNAPSHOT, snapshot.executionMode());
+        Assertions.assertEquals(SnapshotGranularity.DAY, snapshot.snapshotGranularity());
+        Assertions.assertEquals(MONTH_END, snapshot.watermarkTime());
+        Assertions.assertEquals("VCC_AMOUNT_DAY_PLAN", snapshot.planCode());
+        Assertions.assertEquals(realtime.fields(), snapshot.fields());
+        Assertions.assertEquals(15L, snapshot.fields().get("count").value());
+        Assertions.assertEquals(new BigDecimal("21.0000"), snapshot.fields().get("amount").value());
+        Assertions.assertEquals(new BigDecimal("2.8000"), snapshot.fields().get("maxAmount").value());
+    }
+
+    @Test
+    @DisplayName("覆盖区间按连续物化推进，未覆盖或未对齐的窗口失败关闭")
+    void testRejectUncoveredOrUnalignedWindow() {
+        CompiledMetricPlan plan = compilePlan(summaryDefinition());
+        materializer.materialize(plan, MONTH_START, MONTH_START.plusDays(10));
+        MetricSnapshotCoverage coverage = materializer.materialize(
+                plan, MONTH_START.plusDays(10), MONTH_START.plusDays(20));
+
+        MetricValidationException uncovered = Assertions.assertThrows(MetricValidationException.class,
+                () -> executor.execute(plan, new MetricQuery(
+                        "VCC_AMOUNT_SUMMARY", "cust_001", MONTH_START, MONTH_END, Map.of(), Map.of())));
+        MetricValidationException unaligned = Assertions.assertThrows(MetricValidationException.class,
+                () -> executor.execute(plan, new MetricQuery(
+                        "VCC_AMOUNT_SUMMARY", "cust_001", MONTH_START.plusHours(1), MONTH_START.plusDays(2),
+                        Map.of(), Map.of())));
+        MetricResult empty = executor.execute(plan, new MetricQuery(
+                "VCC_AMOUNT_SUMMARY", "cust_001", MONTH_START, MONTH_START.plusDays(20), Map.of(), Map.of()));
+
+        Assertions.assertEquals(MONTH_START.plusDays(20), coverage.watermarkTime());
+        Assertions.assertEquals(MetricErrorCode.METRIC_SNAPSHOT_NOT_COVERED, uncovered.errorCode());
+        Assertions.assertEquals(MetricErrorCode.QUERY_INVALID, unaligned.errorCode());
+        Assertions.assertEquals("/startTime", unaligned.fieldPath());
+        Assertions.assertEquals(0L, empty.fields().get("count").value());
+        Assertions.assertNull(empty.fields().get("maxAmount").value());
+    }
+
+    @Test
+    @DisplayName("与覆盖区间不相交的物化不移动覆盖区间，较早的回填不会使水位回退")
+    void testDisjointMaterializationKeepsCoverage() {
+        CompiledMetricPlan plan = compilePlan(summaryDefinition());
+        MetricSnapshotCoverage covered = materializer.materialize(plan, MONTH_START, MONTH_START.plusDays(20));
+
+        MetricSnapshotCoverage afterOlder = materializer.materialize(
+                plan, MONTH_START.minusDays(10), MONTH_START.minusDays(5));
+        MetricSnapshotCoverage afterLater = materializer.materialize(
+                plan, MONTH_START.plusDays(25), MONTH_END);
+
+        Assertions.assertEquals(covered, afterOlder);
+        Assertions.assertEquals(covered, afterLater);
+        Assertions.assertEquals(MONTH_START.plusDays(20), afterLater.watermarkTime());
+        Assertions.assertEquals(covered, new MetricSnapshotCoverage(MONTH_START, MONTH_START.plusDays(20))
+                .extend(MONTH_START.minusDays(3), MONTH_START.minusDays(1)));
+        Assertions.assertEquals(new MetricSnapshotCoverage(MONTH_START.minusDays(3), MONTH_START.plusDays(20)),
+                covered.extend(MONTH_START.minusDays(3), MONTH_START));
+    }
+
+    @Test
+    @DisplayName("平均值和行选择无法由快照桶合并，编译计划时失败关闭")
+    void testRejectNonMergeableDefinition() {
+        MetricValidationException exception = Assertions.assertThrows(MetricValidationException.class,
+                () -> compilePlan(summaryDefinition().replace("\"MAX\"", "\"AVG\"")));
+
+        Assertions.assertEquals(MetricErrorCode.METRIC_EXECUTION_MODE_UNSUPPORTED, exception.errorCode());
+        Assertions.assertEquals("/metric/fields/maxAmount/measure/aggregation", exception.fieldPath());
+    }
+
+    @Test
+    @DisplayName("快照物化只扫描主事实，关联事实的指标编译计划时失败关闭")
+    void testRejectJoinedDefinition() {
+        String joined = summaryDefinition().replace("\"fact\": \"VccTransaction\",", """
+                "fact": "VccTransaction",
+                "joins": [{
+                  "alias": "merchant",
+                  "fact": "Merchant",
+                  "joinType": "INNER",
+                  "cardinality": "MANY_TO_ONE",
+                  "on": [{"primaryField": "merchantId", "joinField": "id"}]
+                }],
+                """);
+        MetricValidationException exception = Assertions.assertThrows(MetricValidationException.class,
+                () -> compilePlan(joined));
+
+        Assertions.assertEquals(MetricErrorCode.METRIC_EXECUTION_MODE_UNSUPPORTED, exception.errorCode());
+        Assertions.assertEquals("/metric/joins", exception.fieldPath());
+    }
+
+    private CompiledMetricPlan compilePlan(String definition) {
+        CompiledMetricDefinition compiled = compiler.compile(codec.parse(definition), 1);
+        return compiler.compilePlan("VCC_AMOUNT_DAY_PLAN", planCodec.parse("""
+                {
+                  "schemaVersion": 1,
+                  "executionMode": "SNAPSHOT",
+                  "snapshotKeyProviderCode": "VCC_CUSTOMER",
+                  "snapshotGranularity": "DAY",
+                  "snapshotTargetCode": "VCC_AMOUNT_DAY"
+                }
+                """), compiled);
+    }
+
+    private void addTransaction(String customerId, LocalDateTime authTime, String currency, BigDecimal amount) {
+        rows.add(MetricFactRow.of(Map.of(
+                "customerId", customerId,
+                "authTime", authTime,
+                "currency", currency,
+                "amount", amount)));
+    }
+
+    private String summaryDefinition() {
+        return """
+                {
+                  "schemaVersion": 1,
+                  "metric": {
+                    "code": "VCC_AMOUNT_SUMMARY",
+                    "valueShape": "FIELD_SET",
+                    "fact": "VccTransaction",
+                    "subject": {"type": "CUSTOMER", "field": "customerId"},
+                    "time": {"field": "authTime"},
+                    "dimensions": ["currency"],
+                    "fields": {
+                      "count": {"valueType": "LONG", "measure": {"aggregation": "COUNT"}},
+                      "amount": {
+                        "valueType": "DECIMAL",
+                        "measure": {"aggregation": "SUM", "field": "amount"},
+                        "orElse": {"mode": "ZERO"}
+                      },
+                      "maxAmount": {
+                        "valueType": "DECIMAL",
+                        "measure": {"aggregation": "MAX", "field": "amount"}
+                      }
+                    }
+                  }
+                }
+                """;
+    }
+}
@@ -0,0 +1,208 @@
+package com.wind.integration.metrics.fields;
+
+import com.wind.integration.metrics.WindMetricsAggregationQuery;
+import com.wind.integration.metrics.pipeline.WindMetricsIncrement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 本地分段累加指标字段工厂测试。
+ *
+ * @author wuxp
+ * @date 2026-08-05 09:30
+ */
+class AdderMetricsFieldFactoryTests {
+
+    private final List<List<WindMetricsIncrement>> batches = new ArrayList<>();
+
+    private final AtomicBoolean failing = new AtomicBoolean();
+
+    private final AdderMetricsFieldFactory factory = new AdderMetricsFieldFactory(increments -> {
+        if (failing.get()) {
+            throw new IllegalStateException("database unavailable");
+        }
+        batches.add(increments);
+    }, Duration.ofHours(1), 2);
+
+    @AfterEach
+    void tearDown() {
+        factory.close();
+    }
+
+    @Test
+    @DisplayName("多线程并发递增不丢失，刷写时每个业务维度只写一条增量")
+    void testConcurrentIncreaseFlushesOneIncrementPerKey() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(() -> {
+                SingleValueMetricsField<Long> field = factory.single("request_count", query("u1"), Long.class);
+                for (int j = 0; j < 10_000; j++) {
+                    field.increase(1L);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        factory.flush();
+        factory.flush();
+
+        Assertions.assertEquals(1, batches.size());
+        Assertions.assertEquals(List.of(new WindMetricsIncrement("request_count", "u1", 80_000L)), batches.get(0));
+        Assertions.assertEquals(80_000L, factory.single("request_count", query("u1"), Long.class).getValue());
+    }
+
+    @Test
+    @DisplayName("写入失败不推进刷写位置，下一次刷写写出全部增量")
+    void testRetryAfterWriteFailure() {
+        SingleValueMetricsField<Number> field = factory.single("amount");
+        field.increase(3L);
+        field.increase(0.5);
+        field.decrease(1L);
+        failing.set(true);
+
+        Assertions.assertThrows(IllegalStateException.class, factory::flush);
+        failing.set(false);
+        factory.flush();
+
+        Assertions.assertEquals(List.of(new WindMetricsIncrement("amount",
+                AdderMetricsFieldFactory.GLOBAL_DIMENSIONS_ID, new BigDecimal("2.5"))), batches.get(0));
+        Assertions.assertEquals(new BigDecimal("2.5"), field.getValue());
+    }
+
+    @Test
+    @DisplayName("空闲字段被移除后，仍持有旧字段的调用转发到新字段并被刷写")
+    void testIdleFieldIsEvictedAndRedirected() {
+        SingleValueMetricsField<Long> field = factory.single("request_count", query("u2"), Long.class);
+        field.increase(1L);
+        factory.flush();
+        factory.flush();
+        factory.flush();
+        Assertions.assertEquals(0, factory.size());
+
+        field.increase(2L);
+        factory.flush();
+
+        Assertions.assertEquals(1, factory.size());
+        Assertions.assertEquals(List.of(new WindMetricsIncrement("request_count", "u2", 2L)), batches.get(1));
+    }
+
+    @Test
+    @DisplayName("检查淘汰标记之后才落下的增量，在字段淘汰后交回刷写，不会丢失")
+    void testIncreaseRacingEvictionIsFlushed() {
+        SingleValueMetricsField<Number> field = factory.single("request_count", query("u3"));
+        // 读取增量值时字段被淘汰并完成最后一次刷写，模拟递增线程在检查淘汰标记和累加之间停顿
+        Number racing = new Number() {
+
+            @Override
+            public int intValue() {
+                return 1;
+            }
+
+            @Override
+            public long longValue() {
+                return 1L;
+            }
+
+            @Override
+            public float floatValue() {
+                return 1F;
+            }
+
+            @Override
+            public double doubleValue() {
+                return 1D;
+            }
+
+            @Override
+            public String toString() {
+                factory.flush();
+                factory.flush();
+                factory.flush();
+                return "1.0";
+            }
+        };
+
+        field.increase(racing);
+        Assertions.assertEquals(0, factory.size());
+        Assertions.assertTrue(batches.isEmpty());
+        factory.flush();
+
+        Assertions.assertEquals(List.of(new WindMetricsIncrement("request_count", "u3", new BigDecimal("1.0"))),
+                batches.get(0));
+    }
+
+    @Test
+    @DisplayName("多值字段由同一业务维度下的子指标单值字段组成")
+    void testMultipleValueField() {
+        factory.single("order.count", query("u4"), Long.class).increase(2L);
+        factory.single("order.amount", query("u4"), BigDecimal.class).increase(new BigDecimal("1.5"));
+        factory.single("order.count", query("u5"), Long.class).increase(7L);
+
+        MultipleValueMetricsField<Map<String, Object>> field = factory.multiple("order", query("u4"));
+
+        Assertions.assertEquals(Map.of("amount", new BigDecimal("1.5"), "count", 2L), field.getValue());
+        Assertions.assertEquals(2L, field.findByName("count").orElseThrow().getValue());
+    }
+
+    @Test
+    @DisplayName("同名指标以不同聚合维度获取时拒绝，业务维度标识须可序列化")
+    void testRejectConflictingDimensions() {
+        factory.single("request_count", query("u6"));
+
+        Assertions.assertThrows(RuntimeException.class,
+                () -> factory.single("request_count", WindMetricsAggregationQuery.of("merchant", "u6")));
+        Assertions.assertThrows(RuntimeException.class,
+                () -> factory.single("request_count", WindMetricsAggregationQuery.of("user", new Object())));
+    }
+
+    @Test
+    @DisplayName("小数增量按十进制精确累加和刷写，不经过 double")
+    void testDecimalIncrementsAreExact() {
+        SingleValueMetricsField<BigDecimal> field = factory.single("amount", query("u7"), BigDecimal.class);
+        for (int i = 0; i < 10; i++) {
+            field.increase(new BigDecimal("0.1"));
+        }
+        field.increase(new BigDecimal("12345678901234567.89"));
+        factory.flush();
+        field.decrease(new BigDecimal("0.3"));
+        factory.flush();
+
+        Assertions.assertEquals(new WindMetricsIncrement("amount", "u7", new BigDecimal("12345678901234568.89")),
+                batches.get(0).get(0));
+        Assertions.assertEquals(new WindMetricsIncrement("amount", "u7", new BigDecimal("-0.30")),
+                batches.get(1).get(0));
+        Assertions.assertEquals(new BigDecimal("12345678901234568.59"), field.getValue());
+    }
+
+    @Test
+    @DisplayName("字段值转换为声明的值类型，同名指标不能声明不同的值类型")
+    void testValueType() {
+        SingleValueMetricsField<Integer> field = factory.single("login_count", query("u8"), Integer.class);
+        field.setValue(3);
+
+        Integer value = field.increase(2);
+        Assertions.assertEquals(5, value);
+        Assertions.assertEquals(5, factory.<Number>single("login_count", query("u8")).getValue());
+        Assertions.assertThrows(RuntimeException.class, () -> factory.single("login_count", query("u8"), Long.class));
+    }
+
+    private static WindMetricsAggregationQuery query(String userId) {
+        return WindMetricsAggregationQuery.of("user", userId);
+    }
+}
@@ -0,0 +1,237 @@
+package com.wind.integration.metrics.pipeline;
+
+import com.wind.common.exception.BaseException;
+import com.wind.integration.metrics.WindMetricsCalculateExpression;
+import com.wind.integration.metrics.WindMetricsValue;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 异步批量指标统计执行器测试。
+ *
+ * @author wuxp
+ * @date 2026-08-02 10:40
+ */
+class BufferedMetricsStatisticsExecutorTests {
+
+    private final List<List<WindMetricsIncrement>> batches = new CopyOnWriteArrayList<>();
+
+    private final WindMetricsIncrementEvaluator<Order> evaluator = WindMetricsIncrementEvaluator.of(Order.class,
+            Order::userId, List.of(expression("order_count", order -> 1L),
+                    expression("order_amount", Order::amount)));
+
+    @Test
+    @DisplayName("同一业务维度的增量在一个批次内合并为一条")
+    void testCoalesceIncrementsPerKey() {
+        BufferedMetricsStatisticsExecutor executor = new BufferedMetricsStatisticsExecutor(List.of(evaluator),
+                batches::add, 1024, 1024, Duration.ofMinutes(1), Duration.ZERO);
+        for (int i = 0; i < 100; i++) {
+            executor.execute(new Order(i % 2 == 0 ? "u1" : "u2", new BigDecimal("1.5")));
+        }
+
+        executor.close();
+
+        Map<String, Number> totals = totals();
+        Assertions.assertEquals(4, batches.stream().mapToInt(List::size).sum());
+        Assertions.assertEquals(50L, totals.get("order_count:u1"));
+        Assertions.assertEquals(new BigDecimal("75.0"), totals.get("order_amount:u2"));
+    }
+
+    @Test
+    @DisplayName("累计业务对象数量达到阈值后刷写，不等待关闭")
+    void testFlushByEventCount() throws InterruptedException {
+        CountDownLatch written = new CountDownLatch(1);
+        BufferedMetricsStatisticsExecutor executor = new BufferedMetricsStatisticsExecutor(List.of(evaluator),
+                increments -> {
+                    batches.add(increments);
+                    written.countDown();
+                }, 16, 2, Duration.ofMinutes(1), Duration.ofSeconds(1));
+
+        executor.execute(new Order("u1", BigDecimal.ONE));
+        executor.execute(new Order("u1", BigDecimal.ONE));
+
+        Assertions.assertTrue(written.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(2L, totals().get("order_count:u1"));
+        executor.close();
+    }
+
+    @Test
+    @DisplayName("写入阻塞导致缓冲区满时在等待超时后拒绝")
+    void testRejectWhenBufferIsFull() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BufferedMetricsStatisticsExecutor executor = new BufferedMetricsStatisticsExecutor(List.of(evaluator),
+                increments -> {
+                    writing.countDown();
+                    await(release);
+                    batches.add(increments);
+                }, 2, 1, Duration.ofMinutes(1), Duration.ofMillis(10));
+        executor.execute(new Order("u1", BigDecimal.ONE));
+        Assertions.assertTrue(writing.await(5, TimeUnit.SECONDS));
+        executor.execute(new Order("u1", BigDecimal.ONE));
+        executor.execute(new Order("u1", BigDecimal.ONE));
+
+        Assertions.assertThrows(BaseException.class, () -> executor.execute(new Order("u1", BigDecimal.ONE)));
+        release.countDown();
+        executor.close();
+        Assertions.assertEquals(3L, totals().get("order_count:u1"));
+    }
+
+    @Test
+    @DisplayName("写入失败的增量在后续刷写中重试，关闭时全部写出")
+    void testRetryFailedWriteAndFlushOnClose() {
+        AtomicInteger attempts = new AtomicInteger();
+        BufferedMetricsStatisticsExecutor executor = new BufferedMetricsStatisticsExecutor(List.of(evaluator),
+                increments -> {
+                    if (attempts.getAndIncrement() == 0) {
+                        throw new IllegalStateException("database unavailable");
+                    }
+                    batches.add(increments);
+                }, 16, 1, Duration.ofMinutes(1), Duration.ofSeconds(1));
+        executor.execute(new Order("u1", BigDecimal.ONE));
+        executor.execute(new Order("u1", BigDecimal.TEN));
+
+        executor.close();
+
+        Assertions.assertEquals(2L, totals().get("order_count:u1"));
+        Assertions.assertEquals(new BigDecimal("11"), totals().get("order_amount:u1"));
+        Assertions.assertThrows(BaseException.class, () -> executor.execute(new Order("u1", BigDecimal.ONE)));
+    }
+
+    @Test
+    @DisplayName("关闭时唤醒等待刷写间隔的消费线程，不等待整个刷写间隔")
+    void testCloseWakesConsumer() {
+        BufferedMetricsStatisticsExecutor executor = new BufferedMetricsStatisticsExecutor(List.of(evaluator),
+                batches::add, 16, 1024, Duration.ofHours(1), Duration.ZERO);
+        executor.execute(new Order("u1", BigDecimal.ONE));
+
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(5), executor::close);
+        Assertions.assertEquals(1L, totals().get("order_count:u1"));
+    }
+
+    @Test
+    @DisplayName("最终刷写失败时关闭抛出异常")
+    void testCloseFailsWhenFinalFlushFails() {
+        BufferedMetricsStatisticsExecutor executor = new BufferedMetricsStatisticsExecutor(List.of(evaluator),
+                increments -> {
+                    throw new IllegalStateException("database unavailable");
+                }, 16, 1024, Duration.ofHours(1), Duration.ZERO);
+        executor.execute(new Order("u1", BigDecimal.ONE));
+
+        BaseException exception = Assertions.assertThrows(BaseException.class, executor::close);
+        Assertions.assertInstanceOf(IllegalStateException.class, exception.getCause());
+    }
+
+    @Test
+    @DisplayName("与关闭并发放入的业务对象要么被拒绝，要么在最终刷写中写出")
+    void testConcurrentExecuteAndClose() throws InterruptedException {
+        BufferedMetricsStatisticsExecutor executor = new BufferedMetricsStatisticsExecutor(List.of(evaluator),
+                batches::add, 1024, 64, Duration.ofHours(1), Duration.ofSeconds(1));
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            started.countDown();
+            while (true) {
+                try {
+                    executor.execute(new Order("u1", BigDecimal.ONE));
+                    accepted.incrementAndGet();
+                } catch (BaseException exception) {
+                    return;
+                }
+            }
+        });
+        producer.start();
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        executor.close();
+        producer.join();
+
+        Assertions.assertEquals((long) accepted.get(), totals().getOrDefault("order_count:u1", 0L));
+    }
+
+    @Test
+    @DisplayName("消费线程被中断后停止接收，中断之前接受的业务对象全部写出")
+    void testConsumerInterruptStopsAcceptingAndDrains() throws InterruptedException {
+        WindMetricsIncrementEvaluator<Order> interrupting = WindMetricsIncrementEvaluator.of(Order.class,
+                Order::userId, List.of(expression("order_count", order -> {
+                    if (order.userId().equals("stop")) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return 1L;
+                })));
+        BufferedMetricsStatisticsExecutor executor = new BufferedMetricsStatisticsExecutor(List.of(interrupting),
+                batches::add, 1024, 64, Duration.ofHours(1), Duration.ofSeconds(1));
+        AtomicInteger accepted = new AtomicInteger();
+        Thread producer = new Thread(() -> {
+            while (true) {
+                try {
+                    executor.execute(new Order("u1", BigDecimal.ONE));
+                    accepted.incrementAndGet();
+                } catch (BaseException exception) {
+                    return;
+                }
+            }
+        });
+        producer.start();
+        executor.execute(new Order("stop", BigDecimal.ONE));
+
+        producer.join(TimeUnit.SECONDS.toMillis(5));
+        Assertions.assertFalse(producer.isAlive());
+        executor.close();
+
+        Assertions.assertEquals((long) accepted.get(), totals().getOrDefault("order_count:u1", 0L));
+        Assertions.assertEquals(1L, totals().get("order_count:stop"));
+    }
+
+    private Map<String, Number> totals() {
+        Map<String, Number> result = new HashMap<>();
+        for (List<WindMetricsIncrement> batch : new ArrayList<>(batches)) {
+            for (WindMetricsIncrement increment : batch) {
+                result.merge(increment.name() + ":" + increment.dimensionsId(), increment.value(),
+                        (left, right) -> left instanceof Long l && right instanceof Long r ? (Number) (l + r)
+                                : new BigDecimal(left.toString()).add(new BigDecimal(right.toString())));
+            }
+        }
+        return result;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static WindMetricsCalculateExpression<Number> expression(String name,
+                                                                     Function<Order, Number> value) {
+        return (o, variables) -> new WindMetricsValue<>() {
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public Number getValue() {
+                return value.apply((Order) o);
+            }
+        };
+    }
+
+    private record Order(String userId, BigDecimal amount) {
+    }
+}
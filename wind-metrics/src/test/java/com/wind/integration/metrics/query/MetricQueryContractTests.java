@@ -81,6 +81,25 @@ class MetricQueryContractTests {
         Assertions.assertEquals("/metricCodes", exception.fieldPath());
     }
 
+    @Test
+    void testSubjectsQueryRejectsDuplicateOrTooManySubjects() {
+        List<String> tooMany = new ArrayList<>();
+        for (int i = 0; i <= MetricSubjectsQuery.MAX_SUBJECTS; i++) {
+            tooMany.add("cust_" + i);
+        }
+
+        MetricValidationException duplicate = Assertions.assertThrows(
+                MetricValidationException.class,
+                () -> new MetricSubjectsQuery(
+                        "VCC_APPROVED_TOTAL", List.of("cust_001", "cust_001"), START_TIME, END_TIME, Map.of()));
+        MetricValidationException oversized = Assertions.assertThrows(
+                MetricValidationException.class,
+                () -> new MetricSubjectsQuery("VCC_APPROVED_TOTAL", tooMany, START_TIME, END_TIME, Map.of()));
+
+        Assertions.assertEquals("/subjectIds", duplicate.fieldPath());
+        Assertions.assertEquals("/subjectIds", oversized.fieldPath());
+    }
+
     @Test
     void testQueryDefensivelyCopiesMutableTemporalValues() {
         Date requestedDate = new Date(1_720_000_000_000L);
@@ -104,4 +123,34 @@ class MetricQueryContractTests {
         Assertions.assertEquals(1_720_000_000_123L, actualTimestamp.getTime());
         Assertions.assertEquals(123_456_789, actualTimestamp.getNanos());
     }
+
+    @Test
+    void testImmutableDimensionMapIsSharedWithoutCopy() {
+        ImmutableMetricMap<Object> dimensions = ImmutableMetricMap.builder(1).put("currency", (Object) "USD").build();
+
+        MetricQuery query = new MetricQuery(
+                "VCC_APPROVED_TOTAL", "cust_001", START_TIME, END_TIME, dimensions, Map.of());
+        MetricQuery leafQuery = new MetricQuery(
+                "VCC_APPROVED_COUNT", "cust_001", START_TIME, END_TIME, query.dimensionValues(), Map.of());
+        MetricBatchQuery batchQuery = new MetricBatchQuery(
+                List.of("VCC_APPROVED_TOTAL"), "cust_001", START_TIME, END_TIME, leafQuery.dimensionValues());
+
+        Assertions.assertSame(dimensions, query.dimensionValues());
+        Assertions.assertSame(dimensions, leafQuery.dimensionValues());
+        Assertions.assertSame(dimensions, batchQuery.dimensionValues());
+        Assertions.assertThrows(
+                UnsupportedOperationException.class,
+                () -> query.dimensionValues().put("currency", "EUR"));
+    }
+
+    @Test
+    void testImmutableDimensionMapIsStillValidated() {
+        ImmutableMetricMap<Object> dimensions = ImmutableMetricMap.builder(1).put("ratio", (Object) 0.5D).build();
+
+        MetricValidationException exception = Assertions.assertThrows(
+                MetricValidationException.class,
+                () -> new MetricQuery("VCC_APPROVED_TOTAL", "cust_001", START_TIME, END_TIME, dimensions, Map.of()));
+
+        Assertions.assertEquals("/dimensionValues/ratio", exception.fieldPath());
+    }
 }
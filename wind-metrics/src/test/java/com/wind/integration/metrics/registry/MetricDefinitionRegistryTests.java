@@ -0,0 +1,94 @@
+package com.wind.integration.metrics.registry;
+
+import com.wind.integration.metrics.MetricValidationException;
+import com.wind.integration.metrics.engine.CompiledMetricDefinition;
+import com.wind.integration.metrics.engine.CompiledMetricPlan;
+import com.wind.integration.metrics.enums.MetricErrorCode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 指标定义注册表测试。
+ *
+ * @author wuxp
+ * @date 2026-07-30 14:10
+ */
+class MetricDefinitionRegistryTests {
+
+    private final MetricDefinitionRegistry registry = new MetricDefinitionRegistry(16);
+
+    @Test
+    @DisplayName("相同编码、修订号和内容只解析一次，内容变化得到新条目")
+    void testCacheByCodeRevisionAndDigest() {
+        CompiledMetricDefinition first = registry.getDefinition("VCC_APPROVED_COUNT", 1, definition("APPROVED"));
+        CompiledMetricDefinition second = registry.getDefinition("VCC_APPROVED_COUNT", 1, definition("APPROVED"));
+        CompiledMetricDefinition changed = registry.getDefinition("VCC_APPROVED_COUNT", 1, definition("SETTLED"));
+        CompiledMetricPlan plan = registry.getPlan("VCC_APPROVED_DAY_PLAN", plan(), first);
+        CompiledMetricPlan cachedPlan = registry.getPlan("VCC_APPROVED_DAY_PLAN", plan(), first);
+
+        Assertions.assertSame(first, second);
+        Assertions.assertNotSame(first, changed);
+        Assertions.assertSame(plan, cachedPlan);
+        Assertions.assertEquals(new MetricRegistryCacheStats(1, 2, 0, 2), registry.definitionStats());
+        Assertions.assertEquals(0.5, registry.planStats().hitRate());
+    }
+
+    @Test
+    @DisplayName("加载更高修订号时淘汰旧修订号，旧修订号的滞后请求不再写入缓存")
+    void testInvalidateOlderRevisions() {
+        CompiledMetricDefinition revision1 = registry.getDefinition("VCC_APPROVED_COUNT", 1, definition("APPROVED"));
+        registry.getPlan("VCC_APPROVED_DAY_PLAN", plan(), revision1);
+        CompiledMetricDefinition revision2 = registry.getDefinition("VCC_APPROVED_COUNT", 2, definition("APPROVED"));
+        CompiledMetricDefinition stale = registry.getDefinition("VCC_APPROVED_COUNT", 1, definition("APPROVED"));
+
+        Assertions.assertEquals(2, revision2.revision());
+        Assertions.assertNotSame(revision1, stale);
+        Assertions.assertEquals(1, registry.definitionStats().size());
+        Assertions.assertEquals(0, registry.planStats().size());
+        registry.invalidate("VCC_APPROVED_COUNT");
+        Assertions.assertEquals(0, registry.definitionStats().size());
+    }
+
+    @Test
+    @DisplayName("定义内容的编码与请求编码不一致时失败关闭")
+    void testRejectMismatchedCode() {
+        MetricValidationException exception = Assertions.assertThrows(MetricValidationException.class,
+                () -> registry.getDefinition("VCC_OTHER_COUNT", 1, definition("APPROVED")));
+
+        Assertions.assertEquals(MetricErrorCode.DSL_VALUE_INVALID, exception.errorCode());
+        Assertions.assertEquals("/metric/code", exception.fieldPath());
+    }
+
+    private static String definition(String status) {
+        return """
+                {
+                  "schemaVersion": 1,
+                  "metric": {
+                    "code": "VCC_APPROVED_COUNT",
+                    "valueShape": "SCALAR",
+                    "fact": "VccTransaction",
+                    "subject": {"type": "CUSTOMER", "field": "customerId"},
+                    "time": {"field": "authTime"},
+                    "dimensions": [],
+                    "value": {
+                      "valueType": "LONG",
+                      "measure": {"aggregation": "COUNT", "filter": {"eq": {"status": "%s"}}}
+                    }
+                  }
+                }
+                """.formatted(status);
+    }
+
+    private static String plan() {
+        return """
+                {
+                  "schemaVersion": 1,
+                  "executionMode": "SNAPSHOT",
+                  "snapshotKeyProviderCode": "VCC_CUSTOMER",
+                  "snapshotGranularity": "DAY",
+                  "snapshotTargetCode": "VCC_APPROVED_DAY"
+                }
+                """;
+    }
+}
@@ -0,0 +1,237 @@
+package com.wind.integration.tag;
+
+import com.wind.core.ReadonlyContextVariables;
+import com.wind.integration.core.model.IdObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * 批量打标测试
+ *
+ * @author wuxp
+ * @date 2026-08-13 10:30
+ */
+class BulkEntityTaggerTests {
+
+    @Test
+    @DisplayName("同名标签按来源优先级取值，优先级相同时保留先注册的评估器结果")
+    void testResolveTagByPriority() {
+        RecordingRepository repository = new RecordingRepository();
+        EntityTagEvaluator rule = evaluator(TagSource.RISK_RULE, data -> List.of(
+                EntityTag.of("信用评级", "B", TagSource.RULE_BASED, "rule"),
+                EntityTag.of("风险等级", "低", TagSource.RULE_BASED, "rule")));
+        EntityTagEvaluator risk = evaluator(TagSource.RISK_RULE, data -> List.of(
+                EntityTag.of("信用评级", "A", TagSource.RISK_RULE, "risk"),
+                EntityTag.of("风险等级", "高", TagSource.RULE_BASED, "risk")));
+        BulkEntityTagger<Long> tagger = new BulkEntityTagger<>(List.of(rule, risk), repository, Runnable::run, 1, 10);
+
+        BulkTaggingResult result = tagger.tag(Stream.of(new Customer(1L)), TagSource.RISK_RULE);
+
+        Assertions.assertTrue(result.isSuccess());
+        Assertions.assertEquals(2, result.tags());
+        Map<String, EntityTag> tags = repository.tags.get(1L);
+        Assertions.assertEquals("A", tags.get("信用评级").value());
+        Assertions.assertEquals("低", tags.get("风险等级").value());
+    }
+
+    @Test
+    @DisplayName("按对象类型、标签来源和上下文变量预先筛选评估器")
+    void testSkipInapplicableEvaluators() {
+        RecordingRepository repository = new RecordingRepository();
+        AtomicInteger merchantCalls = new AtomicInteger();
+        AtomicInteger limitCalls = new AtomicInteger();
+        AtomicInteger manualCalls = new AtomicInteger();
+        Set<Class<?>> merchantTypes = Set.of(Merchant.class);
+        EntityTagEvaluator merchant = new TestEvaluator(TagSource.RULE_BASED, merchantTypes, Set.of(), data -> {
+            merchantCalls.incrementAndGet();
+            return List.of(EntityTag.of("商户", "是", TagSource.RULE_BASED, "merchant"));
+        });
+        EntityTagEvaluator limit = new TestEvaluator(TagSource.RULE_BASED, Set.of(), Set.of("limit"), data -> {
+            limitCalls.incrementAndGet();
+            return List.of(EntityTag.of("额度", "高", TagSource.RULE_BASED, "limit"));
+        });
+        EntityTagEvaluator manual = evaluator(TagSource.MANUAL, data -> {
+            manualCalls.incrementAndGet();
+            return List.of(EntityTag.of("人工", "是", TagSource.MANUAL, "manual"));
+        });
+        EntityTagEvaluator customer = new TestEvaluator(TagSource.RULE_BASED, Set.of(IdObject.class), Set.of(),
+                data -> List.of(EntityTag.of("客户", "是", TagSource.RULE_BASED, "customer")));
+        BulkEntityTagger<Long> tagger = new BulkEntityTagger<>(List.of(merchant, limit, manual, customer), repository,
+                Runnable::run, 1, 10);
+
+        BulkTaggingResult result = tagger.tag(Stream.of(new Customer(1L), new Customer(2L)), TagSource.RULE_BASED);
+
+        Assertions.assertEquals(2, result.tagged());
+        Assertions.assertEquals(0, merchantCalls.get());
+        Assertions.assertEquals(0, limitCalls.get());
+        Assertions.assertEquals(0, manualCalls.get());
+        Assertions.assertEquals(Set.of("客户"), repository.tags.get(1L).keySet());
+
+        tagger.tag(Stream.of(new Customer(3L)), TagSource.RULE_BASED, () -> Map.of("limit", 100));
+
+        Assertions.assertEquals(1, limitCalls.get());
+        Assertions.assertEquals(Set.of("额度", "客户"), repository.tags.get(3L).keySet());
+    }
+
+    @Test
+    @DisplayName("按批次保存标签，没有标签的对象不保存，批次失败不影响其他批次")
+    void testSaveTagsInBatches() {
+        RecordingRepository repository = new RecordingRepository();
+        repository.failingId = 5L;
+        EntityTagEvaluator skipFourth = evaluator(TagSource.RULE_BASED, data -> data.getId().equals(4L)
+                ? List.of()
+                : List.of(EntityTag.of("客户", "是", TagSource.RULE_BASED, "rule")));
+        BulkEntityTagger<Long> tagger = new BulkEntityTagger<>(List.of(skipFourth), repository, Runnable::run, 1, 3);
+
+        BulkTaggingResult result = tagger.tag(LongStream.rangeClosed(1, 7).mapToObj(Customer::new),
+                TagSource.RULE_BASED);
+
+        Assertions.assertEquals(List.of(3, 1), repository.batchSizes);
+        Assertions.assertEquals(7, result.processed());
+        Assertions.assertEquals(3, result.failed());
+        Assertions.assertEquals(4, result.tagged());
+        Assertions.assertInstanceOf(IllegalStateException.class, result.firstFailure());
+        Assertions.assertFalse(repository.tags.containsKey(4L));
+        Assertions.assertTrue(repository.tags.containsKey(7L));
+    }
+
+    @Test
+    @DisplayName("多个批次并发执行时结果完整")
+    void testParallelBatches() throws InterruptedException {
+        RecordingRepository repository = new RecordingRepository();
+        EntityTagEvaluator evaluator = evaluator(TagSource.RULE_BASED, data -> List.of(
+                EntityTag.of("分组", String.valueOf((Long) data.getId() % 10), TagSource.RULE_BASED, "rule")));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            BulkEntityTagger<Long> tagger = new BulkEntityTagger<>(List.of(evaluator), repository, executor, 3, 64);
+
+            BulkTaggingResult result = tagger.tag(LongStream.range(0, 10_000).mapToObj(Customer::new),
+                    TagSource.RULE_BASED);
+
+            Assertions.assertTrue(result.isSuccess());
+            Assertions.assertEquals(10_000, result.processed());
+            Assertions.assertEquals(10_000, result.tags());
+            Assertions.assertEquals(10_000, repository.tags.size());
+            Assertions.assertEquals("7", repository.tags.get(9_997L).get("分组").value());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static EntityTagEvaluator evaluator(TagSource source, TagFunction function) {
+        return new TestEvaluator(source, Set.of(), Set.of(), function);
+    }
+
+    private interface TagFunction {
+
+        Collection<EntityTag> apply(IdObject<?> data);
+    }
+
+    private record Customer(Long id) implements IdObject<Long> {
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+    }
+
+    private record Merchant(Long id) implements IdObject<Long> {
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+    }
+
+    private record TestEvaluator(TagSource source, Set<Class<?>> types, Set<String> variables,
+                                 TagFunction function) implements EntityTagEvaluator {
+
+        @Override
+        public Collection<EntityTag> eval(IdObject<?> data, ReadonlyContextVariables contextVariables) {
+            return function.apply(data);
+        }
+
+        @Override
+        public TagSource getSupportsSource() {
+            return source;
+        }
+
+        @Override
+        public Set<Class<?>> getSupportsTypes() {
+            return types;
+        }
+
+        @Override
+        public Set<String> getRequiredVariables() {
+            return variables;
+        }
+    }
+
+    private static final class RecordingRepository implements EntityTagRepository<Long> {
+
+        private final Map<Long, Map<String, EntityTag>> tags = new ConcurrentHashMap<>();
+
+        private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+        private volatile Long failingId;
+
+        @Override
+        public void saveTags(Collection<TaggingResult> results) {
+            if (results.stream().anyMatch(result -> result.data().getId().equals(failingId))) {
+                throw new IllegalStateException("save failed");
+            }
+            batchSizes.add(results.size());
+            EntityTagRepository.super.saveTags(results);
+        }
+
+        @Override
+        public void saveTags(IdObject<Long> target, Collection<EntityTag> values) {
+            Map<String, EntityTag> current = tags.computeIfAbsent(target.getId(), id -> new ConcurrentHashMap<>());
+            values.forEach(tag -> current.put(tag.name(), tag));
+        }
+
+        @Override
+        public EntityTag getTag(Long objectId, String tagName) {
+            return tags.getOrDefault(objectId, Map.of()).get(tagName);
+        }
+
+        @Override
+        public List<EntityTag> getTags(Long objectId) {
+            return List.copyOf(tags.getOrDefault(objectId, Map.of()).values());
+        }
+
+        @Override
+        public List<EntityTag> getTags(Long objectId, TagSource source) {
+            return getTags(objectId).stream().filter(tag -> tag.source() == source).toList();
+        }
+
+        @Override
+        public void deleteTag(Long objectId, String tagName) {
+            tags.getOrDefault(objectId, new ConcurrentHashMap<>()).remove(tagName);
+        }
+
+        @Override
+        public void deleteTags(Long objectId) {
+            tags.remove(objectId);
+        }
+
+        @Override
+        public void deleteTags(Long objectId, TagSource source) {
+            tags.getOrDefault(objectId, new ConcurrentHashMap<>()).values().removeIf(tag -> tag.source() == source);
+        }
+    }
+}
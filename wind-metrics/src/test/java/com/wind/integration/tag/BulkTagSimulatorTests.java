@@ -0,0 +1,106 @@
+package com.wind.integration.tag;
+
+import com.wind.core.ReadonlyContextVariables;
+import com.wind.integration.core.model.IdObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.LongStream;
+
+/**
+ * 批量模拟打标测试
+ *
+ * @author wuxp
+ * @date 2026-08-17 11:00
+ */
+class BulkTagSimulatorTests {
+
+    @Test
+    @DisplayName("并发对比原规则与新规则，按标签变化汇总对象数量")
+    void testDiffReport() {
+        EntityTagEvaluator before = evaluator(data -> {
+            long id = (Long) data.getId();
+            return EntityTag.tags(TagSource.RISK_RULE, "v1", "风险等级", id % 10 == 0 ? "高" : "低");
+        });
+        EntityTagEvaluator after = evaluator(data -> {
+            long id = (Long) data.getId();
+            List<EntityTag> result = new ArrayList<>(
+                    EntityTag.tags(TagSource.RISK_RULE, "v2", "风险等级", id % 5 == 0 ? "高" : "低"));
+            if (id % 100 == 0) {
+                result.add(EntityTag.of("人工复核", "是", TagSource.RISK_RULE, "v2"));
+            }
+            return result;
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            BulkTagSimulator simulator = new BulkTagSimulator(List.of(before), List.of(after), executor, 3, 128, 10, 5);
+
+            TagSimulationReport report = simulator.simulate(LongStream.range(0, 10_000).mapToObj(Customer::new),
+                    TagSource.RISK_RULE);
+
+            Assertions.assertEquals(10_000, report.processed());
+            Assertions.assertEquals(1_100, report.changed());
+            Assertions.assertEquals(0, report.failed());
+            Assertions.assertEquals(List.of(new TagSimulationReport.Transition("风险等级", "低", "高", 1_000),
+                    new TagSimulationReport.Transition("人工复核", null, "是", 100)), report.transitions());
+            Assertions.assertEquals(5, report.changedSample().size());
+            Assertions.assertEquals(0, report.overflowed());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("变化种类超过上限后计入溢出数量，评估失败的批次计入失败数量")
+    void testBoundedTransitionsAndFailures() {
+        EntityTagEvaluator before = evaluator(data -> List.of());
+        EntityTagEvaluator after = evaluator(data -> {
+            if ((Long) data.getId() == 7L) {
+                throw new IllegalStateException("rule failed");
+            }
+            return EntityTag.tags(TagSource.RULE_BASED, "v2", "分组", String.valueOf(data.getId()));
+        });
+        BulkTagSimulator simulator = new BulkTagSimulator(List.of(before), List.of(after), Runnable::run, 1, 5, 3, 0);
+
+        TagSimulationReport report = simulator.simulate(LongStream.range(0, 10).mapToObj(Customer::new),
+                TagSource.RISK_RULE);
+
+        Assertions.assertEquals(10, report.processed());
+        Assertions.assertEquals(5, report.failed());
+        Assertions.assertEquals(5, report.changed());
+        Assertions.assertEquals(3, report.transitions().size());
+        Assertions.assertEquals(2, report.overflowed());
+        Assertions.assertTrue(report.changedSample().isEmpty());
+        Assertions.assertInstanceOf(IllegalStateException.class, report.firstFailure());
+    }
+
+    private static EntityTagEvaluator evaluator(Function<IdObject<?>, Collection<EntityTag>> function) {
+        return new EntityTagEvaluator() {
+
+            @Override
+            public Collection<EntityTag> eval(IdObject<?> data, ReadonlyContextVariables contextVariables) {
+                return function.apply(data);
+            }
+
+            @Override
+            public TagSource getSupportsSource() {
+                return TagSource.RISK_RULE;
+            }
+        };
+    }
+
+    private record Customer(Long id) implements IdObject<Long> {
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.wind.integration.tag;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 紧凑标签集合测试
+ *
+ * @author wuxp
+ * @date 2026-08-16 10:40
+ */
+class CompactTagSetTests {
+
+    private final TagDictionary dictionary = new TagDictionary();
+
+    @Test
+    @DisplayName("相同标签只驻留一次，同名标签共享名称字符串")
+    void testInternTags() {
+        int first = dictionary.intern(WindTag.of(new String("信用评级"), "A"));
+        int second = dictionary.intern(new String("信用评级"), "A");
+        int other = dictionary.intern(new String("信用评级"), "B");
+
+        Assertions.assertEquals(first, second);
+        Assertions.assertNotEquals(first, other);
+        Assertions.assertEquals(2, dictionary.size());
+        Assertions.assertSame(dictionary.getTag(first).name(), dictionary.getTag(other).name());
+        Assertions.assertEquals(-1, dictionary.find("地区", "EU"));
+    }
+
+    @Test
+    @DisplayName("按名称和值判断包含，可以直接作为 WindTag 集合使用")
+    void testSetContract() {
+        CompactTagSet tags = dictionary.tagSet("信用评级", "A", "地区", "EU", "地区", "US", "信用评级", "A");
+
+        Assertions.assertEquals(3, tags.size());
+        Assertions.assertTrue(tags.contains(WindTag.of("地区", "EU")));
+        Assertions.assertTrue(tags.contains(EntityTag.of("信用评级", "A", TagSource.MANUAL, "admin")));
+        Assertions.assertFalse(tags.contains(WindTag.of("信用评级", "B")));
+        Assertions.assertEquals(Set.copyOf(WindTag.tags("信用评级", "A", "地区", "EU", "地区", "US")), tags);
+        Assertions.assertEquals(WindTag.groupTagsKeyValues(tags), tags.groupKeyValues());
+        Assertions.assertEquals(Map.of("信用评级", Set.of("A"), "地区", Set.of("EU", "US")), tags.groupKeyValues());
+        Assertions.assertEquals(Set.of("EU", "US"), tags.getValues("地区"));
+        Assertions.assertEquals(Set.of("A", "EU", "US"), WindTag.getTagValues(tags));
+    }
+
+    @Test
+    @DisplayName("同一字典的集合按有序标识计算交集、并集和包含")
+    void testIntersect() {
+        CompactTagSet customer = dictionary.tagSet(WindTag.tags("信用评级", "A", "地区", "EU", "行业", "零售"));
+        CompactTagSet search = dictionary.tagSet("地区", "EU", "信用评级", "A");
+
+        Assertions.assertTrue(customer.containsAll(search));
+        Assertions.assertFalse(search.containsAll(customer));
+        Assertions.assertEquals(search, customer.intersect(search));
+        Assertions.assertTrue(customer.intersects(dictionary.tagSet("行业", "零售", "地区", "US")));
+        Assertions.assertFalse(search.intersects(dictionary.tagSet("行业", "零售")));
+        Assertions.assertEquals(customer, search.union(dictionary.tagSet("行业", "零售")));
+        Assertions.assertSame(customer, dictionary.tagSet(customer));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> customer.intersect(new TagDictionary().tagSet(List.of(WindTag.of("地区", "EU")))));
+    }
+}
@@ -0,0 +1,210 @@
+package com.wind.integration.tag;
+
+import com.wind.integration.core.model.IdObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 标签倒排索引测试
+ *
+ * @author wuxp
+ * @date 2026-08-14 11:40
+ */
+class IndexedEntityTagRepositoryTests {
+
+    private final MemoryRepository memory = new MemoryRepository();
+
+    private final IndexedEntityTagRepository<Long> repository = new IndexedEntityTagRepository<>(memory);
+
+    @Test
+    @DisplayName("不同标签名称取交集，同一名称的多个值取并集")
+    void testSearchTags() {
+        for (long id = 0; id < 1_000; id++) {
+            repository.saveTags(new Customer(id), EntityTag.tags(TagSource.RULE_BASED, "rule",
+                    "信用评级", id % 2 == 0 ? "A" : "B", "地区", id % 5 == 0 ? "EU" : "US"));
+        }
+
+        EntityTagIndex<Long> index = repository.getIndex();
+
+        Assertions.assertEquals(100, index.count(WindTag.tags("信用评级", "A", "地区", "EU")));
+        Assertions.assertEquals(200, index.count(WindTag.tags("地区", "EU", "信用评级", "A", "信用评级", "B")));
+        Assertions.assertEquals(List.of(0L, 10L, 20L),
+                index.searchObjectIds(WindTag.tags("信用评级", "A", "地区", "EU")).subList(0, 3));
+        Assertions.assertEquals(0, index.count(WindTag.tags("信用评级", "A", "行业", "零售")));
+    }
+
+    @Test
+    @DisplayName("索引只保存按来源优先级生效的标签值，删除标签后同步移除")
+    void testIndexFollowsEffectiveTags() {
+        Customer customer = new Customer(1L);
+        repository.saveTag(customer, EntityTag.of("信用评级", "A", TagSource.MANUAL, "admin"));
+        repository.saveTag(customer, EntityTag.of("信用评级", "C", TagSource.RULE_BASED, "rule"));
+        repository.saveTag(customer, EntityTag.of("地区", "EU", TagSource.RULE_BASED, "rule"));
+
+        EntityTagIndex<Long> index = repository.getIndex();
+        Assertions.assertEquals(List.of(1L), index.searchObjectIds(WindTag.tags("信用评级", "A")));
+        Assertions.assertEquals(0, index.count(WindTag.tags("信用评级", "C")));
+
+        repository.deleteTags(1L, TagSource.MANUAL);
+
+        Assertions.assertEquals(0, index.count(WindTag.tags("信用评级", "A")));
+        Assertions.assertEquals(1, index.count(WindTag.tags("地区", "EU")));
+
+        repository.deleteTags(1L);
+
+        Assertions.assertEquals(0, index.count(WindTag.tags("地区", "EU")));
+    }
+
+    @Test
+    @DisplayName("批量保存后更新索引")
+    void testBatchSaveUpdatesIndex() {
+        List<TaggingResult> results = new ArrayList<>();
+        for (long id = 0; id < 10; id++) {
+            results.add(new TaggingResult(new Customer(id),
+                    EntityTag.tags(TagSource.RISK_RULE, "risk", "风险等级", id < 3 ? "高" : "低")));
+        }
+
+        repository.saveTags(results);
+
+        Assertions.assertEquals(List.of(0L, 1L, 2L), repository.getIndex().searchObjectIds(WindTag.tags("风险等级", "高")));
+    }
+
+    @Test
+    @DisplayName("替换对象的标签值和移除标签只更新对象自己的位图")
+    void testReplaceAndRemoveObjectTags() {
+        EntityTagIndex<Long> index = new EntityTagIndex<>();
+        index.put(1L, WindTag.tags("信用评级", "A", "地区", "EU"));
+        index.put(2L, WindTag.tags("信用评级", "A"));
+
+        index.put(1L, WindTag.tags("信用评级", "B"));
+        Assertions.assertEquals(List.of(2L), index.searchObjectIds(WindTag.tags("信用评级", "A")));
+        Assertions.assertEquals(List.of(1L), index.searchObjectIds(WindTag.tags("信用评级", "B", "地区", "EU")));
+
+        index.remove(1L, "地区");
+        Assertions.assertEquals(0, index.count(WindTag.tags("地区", "EU")));
+
+        index.replaceAll(2L, WindTag.tags("地区", "US"));
+        Assertions.assertEquals(0, index.count(WindTag.tags("信用评级", "A")));
+        Assertions.assertEquals(List.of(2L), index.searchObjectIds(WindTag.tags("地区", "US")));
+
+        index.remove(1L);
+        Assertions.assertEquals(0, index.count(WindTag.tags("信用评级", "B")));
+    }
+
+    @Test
+    @DisplayName("并发写入同一对象时，较早读取的标签不会覆盖较新的索引")
+    void testConcurrentRefreshKeepsLatestTags() throws InterruptedException {
+        Customer customer = new Customer(1L);
+        CountDownLatch release = new CountDownLatch(1);
+        memory.pauseRead = release;
+        Thread earlier = new Thread(() -> repository.saveTag(customer,
+                EntityTag.of("信用评级", "B", TagSource.RULE_BASED, "rule")));
+        earlier.start();
+        Assertions.assertTrue(memory.reading.await(5, TimeUnit.SECONDS));
+
+        Thread later = new Thread(() -> repository.saveTag(customer,
+                EntityTag.of("信用评级", "C", TagSource.RULE_BASED, "rule")));
+        later.start();
+        while (later.isAlive() && later.getState() != Thread.State.WAITING) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        earlier.join();
+        later.join();
+
+        EntityTagIndex<Long> index = repository.getIndex();
+        Assertions.assertEquals(List.of(1L), index.searchObjectIds(WindTag.tags("信用评级", "C")));
+        Assertions.assertEquals(0, index.count(WindTag.tags("信用评级", "B")));
+    }
+
+    private record Customer(Long id) implements IdObject<Long> {
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+    }
+
+    /**
+     * 按来源优先级覆盖的内存标签服务
+     */
+    private static final class MemoryRepository implements EntityTagRepository<Long> {
+
+        private final Map<Long, Map<String, EntityTag>> tags = new HashMap<>();
+
+        private final Map<Long, Map<String, EntityTag>> shadowed = new HashMap<>();
+
+        private final CountDownLatch reading = new CountDownLatch(1);
+
+        /**
+         * 不为空时下一次读取在取得结果后等待，模拟读取期间发生的并发写入
+         */
+        private volatile CountDownLatch pauseRead;
+
+        @Override
+        public void saveTags(IdObject<Long> target, Collection<EntityTag> values) {
+            Map<String, EntityTag> current = tags.computeIfAbsent(target.getId(), id -> new HashMap<>());
+            for (EntityTag tag : values) {
+                EntityTag existing = current.get(tag.name());
+                if (existing == null || tag.source().getPriority() >= existing.source().getPriority()) {
+                    current.put(tag.name(), tag);
+                } else {
+                    shadowed.computeIfAbsent(target.getId(), id -> new HashMap<>()).put(tag.name(), tag);
+                }
+            }
+        }
+
+        @Override
+        public EntityTag getTag(Long objectId, String tagName) {
+            return tags.getOrDefault(objectId, Map.of()).get(tagName);
+        }
+
+        @Override
+        public List<EntityTag> getTags(Long objectId) {
+            List<EntityTag> result = List.copyOf(tags.getOrDefault(objectId, Map.of()).values());
+            CountDownLatch pause = pauseRead;
+            if (pause != null) {
+                pauseRead = null;
+                reading.countDown();
+                try {
+                    pause.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public List<EntityTag> getTags(Long objectId, TagSource source) {
+            return getTags(objectId).stream().filter(tag -> tag.source() == source).toList();
+        }
+
+        @Override
+        public void deleteTag(Long objectId, String tagName) {
+            tags.getOrDefault(objectId, new HashMap<>()).remove(tagName);
+        }
+
+        @Override
+        public void deleteTags(Long objectId) {
+            tags.remove(objectId);
+            shadowed.remove(objectId);
+        }
+
+        @Override
+        public void deleteTags(Long objectId, TagSource source) {
+            Map<String, EntityTag> current = tags.getOrDefault(objectId, new HashMap<>());
+            current.values().removeIf(tag -> tag.source() == source);
+            shadowed.getOrDefault(objectId, Map.of()).forEach(current::putIfAbsent);
+        }
+    }
+}
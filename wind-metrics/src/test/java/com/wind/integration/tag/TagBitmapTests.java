@@ -0,0 +1,70 @@
+package com.wind.integration.tag;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * 压缩位图测试
+ *
+ * @author wuxp
+ * @date 2026-08-14 11:30
+ */
+class TagBitmapTests {
+
+    @Test
+    @DisplayName("稀疏块与稠密块互相转换后内容不变")
+    void testContainerConversion() {
+        TagBitmap bitmap = new TagBitmap();
+        for (int i = 0; i < 10_000; i++) {
+            Assertions.assertTrue(bitmap.add(i * 2));
+        }
+        Assertions.assertFalse(bitmap.add(2));
+        Assertions.assertEquals(10_000, bitmap.cardinality());
+        Assertions.assertTrue(bitmap.contains(19_998));
+        Assertions.assertFalse(bitmap.contains(19_999));
+
+        for (int i = 0; i < 9_000; i++) {
+            Assertions.assertTrue(bitmap.remove(i * 2));
+        }
+
+        Assertions.assertFalse(bitmap.remove(0));
+        Assertions.assertEquals(1_000, bitmap.cardinality());
+        Assertions.assertEquals(18_000, bitmap.toArray()[0]);
+    }
+
+    @Test
+    @DisplayName("交集和并集与 BitSet 计算结果一致")
+    void testAndOrMatchBitSet() {
+        Random random = new Random(7);
+        TagBitmap dense = new TagBitmap();
+        TagBitmap sparse = new TagBitmap();
+        BitSet denseExpected = new BitSet();
+        BitSet sparseExpected = new BitSet();
+        for (int i = 0; i < 300_000; i++) {
+            if (random.nextInt(3) > 0) {
+                dense.add(i);
+                denseExpected.set(i);
+            }
+            if (random.nextInt(100) == 0) {
+                sparse.add(i);
+                sparseExpected.set(i);
+            }
+        }
+        BitSet and = (BitSet) denseExpected.clone();
+        and.and(sparseExpected);
+        BitSet or = (BitSet) denseExpected.clone();
+        or.or(sparseExpected);
+
+        Assertions.assertArrayEquals(and.stream().toArray(), dense.and(sparse).toArray());
+        Assertions.assertArrayEquals(and.stream().toArray(), sparse.and(dense).toArray());
+        Assertions.assertArrayEquals(or.stream().toArray(), dense.or(sparse).toArray());
+        Assertions.assertArrayEquals(denseExpected.stream().toArray(), dense.and(dense).toArray());
+        Assertions.assertEquals(denseExpected.cardinality(), dense.cardinality());
+        Assertions.assertTrue(TagBitmap.of(1, 2).and(TagBitmap.of(70_000)).isEmpty());
+        Assertions.assertEquals(TagBitmap.of(3, 1, 2), TagBitmap.of(1, 2, 3));
+    }
+}